@@ -0,0 +1,46 @@
+package com.lucky.jacklamb.annotation.mvc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 舱壁隔离，限制同时执行某个Controller(或Controller方法)的请求数，
+ * 避免一个缓慢的下游服务占用所有的工作线程<br>
+ * 1.标注在Controller类上时，该Controller的所有映射共用一个舱壁<br>
+ * 2.标注在映射方法上时，该方法使用独立的舱壁(优先于类上的配置)<br>
+ * 超过限制且排队已满或排队超时的请求会被立即拒绝，响应503和Retry-After
+ * @author fk-7075
+ *
+ */
+@Target({ElementType.TYPE,ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Bulkhead {
+
+	/**
+	 * 最大并发数
+	 * @return
+	 */
+	int maxConcurrent() default 10;
+
+	/**
+	 * 达到最大并发数后允许排队等待的请求数(默认为0，不排队)
+	 * @return
+	 */
+	int maxQueue() default 0;
+
+	/**
+	 * 排队等待的最长时间(单位：ms)
+	 * @return
+	 */
+	long queueTimeout() default 100;
+
+	/**
+	 * 拒绝请求时Retry-After响应头的值(单位：s)
+	 * @return
+	 */
+	int retryAfter() default 1;
+}
@@ -0,0 +1,70 @@
+package com.lucky.jacklamb.annotation.mvc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 缓存GET请求的响应结果，缓存命中时DispatchServlet在参数绑定之前直接响应序列化后的内容，不会执行Controller方法<br>
+ * 1.缓存key由请求路径、params指定的请求参数(默认为完整的查询字符串)以及headers指定的请求头组成<br>
+ * 2.只缓存状态码为200且没有设置Cookie的响应，只保存Content-Type与响应体<br>
+ * 3.响应带有ETag与Cache-Control，If-None-Match命中时返回304<br>
+ * 4.使用ResponseCacheManage.evict(name)可以清除某个缓存中的所有内容
+ * @author fk-7075
+ *
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ResponseCache {
+
+	/**
+	 * 缓存名称，名称相同的映射共用一个缓存，默认为"Controller类名.方法名"
+	 * @return
+	 */
+	String value() default "";
+
+	/**
+	 * 缓存的有效时间(单位：s)
+	 * @return
+	 */
+	long ttl() default 60;
+
+	/**
+	 * 组成缓存key的请求参数，默认使用完整的查询字符串
+	 * @return
+	 */
+	String[] params() default {};
+
+	/**
+	 * 组成缓存key的请求头(例如Accept-Language)
+	 * @return
+	 */
+	String[] headers() default {};
+
+	/**
+	 * 单个响应的大小限制(单位：byte)，超过限制的响应不会被缓存
+	 * @return
+	 */
+	int maxBytes() default 1024 * 1024;
+
+	/**
+	 * 缓存的最大条目数，名称相同的映射必须使用相同的值，否则启动时抛出异常
+	 * @return
+	 */
+	int maxEntries() default 1000;
+
+	/**
+	 * 是否同时缓存gzip压缩后的响应体，客户端支持时直接响应压缩后的内容
+	 * @return
+	 */
+	boolean gzip() default true;
+
+	/**
+	 * Cache-Control响应头，默认为"max-age=ttl"
+	 * @return
+	 */
+	String cacheControl() default "";
+}
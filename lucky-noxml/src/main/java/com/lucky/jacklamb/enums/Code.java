@@ -4,7 +4,11 @@ public enum Code {
 
     ERROR("HTTP Status 500 Internal Server Error",500),
     NOTFOUND("HTTP Status 404 Not Found",404),
-    REFUSED("HTTP Status 403 Blocking Access",403);
+    REFUSED("HTTP Status 403 Blocking Access",403),
+    UNAVAILABLE("HTTP Status 503 Service Unavailable",503),
+    BAD_REQUEST("HTTP Status 400 Bad Request",400),
+    CONFLICT("HTTP Status 409 Conflict",409),
+    TOO_LARGE("HTTP Status 413 Payload Too Large",413);
 
     public String errTitle;
 
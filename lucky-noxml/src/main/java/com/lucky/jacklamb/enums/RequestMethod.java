@@ -9,6 +9,7 @@ public enum RequestMethod {
 	HEAD,
 	CONNECT,
 	OPTIONS,
-	TRACE;
+	TRACE,
+	PATCH;
 
 }
@@ -7,6 +7,9 @@ import com.lucky.jacklamb.exception.NotFindRequestException;
 import com.lucky.jacklamb.utils.file.MultipartFile;
 import com.lucky.jacklamb.ioc.config.AppConfig;
 import com.lucky.jacklamb.ioc.config.WebConfig;
+import com.lucky.jacklamb.rest.LSON;
+import com.lucky.jacklamb.servlet.core.Model;
+import com.lucky.jacklamb.utils.serializable.BinarySerializationScheme;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.auth.AuthScope;
@@ -43,6 +46,10 @@ public class HttpClientCall {
 
     private static WebConfig webConfig = AppConfig.getAppConfig().getWebConfig();
 
+    private static LSON lson = new LSON();
+
+    private static Gson gson = new Gson();
+
     /**
      * 方法体说明：向远程接口发起请求，返回字符串类型结果
      *
@@ -89,6 +96,63 @@ public class HttpClientCall {
         return methodResult;
     }
 
+    /**
+     * 方法体说明：向远程接口发起请求，返回Object类型结果<br>
+     * 设置了二进制序列化方案并且开启了httpClient-binary时优先请求二进制格式(如CBOR)的结果，
+     * 对方按Accept返回了二进制格式时直接从响应流中解码，否则使用LSON(Lucky的日期格式yyyy-MM-dd HH:mm:ss)按JSON解析，
+     * 用于调用Lucky的服务；调用其他JSON接口时请使用getCall等方法，JSON结果按Gson的默认格式解析
+     *
+     * @param url           接口地址
+     * @param requestMethod 请求类型
+     * @param params        传递参数
+     * @param type          转换的目的类型
+     * @param auth          访问凭证(username,password)
+     * @return 返回对象类型的结果
+     * @throws IOException
+     * @throws URISyntaxException
+     */
+    public static Object callObject(String url, RequestMethod requestMethod, Map<String, Object> params, Type type, String... auth) throws IOException, URISyntaxException {
+        return callObject(url, requestMethod, params, type, true, auth);
+    }
+
+    /**
+     * @param luckyJson JSON结果是否使用LSON解析，为false时使用Gson的默认配置(与之前版本的getCall等方法相同)
+     */
+    private static Object callObject(String url, RequestMethod requestMethod, Map<String, Object> params, Type type, boolean luckyJson, String... auth) throws IOException, URISyntaxException {
+        BinarySerializationScheme scheme = webConfig.isHttpClientBinary() ? Model.getBinarySerializationScheme() : null;
+        CloseableHttpClient client = HttpClients.createDefault();
+        try {
+            HttpRequestBase method = getHttpRequestObject(url, params, requestMethod);
+            method.setConfig(getRequestConfig());
+            method.addHeader("Content-Type", "application/x-www-form-urlencoded");
+            if (scheme != null) {
+                method.addHeader("Accept", scheme.getContentType() + ", application/json;q=0.9, */*;q=0.8");
+            }
+            HttpResponse response = client.execute(method, getHttpClientContext(auth));
+            int code = response.getStatusLine().getStatusCode();
+            log.debug("Response Status ==> " + code);
+            if (code != 200) {
+                log.error("远程服务异常，未能正常响应..");
+                throw new HttpClientRequestException("远程服务异常，访问失败");
+            }
+            HttpEntity entity = response.getEntity();
+            ContentType contentType = entity == null ? null : ContentType.get(entity);
+            if (scheme != null && contentType != null && scheme.getContentType().equalsIgnoreCase(contentType.getMimeType())) {
+                try (InputStream in = entity.getContent()) {
+                    return scheme.deserialization(type, in);
+                } catch (IOException | RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException("无法解析" + contentType.getMimeType() + "格式的响应结果", e);
+                }
+            }
+            String result = entity == null ? "" : EntityUtils.toString(entity, "UTF-8");
+            return luckyJson ? lson.fromJson(type, result) : gson.fromJson(result, type);
+        } finally {
+            client.close();
+        }
+    }
+
     /**
      * 方法体说明：向远程接口发起GET请求，返回字符串类型结果
      *
@@ -209,7 +273,7 @@ public class HttpClientCall {
 
 
     /**
-     * 注：只有返回数据为JSON格式时才有效
+     * 注：只有返回数据为JSON或二进制格式时才有效
      * 向远程接口发起GET请求，返回Object类型结果
      *
      * @param url    接口地址
@@ -220,13 +284,12 @@ public class HttpClientCall {
      * @throws IOException
      */
     public static Object getCall(String url, Map<String, Object> params, Type type, String... auth) throws IOException, URISyntaxException {
-        String result = call(url, RequestMethod.GET, params, auth);
-        return new Gson().fromJson(result, type);
+        return callObject(url, RequestMethod.GET, params, type, false, auth);
     }
 
 
     /**
-     * 注：只有返回数据为JSON格式时才有效
+     * 注：只有返回数据为JSON或二进制格式时才有效
      * 向远程接口发起GET请求，返回Object类型结果
      *
      * @param url  接口地址
@@ -236,13 +299,12 @@ public class HttpClientCall {
      * @throws IOException
      */
     public static Object getCall(String url, Type type, String... auth) throws IOException, URISyntaxException {
-        String result = call(url, RequestMethod.GET, new HashMap<>(), auth);
-        return new Gson().fromJson(result, type);
+        return callObject(url, RequestMethod.GET, new HashMap<>(), type, false, auth);
     }
 
 
     /**
-     * 注：只有返回数据为JSON格式时才有效
+     * 注：只有返回数据为JSON或二进制格式时才有效
      * 向远程接口发起POST请求，返回Object类型结果
      *
      * @param url    接口地址
@@ -253,13 +315,12 @@ public class HttpClientCall {
      * @throws IOException
      */
     public static Object postCall(String url, Map<String, Object> params, Type type, String... auth) throws IOException, URISyntaxException {
-        String result = call(url, RequestMethod.POST, params, auth);
-        return new Gson().fromJson(result, type);
+        return callObject(url, RequestMethod.POST, params, type, false, auth);
     }
 
 
     /**
-     * 注：只有返回数据为JSON格式时才有效
+     * 注：只有返回数据为JSON或二进制格式时才有效
      * 向远程接口发起PUT请求，返回Object类型结果
      *
      * @param url    接口地址
@@ -270,13 +331,12 @@ public class HttpClientCall {
      * @throws IOException
      */
     public static Object putCall(String url, Map<String, Object> params, Type type, String... auth) throws IOException, URISyntaxException {
-        String result = call(url, RequestMethod.PUT, params, auth);
-        return new Gson().fromJson(result, type);
+        return callObject(url, RequestMethod.PUT, params, type, false, auth);
     }
 
 
     /**
-     * 注：只有返回数据为JSON格式时才有效
+     * 注：只有返回数据为JSON或二进制格式时才有效
      * 向远程接口发起DELETE请求，返回Object类型结果
      *
      * @param url    接口地址
@@ -287,13 +347,12 @@ public class HttpClientCall {
      * @throws IOException
      */
     public static Object deleteCall(String url, Map<String, Object> params, Type type, String... auth) throws IOException, URISyntaxException {
-        String result = call(url, RequestMethod.DELETE, params, auth);
-        return new Gson().fromJson(result, type);
+        return callObject(url, RequestMethod.DELETE, params, type, false, auth);
     }
 
 
     /**
-     * 注：只有返回数据为JSON格式时才有效
+     * 注：只有返回数据为JSON或二进制格式时才有效
      * 向远程接口发起DELETE请求，返回Object类型结果
      *
      * @param url  接口地址
@@ -303,8 +362,7 @@ public class HttpClientCall {
      * @throws IOException
      */
     public static Object deleteCall(String url, Type type, String... auth) throws IOException, URISyntaxException {
-        String result = call(url, RequestMethod.DELETE, new HashMap<>(), auth);
-        return new Gson().fromJson(result, type);
+        return callObject(url, RequestMethod.DELETE, new HashMap<>(), type, false, auth);
     }
 
     /**
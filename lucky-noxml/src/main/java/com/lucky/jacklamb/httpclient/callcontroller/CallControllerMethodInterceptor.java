@@ -1,6 +1,7 @@
 package com.lucky.jacklamb.httpclient.callcontroller;
 
 
+import com.google.gson.JsonParseException;
 import com.lucky.jacklamb.annotation.ioc.CallController;
 import com.lucky.jacklamb.annotation.mvc.FileDownload;
 import com.lucky.jacklamb.annotation.mvc.FileUpload;
@@ -59,11 +60,20 @@ public class CallControllerMethodInterceptor implements MethodInterceptor {
                 return HttpClientCall.callByte(apiUrl,md.method[0],callapiMap);
             }
 
+            //返回对象类型的结果时按内容协商接收二进制或JSON格式，直接转换为返回值类型
+            Class<?> returnClass=method.getReturnType();
+            if(returnClass!=void.class&&returnClass!=String.class&&!method.isAnnotationPresent(FileUpload.class)){
+                try{
+                    return HttpClientCall.callObject(apiUrl,md.method[0],callapiMap,method.getGenericReturnType());
+                }catch (JsonParseException e){
+                    throw new JsonConversionException(apiUrl,returnClass,e.getMessage(),e);
+                }
+            }
+
             //调用远程接口
             String callResult=call(apiUrl,method,callapiMap,md.method[0]);
 
             //封装返回结果
-            Class<?> returnClass=method.getReturnType();
             if(returnClass!=void.class){
                 if(returnClass==String.class){
                     return callResult;
@@ -2,7 +2,12 @@ package com.lucky.jacklamb.ioc;
 
 import com.lucky.jacklamb.enums.RequestMethod;
 import com.lucky.jacklamb.enums.Rest;
-import com.lucky.jacklamb.utils.base.IpUtil;
+import com.lucky.jacklamb.servlet.cache.ResponseCachePolicy;
+import com.lucky.jacklamb.servlet.limit.BulkheadPolicy;
+import com.lucky.jacklamb.servlet.mapping.CorsPolicy;
+import com.lucky.jacklamb.servlet.mapping.MethodBindingPlan;
+import com.lucky.jacklamb.utils.base.IpAddress;
+import com.lucky.jacklamb.utils.base.IpFilter;
 
 import java.lang.reflect.Method;
 import java.util.*;
@@ -35,12 +40,17 @@ public class ControllerAndMethod {
 	private String[] ipSection;
 	
 	/**
-	 * Rest风格参数名与值的Map
+	 * 由ips编译得到的IP规则
 	 */
-	private Map<String,String> restKV;
+	private volatile IpFilter ipFilter;
 	
 	/**
-	 * 前后缀参数
+	 * 由ipSection编译得到的IP规则
+	 */
+	private volatile IpFilter ipSectionFilter;
+	
+	/**
+	 * 前后缀参数(启动时根据全局配置与@Controller的prefix和suffix解析)
 	 */
 	private List<String> preAndSuf;
 	
@@ -49,16 +59,36 @@ public class ControllerAndMethod {
 	 */
 	private Method method;
 	
+	/**
+	 * Controller方法的参数绑定计划
+	 */
+	private MethodBindingPlan bindingPlan;
+	
 	/**
 	 * 启用格式转换
 	 */
 	private Rest rest;
 	
 	/**
-	 * Url请求
+	 * URL映射模板
 	 */
 	private String url;
 	
+	/**
+	 * 跨域策略，没有配置@CrossOrigin时为null
+	 */
+	private CorsPolicy corsPolicy;
+	
+	/**
+	 * 舱壁，没有配置@Bulkhead时为null
+	 */
+	private BulkheadPolicy bulkhead;
+
+	/**
+	 * 响应缓存，没有配置@ResponseCache时为null
+	 */
+	private ResponseCachePolicy responseCache;
+	
 	public void setPrefix(String presix) {
 		preAndSuf.set(0, presix);
 	}
@@ -83,7 +113,6 @@ public class ControllerAndMethod {
 	}
 
 	public ControllerAndMethod() {
-		restKV=new HashMap<>();
 		preAndSuf=new ArrayList<>();
 		ips=new HashSet<>();
 		preAndSuf.add("");
@@ -91,21 +120,6 @@ public class ControllerAndMethod {
 		rest=Rest.NO;
 	}
 	
-	public void restPut(String key,String value) {
-		restKV.put(key, value);
-	}
-	
-	public String getVaule(String key) {
-		return restKV.get(key);
-	}
-	public Map<String, String> getRestKV() {
-		return restKV;
-	}
-
-	public void setRestKV(Map<String, String> restKV) {
-		this.restKV = restKV;
-	}
-
 	public Object getController() {
 		return controller;
 	}
@@ -122,6 +136,14 @@ public class ControllerAndMethod {
 		this.method = method;
 	}
 	
+	public MethodBindingPlan getBindingPlan() {
+		return bindingPlan;
+	}
+	
+	public void setBindingPlan(MethodBindingPlan bindingPlan) {
+		this.bindingPlan = bindingPlan;
+	}
+	
 	public RequestMethod[] getRequestMethods() {
 		return requestMethods;
 	}
@@ -130,19 +152,42 @@ public class ControllerAndMethod {
 	}
 	
 	public boolean ipISCorrect(String currip) {
-		if(ips.isEmpty())
-			return true;
-		if("localhost".equals(currip))
-			currip="127.0.0.1";
-		for(String ip:ips) {
-			if(ip.startsWith("!")) {//判断该ip是否属于非法IP
-				if(currip.equals(ip.substring(1)))
-					return false;
-			}else if(currip.equals(ip)) {//判断该ip是否属性合法ip
-				return true;
-			}
+		return getIpFilter().isLegal(currip);
+	}
+	
+	/**
+	 * 判断IP是否可以访问该方法(同时满足ip与ipSection的限制)
+	 * @param ip 解析后的IP，无法解析的IP为null
+	 * @return
+	 */
+	public boolean isLegalIp(IpAddress ip) {
+		return getIpFilter().isLegal(ip) && getIpSectionFilter().isLegal(ip);
+	}
+	
+	/**
+	 * 编译ip与ipSection中的IP规则，规则不合法时抛出IllegalArgumentException
+	 */
+	public void compileIpFilter() {
+		getIpFilter();
+		getIpSectionFilter();
+	}
+	
+	private IpFilter getIpFilter() {
+		IpFilter filter = ipFilter;
+		if(filter==null) {
+			filter = IpFilter.compile(ips);
+			ipFilter = filter;
+		}
+		return filter;
+	}
+	
+	private IpFilter getIpSectionFilter() {
+		IpFilter filter = ipSectionFilter;
+		if(filter==null) {
+			filter = IpFilter.compile(ipSection);
+			ipSectionFilter = filter;
 		}
-		return false;//非非法ip也非合法ip，即为未注册ip，不给予通过
+		return filter;
 	}
 	
 	public Set<String> getIps() {
@@ -150,26 +195,16 @@ public class ControllerAndMethod {
 	}
 	public void setIps(Set<String> ips) {
 		this.ips = ips;
+		this.ipFilter = null;
 	}
 	
 	public void addIp(String ip) {
-		if("localhost".equals(ip))
-			ip="127.0.0.1";
 		ips.add(ip);
+		this.ipFilter = null;
 	}
 	
 	public boolean ipExistsInRange(String ip) {
-		if(ipSection==null||ipSection.length==0)
-			return true;
-		for(String hfip:ipSection) {
-			if(hfip.startsWith("!")) {//判断该ip是否属于非法IP段
-				if(IpUtil.ipExistsInRange(ip,hfip.substring(1))) 
-					return false;
-			}else if(IpUtil.ipExistsInRange(ip,hfip)){//判断该ip是否属性合法ip段
-				return true;
-			}
-		}
-		return false;//非非法ip段也非合法ip段，即为未注册ip，不给予通过
+		return getIpSectionFilter().isLegal(ip);
 	}
 	
 	public void addIds(String[] ips) {
@@ -183,6 +218,7 @@ public class ControllerAndMethod {
 	}
 	public void setIpSection(String[] ipSection) {
 		this.ipSection = ipSection;
+		this.ipSectionFilter = null;
 	}
 	public Rest getRest() {
 		return rest;
@@ -190,4 +226,22 @@ public class ControllerAndMethod {
 	public void setRest(Rest rest) {
 		this.rest = rest;
 	}
+	public CorsPolicy getCorsPolicy() {
+		return corsPolicy;
+	}
+	public void setCorsPolicy(CorsPolicy corsPolicy) {
+		this.corsPolicy = corsPolicy;
+	}
+	public BulkheadPolicy getBulkhead() {
+		return bulkhead;
+	}
+	public void setBulkhead(BulkheadPolicy bulkhead) {
+		this.bulkhead = bulkhead;
+	}
+	public ResponseCachePolicy getResponseCache() {
+		return responseCache;
+	}
+	public void setResponseCache(ResponseCachePolicy responseCache) {
+		this.responseCache = responseCache;
+	}
 }
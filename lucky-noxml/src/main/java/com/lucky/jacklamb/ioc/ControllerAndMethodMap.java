@@ -3,12 +3,17 @@ package com.lucky.jacklamb.ioc;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.lucky.jacklamb.enums.RequestMethod;
+import com.lucky.jacklamb.servlet.mapping.RouteTrie;
+
 public class ControllerAndMethodMap {
 	
 	private List<URLAndRequestMethod> urlList;
 	
 	private List<ControllerAndMethod> controllerMethodList;	
 	
+	private RouteTrie routeTrie;
+	
 	
 	public List<URLAndRequestMethod> getUrlList() {
 		return urlList;
@@ -17,11 +22,23 @@ public class ControllerAndMethodMap {
 	public ControllerAndMethodMap() {
 		urlList=new ArrayList<>();
 		controllerMethodList=new ArrayList<>();
+		routeTrie=new RouteTrie();
 	}
 	
 	public void put(URLAndRequestMethod uRLAndRequestMethod, ControllerAndMethod controllerAndMethod ) {
 		urlList.add(uRLAndRequestMethod);
 		controllerMethodList.add(controllerAndMethod);
+		routeTrie.add(uRLAndRequestMethod, controllerAndMethod);
+	}
+	
+	/**
+	 * 使用路由索引找到与当前URL和请求类型匹配的映射
+	 * @param url 当前请求的URL
+	 * @param requestMethod 当前请求的类型
+	 * @return 匹配结果
+	 */
+	public RouteTrie.Result find(String url, RequestMethod requestMethod) {
+		return routeTrie.find(url, requestMethod);
 	}
 	
 	public ControllerAndMethod get(URLAndRequestMethod uRLAndRequestMethod) {
@@ -10,9 +10,14 @@ import com.lucky.jacklamb.exception.NotAddIOCComponent;
 import com.lucky.jacklamb.exception.NotFindBeanException;
 import com.lucky.jacklamb.httpclient.callcontroller.CallControllerProxy;
 import com.lucky.jacklamb.httpclient.luckyclient.LuckyClientControllerProxy;
+import com.lucky.jacklamb.ioc.config.AppConfig;
 import com.lucky.jacklamb.servlet.ServerStartRun;
 import com.lucky.jacklamb.servlet.mapping.Mapping;
 import com.lucky.jacklamb.servlet.mapping.MappingDetails;
+import com.lucky.jacklamb.servlet.cache.ResponseCachePolicy;
+import com.lucky.jacklamb.servlet.limit.BulkheadPolicy;
+import com.lucky.jacklamb.servlet.mapping.CorsPolicy;
+import com.lucky.jacklamb.servlet.mapping.MethodBindingPlan;
 import com.lucky.jacklamb.utils.base.Assert;
 import com.lucky.jacklamb.utils.base.LuckyUtils;
 import com.lucky.jacklamb.utils.reflect.AnnotationUtils;
@@ -177,6 +182,7 @@ public class ControllerIOC {
 				continue;
 			}
 			String url_c=getControllerUrl(clzz);
+			List<String> preAndSuf=getControllerPreAndSuf(clzz);
 			Method[] publicMethods = clzz.getDeclaredMethods();
 			String ip,ips,rest;
 			MappingDetails md;
@@ -192,14 +198,22 @@ public class ControllerIOC {
 					come.setRest(getMethodRest(clzz,method));
 					come.setIpSection(clzz.getAnnotation(Controller.class).ipSection());
 					come.setIpSection(md.ipSection);
+					come.compileIpFilter();
 					come.setController(entry.getValue());
 					String url_m=md.value;
 					if(url_m.startsWith("/")) {
 						url_m=url_m.substring(1);
 					}
 					come.setMethod(method);
+					come.setBindingPlan(MethodBindingPlan.of(method));
+					come.setCorsPolicy(CorsPolicy.of(clzz, method));
+					come.setBulkhead(BulkheadPolicy.of(clzz, method));
+					come.setResponseCache(ResponseCachePolicy.of(clzz, method));
 					RequestMethod[] mappingRequestMethod = md.method;
 					come.setRequestMethods(mappingRequestMethod);
+					come.setUrl(url_c + url_m);
+					come.setPrefix(preAndSuf.get(0));
+					come.setSuffix(preAndSuf.get(1));
 					URLAndRequestMethod uRLAndRequestMethod=new URLAndRequestMethod();
 					uRLAndRequestMethod.setUrl(url_c + url_m);
 					uRLAndRequestMethod.addMethods(mappingRequestMethod);
@@ -241,6 +255,22 @@ public class ControllerIOC {
 		return cUrl;
 	}
 
+	/**
+	 * 得到Controller转发重定向操作的前后缀，@Controller中的配置优先于全局配置
+	 * @param controllerClass Controller的Class
+	 * @return [prefix,suffix]
+	 */
+	private List<String> getControllerPreAndSuf(Class<?> controllerClass){
+		List<String> globalprefixAndSuffix=AppConfig.getAppConfig().getWebConfig().getHanderPrefixAndSuffix();
+		Controller cont=AnnotationUtils.get(controllerClass,Controller.class);
+		List<String> preAndSuf=new ArrayList<>(globalprefixAndSuffix);
+		if(!"".equals(cont.prefix()))
+			preAndSuf.set(0,cont.prefix());
+		if(!"".equals(cont.suffix()))
+			preAndSuf.set(1,cont.suffix());
+		return preAndSuf;
+	}
+
 	private Rest getMethodRest(Class<?> controllerClass,Method controllerMethod){
 		if(AnnotationUtils.isExist(controllerMethod,ResponseBody.class)){
 			return AnnotationUtils.get(controllerMethod,ResponseBody.class).value();
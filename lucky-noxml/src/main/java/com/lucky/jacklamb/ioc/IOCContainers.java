@@ -9,6 +9,7 @@ import com.lucky.jacklamb.exception.NotFindBeanException;
 import com.lucky.jacklamb.expression.$Expression;
 import com.lucky.jacklamb.ioc.config.AppConfig;
 import com.lucky.jacklamb.ioc.scan.ScanFactory;
+import com.lucky.jacklamb.servlet.RequestScopedProxy;
 import com.lucky.jacklamb.servlet.core.Model;
 import com.lucky.jacklamb.sqlcore.mapper.LuckyMapper;
 import com.lucky.jacklamb.sqlcore.mapper.LuckyService;
@@ -19,6 +20,9 @@ import com.lucky.jacklamb.utils.file.ini.INIConfig;
 import com.lucky.jacklamb.utils.reflect.ClassUtils;
 import com.lucky.jacklamb.utils.reflect.FieldUtils;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import javax.servlet.ServletContext;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
@@ -27,6 +31,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -36,9 +41,12 @@ import java.util.stream.Stream;
  *
  */
 public final class IOCContainers {
+
+	private static final Logger log= LogManager.getLogger(IOCContainers.class);
 	
 	private AspectAOP AspectIOC;
 	private final static INIConfig ini=new INIConfig();
+	private final static Map<Class<?>,InjectionPlan> injectionPlans=new ConcurrentHashMap<>();
 	private RepositoryIOC repositoryIOC;
 	private ServiceIOC serviceIOC;
 	private ComponentIOC appIOC;
@@ -145,6 +153,7 @@ public final class IOCContainers {
 			injection(repositoryIOC.getRepositoryMap());
 			injection(serviceIOC.getBeanMap());
 			injection(controllerIOC.getControllerMap());
+			injectionRequestScope(controllerIOC.getControllerMap());
 		} catch (IllegalArgumentException e) {
 			throw new InjectionPropertiesException("属性注入异常，注入的属性与原属性类型不匹配....");
 		} catch (IllegalAccessException e) {
@@ -205,26 +214,25 @@ public final class IOCContainers {
 
 
 	/**
-	 * 每次处理请求时为Controller注入Model、Request、Response和Session、Aplication对象属性
-	 * @param object
-	 * @param model
+	 * 启动时为Controller注入Model、Request、Response和Session、Aplication对象属性，
+	 * 注入的是绑定到当前线程请求的代理对象，处理请求时不再需要逐个属性注入
+	 * @param controllerMap
 	 */
-	public void autowReqAdnResp(Object object,Model model){
-		Class<?> controllerClass=object.getClass();
-		Field[] fields= ClassUtils.getAllFields(controllerClass);
-		for(Field field:fields) {
-			if(Model.class.isAssignableFrom(field.getType())) {
-				FieldUtils.setValue(object,field,model);
-			}else if(HttpSession.class.isAssignableFrom(field.getType())) {
-				FieldUtils.setValue(object,field,model.getSession());
-			}else if(ServletRequest.class.isAssignableFrom(field.getType())) {
-				FieldUtils.setValue(object,field,model.getRequest());
-			}else if(ServletResponse.class.isAssignableFrom(field.getType())) {
-				FieldUtils.setValue(object,field,model.getResponse());
-			}else if(ServletContext.class.isAssignableFrom(field.getType())) {
-				FieldUtils.setValue(object,field,model.getServletContext());
-			}else {
-				continue;
+	private void injectionRequestScope(Map<String,Object> controllerMap){
+		for(Object controller:controllerMap.values()) {
+			for(Field field:ClassUtils.getAllFields(controller.getClass())) {
+				Class<?> fieldType=field.getType();
+				if(!Model.class.isAssignableFrom(fieldType)&&!HttpSession.class.isAssignableFrom(fieldType)
+						&&!ServletRequest.class.isAssignableFrom(fieldType)&&!ServletResponse.class.isAssignableFrom(fieldType)
+						&&!ServletContext.class.isAssignableFrom(fieldType)) {
+					continue;
+				}
+				Object proxy=RequestScopedProxy.getProxy(fieldType);
+				if(proxy==null) {
+					log.warn("无法为属性 "+controller.getClass().getName()+"."+field.getName()+" 注入请求作用域对象，请将属性类型声明为Model、HttpServletRequest、HttpServletResponse、HttpSession或ServletContext！");
+					continue;
+				}
+				FieldUtils.setValue(controller,field,proxy);
 			}
 		}
 	}
@@ -252,121 +260,157 @@ public final class IOCContainers {
 	 */
     public static void injection(Object component){
         ApplicationBeans beans=ApplicationBeans.createApplicationBeans();
+        Class<?> componentClass=component.getClass();
+        for(Field field:getInjectionFields(componentClass)) {
+            injection(beans,component,componentClass,field);
+        }
+    }
+
+	/**
+	 * 使用缓存的注入计划进行依赖注入，适用于同一类型的对象会被反复创建的场景(例如每个WebSocket连接都会创建一个Endpoint)<br>
+	 * 第一次注入时确定需要注入的属性，并记录单例Bean与常量的值，之后的对象直接赋值；
+	 * 集合、数组与SSH连接等可变的值仍然为每个对象单独创建
+	 * @param component 某一个对象
+	 */
+	public static void cachedInjection(Object component){
+		Class<?> componentClass=component.getClass();
+		InjectionPlan plan=injectionPlans.get(componentClass);
+		if(plan==null){
+			//第一个对象在生成注入计划的同时完成注入
+			injectionPlans.putIfAbsent(componentClass,new InjectionPlan(component));
+			return;
+		}
+		plan.inject(component);
+	}
+
+	/**
+	 * 得到需要检查注入的属性(所有非final属性)
+	 * @param componentClass 组件的类型
+	 * @return
+	 */
+	static List<Field> getInjectionFields(Class<?> componentClass){
+		return Stream.of(ClassUtils.getAllFields(componentClass))
+				.filter(f-> !Modifier.isFinal(f.getModifiers())).collect(Collectors.toList());
+	}
+
+	/**
+	 * 为对象的一个属性注入IOC容器中的值，属性没有注入相关的注解时不做任何处理
+	 * @param beans ApplicationBeans
+	 * @param component 某一个对象
+	 * @param componentClass 对象的类型
+	 * @param field 属性
+	 */
+	static void injection(ApplicationBeans beans,Object component,Class<?> componentClass,Field field){
         Autowired auto;
         Value value;
         SSH ssh;
         Remote remote;
-        Class<?> componentClass=component.getClass();
-        List<Field> fields= Stream.of(ClassUtils.getAllFields(componentClass))
-				.filter(f-> !Modifier.isFinal(f.getModifiers())).collect(Collectors.toList());
-        for(Field field:fields) {
-            Class<?> fieldClass=field.getType();
-            if(field.isAnnotationPresent(Autowired.class)) {
-                auto=field.getAnnotation(Autowired.class);
-                String auval = auto.value();
-                if("".equals(auval)) {
-					//类型扫描
-					try {
-						FieldUtils.setValue(component,field,beans.getBean(fieldClass,getCurrClass(componentClass)));
-					}catch (NotFindBeanException e){
-						throw new AutoInjectionException(getCurrClass(componentClass),field,e);
-					}
+        Class<?> fieldClass=field.getType();
+        if(field.isAnnotationPresent(Autowired.class)) {
+            auto=field.getAnnotation(Autowired.class);
+            String auval = auto.value();
+            if("".equals(auval)) {
+				//类型扫描
+				try {
+					FieldUtils.setValue(component,field,beans.getBean(fieldClass,getCurrClass(componentClass)));
+				}catch (NotFindBeanException e){
+					throw new AutoInjectionException(getCurrClass(componentClass),field,e);
+				}
 
-                }else if(auval.contains("${")&&auval.contains("}")){
-                    String key=auval.substring(2,auval.length()-1);
-                    if(key.startsWith("S:")){
-                    	FieldUtils.setValue(component,field,ini.getObject(fieldClass,key.substring(2)));
-                    }else{
-						FieldUtils.setValue(component,field, $Expression.translation(auval,fieldClass));
-                    }
+            }else if(auval.contains("${")&&auval.contains("}")){
+                String key=auval.substring(2,auval.length()-1);
+                if(key.startsWith("S:")){
+                	FieldUtils.setValue(component,field,ini.getObject(fieldClass,key.substring(2)));
                 }else{
-					//id注入
+					FieldUtils.setValue(component,field, $Expression.translation(auval,fieldClass));
+                }
+            }else{
+				//id注入
+				try {
+					FieldUtils.setValue(component,field, beans.getBean(auto.value()));
+				}catch (NotFindBeanException e){
+					throw new AutoInjectionException(getCurrClass(componentClass),field,e);
+				}
+            }
+        }else if(field.isAnnotationPresent(Value.class)) {
+            value=field.getAnnotation(Value.class);
+            String[] val = value.value();
+            if(val.length==0) {//类型扫描
+            	try {
+					FieldUtils.setValue(component,field,beans.getBean(fieldClass,getCurrClass(componentClass)));
+				}catch (NotFindBeanException e){
+					throw new AutoInjectionException(getCurrClass(componentClass),field,e);
+				}
+            }else {
+                if(fieldClass.isArray()) {//基本类型的数组类型
+					FieldUtils.setValue(component,field,JavaConversion.strArrToBasicArr(val, fieldClass));
+                }else if(List.class.isAssignableFrom(fieldClass)) {//List类型
 					try {
-						FieldUtils.setValue(component,field, beans.getBean(auto.value()));
+						FieldUtils.setValue(component,field,getList(beans,field,val));
 					}catch (NotFindBeanException e){
-						throw new AutoInjectionException(getCurrClass(componentClass),field,e);
+						if(componentClass.getSimpleName().equals("$$EnhancerByCGLIB$$")){
+							throw new AutoInjectionException(componentClass.getSuperclass(),field,e);
+						}
+						throw new AutoInjectionException(componentClass,field,e);
 					}
-                }
-            }else if(field.isAnnotationPresent(Value.class)) {
-                value=field.getAnnotation(Value.class);
-                String[] val = value.value();
-                if(val.length==0) {//类型扫描
+                }else if(Set.class.isAssignableFrom(fieldClass)) {//Set类型
                 	try {
-						FieldUtils.setValue(component,field,beans.getBean(fieldClass,getCurrClass(componentClass)));
+						FieldUtils.setValue(component,field,new HashSet<>(getList(beans,field,val)));
 					}catch (NotFindBeanException e){
-						throw new AutoInjectionException(getCurrClass(componentClass),field,e);
+						if(componentClass.getSimpleName().contains("$$EnhancerByCGLIB$$")){
+							throw new AutoInjectionException(componentClass.getSuperclass(),field,e);
+						}
+						throw new AutoInjectionException(componentClass,field,e);
 					}
-                }else {
-                    if(fieldClass.isArray()) {//基本类型的数组类型
-						FieldUtils.setValue(component,field,JavaConversion.strArrToBasicArr(val, fieldClass));
-                    }else if(List.class.isAssignableFrom(fieldClass)) {//List类型
-						try {
-							FieldUtils.setValue(component,field,getList(beans,field,val));
-						}catch (NotFindBeanException e){
-							if(componentClass.getSimpleName().equals("$$EnhancerByCGLIB$$")){
-								throw new AutoInjectionException(componentClass.getSuperclass(),field,e);
+                }else if(Map.class.isAssignableFrom(fieldClass)) {//Map类型
+                    Map<Object,Object> map=new HashMap<>();
+                    String[] fx=FieldUtils.getStrGenericType(field);
+                    boolean one=fx[0].endsWith("$ref");
+                    boolean two=fx[1].endsWith("$ref");
+                    if(one&&two) {//K-V都不是基本类型
+                        for(String z:val) {
+                            String[] kv=z.split(":");
+							try {
+								map.put(beans.getBean(kv[0]), beans.getBean(kv[1]));
+							}catch (NotFindBeanException e) {
+								throw new AutoInjectionException(getCurrClass(componentClass), field, e);
 							}
-							throw new AutoInjectionException(componentClass,field,e);
-						}
-                    }else if(Set.class.isAssignableFrom(fieldClass)) {//Set类型
-                    	try {
-							FieldUtils.setValue(component,field,new HashSet<>(getList(beans,field,val)));
-						}catch (NotFindBeanException e){
-							if(componentClass.getSimpleName().contains("$$EnhancerByCGLIB$$")){
-								throw new AutoInjectionException(componentClass.getSuperclass(),field,e);
+                        }
+                    }else if(one&&!two) {//V是基本类型
+                        for(String z:val) {
+                            String[] kv=z.split(":");
+							try {
+								map.put(beans.getBean(kv[0]), JavaConversion.strToBasic(kv[1], fx[1]));
+							}catch (NotFindBeanException e){
+								throw new AutoInjectionException(getCurrClass(componentClass),field,e);
 							}
-							throw new AutoInjectionException(componentClass,field,e);
-						}
-                    }else if(Map.class.isAssignableFrom(fieldClass)) {//Map类型
-                        Map<Object,Object> map=new HashMap<>();
-                        String[] fx=FieldUtils.getStrGenericType(field);
-                        boolean one=fx[0].endsWith("$ref");
-                        boolean two=fx[1].endsWith("$ref");
-                        if(one&&two) {//K-V都不是基本类型
-                            for(String z:val) {
-                                String[] kv=z.split(":");
-								try {
-									map.put(beans.getBean(kv[0]), beans.getBean(kv[1]));
-								}catch (NotFindBeanException e) {
-									throw new AutoInjectionException(getCurrClass(componentClass), field, e);
-								}
-                            }
-                        }else if(one&&!two) {//V是基本类型
-                            for(String z:val) {
-                                String[] kv=z.split(":");
-								try {
-									map.put(beans.getBean(kv[0]), JavaConversion.strToBasic(kv[1], fx[1]));
-								}catch (NotFindBeanException e){
-									throw new AutoInjectionException(getCurrClass(componentClass),field,e);
-								}
-                            }
-                        }else if(!one&&two) {//K是基本类型
-                            for(String z:val) {
-                                String[] kv=z.split(":");
-								try {
-									map.put(JavaConversion.strToBasic(kv[0], fx[0]),beans.getBean(kv[1]));
-								}catch (NotFindBeanException e){
-									throw new AutoInjectionException(getCurrClass(componentClass),field,e);
-								}
-
-                            }
-                        }else {//K-V都是基本类型
-                            for(String z:val) {
-                                String[] kv=z.split(":");
-                                map.put(JavaConversion.strToBasic(kv[0], fx[0]), JavaConversion.strToBasic(kv[1], fx[1]));
-                            }
                         }
-						FieldUtils.setValue(component,field, map);
-                    }else {//自定义的基本类型
-						FieldUtils.setValue(component,field, JavaConversion.strToBasic(val[0], fieldClass.getSimpleName()));
+                    }else if(!one&&two) {//K是基本类型
+                        for(String z:val) {
+                            String[] kv=z.split(":");
+							try {
+								map.put(JavaConversion.strToBasic(kv[0], fx[0]),beans.getBean(kv[1]));
+							}catch (NotFindBeanException e){
+								throw new AutoInjectionException(getCurrClass(componentClass),field,e);
+							}
+
+                        }
+                    }else {//K-V都是基本类型
+                        for(String z:val) {
+                            String[] kv=z.split(":");
+                            map.put(JavaConversion.strToBasic(kv[0], fx[0]), JavaConversion.strToBasic(kv[1], fx[1]));
+                        }
                     }
+					FieldUtils.setValue(component,field, map);
+                }else {//自定义的基本类型
+					FieldUtils.setValue(component,field, JavaConversion.strToBasic(val[0], fieldClass.getSimpleName()));
                 }
-            }else if(field.isAnnotationPresent(SSH.class)&& SSHClient.class.isAssignableFrom(field.getType())){
-                ssh=field.getAnnotation(SSH.class);
-                String section=ssh.value();
-                remote=ini.getObject(Remote.class,section);
-                FieldUtils.setValue(component,field,new SSHClient(remote));
             }
+        }else if(field.isAnnotationPresent(SSH.class)&& SSHClient.class.isAssignableFrom(field.getType())){
+            ssh=field.getAnnotation(SSH.class);
+            String section=ssh.value();
+            remote=ini.getObject(Remote.class,section);
+            FieldUtils.setValue(component,field,new SSHClient(remote));
         }
     }
 
@@ -0,0 +1,101 @@
+package com.lucky.jacklamb.ioc;
+
+import com.lucky.jacklamb.annotation.ioc.Autowired;
+import com.lucky.jacklamb.annotation.ioc.SSH;
+import com.lucky.jacklamb.annotation.ioc.Value;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 某个类型的依赖注入计划，由{@link IOCContainers#cachedInjection(Object)}使用<br>
+ * 1.单例Bean与基本类型、字符串等不可变的值只解析一次，之后的对象直接赋值<br>
+ * 2.集合、数组、SSH连接以及${S:...}配置对象等可变的值每次都重新创建
+ *
+ * @author fk7075
+ */
+final class InjectionPlan {
+
+    private final Field[] sharedFields;
+
+    private final Object[] sharedValues;
+
+    private final Field[] instanceFields;
+
+    /**
+     * 为第一个对象完成注入，同时生成注入计划
+     * @param first 该类型的第一个对象
+     */
+    InjectionPlan(Object first) {
+        ApplicationBeans beans = ApplicationBeans.createApplicationBeans();
+        Class<?> componentClass = first.getClass();
+        List<Field> shared = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        List<Field> instance = new ArrayList<>();
+        for (Field field : IOCContainers.getInjectionFields(componentClass)) {
+            if (!field.isAnnotationPresent(Autowired.class) && !field.isAnnotationPresent(Value.class)
+                    && !field.isAnnotationPresent(SSH.class)) {
+                continue;
+            }
+            IOCContainers.injection(beans, first, componentClass, field);
+            field.setAccessible(true);
+            if (isShared(field)) {
+                try {
+                    values.add(field.get(first));
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException("无法通过反射机制获取属性值！Field: " + field, e);
+                }
+                shared.add(field);
+            } else {
+                instance.add(field);
+            }
+        }
+        this.sharedFields = shared.toArray(new Field[0]);
+        this.sharedValues = values.toArray();
+        this.instanceFields = instance.toArray(new Field[0]);
+    }
+
+    /**
+     * 按注入计划为对象注入属性
+     * @param component 与第一个对象类型相同的对象
+     */
+    void inject(Object component) {
+        try {
+            for (int i = 0; i < sharedFields.length; i++) {
+                sharedFields[i].set(component, sharedValues[i]);
+            }
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("无法通过反射机制为属性赋值！Object: " + component, e);
+        }
+        if (instanceFields.length != 0) {
+            ApplicationBeans beans = ApplicationBeans.createApplicationBeans();
+            for (Field field : instanceFields) {
+                IOCContainers.injection(beans, component, component.getClass(), field);
+            }
+        }
+    }
+
+    /**
+     * 属性的值是否可以被所有对象共用
+     */
+    private static boolean isShared(Field field) {
+        Class<?> fieldClass = field.getType();
+        if (fieldClass.isArray() || Collection.class.isAssignableFrom(fieldClass) || Map.class.isAssignableFrom(fieldClass)) {
+            return false;
+        }
+        if (field.isAnnotationPresent(Autowired.class)) {
+            String value = field.getAnnotation(Autowired.class).value();
+            //表达式的值只有不可变类型可以共用，其余为容器中的单例Bean
+            return !(value.contains("${") && value.contains("}")) || isImmutable(fieldClass);
+        }
+        return field.isAnnotationPresent(Value.class);
+    }
+
+    private static boolean isImmutable(Class<?> type) {
+        return type.isPrimitive() || type == String.class || Number.class.isAssignableFrom(type)
+                || type == Boolean.class || type == Character.class || type.isEnum();
+    }
+}
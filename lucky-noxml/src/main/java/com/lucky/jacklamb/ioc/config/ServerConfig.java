@@ -12,6 +12,7 @@ import javax.servlet.Filter;
 import javax.servlet.http.HttpServlet;
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.Executor;
 
 public class ServerConfig implements LuckyConfig  {
 
@@ -48,6 +49,71 @@ public class ServerConfig implements LuckyConfig  {
 	private String baseDir;
 
 	private String requestTargetAllow;
+
+	/**
+	 * Connector使用的协议，NIO、NIO2或者协议实现类的全类名
+	 */
+	private String protocol;
+
+	/**
+	 * 最大工作线程数
+	 */
+	private Integer maxThreads;
+
+	/**
+	 * 最小空闲线程数
+	 */
+	private Integer minSpareThreads;
+
+	/**
+	 * 所有线程都在工作时，等待队列的最大长度
+	 */
+	private Integer acceptCount;
+
+	/**
+	 * 服务器同时接受和处理的最大连接数
+	 */
+	private Integer maxConnections;
+
+	/**
+	 * 长连接的超时时间(单位：ms)
+	 */
+	private Integer keepAliveTimeout;
+
+	/**
+	 * 单个长连接上允许处理的最大请求数，-1表示不限制
+	 */
+	private Integer maxKeepAliveRequests;
+
+	/**
+	 * 是否开启HTTP/2(h2c升级)
+	 */
+	private boolean http2;
+
+	/**
+	 * 响应压缩，on、off、force
+	 */
+	private String compression;
+
+	/**
+	 * 需要压缩的MIME类型，多个使用逗号分隔
+	 */
+	private String compressibleMimeType;
+
+	/**
+	 * 响应体超过该大小时才进行压缩(单位：byte)
+	 */
+	private Integer compressionMinSize;
+
+	/**
+	 * 处理请求的工作线程池，为null时使用Connector内部的线程池(线程数由maxThreads和minSpareThreads决定)
+	 */
+	private Executor executor;
+
+	/**
+	 * executor是否为{@link #enableVirtualThreads()}创建的虚拟线程池，是时随Connector一起关闭
+	 */
+	private boolean virtualThreads;
 	
 	private List<ServletMapping> servletList;
 	
@@ -209,6 +275,177 @@ public class ServerConfig implements LuckyConfig  {
 		this.webapp = webapp;
 	}
 	
+	public String getProtocol() {
+		return protocol;
+	}
+
+	/**
+	 * 设置Connector使用的协议(默认NIO)
+	 *   1.NIO
+	 *   2.NIO2
+	 *   3.协议实现类的全类名
+	 * @param protocol
+	 */
+	public void setProtocol(String protocol) {
+		this.protocol = protocol;
+	}
+
+	public Integer getMaxThreads() {
+		return maxThreads;
+	}
+
+	/**
+	 * 设置最大工作线程数
+	 * @param maxThreads
+	 */
+	public void setMaxThreads(Integer maxThreads) {
+		this.maxThreads = maxThreads;
+	}
+
+	public Integer getMinSpareThreads() {
+		return minSpareThreads;
+	}
+
+	/**
+	 * 设置最小空闲线程数
+	 * @param minSpareThreads
+	 */
+	public void setMinSpareThreads(Integer minSpareThreads) {
+		this.minSpareThreads = minSpareThreads;
+	}
+
+	public Integer getAcceptCount() {
+		return acceptCount;
+	}
+
+	/**
+	 * 设置所有线程都在工作时，等待队列的最大长度
+	 * @param acceptCount
+	 */
+	public void setAcceptCount(Integer acceptCount) {
+		this.acceptCount = acceptCount;
+	}
+
+	public Integer getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * 设置服务器同时接受和处理的最大连接数
+	 * @param maxConnections
+	 */
+	public void setMaxConnections(Integer maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+
+	public Integer getKeepAliveTimeout() {
+		return keepAliveTimeout;
+	}
+
+	/**
+	 * 设置长连接的超时时间(单位：ms)
+	 * @param keepAliveTimeout
+	 */
+	public void setKeepAliveTimeout(Integer keepAliveTimeout) {
+		this.keepAliveTimeout = keepAliveTimeout;
+	}
+
+	public Integer getMaxKeepAliveRequests() {
+		return maxKeepAliveRequests;
+	}
+
+	/**
+	 * 设置单个长连接上允许处理的最大请求数，-1表示不限制
+	 * @param maxKeepAliveRequests
+	 */
+	public void setMaxKeepAliveRequests(Integer maxKeepAliveRequests) {
+		this.maxKeepAliveRequests = maxKeepAliveRequests;
+	}
+
+	public boolean isHttp2() {
+		return http2;
+	}
+
+	/**
+	 * 是否开启HTTP/2(h2c升级，默认关闭)
+	 * @param http2
+	 */
+	public void setHttp2(boolean http2) {
+		this.http2 = http2;
+	}
+
+	public String getCompression() {
+		return compression;
+	}
+
+	/**
+	 * 设置响应压缩(on、off、force)
+	 * @param compression
+	 */
+	public void setCompression(String compression) {
+		this.compression = compression;
+	}
+
+	public String getCompressibleMimeType() {
+		return compressibleMimeType;
+	}
+
+	/**
+	 * 设置需要压缩的MIME类型，多个使用逗号分隔
+	 * @param compressibleMimeType
+	 */
+	public void setCompressibleMimeType(String compressibleMimeType) {
+		this.compressibleMimeType = compressibleMimeType;
+	}
+
+	public Integer getCompressionMinSize() {
+		return compressionMinSize;
+	}
+
+	/**
+	 * 设置响应体超过该大小时才进行压缩(单位：byte)
+	 * @param compressionMinSize
+	 */
+	public void setCompressionMinSize(Integer compressionMinSize) {
+		this.compressionMinSize = compressionMinSize;
+	}
+
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * 设置处理请求的工作线程池，设置后maxThreads和minSpareThreads将不再生效
+	 * @param executor
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+		this.virtualThreads = false;
+	}
+
+	/**
+	 * 创建一个虚拟线程池并替换当前的工作线程池(executor)，该线程池在Connector停止时关闭<br>
+	 * 需要JDK21及以上版本，低版本时不做修改，继续使用原来的线程池
+	 * @return 是否创建成功
+	 */
+	public boolean enableVirtualThreads() {
+		try {
+			executor = (Executor) java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			virtualThreads = true;
+			return true;
+		} catch (ReflectiveOperationException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 当前的工作线程池是否为{@link #enableVirtualThreads()}创建的虚拟线程池
+	 * @return
+	 */
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
 	public List<ServletMapping> getServletList() {
 		return servletList;
 	}
@@ -279,6 +516,8 @@ public class ServerConfig implements LuckyConfig  {
 			serverConfig.setAutoDeploy(false);
 			serverConfig.setReloadable(false);
 			serverConfig.setRequestTargetAllow("|{}[]");
+			serverConfig.setProtocol("NIO");
+			serverConfig.setHttp2(false);
 		}
 		return serverConfig;
 	}
@@ -1,11 +1,14 @@
 package com.lucky.jacklamb.ioc.config;
 
 import com.lucky.jacklamb.servlet.core.Model;
+import com.lucky.jacklamb.utils.serializable.BinarySerializationScheme;
+import com.lucky.jacklamb.utils.websocket.WsOverflowPolicy;
 import com.lucky.jacklamb.utils.serializable.GsonSerializationScheme;
 import com.lucky.jacklamb.utils.serializable.JSONSerializationScheme;
 import com.lucky.jacklamb.utils.serializable.XMLSerializationScheme;
 import com.lucky.jacklamb.utils.serializable.XtreamSerializationScheme;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -86,6 +89,121 @@ public class WebConfig  implements LuckyConfig  {
 	 */
 	private int socketTimeout;
 
+	/**
+	 * HttpClient请求对象类型的结果时是否优先接收二进制格式
+	 */
+	private boolean httpClientBinary;
+
+	/**
+	 * 异步请求的超时时间(单位：ms)，小于等于0时永不超时
+	 */
+	private long asyncTimeout;
+
+	/**
+	 * Server-Sent Events的心跳间隔(单位：ms)，小于等于0时不发送心跳
+	 */
+	private long sseHeartbeat;
+
+	/**
+	 * 静态资源缓存的总大小限制(单位：kb)
+	 */
+	private long staticResourceCacheSize;
+
+	/**
+	 * 静态资源缓存中单个文件的大小限制(单位：kb)
+	 */
+	private long staticResourceCacheFileSize;
+
+	/**
+	 * 是否开启断点续传
+	 */
+	private boolean openResumableUpload;
+
+	/**
+	 * 断点续传协议的请求路径
+	 */
+	private String resumableUploadPath;
+
+	/**
+	 * 断点续传文件的保存位置
+	 */
+	private String resumableUploadFolder;
+
+	/**
+	 * 断点续传的文件大小限制(单位：kb)
+	 */
+	private long resumableUploadMaxSize;
+
+	/**
+	 * 是否开启路由的性能统计
+	 */
+	private boolean openMetrics;
+
+	/**
+	 * 性能统计数据的请求路径
+	 */
+	private String metricsPath;
+
+	/**
+	 * 是否开启全局的自适应并发限制
+	 */
+	private boolean openConcurrencyLimit;
+
+	/**
+	 * 自适应并发限制的初始上限
+	 */
+	private int initialConcurrencyLimit;
+
+	/**
+	 * 自适应并发限制的最小上限
+	 */
+	private int minConcurrencyLimit;
+
+	/**
+	 * 自适应并发限制的最大上限
+	 */
+	private int maxConcurrencyLimit;
+
+	/**
+	 * 是否开启访问日志
+	 */
+	private boolean openAccessLog;
+
+	/**
+	 * 访问日志文件
+	 */
+	private String accessLogFile;
+
+	/**
+	 * 访问日志环形缓冲区的容量(条)
+	 */
+	private int accessLogBufferSize;
+
+	/**
+	 * 单个访问日志文件的大小上限(单位：kb)
+	 */
+	private long accessLogMaxFileSize;
+
+	/**
+	 * 保留的历史访问日志文件个数
+	 */
+	private int accessLogMaxHistory;
+
+	/**
+	 * WebSocket会话发送队列的容量(条)
+	 */
+	private int wsSendQueueSize;
+
+	/**
+	 * WebSocket会话发送队列已满时的处理策略
+	 */
+	private WsOverflowPolicy wsOverflowPolicy;
+
+	/**
+	 * WebSocket消息的发送超时时间(单位：ms)
+	 */
+	private long wsSendTimeout;
+
 	private WebConfig() {
 		webRoot="${classpath}/templates";
 		multipartMaxFileSize=1*1024;
@@ -102,6 +220,29 @@ public class WebConfig  implements LuckyConfig  {
 		connectTimeout=5000;
 		connectionRequestTimeout=1000;
 		socketTimeout=5000;
+		httpClientBinary=true;
+		asyncTimeout=30000;
+		sseHeartbeat=15000;
+		staticResourceCacheSize=32*1024;
+		staticResourceCacheFileSize=512;
+		openResumableUpload=false;
+		resumableUploadPath="/upload/resumable/";
+		resumableUploadFolder=System.getProperty("java.io.tmpdir")+File.separator+"lucky-resumable";
+		resumableUploadMaxSize=10*1024*1024;
+		openMetrics=false;
+		metricsPath="/lucky/metrics";
+		openConcurrencyLimit=false;
+		initialConcurrencyLimit=20;
+		minConcurrencyLimit=10;
+		maxConcurrencyLimit=200;
+		openAccessLog=false;
+		accessLogFile="logs"+File.separator+"access.log";
+		accessLogBufferSize=8192;
+		accessLogMaxFileSize=100*1024;
+		accessLogMaxHistory=30;
+		wsSendQueueSize=1024;
+		wsOverflowPolicy=WsOverflowPolicy.DROP_OLDEST;
+		wsSendTimeout=30000;
 	}
 	
 	public static WebConfig defauleWebConfig() {
@@ -123,6 +264,14 @@ public class WebConfig  implements LuckyConfig  {
 		Model.setXmlSerializationScheme(xmlSerializationScheme);
 	}
 
+	/**
+	 * 设置二进制的序列化方案(默认为CBOR)，客户端在Accept中明确要求该格式时代替JSON/XML响应，设置为null时关闭
+	 * @param binarySerializationScheme
+	 */
+	public void setBinarySerializationScheme(BinarySerializationScheme binarySerializationScheme) {
+		Model.setBinarySerializationScheme(binarySerializationScheme);
+	}
+
 	/**
 	 * 设置单个文件大小限制(单位：kb)
 	 * @param multipartMaxFileSize
@@ -185,6 +334,282 @@ public class WebConfig  implements LuckyConfig  {
 		this.socketTimeout = socketTimeout;
 	}
 
+	public boolean isHttpClientBinary() {
+		return httpClientBinary;
+	}
+
+	/**
+	 * 设置HttpClient请求对象类型的结果时是否优先接收二进制格式(默认true)，对方不支持时仍按JSON解析
+	 * @param httpClientBinary
+	 */
+	public void setHttpClientBinary(boolean httpClientBinary) {
+		this.httpClientBinary = httpClientBinary;
+	}
+
+	public long getAsyncTimeout() {
+		return asyncTimeout;
+	}
+
+	/**
+	 * 设置Controller返回CompletableFuture或DeferredResult时异步请求的超时时间(单位：ms，默认30000)
+	 * @param asyncTimeout
+	 */
+	public void setAsyncTimeout(long asyncTimeout) {
+		this.asyncTimeout = asyncTimeout;
+	}
+
+	public long getSseHeartbeat() {
+		return sseHeartbeat;
+	}
+
+	/**
+	 * 设置Server-Sent Events的心跳间隔(单位：ms，默认15000)，空闲的连接定时发送注释行，用于及时发现断开的客户端
+	 * @param sseHeartbeat
+	 */
+	public void setSseHeartbeat(long sseHeartbeat) {
+		this.sseHeartbeat = sseHeartbeat;
+	}
+
+	public long getStaticResourceCacheSize() {
+		return staticResourceCacheSize;
+	}
+
+	/**
+	 * 设置静态资源缓存的总大小限制(单位：kb，默认32768)，小于等于0时不在内存中缓存静态资源的内容
+	 * @param staticResourceCacheSize
+	 */
+	public void setStaticResourceCacheSize(long staticResourceCacheSize) {
+		this.staticResourceCacheSize = staticResourceCacheSize;
+	}
+
+	public long getStaticResourceCacheFileSize() {
+		return staticResourceCacheFileSize;
+	}
+
+	/**
+	 * 设置静态资源缓存中单个文件的大小限制(单位：kb，默认512)，超过限制的文件不会缓存在内存中，响应时使用sendfile传输
+	 * @param staticResourceCacheFileSize
+	 */
+	public void setStaticResourceCacheFileSize(long staticResourceCacheFileSize) {
+		this.staticResourceCacheFileSize = staticResourceCacheFileSize;
+	}
+
+	public boolean isOpenResumableUpload() {
+		return openResumableUpload;
+	}
+
+	/**
+	 * 开启断点续传，开启后可以通过resumableUploadPath分片上传大文件(默认关闭)
+	 * @param openResumableUpload
+	 */
+	public void openResumableUpload(boolean openResumableUpload) {
+		this.openResumableUpload = openResumableUpload;
+	}
+
+	public String getResumableUploadPath() {
+		return resumableUploadPath;
+	}
+
+	/**
+	 * 设置断点续传协议的请求路径(默认/upload/resumable/)
+	 * @param resumableUploadPath
+	 */
+	public void setResumableUploadPath(String resumableUploadPath) {
+		this.resumableUploadPath = resumableUploadPath;
+	}
+
+	public String getResumableUploadFolder() {
+		return resumableUploadFolder;
+	}
+
+	/**
+	 * 设置断点续传文件的保存位置(默认为临时文件夹下的lucky-resumable)
+	 * @param resumableUploadFolder
+	 */
+	public void setResumableUploadFolder(String resumableUploadFolder) {
+		this.resumableUploadFolder = resumableUploadFolder;
+	}
+
+	public long getResumableUploadMaxSize() {
+		return resumableUploadMaxSize;
+	}
+
+	/**
+	 * 设置断点续传的文件大小限制(单位：kb，默认10G)
+	 * @param resumableUploadMaxSize
+	 */
+	public void setResumableUploadMaxSize(long resumableUploadMaxSize) {
+		this.resumableUploadMaxSize = resumableUploadMaxSize;
+	}
+
+	public boolean isOpenMetrics() {
+		return openMetrics;
+	}
+
+	/**
+	 * 开启路由的性能统计(请求数、状态码、各阶段的耗时分布)，开启后可以通过metricsPath获取统计数据(默认关闭)
+	 * @param openMetrics
+	 */
+	public void openMetrics(boolean openMetrics) {
+		this.openMetrics = openMetrics;
+	}
+
+	public String getMetricsPath() {
+		return metricsPath;
+	}
+
+	/**
+	 * 设置性能统计数据的请求路径(默认/lucky/metrics)，默认返回Prometheus文本格式，带有参数format=json时返回JSON
+	 * @param metricsPath
+	 */
+	public void setMetricsPath(String metricsPath) {
+		this.metricsPath = metricsPath;
+	}
+
+	public boolean isOpenConcurrencyLimit() {
+		return openConcurrencyLimit;
+	}
+
+	/**
+	 * 开启全局的自适应并发限制，并发上限根据请求耗时自动调整，超过上限的请求响应503(默认关闭)
+	 * @param openConcurrencyLimit
+	 */
+	public void openConcurrencyLimit(boolean openConcurrencyLimit) {
+		this.openConcurrencyLimit = openConcurrencyLimit;
+	}
+
+	public int getInitialConcurrencyLimit() {
+		return initialConcurrencyLimit;
+	}
+
+	/**
+	 * 设置自适应并发限制的初始上限(默认20)
+	 * @param initialConcurrencyLimit
+	 */
+	public void setInitialConcurrencyLimit(int initialConcurrencyLimit) {
+		this.initialConcurrencyLimit = initialConcurrencyLimit;
+	}
+
+	public int getMinConcurrencyLimit() {
+		return minConcurrencyLimit;
+	}
+
+	/**
+	 * 设置自适应并发限制的最小上限(默认10)
+	 * @param minConcurrencyLimit
+	 */
+	public void setMinConcurrencyLimit(int minConcurrencyLimit) {
+		this.minConcurrencyLimit = minConcurrencyLimit;
+	}
+
+	public int getMaxConcurrencyLimit() {
+		return maxConcurrencyLimit;
+	}
+
+	/**
+	 * 设置自适应并发限制的最大上限(默认200，与Tomcat的最大线程数一致)
+	 * @param maxConcurrencyLimit
+	 */
+	public void setMaxConcurrencyLimit(int maxConcurrencyLimit) {
+		this.maxConcurrencyLimit = maxConcurrencyLimit;
+	}
+
+	public boolean isOpenAccessLog() {
+		return openAccessLog;
+	}
+
+	/**
+	 * 开启访问日志(路由、状态码、响应字节数、耗时与客户端IP)，日志由后台线程批量写入accessLogFile(默认关闭)
+	 * @param openAccessLog
+	 */
+	public void openAccessLog(boolean openAccessLog) {
+		this.openAccessLog = openAccessLog;
+	}
+
+	public String getAccessLogFile() {
+		return accessLogFile;
+	}
+
+	/**
+	 * 设置访问日志文件(默认logs/access.log)，滚动后的文件名为access.log.yyyy-MM-dd.序号
+	 * @param accessLogFile
+	 */
+	public void setAccessLogFile(String accessLogFile) {
+		this.accessLogFile = accessLogFile;
+	}
+
+	public int getAccessLogBufferSize() {
+		return accessLogBufferSize;
+	}
+
+	/**
+	 * 设置访问日志环形缓冲区的容量(默认8192，向上取2的幂)，缓冲区满时丢弃新的记录并计数，不会阻塞请求线程
+	 * @param accessLogBufferSize
+	 */
+	public void setAccessLogBufferSize(int accessLogBufferSize) {
+		this.accessLogBufferSize = accessLogBufferSize;
+	}
+
+	public long getAccessLogMaxFileSize() {
+		return accessLogMaxFileSize;
+	}
+
+	/**
+	 * 设置单个访问日志文件的大小上限(单位：kb，默认100M)，超过上限或日期变化时滚动
+	 * @param accessLogMaxFileSize
+	 */
+	public void setAccessLogMaxFileSize(long accessLogMaxFileSize) {
+		this.accessLogMaxFileSize = accessLogMaxFileSize;
+	}
+
+	public int getAccessLogMaxHistory() {
+		return accessLogMaxHistory;
+	}
+
+	/**
+	 * 设置保留的历史访问日志文件个数(默认30)，小于等于0时不删除
+	 * @param accessLogMaxHistory
+	 */
+	public void setAccessLogMaxHistory(int accessLogMaxHistory) {
+		this.accessLogMaxHistory = accessLogMaxHistory;
+	}
+
+	public int getWsSendQueueSize() {
+		return wsSendQueueSize;
+	}
+
+	/**
+	 * 设置WebSocket会话发送队列的容量(默认1024)，广播与WsSession.send只把消息放入队列，不会被慢客户端阻塞
+	 * @param wsSendQueueSize
+	 */
+	public void setWsSendQueueSize(int wsSendQueueSize) {
+		this.wsSendQueueSize = wsSendQueueSize;
+	}
+
+	public WsOverflowPolicy getWsOverflowPolicy() {
+		return wsOverflowPolicy;
+	}
+
+	/**
+	 * 设置WebSocket会话发送队列已满时的处理策略(默认DROP_OLDEST丢弃最早的消息，DISCONNECT断开客户端)
+	 * @param wsOverflowPolicy
+	 */
+	public void setWsOverflowPolicy(WsOverflowPolicy wsOverflowPolicy) {
+		this.wsOverflowPolicy = wsOverflowPolicy;
+	}
+
+	public long getWsSendTimeout() {
+		return wsSendTimeout;
+	}
+
+	/**
+	 * 设置WebSocket消息的发送超时时间(单位：ms，默认30000)，超时的会话会被关闭，小于等于0时使用容器的默认值
+	 * @param wsSendTimeout
+	 */
+	public void setWsSendTimeout(long wsSendTimeout) {
+		this.wsSendTimeout = wsSendTimeout;
+	}
+
 	public String getEncoding() {
 		return encoding;
 	}
@@ -3,7 +3,7 @@ package com.lucky.jacklamb.query.translator;
 import com.lucky.jacklamb.sqlcore.util.PojoManage;
 import com.lucky.jacklamb.utils.reflect.ClassUtils;
 import com.lucky.jacklamb.utils.reflect.FieldUtils;
-import com.sun.javafx.binding.StringFormatter;
+
 
 import java.lang.reflect.Field;
 import java.util.*;
@@ -300,7 +300,7 @@ public class Translator {
         if(isEndBrackets()) {
             add();
         }
-        sql.append("`").append(column).append("`").append(StringFormatter.format(" NOT IN (%s)",inSQL));
+        sql.append("`").append(column).append("`").append(String.format(" NOT IN (%s)",inSQL));
         this.params.addAll(Arrays.asList(params));
         return this;
     }
@@ -363,7 +363,7 @@ public class Translator {
     }
 
     public Translator notExists(String existsSql,Object...params){
-        sql.append(StringFormatter.format(" NOT EXISTS (%s)",existsSql).toString());
+        sql.append(String.format(" NOT EXISTS (%s)",existsSql).toString());
         this.params.addAll(Arrays.asList(params));
         return this;
     }
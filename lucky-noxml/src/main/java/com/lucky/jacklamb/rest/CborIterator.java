@@ -0,0 +1,93 @@
+package com.lucky.jacklamb.rest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 逐个解析CBOR数据中的元素，内存占用与元素个数无关<br>
+ * 1.顶层为数组时，依次返回数组中的每个元素<br>
+ * 2.否则按CBOR序列(RFC 8742，连续的多个数据项)解析，依次返回每个数据项<br>
+ * 元素在调用{@link #next()}时才会被解析
+ *
+ * @author fk7075
+ */
+public class CborIterator<T> implements Iterator<T>, Closeable {
+
+    private final Gson gson;
+
+    private final Type elementType;
+
+    private final CborReader reader;
+
+    /**
+     * null表示还没有读取开头，true表示顶层为数组
+     */
+    private Boolean array;
+
+    /**
+     * 定长数组中剩余的元素个数，不定长数组为-1
+     */
+    private long remaining;
+
+    private boolean finished;
+
+    public CborIterator(Gson gson, Type elementType, InputStream in) {
+        this.gson = gson;
+        this.elementType = elementType;
+        this.reader = new CborReader(in);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (finished) {
+            return false;
+        }
+        try {
+            if (array == null) {
+                array = reader.isArray();
+                if (array) {
+                    remaining = reader.readArrayHeader();
+                }
+            }
+            boolean hasNext;
+            if (!array) {
+                hasNext = !reader.isEnd();
+            } else if (remaining < 0) {
+                hasNext = reader.hasNextInIndefinite();
+            } else {
+                hasNext = remaining > 0;
+            }
+            finished = !hasNext;
+            return hasNext;
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            if (array && remaining > 0) {
+                remaining--;
+            }
+            return gson.fromJson(reader.readElement(), elementType);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
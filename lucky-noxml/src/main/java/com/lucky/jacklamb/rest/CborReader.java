@@ -0,0 +1,329 @@
+package com.lucky.jacklamb.rest;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 把CBOR(RFC 8949)数据解码为Gson的JsonElement，再由Gson转换为Java对象，
+ * 因此支持Gson能够处理的所有类型<br>
+ * 1.每次调用{@link #read()}只解码一个数据项，可以逐个读取CBOR序列(RFC 8742)或顶层数组中的元素<br>
+ * 2.字节串解码为数字数组(与Gson中byte[]的表示一致)，标签2/3/4解码为BigInteger与BigDecimal，其他标签被忽略<br>
+ * 3.嵌套层数超过{@value #MAX_DEPTH}或数据不完整时抛出JsonSyntaxException
+ *
+ * @author fk7075
+ */
+public class CborReader implements Closeable {
+
+    private static final int MAX_DEPTH = 512;
+
+    private static final int BREAK = 0xff;
+
+    private final InputStream in;
+
+    private final byte[] buffer = new byte[8192];
+
+    private int position;
+
+    private int limit;
+
+    public CborReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * 是否已经读取到了数据的末尾
+     */
+    public boolean isEnd() throws IOException {
+        return peek() == -1;
+    }
+
+    /**
+     * 读取下一个数据项
+     * @return 已经读取到末尾时返回null
+     * @throws IOException
+     */
+    public JsonElement read() throws IOException {
+        if (isEnd()) {
+            return null;
+        }
+        return readItem(0);
+    }
+
+    /**
+     * 下一个数据项是否为数组
+     */
+    boolean isArray() throws IOException {
+        int b = peek();
+        return b != -1 && b >>> 5 == 4;
+    }
+
+    /**
+     * 读取数组的头部
+     * @return 数组的长度，不定长数组返回-1
+     */
+    long readArrayHeader() throws IOException {
+        int initial = readByte();
+        return (initial & 0x1f) == 31 ? -1 : readLength(initial);
+    }
+
+    /**
+     * 不定长数组中是否还有元素，没有时读取结束标记
+     */
+    boolean hasNextInIndefinite() throws IOException {
+        int b = peek();
+        if (b == -1) {
+            throw new JsonSyntaxException(new EOFException("CBOR数据不完整"));
+        }
+        if (b == BREAK) {
+            position++;
+            return false;
+        }
+        return true;
+    }
+
+    JsonElement readElement() throws IOException {
+        return readItem(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private JsonElement readItem(int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new JsonSyntaxException("CBOR数据的嵌套层数超过了" + MAX_DEPTH);
+        }
+        int initial = readByte();
+        int major = initial >>> 5;
+        int info = initial & 0x1f;
+        switch (major) {
+            case 0: {
+                long value = readLength(initial);
+                return new JsonPrimitive(value >= 0 ? (Number) value : unsigned(value));
+            }
+            case 1: {
+                long value = readLength(initial);
+                return new JsonPrimitive(value >= 0 ? (Number) (-1 - value) : unsigned(value).negate().subtract(BigInteger.ONE));
+            }
+            case 2: {
+                JsonArray array = new JsonArray();
+                for (byte b : readString(initial)) {
+                    array.add(b);
+                }
+                return array;
+            }
+            case 3:
+                return new JsonPrimitive(new String(readString(initial), StandardCharsets.UTF_8));
+            case 4: {
+                JsonArray array = new JsonArray();
+                if (info == 31) {
+                    while (hasNextInIndefinite()) {
+                        array.add(readItem(depth + 1));
+                    }
+                } else {
+                    for (long i = readLength(initial); i > 0; i--) {
+                        array.add(readItem(depth + 1));
+                    }
+                }
+                return array;
+            }
+            case 5: {
+                JsonObject object = new JsonObject();
+                if (info == 31) {
+                    while (hasNextInIndefinite()) {
+                        object.add(key(readItem(depth + 1)), readItem(depth + 1));
+                    }
+                } else {
+                    for (long i = readLength(initial); i > 0; i--) {
+                        object.add(key(readItem(depth + 1)), readItem(depth + 1));
+                    }
+                }
+                return object;
+            }
+            case 6:
+                return readTagged(readLength(initial), depth);
+            default:
+                return readSimple(info);
+        }
+    }
+
+    private JsonElement readTagged(long tag, int depth) throws IOException {
+        JsonElement content = readItem(depth + 1);
+        if ((tag == 2 || tag == 3) && content.isJsonArray()) {
+            JsonArray bytes = content.getAsJsonArray();
+            byte[] magnitude = new byte[bytes.size() + 1];
+            for (int i = 0; i < bytes.size(); i++) {
+                magnitude[i + 1] = bytes.get(i).getAsByte();
+            }
+            BigInteger value = new BigInteger(magnitude);
+            return new JsonPrimitive(tag == 2 ? value : value.negate().subtract(BigInteger.ONE));
+        }
+        if (tag == 4 && content.isJsonArray() && content.getAsJsonArray().size() == 2) {
+            JsonArray fraction = content.getAsJsonArray();
+            int exponent = fraction.get(0).getAsInt();
+            return new JsonPrimitive(new BigDecimal(fraction.get(1).getAsBigInteger(), -exponent));
+        }
+        return content;
+    }
+
+    private JsonElement readSimple(int info) throws IOException {
+        switch (info) {
+            case 20:
+                return new JsonPrimitive(false);
+            case 21:
+                return new JsonPrimitive(true);
+            case 22:
+            case 23:
+                return JsonNull.INSTANCE;
+            case 24:
+                readByte();
+                return JsonNull.INSTANCE;
+            case 25:
+                return new JsonPrimitive(halfToFloat((readByte() << 8) | readByte()));
+            case 26:
+                return new JsonPrimitive(Float.intBitsToFloat(readInt()));
+            case 27:
+                return new JsonPrimitive(Double.longBitsToDouble(((long) readInt() << 32) | (readInt() & 0xffffffffL)));
+            case 31:
+                throw new JsonSyntaxException("CBOR数据中出现了多余的结束标记");
+            default:
+                return JsonNull.INSTANCE;
+        }
+    }
+
+    private static String key(JsonElement key) {
+        if (key.isJsonPrimitive()) {
+            return key.getAsString();
+        }
+        return key.toString();
+    }
+
+    private static BigInteger unsigned(long value) {
+        return BigInteger.valueOf(value & Long.MAX_VALUE).setBit(63);
+    }
+
+    private static float halfToFloat(int half) {
+        int exponent = (half >>> 10) & 0x1f;
+        int mantissa = half & 0x3ff;
+        float value;
+        if (exponent == 0) {
+            value = mantissa * (float) Math.pow(2, -24);
+        } else if (exponent == 31) {
+            value = mantissa == 0 ? Float.POSITIVE_INFINITY : Float.NaN;
+        } else {
+            value = (1 + mantissa / 1024f) * (float) Math.pow(2, exponent - 15);
+        }
+        return (half & 0x8000) == 0 ? value : -value;
+    }
+
+    /**
+     * 读取字节串或文本串的内容，不定长时拼接所有的分段
+     */
+    private byte[] readString(int initial) throws IOException {
+        if ((initial & 0x1f) == 31) {
+            ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+            while (hasNextInIndefinite()) {
+                byte[] chunk = readString(readByte());
+                chunks.write(chunk, 0, chunk.length);
+            }
+            return chunks.toByteArray();
+        }
+        long length = readLength(initial);
+        if (length < 0 || length > Integer.MAX_VALUE - 8) {
+            throw new JsonSyntaxException("CBOR字符串过长：" + length);
+        }
+        //声明的长度可能是伪造的，超过缓冲区大小时按实际读取到的数据扩容
+        if (length <= buffer.length) {
+            byte[] bytes = new byte[(int) length];
+            readFully(bytes, 0, bytes.length);
+            return bytes;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(buffer.length);
+        byte[] chunk = new byte[buffer.length];
+        long remaining = length;
+        while (remaining > 0) {
+            int len = (int) Math.min(chunk.length, remaining);
+            readFully(chunk, 0, len);
+            out.write(chunk, 0, len);
+            remaining -= len;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 读取数据项头部中的长度或数值，uint64超出long范围时返回负数
+     */
+    private long readLength(int initial) throws IOException {
+        int info = initial & 0x1f;
+        if (info < 24) {
+            return info;
+        }
+        switch (info) {
+            case 24:
+                return readByte();
+            case 25:
+                return (readByte() << 8) | readByte();
+            case 26:
+                return readInt() & 0xffffffffL;
+            case 27:
+                return ((long) readInt() << 32) | (readInt() & 0xffffffffL);
+            default:
+                throw new JsonSyntaxException("不合法的CBOR数据头：0x" + Integer.toHexString(initial));
+        }
+    }
+
+    private int readInt() throws IOException {
+        return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position] & 0xff;
+    }
+
+    private int readByte() throws IOException {
+        if (position == limit && !fill()) {
+            throw new JsonSyntaxException(new EOFException("CBOR数据不完整"));
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    private void readFully(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (position == limit && !fill()) {
+                throw new JsonSyntaxException(new EOFException("CBOR数据不完整"));
+            }
+            int len = Math.min(length, limit - position);
+            System.arraycopy(buffer, position, bytes, offset, len);
+            position += len;
+            offset += len;
+            length -= len;
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int len = in.read(buffer, 0, buffer.length);
+        if (len <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = len;
+        return true;
+    }
+}
@@ -0,0 +1,302 @@
+package com.lucky.jacklamb.rest;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把Gson的序列化结果直接编码为CBOR(RFC 8949)，不会生成中间的JSON字符串<br>
+ * 1.数组与对象使用不定长编码(0x9f/0xbf ... 0xff)，不需要预先知道元素个数<br>
+ * 2.整数按大小使用1~9个字节，能无损表示为float的小数使用4个字节<br>
+ * 3.超出long范围的BigInteger与BigDecimal分别使用标签2/3与标签4编码
+ *
+ * @author fk7075
+ */
+public class CborWriter extends JsonWriter {
+
+    private static final Writer UNUSED = new Writer() {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    private final OutputStream out;
+
+    private final byte[] buffer = new byte[8192];
+
+    private int position;
+
+    /**
+     * 还没有写出的对象属性名，值为null且不序列化null时与值一起丢弃
+     */
+    private String deferredName;
+
+    public CborWriter(OutputStream out) {
+        super(UNUSED);
+        this.out = out;
+    }
+
+    @Override
+    public JsonWriter beginArray() throws IOException {
+        writeDeferredName();
+        writeByte(0x9f);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() throws IOException {
+        writeByte(0xff);
+        return this;
+    }
+
+    @Override
+    public JsonWriter beginObject() throws IOException {
+        writeDeferredName();
+        writeByte(0xbf);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() throws IOException {
+        writeByte(0xff);
+        return this;
+    }
+
+    @Override
+    public JsonWriter name(String name) throws IOException {
+        if (name == null) {
+            throw new NullPointerException("name == null");
+        }
+        if (deferredName != null) {
+            throw new IllegalStateException();
+        }
+        deferredName = name;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        writeDeferredName();
+        writeText(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter jsonValue(String value) {
+        throw new UnsupportedOperationException("CBOR不支持写入原始的JSON");
+    }
+
+    @Override
+    public JsonWriter nullValue() throws IOException {
+        if (deferredName != null) {
+            if (!getSerializeNulls()) {
+                deferredName = null;
+                return this;
+            }
+            writeDeferredName();
+        }
+        writeByte(0xf6);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(boolean value) throws IOException {
+        writeDeferredName();
+        writeByte(value ? 0xf5 : 0xf4);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Boolean value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        return value(value.booleanValue());
+    }
+
+    @Override
+    public JsonWriter value(double value) throws IOException {
+        writeDeferredName();
+        writeDouble(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(long value) throws IOException {
+        writeDeferredName();
+        writeLong(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Number value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        writeDeferredName();
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof AtomicInteger || value instanceof AtomicLong) {
+            writeLong(value.longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            writeDouble(value.doubleValue());
+        } else if (value instanceof BigInteger) {
+            writeBigInteger((BigInteger) value);
+        } else if (value instanceof BigDecimal) {
+            writeBigDecimal((BigDecimal) value);
+        } else {
+            //LazilyParsedNumber等只能通过字符串得到精确值的类型
+            String text = value.toString();
+            if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0) {
+                writeBigInteger(new BigInteger(text));
+            } else {
+                writeBigDecimal(new BigDecimal(text));
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+        out.flush();
+    }
+
+    /**
+     * 写出缓冲区中的内容，不会关闭输出流
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    private void writeDeferredName() throws IOException {
+        if (deferredName != null) {
+            writeText(deferredName);
+            deferredName = null;
+        }
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (value >= 0) {
+            writeHeader(0, value);
+        } else {
+            writeHeader(1, -1 - value);
+        }
+    }
+
+    private void writeDouble(double value) throws IOException {
+        float f = (float) value;
+        if (f == value || Double.isNaN(value)) {
+            writeByte(0xfa);
+            writeInt(Float.floatToIntBits(f));
+        } else {
+            long bits = Double.doubleToLongBits(value);
+            writeByte(0xfb);
+            writeInt((int) (bits >>> 32));
+            writeInt((int) bits);
+        }
+    }
+
+    private void writeBigInteger(BigInteger value) throws IOException {
+        if (value.compareTo(LONG_MIN) >= 0 && value.compareTo(LONG_MAX) <= 0) {
+            writeLong(value.longValue());
+            return;
+        }
+        boolean negative = value.signum() < 0;
+        byte[] magnitude = (negative ? value.negate().subtract(BigInteger.ONE) : value).toByteArray();
+        int offset = magnitude[0] == 0 ? 1 : 0;
+        writeByte(negative ? 0xc3 : 0xc2);
+        writeHeader(2, magnitude.length - offset);
+        writeBytes(magnitude, offset, magnitude.length - offset);
+    }
+
+    private void writeBigDecimal(BigDecimal value) throws IOException {
+        //标签4：[指数, 尾数]
+        writeByte(0xc4);
+        writeByte(0x82);
+        writeLong(-value.scale());
+        writeBigInteger(value.unscaledValue());
+    }
+
+    private void writeText(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeHeader(3, bytes.length);
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * 写出数据项的头部，length按无符号数处理
+     */
+    private void writeHeader(int majorType, long length) throws IOException {
+        int major = majorType << 5;
+        if (length >= 0 && length < 24) {
+            writeByte(major | (int) length);
+        } else if (length >= 0 && length <= 0xffL) {
+            writeByte(major | 24);
+            writeByte((int) length);
+        } else if (length >= 0 && length <= 0xffffL) {
+            writeByte(major | 25);
+            writeByte((int) (length >>> 8));
+            writeByte((int) length);
+        } else if (length >= 0 && length <= 0xffffffffL) {
+            writeByte(major | 26);
+            writeInt((int) length);
+        } else {
+            writeByte(major | 27);
+            writeInt((int) (length >>> 32));
+            writeInt((int) length);
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        writeByte(value >>> 24);
+        writeByte(value >>> 16);
+        writeByte(value >>> 8);
+        writeByte(value);
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (position == buffer.length) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+        if (length > buffer.length - position) {
+            out.write(buffer, 0, position);
+            position = 0;
+            if (length > buffer.length) {
+                out.write(bytes, offset, length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+}
@@ -1,6 +1,8 @@
 package com.lucky.jacklamb.rest;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.lang.reflect.Field;
@@ -16,6 +18,7 @@ import java.util.Map.Entry;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
 import com.google.gson.reflect.TypeToken;
 import org.apache.log4j.Logger;
 
@@ -37,6 +40,11 @@ public class LSON {
 
 	private Gson gson;
 
+	/**
+	 * CBOR编解码使用的Gson，第一次使用时创建并一直复用，保留Gson中缓存的TypeAdapter
+	 */
+	private volatile Gson cborGson;
+
 	public Gson getGson() {
 		return gson;
 	}
@@ -83,6 +91,16 @@ public class LSON {
 		return gson.toJson(pojo);
 	}
 
+	/**
+	 * 利用Google的GSON将对象转为Json并直接写入writer
+	 * @param pojo 实体类对象
+	 * @param writer 输出目标
+	 */
+	public void toJsonByGson(Object pojo,Appendable writer){
+		Gson gson = gsonBuilder.create();
+		gson.toJson(pojo,writer);
+	}
+
 	/**
 	 * 用Google的GSON将Json格式的Reader转为Json字符串
 	 * @param jsonReader
@@ -147,6 +165,64 @@ public class LSON {
 		return gson.fromJson(reader,type);
 	}
 
+	/**
+	 * 逐个解析Reader中的JSON数组元素(或NDJSON中的每个值)
+	 * @param elementType 元素的类型
+	 * @param reader Reader
+	 * @return 延迟解析的迭代器
+	 */
+	public <T> LSONIterator<T> iterator(Type elementType,Reader reader){
+		return new LSONIterator<>(gsonBuilder.create(),elementType,reader);
+	}
+
+	/**
+	 * 利用Google的GSON将对象编码为CBOR并直接写入输出流，不会关闭输出流
+	 * @param pojo 实体类对象
+	 * @param out 输出目标
+	 * @throws IOException
+	 */
+	public void toCbor(Object pojo,OutputStream out) throws IOException {
+		Gson gson = cborGson();
+		CborWriter writer = new CborWriter(out);
+		if(pojo==null){
+			writer.nullValue();
+		}else{
+			gson.toJson(pojo,pojo.getClass(),writer);
+		}
+		writer.flush();
+	}
+
+	/**
+	 * 将CBOR格式的输入流转为指定类型的对象
+	 * @param objectType 返回对象的类型
+	 * @param in CBOR输入流
+	 * @return
+	 * @throws IOException
+	 */
+	public Object fromCbor(Type objectType,InputStream in) throws IOException {
+		JsonElement element = new CborReader(in).read();
+		return element==null?null:cborGson().fromJson(element,objectType);
+	}
+
+	/**
+	 * 逐个解析CBOR数组(或CBOR序列)中的元素
+	 * @param elementType 元素的类型
+	 * @param in CBOR输入流
+	 * @return 延迟解析的迭代器
+	 */
+	public <T> CborIterator<T> cborIterator(Type elementType,InputStream in){
+		return new CborIterator<>(cborGson(),elementType,in);
+	}
+
+	private Gson cborGson() {
+		Gson cbor = cborGson;
+		if(cbor==null){
+			cbor = gsonBuilder.create();
+			cborGson = cbor;
+		}
+		return cbor;
+	}
+
 	public Object fromJson(TypeToken typeToken,Reader reader){
 		gson = gsonBuilder.create();
 		return gson.fromJson(reader,typeToken.getType());
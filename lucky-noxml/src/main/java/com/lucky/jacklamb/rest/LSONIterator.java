@@ -0,0 +1,91 @@
+package com.lucky.jacklamb.rest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 逐个解析JSON流中的元素，内存占用与元素个数无关<br>
+ * 1.顶层为JSON数组时，依次返回数组中的每个元素<br>
+ * 2.否则按NDJSON(每行一个JSON值，也可以是连续的多个JSON值)解析，依次返回每个值<br>
+ * 元素在调用{@link #next()}时才会被解析，数据格式错误时抛出JsonSyntaxException
+ *
+ * @author fk7075
+ */
+public class LSONIterator<T> implements Iterator<T>, Closeable {
+
+    private final Gson gson;
+
+    private final Type elementType;
+
+    private final JsonReader reader;
+
+    /**
+     * null表示还没有读取开头，true表示顶层为数组
+     */
+    private Boolean array;
+
+    private boolean empty;
+
+    public LSONIterator(Gson gson, Type elementType, Reader reader) {
+        this.gson = gson;
+        this.elementType = elementType;
+        this.reader = new JsonReader(reader);
+        this.reader.setLenient(true);
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            if (array == null) {
+                try {
+                    array = reader.peek() == JsonToken.BEGIN_ARRAY;
+                } catch (EOFException e) {
+                    //空的请求体
+                    array = false;
+                    empty = true;
+                }
+                if (array) {
+                    reader.beginArray();
+                }
+            }
+            if (empty) {
+                return false;
+            }
+            if (array) {
+                if (reader.hasNext()) {
+                    return true;
+                }
+                if (reader.peek() == JsonToken.END_ARRAY) {
+                    reader.endArray();
+                }
+                return false;
+            }
+            return reader.peek() != JsonToken.END_DOCUMENT;
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return gson.fromJson(reader, elementType);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
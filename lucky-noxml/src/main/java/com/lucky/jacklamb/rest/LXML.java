@@ -40,6 +40,17 @@ public class LXML {
         xstream.toXML(pojo, writer);
     }
 
+    /**
+     * 将对象转为带XML声明的XML文档并直接写入writer
+     * @param pojo 对象
+     * @param writer 输出目标
+     * @throws IOException
+     */
+    public void toXmlDocument(Object pojo, Writer writer) throws IOException {
+        writer.write(HEAD);
+        xstream.toXML(pojo, writer);
+    }
+
     public void toXml(Object pojo, OutputStream out) {
         xstream.toXML(pojo, out);
     }
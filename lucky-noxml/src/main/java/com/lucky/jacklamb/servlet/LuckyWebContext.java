@@ -35,6 +35,15 @@ public class LuckyWebContext {
 	private HttpSession session=null;
 	private RequestMethod requestMethod=null;
 	private ServletConfig servletConfig=null;
+	private Model model=null;
+
+	public Model getModel() {
+		return model;
+	}
+
+	public void setModel(Model model) {
+		this.model = model;
+	}
 
 	public RequestMethod getRequestMethod() {
 		return requestMethod;
@@ -60,7 +69,14 @@ public class LuckyWebContext {
 		this.application = application;
 	}
 
+	/**
+	 * 得到当前请求的Session，第一次使用时才会去创建
+	 * @return
+	 */
 	public HttpSession getSession() {
+		if(session==null&&request!=null) {
+			session=request.getSession();
+		}
 		return session;
 	}
 
@@ -0,0 +1,108 @@
+package com.lucky.jacklamb.servlet;
+
+import com.lucky.jacklamb.servlet.core.Model;
+import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.MethodInterceptor;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.function.Function;
+
+/**
+ * 请求作用域代理，在启动时一次性注入到Controller的Model、Request、Response、Session和Application属性中，
+ * 每次调用时从{@link LuckyWebContext}中取出当前线程正在处理的请求对象并将调用委托给它
+ *
+ * @author fk-7075
+ */
+public abstract class RequestScopedProxy {
+
+    private static final HttpServletRequest REQUEST = jdkProxy(HttpServletRequest.class, LuckyWebContext::getRequest);
+
+    private static final HttpServletResponse RESPONSE = jdkProxy(HttpServletResponse.class, LuckyWebContext::getResponse);
+
+    private static final HttpSession SESSION = jdkProxy(HttpSession.class, LuckyWebContext::getSession);
+
+    private static final ServletContext APPLICATION = jdkProxy(ServletContext.class, LuckyWebContext::getApplication);
+
+    private static final Model MODEL = modelProxy();
+
+    /**
+     * 得到可以赋值给该类型属性的请求作用域代理
+     * @param fieldType 属性的类型
+     * @return 请求作用域代理，该类型不是Model、Request、Response、Session和Application类型或无法代理时返回null
+     */
+    public static Object getProxy(Class<?> fieldType) {
+        if (fieldType == Object.class) {
+            return null;
+        }
+        if (fieldType.isAssignableFrom(Model.class)) {
+            return MODEL;
+        }
+        if (fieldType.isAssignableFrom(HttpSession.class)) {
+            return SESSION;
+        }
+        if (fieldType.isAssignableFrom(HttpServletRequest.class)) {
+            return REQUEST;
+        }
+        if (fieldType.isAssignableFrom(HttpServletResponse.class)) {
+            return RESPONSE;
+        }
+        if (fieldType.isAssignableFrom(ServletContext.class)) {
+            return APPLICATION;
+        }
+        return null;
+    }
+
+    private static LuckyWebContext currentContext() {
+        LuckyWebContext context = LuckyWebContext.getCurrentContext();
+        if (context == null) {
+            throw new IllegalStateException("当前线程中没有正在处理的请求，无法使用请求作用域对象！");
+        }
+        return context;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T jdkProxy(Class<T> type, Function<LuckyWebContext, ?> target) {
+        return (T) Proxy.newProxyInstance(RequestScopedProxy.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (LuckyWebContext.getCurrentContext() == null && method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, type, method, args);
+            }
+            try {
+                return method.invoke(target.apply(currentContext()), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    private static Model modelProxy() {
+        Enhancer enhancer = new Enhancer();
+        enhancer.setSuperclass(Model.class);
+        enhancer.setCallback((MethodInterceptor) (obj, method, args, methodProxy) -> {
+            if (LuckyWebContext.getCurrentContext() == null && method.getDeclaringClass() == Object.class) {
+                return objectMethod(obj, Model.class, method, args);
+            }
+            return methodProxy.invoke(currentContext().getModel(), args);
+        });
+        return (Model) enhancer.create(new Class<?>[]{boolean.class}, new Object[]{true});
+    }
+
+    /**
+     * 没有请求时的equals、hashCode和toString方法
+     */
+    private static Object objectMethod(Object proxy, Class<?> type, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "Request-scoped proxy for " + type.getName();
+        }
+    }
+}
@@ -4,13 +4,25 @@ import com.lucky.jacklamb.enums.Code;
 import com.lucky.jacklamb.enums.Rest;
 import com.lucky.jacklamb.ioc.config.AppConfig;
 import com.lucky.jacklamb.servlet.core.Model;
+import com.lucky.jacklamb.servlet.staticsource.StaticResource;
 import com.lucky.jacklamb.servlet.staticsource.StaticResourceManage;
 import com.lucky.jacklamb.thymeleaf.utils.ThymeleafConfig;
 import com.lucky.jacklamb.thymeleaf.utils.ThymeleafWrite;
+import com.lucky.jacklamb.utils.file.FileUtils;
 
 import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
@@ -68,7 +80,19 @@ public class ResponseControl {
      * @param pre_suf 转发重定向操作的固定前后缀
      */
     public void jump(Model model, Rest rest, Method method, Object obj,List<String> pre_suf) throws IOException {
+        if (isBinaryResult(obj)) {
+            writeBinary(model, obj);
+            return;
+        }
         if (obj != null) {
+            if ((rest == Rest.JSON || rest == Rest.XML) && Model.getBinarySerializationScheme() != null) {
+                //按请求头Accept协商响应格式
+                Model.addVary(model.getResponse(), "Accept");
+                if (Model.acceptBinary(model.getRequest())) {
+                    model.writerBinary(obj);
+                    return;
+                }
+            }
             if (rest == Rest.JSON) {
                 model.writerJson(obj);
                 return;
@@ -93,4 +117,71 @@ public class ResponseControl {
 
         }
     }
+
+    /**
+     * 判断返回值是否为需要直接写入输出流的二进制内容
+     * @param obj 方法返回的结果
+     * @return 返回值为File、Path、InputStream、ReadableByteChannel或ByteBuffer时返回true
+     */
+    public static boolean isBinaryResult(Object obj) {
+        return obj instanceof File || obj instanceof Path || obj instanceof InputStream
+                || obj instanceof ReadableByteChannel || obj instanceof ByteBuffer;
+    }
+
+    /**
+     * 将二进制内容直接写入输出流，内容不会被整体读入内存<br>
+     * File和Path通过sendfile或FileChannel传输，支持Range请求和协商缓存<br>
+     * InputStream和ReadableByteChannel使用固定大小的缓冲区传输，传输完成后关闭
+     *
+     * @param model Model对象
+     * @param obj   方法返回的结果
+     * @throws IOException
+     */
+    private void writeBinary(Model model, Object obj) throws IOException {
+        HttpServletResponse resp = model.getResponse();
+        String fileName = null;
+        if (obj instanceof Path) {
+            Path path = (Path) obj;
+            if (path.getFileSystem() == FileSystems.getDefault()) {
+                obj = path.toFile();
+            } else {
+                fileName = path.getFileName() == null ? null : path.getFileName().toString();
+                if (!Files.isRegularFile(path)) {
+                    model.error(Code.NOTFOUND, "服务器中找不到文件 " + fileName + "！", "找不到文件 " + path.toUri());
+                    return;
+                }
+                resp.setContentLengthLong(Files.size(path));
+                obj = Files.newInputStream(path);
+            }
+        }
+        if (obj instanceof File) {
+            File file = (File) obj;
+            if (!file.isFile()) {
+                model.error(Code.NOTFOUND, "服务器中找不到文件 " + file.getName() + "！", "找不到文件 " + file.getAbsolutePath());
+                return;
+            }
+            StaticResourceManage.response(model, StaticResource.forFile(file));
+            return;
+        }
+        //没有设置过Content-Type时(UrlParsMap中默认设置为text/html)按文件名或二进制流处理
+        String contentType = resp.getContentType();
+        if (contentType == null || contentType.startsWith("text/html")) {
+            resp.setContentType(fileName == null ? "application/octet-stream" : StaticResourceManage.getContentType(fileName));
+        }
+        if (obj instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) obj).duplicate();
+            resp.setContentLengthLong(buffer.remaining());
+            WritableByteChannel out = Channels.newChannel(resp.getOutputStream());
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            return;
+        }
+        InputStream in = obj instanceof ReadableByteChannel ? Channels.newInputStream((ReadableByteChannel) obj) : (InputStream) obj;
+        try {
+            FileUtils.copyBase(in, resp.getOutputStream());
+        } finally {
+            in.close();
+        }
+    }
 }
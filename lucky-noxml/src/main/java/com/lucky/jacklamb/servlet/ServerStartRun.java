@@ -1,5 +1,6 @@
 package com.lucky.jacklamb.servlet;
 
+import com.lucky.jacklamb.utils.reflect.MethodInvoker;
 import com.lucky.jacklamb.utils.reflect.MethodUtils;
 import com.lucky.jacklamb.ioc.ApplicationBeans;
 import com.lucky.jacklamb.ioc.ComponentIOC;
@@ -24,6 +25,8 @@ public class ServerStartRun {
 
     private Method controllerMethod;
 
+    private MethodInvoker invoker;
+
     public Method getControllerMethod() {
         return controllerMethod;
     }
@@ -46,12 +49,13 @@ public class ServerStartRun {
         this.componentName = componentName;
         this.controllerObject = controllerObject;
         this.controllerMethod = controllerMethod;
+        this.invoker = MethodInvoker.of(controllerMethod);
         this.params = params;
     }
 
     public void runAdd(){
         Object[] runParams = MethodUtils.getRunParam(controllerMethod, params);
-        Object runResult=MethodUtils.invoke(controllerObject,controllerMethod,runParams);
+        Object runResult=MethodUtils.invoke(controllerObject,invoker,runParams);
         if (controllerMethod.getReturnType() != void.class) {
             componentIOC.addBean(componentName,runResult);
         }
@@ -0,0 +1,450 @@
+package com.lucky.jacklamb.servlet.accesslog;
+
+import com.lucky.jacklamb.ioc.config.AppConfig;
+import com.lucky.jacklamb.ioc.config.WebConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 访问日志管理器，在WebConfig中开启后记录每个请求的路由、状态码、响应字节数、耗时与客户端IP<br>
+ * 1.请求线程只把字段写入预先分配的环形缓冲区，不格式化字符串也不做任何I/O<br>
+ * 2.缓冲区满时丢弃新的记录并计数，不会阻塞请求线程，丢弃的条数会写入日志文件<br>
+ * 3.单独的后台线程批量格式化并写入accessLogFile，日期变化或文件超过大小上限时滚动为access.log.yyyy-MM-dd.序号，
+ * 并只保留accessLogMaxHistory个历史文件<br>
+ * 日志格式：时间 客户端IP 请求类型 URI[?参数] 状态码 字节数 耗时(ms) 路由<br>
+ * 没有开启时{@link #getAccessLogManage()}返回null
+ *
+ * @author fk-7075
+ */
+public class AccessLogManage {
+
+    private static final Logger log = LogManager.getLogger(AccessLogManage.class);
+
+    /**
+     * DispatchServlet解析出的客户端IP(支持代理转发的请求头)
+     */
+    public static final String CLIENT_IP = AccessLogManage.class.getName() + ".CLIENT_IP";
+
+    /**
+     * 请求匹配到的路由
+     */
+    public static final String ROUTE = AccessLogManage.class.getName() + ".ROUTE";
+
+    /**
+     * 一次最多连续处理的记录数，之后检查丢弃计数
+     */
+    private static final int BATCH = 1024;
+
+    /**
+     * 没有新记录时写日志线程的等待时间，等待前会把缓冲的内容写入文件
+     */
+    private static final long IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(200);
+
+    /**
+     * 滚动失败(例如文件被其他进程占用)后的重试间隔(单位：ms)
+     */
+    private static final long ROLLOVER_RETRY = TimeUnit.MINUTES.toMillis(1);
+
+    private static volatile AccessLogManage accessLogManage;
+
+    private final AccessLogRecord[] ring;
+
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * 写日志线程下一个要处理的序号，小于它的位置都可以被重新使用
+     */
+    private volatile long tail;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean running = true;
+
+    private final Thread writerThread;
+
+    //以下字段只由写日志线程使用
+
+    private final File file;
+
+    private final long maxFileSize;
+
+    private final int maxHistory;
+
+    private final StringBuilder line = new StringBuilder(256);
+
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+    private final SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM-dd");
+
+    private Writer out;
+
+    private long fileSize;
+
+    private String fileDay;
+
+    private long fileDayEnd;
+
+    private long cachedSecond = -1;
+
+    private String cachedTime;
+
+    private long loggedDropped;
+
+    private long nextOpen;
+
+    /**
+     * 滚动失败后在此时间之前不再重试，继续写入当前文件
+     */
+    private long nextRollover;
+
+    private AccessLogManage(WebConfig webCfg) {
+        int capacity = Integer.highestOneBit(Math.max(2, webCfg.getAccessLogBufferSize() - 1)) << 1;
+        ring = new AccessLogRecord[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new AccessLogRecord();
+        }
+        mask = capacity - 1;
+        file = new File(webCfg.getAccessLogFile()).getAbsoluteFile();
+        maxFileSize = webCfg.getAccessLogMaxFileSize() * 1024;
+        maxHistory = webCfg.getAccessLogMaxHistory();
+        writerThread = new Thread(this::run, "lucky-access-log");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 得到访问日志管理器
+     * @return 没有开启访问日志时返回null
+     */
+    public static AccessLogManage getAccessLogManage() {
+        WebConfig webCfg = AppConfig.getAppConfig().getWebConfig();
+        if (!webCfg.isOpenAccessLog()) {
+            return null;
+        }
+        if (accessLogManage == null) {
+            synchronized (AccessLogManage.class) {
+                if (accessLogManage == null) {
+                    accessLogManage = new AccessLogManage(webCfg);
+                }
+            }
+        }
+        return accessLogManage;
+    }
+
+    /**
+     * 记录一次请求，缓冲区满时直接丢弃
+     * @param timestamp 请求开始的时间(单位：ms)
+     * @param clientIp 客户端IP
+     * @param method 请求类型
+     * @param uri 请求的URI
+     * @param query 请求参数
+     * @param route 匹配到的路由，没有时为null
+     * @param status 响应的状态码
+     * @param bytes 响应的字节数
+     * @param latency 耗时(单位：ns)
+     */
+    public void log(long timestamp, String clientIp, String method, String uri, String query, String route,
+                    int status, long bytes, long latency) {
+        long seq;
+        do {
+            seq = head.get();
+            if (seq - tail >= ring.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!head.compareAndSet(seq, seq + 1));
+        AccessLogRecord record = ring[(int) seq & mask];
+        record.timestamp = timestamp;
+        record.clientIp = clientIp;
+        record.method = method;
+        record.uri = uri;
+        record.query = query;
+        record.route = route;
+        record.status = status;
+        record.bytes = bytes;
+        record.latency = latency;
+        record.sequence = seq;
+        //缓冲区过半时唤醒写日志线程，其余情况由写日志线程定时检查
+        if (seq - tail >= ring.length >> 1) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * 因缓冲区已满而丢弃的记录数
+     * @return
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * 写出缓冲区中剩余的记录并停止写日志线程
+     */
+    public void close() {
+        synchronized (AccessLogManage.class) {
+            if (accessLogManage == this) {
+                accessLogManage = null;
+            }
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            boolean stopping = !running;
+            int count = drain();
+            if (count == BATCH) {
+                continue;
+            }
+            writeDropped();
+            flush();
+            if (stopping) {
+                break;
+            }
+            if (count == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK);
+            }
+        }
+        closeWriter();
+    }
+
+    /**
+     * 按顺序处理已经发布的记录
+     * @return 处理的记录数
+     */
+    private int drain() {
+        long next = tail;
+        int count = 0;
+        while (count < BATCH) {
+            AccessLogRecord record = ring[(int) next & mask];
+            if (record.sequence != next) {
+                break;
+            }
+            long timestamp = record.timestamp;
+            format(record);
+            record.clear();
+            tail = ++next;
+            count++;
+            write(timestamp);
+        }
+        return count;
+    }
+
+    private void format(AccessLogRecord record) {
+        StringBuilder sb = line;
+        sb.setLength(0);
+        long timestamp = record.timestamp;
+        long second = timestamp / 1000;
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedTime = timeFormat.format(new Date(second * 1000));
+        }
+        sb.append(cachedTime).append('.');
+        pad3(sb, timestamp % 1000);
+        sb.append(' ').append(orDash(record.clientIp))
+                .append(' ').append(orDash(record.method))
+                .append(' ').append(orDash(record.uri));
+        if (record.query != null) {
+            sb.append('?').append(record.query);
+        }
+        sb.append(' ').append(record.status)
+                .append(' ').append(record.bytes)
+                .append(' ').append(record.latency / 1000000).append('.');
+        pad3(sb, record.latency / 1000 % 1000);
+        sb.append(' ').append(orDash(record.route)).append('\n');
+    }
+
+    /**
+     * 把格式化好的一行写入日志文件，必要时先滚动
+     * @param timestamp 记录的时间
+     */
+    private void write(long timestamp) {
+        try {
+            if (out == null && !open()) {
+                return;
+            }
+            if ((timestamp >= fileDayEnd || (maxFileSize > 0 && fileSize >= maxFileSize)) && timestamp >= nextRollover) {
+                if (!rollover()) {
+                    nextRollover = timestamp + ROLLOVER_RETRY;
+                }
+                if (!open()) {
+                    return;
+                }
+            }
+            out.append(line);
+            fileSize += utf8Length(line);
+        } catch (IOException e) {
+            log.error("访问日志写入失败：" + file, e);
+            closeWriter();
+        }
+    }
+
+    private void writeDropped() {
+        long total = dropped.sum();
+        if (total == loggedDropped) {
+            return;
+        }
+        line.setLength(0);
+        line.append("# access log buffer full, dropped ").append(total - loggedDropped)
+                .append(" records (total ").append(total).append(")\n");
+        loggedDropped = total;
+        write(System.currentTimeMillis());
+    }
+
+    private void flush() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            log.error("访问日志写入失败：" + file, e);
+            closeWriter();
+        }
+    }
+
+    /**
+     * 打开日志文件，失败后1秒内不再重试，期间的记录被丢弃
+     */
+    private boolean open() {
+        long now = System.currentTimeMillis();
+        if (now < nextOpen) {
+            return false;
+        }
+        try {
+            File folder = file.getParentFile();
+            if (folder != null && !folder.exists()) {
+                folder.mkdirs();
+            }
+            long start = file.exists() ? file.lastModified() : now;
+            out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8), 64 * 1024);
+            fileSize = file.length();
+            setFileDay(start);
+            return true;
+        } catch (IOException e) {
+            log.error("无法打开访问日志文件：" + file, e);
+            nextOpen = now + 1000;
+            return false;
+        }
+    }
+
+    private void setFileDay(long timestamp) {
+        Date date = new Date(timestamp);
+        fileDay = dayFormat.format(date);
+        try {
+            fileDayEnd = dayFormat.parse(fileDay).getTime() + TimeUnit.DAYS.toMillis(1);
+        } catch (ParseException e) {
+            fileDayEnd = Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * 把当前的日志文件重命名为access.log.yyyy-MM-dd.序号，并删除多余的历史文件
+     * @return 重命名失败时返回false
+     */
+    private boolean rollover() {
+        closeWriter();
+        String prefix = file.getName() + "." + fileDay + ".";
+        int index = 1;
+        File target;
+        while ((target = new File(file.getParentFile(), prefix + index)).exists()) {
+            index++;
+        }
+        if (!file.renameTo(target)) {
+            log.error("访问日志滚动失败，" + ROLLOVER_RETRY / 1000 + "秒后重试：" + file + " -> " + target);
+            return false;
+        }
+        deleteHistory();
+        return true;
+    }
+
+    private void deleteHistory() {
+        if (maxHistory <= 0) {
+            return;
+        }
+        String prefix = file.getName() + ".";
+        File[] history = file.getParentFile().listFiles((dir, name) -> name.startsWith(prefix));
+        if (history == null || history.length <= maxHistory) {
+            return;
+        }
+        Arrays.sort(history, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < history.length - maxHistory; i++) {
+            if (!history[i].delete()) {
+                log.error("无法删除历史访问日志：" + history[i]);
+            }
+        }
+    }
+
+    private void closeWriter() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.error("访问日志关闭失败：" + file, e);
+        }
+        out = null;
+    }
+
+    /**
+     * 一行日志以UTF-8编码后的字节数
+     */
+    private static int utf8Length(CharSequence chars) {
+        int length = 0;
+        for (int i = 0, n = chars.length(); i < n; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static String orDash(String value) {
+        return value == null || value.isEmpty() ? "-" : value;
+    }
+
+    private static void pad3(StringBuilder sb, long value) {
+        if (value < 100) {
+            sb.append('0');
+        }
+        if (value < 10) {
+            sb.append('0');
+        }
+        sb.append(value);
+    }
+}
@@ -0,0 +1,44 @@
+package com.lucky.jacklamb.servlet.accesslog;
+
+/**
+ * 环形缓冲区中的一条访问记录，启动时预先分配，之后被反复使用<br>
+ * 请求线程只写入字段(都是已经存在的字符串引用与基本类型)，格式化由写日志的线程完成
+ *
+ * @author fk-7075
+ */
+final class AccessLogRecord {
+
+    long timestamp;
+
+    String clientIp;
+
+    String method;
+
+    String uri;
+
+    String query;
+
+    String route;
+
+    int status;
+
+    long bytes;
+
+    long latency;
+
+    /**
+     * 已经发布的序号，与写日志线程期望的序号相同时记录可以被读取
+     */
+    volatile long sequence = -1;
+
+    /**
+     * 释放对请求中字符串的引用
+     */
+    void clear() {
+        clientIp = null;
+        method = null;
+        uri = null;
+        query = null;
+        route = null;
+    }
+}
@@ -0,0 +1,69 @@
+package com.lucky.jacklamb.servlet.accesslog;
+
+import org.apache.catalina.AccessLog;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.valves.ValveBase;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+
+/**
+ * 把Tomcat的访问记录交给{@link AccessLogManage}，由内嵌的Tomcat在请求完全结束时调用(包括异步与流式响应)，
+ * 因此状态码、响应字节数与耗时都是最终的结果<br>
+ * 路由与客户端IP由DispatchServlet写入请求属性，静态资源等没有经过路由的请求使用Tomcat解析的远程地址
+ *
+ * @author fk-7075
+ */
+public class LuckyAccessLogValve extends ValveBase implements AccessLog {
+
+    private static final String START_NOTE = LuckyAccessLogValve.class.getName() + ".START";
+
+    private final AccessLogManage accessLog;
+
+    private boolean requestAttributesEnabled;
+
+    public LuckyAccessLogValve(AccessLogManage accessLog) {
+        super(true);
+        this.accessLog = accessLog;
+    }
+
+    @Override
+    public void invoke(Request request, Response response) throws IOException, ServletException {
+        request.setNote(START_NOTE, System.nanoTime());
+        getNext().invoke(request, response);
+    }
+
+    @Override
+    public void log(Request request, Response response, long time) {
+        Object start = request.getNote(START_NOTE);
+        long latency = start == null ? time * 1000000 : System.nanoTime() - (Long) start;
+        Object clientIp = request.getAttribute(AccessLogManage.CLIENT_IP);
+        if (clientIp == null && requestAttributesEnabled) {
+            clientIp = request.getAttribute(AccessLog.REMOTE_ADDR_ATTRIBUTE);
+        }
+        Object route = request.getAttribute(AccessLogManage.ROUTE);
+        accessLog.log(request.getCoyoteRequest().getStartTime(),
+                clientIp == null ? request.getRemoteAddr() : clientIp.toString(),
+                request.getMethod(), request.getRequestURI(), request.getQueryString(),
+                route == null ? null : route.toString(),
+                response.getStatus(), response.getBytesWritten(false), latency);
+    }
+
+    @Override
+    public void setRequestAttributesEnabled(boolean requestAttributesEnabled) {
+        this.requestAttributesEnabled = requestAttributesEnabled;
+    }
+
+    @Override
+    public boolean getRequestAttributesEnabled() {
+        return requestAttributesEnabled;
+    }
+
+    @Override
+    protected synchronized void stopInternal() throws LifecycleException {
+        super.stopInternal();
+        accessLog.close();
+    }
+}
@@ -0,0 +1,235 @@
+package com.lucky.jacklamb.servlet.async;
+
+import com.lucky.jacklamb.enums.Code;
+import com.lucky.jacklamb.ioc.config.WebConfig;
+import com.lucky.jacklamb.servlet.LuckyWebContext;
+import com.lucky.jacklamb.servlet.ResponseControl;
+import com.lucky.jacklamb.servlet.core.Model;
+import com.lucky.jacklamb.servlet.exceptionhandler.DispatchServletExceptionInterceptor;
+import com.lucky.jacklamb.servlet.mapping.RouteMatch;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 异步返回值的处理器<br>
+ * Controller方法返回{@link CompletionStage}(CompletableFuture)或{@link DeferredResult}时，
+ * 使用Servlet的异步模式释放当前的工作线程，结果完成后再通过{@link ResponseControl#jump}响应请求，
+ * 产生的异常同样交给{@link DispatchServletExceptionInterceptor}做统一的异常处理
+ *
+ * @author fk-7075
+ */
+public class AsyncResponseHandler {
+
+    private static final Logger log = LogManager.getLogger(AsyncResponseHandler.class);
+
+    private final ResponseControl responseControl;
+
+    private final WebConfig webCfg;
+
+    public AsyncResponseHandler(ResponseControl responseControl, WebConfig webCfg) {
+        this.responseControl = responseControl;
+        this.webCfg = webCfg;
+    }
+
+    /**
+     * 判断Controller方法的返回值是否需要异步处理
+     * @param result Controller方法的返回值
+     * @return
+     */
+    public static boolean isAsyncResult(Object result) {
+        return result instanceof CompletionStage || result instanceof DeferredResult;
+    }
+
+    /**
+     * 处理异步返回值<br>
+     * 1.结果已经完成时直接响应<br>
+     * 2.当前请求支持异步时(过滤器链都支持异步)，开启异步模式并在结果完成后响应<br>
+     * 3.否则在当前线程中等待结果
+     *
+     * @param model       Model对象
+     * @param routeMatch  当前请求的路由匹配结果
+     * @param args        Controller方法的参数
+     * @param asyncResult Controller方法的返回值
+     */
+    public void handle(Model model, RouteMatch routeMatch, Object[] args, Object asyncResult) {
+        long timeout = webCfg.getAsyncTimeout();
+        Supplier<?> timeoutResult = null;
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletionStage<?> stage;
+        if (asyncResult instanceof DeferredResult) {
+            DeferredResult<?> deferredResult = (DeferredResult<?>) asyncResult;
+            if (deferredResult.getTimeout() != null) {
+                timeout = deferredResult.getTimeout();
+            }
+            timeoutResult = deferredResult.getTimeoutResult();
+            stage = deferredResult.getFuture();
+        } else {
+            stage = (CompletionStage<?>) asyncResult;
+        }
+        stage.whenComplete((result, e) -> {
+            if (e != null) {
+                future.completeExceptionally(e);
+            } else {
+                future.complete(result);
+            }
+        });
+        LuckyWebContext context = LuckyWebContext.getCurrentContext();
+        if (future.isDone()) {
+            complete(context, model, routeMatch, args, future);
+            return;
+        }
+        HttpServletRequest request = model.getRequest();
+        if (!request.isAsyncSupported()) {
+            await(context, model, routeMatch, args, asyncResult, future, timeout, timeoutResult);
+            return;
+        }
+        AsyncContext asyncContext = request.startAsync(request, model.getResponse());
+        asyncContext.setTimeout(timeout);
+        AtomicBoolean responded = new AtomicBoolean(false);
+        final long asyncTimeout = timeout;
+        final Supplier<?> asyncTimeoutResult = timeoutResult;
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                model.deleteMultipartTempFiles();
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                if (responded.compareAndSet(false, true)) {
+                    expire(asyncResult);
+                    try {
+                        timeout(context, model, routeMatch, args, asyncTimeout, asyncTimeoutResult);
+                    } finally {
+                        asyncContext.complete();
+                    }
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                if (responded.compareAndSet(false, true)) {
+                    log.error("异步请求处理失败：" + routeMatch.getMethod(), event.getThrowable());
+                    asyncContext.complete();
+                }
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        future.whenComplete((result, e) -> {
+            if (responded.compareAndSet(false, true)) {
+                try {
+                    complete(context, model, routeMatch, args, future);
+                } finally {
+                    asyncContext.complete();
+                }
+            }
+        });
+    }
+
+    /**
+     * 请求不支持异步时，在当前线程中等待结果
+     */
+    private void await(LuckyWebContext context, Model model, RouteMatch routeMatch, Object[] args, Object asyncResult,
+                       CompletableFuture<Object> future, long timeout, Supplier<?> timeoutResult) {
+        try {
+            if (timeout > 0) {
+                future.get(timeout, TimeUnit.MILLISECONDS);
+            } else {
+                future.get();
+            }
+        } catch (TimeoutException e) {
+            expire(asyncResult);
+            timeout(context, model, routeMatch, args, timeout, timeoutResult);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(context, model, routeMatch, args, null, e);
+            return;
+        } catch (ExecutionException e) {
+            //异常在complete中处理
+        }
+        complete(context, model, routeMatch, args, future);
+    }
+
+    /**
+     * 超时后使DeferredResult失效，之后再设置的结果将被忽略
+     */
+    private static void expire(Object asyncResult) {
+        if (asyncResult instanceof DeferredResult) {
+            ((DeferredResult<?>) asyncResult).getFuture().cancel(false);
+        }
+    }
+
+    private void complete(LuckyWebContext context, Model model, RouteMatch routeMatch, Object[] args, CompletableFuture<Object> future) {
+        Object result = null;
+        Throwable error = null;
+        try {
+            result = future.join();
+        } catch (Throwable e) {
+            error = e;
+        }
+        respond(context, model, routeMatch, args, result, error);
+    }
+
+    private void timeout(LuckyWebContext context, Model model, RouteMatch routeMatch, Object[] args,
+                         long timeout, Supplier<?> timeoutResult) {
+        if (timeoutResult != null) {
+            Object result = null;
+            Throwable error = null;
+            try {
+                result = timeoutResult.get();
+            } catch (Throwable e) {
+                error = e;
+            }
+            respond(context, model, routeMatch, args, result, error);
+            return;
+        }
+        LuckyWebContext previous = LuckyWebContext.getCurrentContext();
+        LuckyWebContext.setContext(context);
+        try {
+            log.warn("503 : 异步请求在" + timeout + "ms内没有完成，Method：" + routeMatch.getMethod());
+            model.getResponse().setStatus(Code.UNAVAILABLE.code);
+            model.error(Code.UNAVAILABLE, "异步请求处理超时！", "异步请求在" + timeout + "ms内没有完成，错误位置：" + routeMatch.getMethod());
+        } finally {
+            LuckyWebContext.setContext(previous);
+        }
+    }
+
+    /**
+     * 在请求的上下文中响应结果，完成后恢复当前线程原有的上下文
+     */
+    private void respond(LuckyWebContext context, Model model, RouteMatch routeMatch, Object[] args, Object result, Throwable error) {
+        LuckyWebContext previous = LuckyWebContext.getCurrentContext();
+        LuckyWebContext.setContext(context);
+        try {
+            if (error == null) {
+                try {
+                    responseControl.jump(model, routeMatch.getRest(), routeMatch.getMethod(), result, routeMatch.getPreAndSuf());
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    error = e;
+                }
+            }
+            DispatchServletExceptionInterceptor.getExceptionInterceptor()
+                    .handle(model, routeMatch.getController(), routeMatch.getMethod(), args, DispatchServletExceptionInterceptor.unwrap(error));
+        } finally {
+            LuckyWebContext.setContext(previous);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.lucky.jacklamb.servlet.async;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 延迟结果，Controller方法返回该对象后当前请求会进入异步模式，
+ * 在其他线程中调用{@link #setResult(Object)}或{@link #setErrorResult(Throwable)}后才会真正响应请求
+ *
+ * @param <T> 结果的类型
+ * @author fk-7075
+ */
+public class DeferredResult<T> {
+
+    private final CompletableFuture<T> future;
+
+    /**
+     * 超时时间(单位：ms)，为null时使用WebConfig中的asyncTimeout
+     */
+    private final Long timeout;
+
+    /**
+     * 超时后的响应结果，为null时按超时错误处理
+     */
+    private volatile Supplier<? extends T> timeoutResult;
+
+    public DeferredResult() {
+        this(null);
+    }
+
+    /**
+     * @param timeout 超时时间(单位：ms)
+     */
+    public DeferredResult(Long timeout) {
+        this.future = new CompletableFuture<>();
+        this.timeout = timeout;
+    }
+
+    /**
+     * 设置结果并响应请求
+     * @param result 结果
+     * @return 结果已经设置过或者请求已经超时时返回false
+     */
+    public boolean setResult(T result) {
+        return future.complete(result);
+    }
+
+    /**
+     * 设置异常结果，该异常会交给统一异常处理
+     * @param e 异常
+     * @return 结果已经设置过或者请求已经超时时返回false
+     */
+    public boolean setErrorResult(Throwable e) {
+        return future.completeExceptionally(e);
+    }
+
+    /**
+     * 设置超时后的响应结果
+     * @param timeoutResult 超时后的响应结果
+     * @return
+     */
+    public DeferredResult<T> onTimeout(Supplier<? extends T> timeoutResult) {
+        this.timeoutResult = timeoutResult;
+        return this;
+    }
+
+    public boolean isSetOrExpired() {
+        return future.isDone();
+    }
+
+    public Long getTimeout() {
+        return timeout;
+    }
+
+    Supplier<? extends T> getTimeoutResult() {
+        return timeoutResult;
+    }
+
+    CompletableFuture<T> getFuture() {
+        return future;
+    }
+}
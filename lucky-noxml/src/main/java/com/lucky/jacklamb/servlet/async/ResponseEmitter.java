@@ -0,0 +1,176 @@
+package com.lucky.jacklamb.servlet.async;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 推送式的流式响应，Controller方法返回该对象后当前请求会进入异步模式，
+ * 之后可以在任意线程中多次调用{@link #send(Object)}逐条响应数据，最后调用{@link #complete()}结束响应<br>
+ * 1.请求头Accept包含text/event-stream时按Server-Sent Events格式响应，否则按NDJSON(application/x-ndjson)格式响应<br>
+ * 2.发送的数据在连接可写时才会被序列化并写出，等待数据期间不占用工作线程<br>
+ * 3.客户端断开连接或响应超时后执行{@link #onDisconnect(Runnable)}注册的回调，之后发送的数据将被忽略
+ *
+ * @author fk-7075
+ */
+public class ResponseEmitter {
+
+    private static final Logger log = LogManager.getLogger(ResponseEmitter.class);
+
+    /**
+     * 超时时间(单位：ms)，为null或小于等于0时永不超时
+     */
+    private final Long timeout;
+
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+
+    private final List<Runnable> disconnectCallbacks = new CopyOnWriteArrayList<>();
+
+    private volatile boolean completed;
+
+    private volatile boolean disconnected;
+
+    private volatile Throwable error;
+
+    /**
+     * 有新数据时通知StreamingResponseHandler写出
+     */
+    private volatile Runnable listener;
+
+    public ResponseEmitter() {
+        this(null);
+    }
+
+    /**
+     * @param timeout 超时时间(单位：ms)
+     */
+    public ResponseEmitter(Long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * 发送一条数据，字符串原样发送，其他对象序列化为JSON后发送
+     * @param data 数据
+     * @return 响应已经结束或者客户端已经断开连接时返回false
+     */
+    public boolean send(Object data) {
+        return send(null, data);
+    }
+
+    /**
+     * 发送一个带名称的事件，名称只在Server-Sent Events格式下有效(event字段)
+     * @param event 事件名称
+     * @param data 数据
+     * @return 响应已经结束或者客户端已经断开连接时返回false
+     */
+    public boolean send(String event, Object data) {
+        if (completed || disconnected) {
+            return false;
+        }
+        events.add(new Event(event, data));
+        signal();
+        return true;
+    }
+
+    /**
+     * 已发送的数据全部写出后结束响应
+     */
+    public void complete() {
+        completed = true;
+        signal();
+    }
+
+    /**
+     * 以异常结束响应，还没有写出任何数据时该异常会交给统一异常处理
+     * @param e 异常
+     */
+    public void completeWithError(Throwable e) {
+        error = e;
+        completed = true;
+        signal();
+    }
+
+    /**
+     * 注册客户端断开连接或响应超时后的回调，用于取消上游的任务
+     * @param callback 回调
+     * @return
+     */
+    public ResponseEmitter onDisconnect(Runnable callback) {
+        disconnectCallbacks.add(callback);
+        if (disconnected && disconnectCallbacks.remove(callback)) {
+            callback.run();
+        }
+        return this;
+    }
+
+    public boolean isDisconnected() {
+        return disconnected;
+    }
+
+    public Long getTimeout() {
+        return timeout;
+    }
+
+    void bind(Runnable listener) {
+        this.listener = listener;
+        signal();
+    }
+
+    Event poll() {
+        return events.poll();
+    }
+
+    /**
+     * 已经调用过complete()且所有的数据都已经取出
+     */
+    boolean isDone() {
+        return completed && events.isEmpty();
+    }
+
+    Throwable getError() {
+        return error;
+    }
+
+    /**
+     * 客户端断开连接或响应超时，丢弃没有写出的数据并执行回调
+     */
+    void disconnect() {
+        if (disconnected) {
+            return;
+        }
+        disconnected = true;
+        events.clear();
+        for (Runnable callback : disconnectCallbacks) {
+            if (disconnectCallbacks.remove(callback)) {
+                try {
+                    callback.run();
+                } catch (Throwable e) {
+                    log.error("ResponseEmitter的断开回调执行失败", e);
+                }
+            }
+        }
+    }
+
+    private void signal() {
+        Runnable current = listener;
+        if (current != null) {
+            current.run();
+        }
+    }
+
+    static final class Event {
+
+        final String name;
+
+        final Object data;
+
+        Event(String name, Object data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+}
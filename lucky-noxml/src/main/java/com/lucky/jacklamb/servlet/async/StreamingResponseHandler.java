@@ -0,0 +1,522 @@
+package com.lucky.jacklamb.servlet.async;
+
+import com.lucky.jacklamb.ioc.config.WebConfig;
+import com.lucky.jacklamb.servlet.LuckyWebContext;
+import com.lucky.jacklamb.servlet.core.Model;
+import com.lucky.jacklamb.servlet.exceptionhandler.DispatchServletExceptionInterceptor;
+import com.lucky.jacklamb.servlet.mapping.RouteMatch;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 流式返回值的处理器<br>
+ * Controller方法返回{@link Stream}、{@link Iterator}或{@link ResponseEmitter}时，逐条序列化并写出数据，不会把全部结果读入内存：<br>
+ * 1.请求头Accept包含text/event-stream时按Server-Sent Events格式响应，否则按NDJSON(每行一个JSON)格式响应<br>
+ * 2.当前请求支持异步时使用Servlet的异步模式与非阻塞输出，连接不可写或者等待ResponseEmitter的数据时不占用工作线程<br>
+ * 3.客户端断开连接后关闭Stream(执行onClose注册的回调，例如关闭数据库游标)或AutoCloseable的Iterator，
+ *   ResponseEmitter则执行onDisconnect注册的回调<br>
+ * 4.NDJSON每满8KB刷新一次，Server-Sent Events每个事件刷新一次；还没有写出任何数据时产生的异常交给统一异常处理
+ *
+ * @author fk-7075
+ */
+public class StreamingResponseHandler {
+
+    private static final Logger log = LogManager.getLogger(StreamingResponseHandler.class);
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    public static final String EVENT_STREAM = "text/event-stream";
+
+    private static final int FLUSH_SIZE = 8 * 1024;
+
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private static volatile ScheduledExecutorService scheduler;
+
+    private final WebConfig webCfg;
+
+    public StreamingResponseHandler(WebConfig webCfg) {
+        this.webCfg = webCfg;
+    }
+
+    /**
+     * 判断Controller方法的返回值是否需要流式响应
+     * @param result Controller方法的返回值
+     * @return
+     */
+    public static boolean isStreamingResult(Object result) {
+        return result instanceof Stream || result instanceof Iterator || result instanceof ResponseEmitter;
+    }
+
+    /**
+     * 处理流式返回值
+     *
+     * @param model      Model对象
+     * @param routeMatch 当前请求的路由匹配结果
+     * @param args       Controller方法的参数
+     * @param result     Controller方法的返回值
+     * @throws IOException
+     */
+    public void handle(Model model, RouteMatch routeMatch, Object[] args, Object result) throws IOException {
+        HttpServletRequest req = model.getRequest();
+        HttpServletResponse resp = model.getResponse();
+        boolean sse = acceptEventStream(req);
+        resp.setCharacterEncoding("UTF-8");
+        resp.setContentType(sse ? EVENT_STREAM : NDJSON);
+        resp.setHeader("Cache-Control", "no-cache");
+        //禁止Nginx等反向代理缓冲响应
+        resp.setHeader("X-Accel-Buffering", "no");
+        StreamWriter writer;
+        if (result instanceof ResponseEmitter) {
+            writer = new EmitterWriter(model, routeMatch, args, sse, (ResponseEmitter) result);
+        } else if (result instanceof Stream) {
+            Stream<?> stream = (Stream<?>) result;
+            writer = new PullWriter(model, routeMatch, args, sse, stream.iterator(), stream);
+        } else {
+            Iterator<?> iterator = (Iterator<?>) result;
+            writer = new PullWriter(model, routeMatch, args, sse, iterator, iterator instanceof AutoCloseable ? (AutoCloseable) iterator : null);
+        }
+        if (req.isAsyncSupported()) {
+            writer.start();
+        } else {
+            writer.block();
+        }
+    }
+
+    private static boolean acceptEventStream(HttpServletRequest req) {
+        String accept = req.getHeader("Accept");
+        return accept != null && accept.contains(EVENT_STREAM);
+    }
+
+    /**
+     * 把一条数据编码到缓冲区中
+     */
+    private static void encode(String event, Object data, boolean sse, ByteArrayOutputStream buffer) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        if (sse) {
+            String text = data instanceof CharSequence ? data.toString() : Model.getJsonSerializationScheme().serialization(data);
+            if (event != null) {
+                sb.append("event: ").append(event).append('\n');
+            }
+            for (String line : text.split("\r\n|\r|\n", -1)) {
+                sb.append("data: ").append(line).append('\n');
+            }
+        } else {
+            sb.append(Model.getJsonSerializationScheme().serialization(data));
+        }
+        sb.append('\n');
+        buffer.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            synchronized (StreamingResponseHandler.class) {
+                if (scheduler == null) {
+                    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread thread = new Thread(r, "lucky-sse-heartbeat");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * 一个流式响应的写出过程，异步模式下由容器在连接可写时回调{@link #onWritePossible()}
+     */
+    private abstract class StreamWriter implements WriteListener, AsyncListener {
+
+        final Model model;
+
+        final RouteMatch routeMatch;
+
+        final Object[] args;
+
+        final boolean sse;
+
+        final LuckyWebContext context;
+
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(FLUSH_SIZE * 2);
+
+        ServletOutputStream out;
+
+        AsyncContext asyncContext;
+
+        /**
+         * 是否已经写出过数据
+         */
+        boolean written;
+
+        boolean closed;
+
+        StreamWriter(Model model, RouteMatch routeMatch, Object[] args, boolean sse) {
+            this.model = model;
+            this.routeMatch = routeMatch;
+            this.args = args;
+            this.sse = sse;
+            this.context = LuckyWebContext.getCurrentContext();
+        }
+
+        /**
+         * 连接可写时尽可能多地写出数据，只在持有锁时调用
+         */
+        abstract void write() throws IOException;
+
+        /**
+         * 不使用异步模式时在当前线程中写出全部数据
+         */
+        abstract void block() throws IOException;
+
+        /**
+         * 释放数据源
+         * @param aborted 是否因为客户端断开连接或超时而提前结束
+         */
+        abstract void release(boolean aborted);
+
+        long timeout() {
+            return 0;
+        }
+
+        void start() throws IOException {
+            HttpServletRequest req = model.getRequest();
+            asyncContext = req.startAsync(req, model.getResponse());
+            asyncContext.setTimeout(timeout());
+            asyncContext.addListener(this);
+            out = model.getResponse().getOutputStream();
+            out.setWriteListener(this);
+        }
+
+        @Override
+        public synchronized void onWritePossible() {
+            if (closed) {
+                return;
+            }
+            LuckyWebContext previous = LuckyWebContext.getCurrentContext();
+            LuckyWebContext.setContext(context);
+            try {
+                write();
+            } catch (IOException e) {
+                log.debug("客户端断开了流式响应的连接：" + routeMatch.getMethod() + "，" + e.getMessage());
+                close(true);
+            } catch (Throwable e) {
+                fail(e);
+            } finally {
+                LuckyWebContext.setContext(previous);
+            }
+        }
+
+        /**
+         * 数据源产生异常，还没有写出任何数据时交给统一异常处理
+         */
+        synchronized void fail(Throwable e) {
+            HttpServletResponse resp = model.getResponse();
+            if (!written && !resp.isCommitted() && (out == null || out.isReady())) {
+                DispatchServletExceptionInterceptor.getExceptionInterceptor()
+                        .handle(model, routeMatch.getController(), routeMatch.getMethod(), args, DispatchServletExceptionInterceptor.unwrap(e));
+            } else {
+                log.error("流式响应中断：" + routeMatch.getMethod(), e);
+                if (sse && (out == null || out.isReady())) {
+                    try {
+                        buffer.reset();
+                        encode("error", String.valueOf(e.getMessage()), true, buffer);
+                        buffer.writeTo(out == null ? resp.getOutputStream() : out);
+                    } catch (IOException ignored) {
+                        //客户端已经断开
+                    }
+                }
+            }
+            close(false);
+        }
+
+        synchronized void close(boolean aborted) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            release(aborted);
+            if (asyncContext != null) {
+                asyncContext.complete();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            log.debug("客户端断开了流式响应的连接：" + routeMatch.getMethod() + "，" + t.getMessage());
+            close(true);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            synchronized (this) {
+                if (!closed) {
+                    closed = true;
+                    release(true);
+                }
+            }
+            model.deleteMultipartTempFiles();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            close(true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            onError(event.getThrowable());
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    /**
+     * 拉取式的数据源(Stream和Iterator)
+     */
+    private class PullWriter extends StreamWriter {
+
+        private final Iterator<?> iterator;
+
+        private final AutoCloseable source;
+
+        PullWriter(Model model, RouteMatch routeMatch, Object[] args, boolean sse, Iterator<?> iterator, AutoCloseable source) {
+            super(model, routeMatch, args, sse);
+            this.iterator = iterator;
+            this.source = source;
+        }
+
+        /**
+         * 把数据编码到缓冲区，直到缓冲区已满(Server-Sent Events为一个事件)
+         * @return 数据源中是否还有数据
+         */
+        private boolean fill() throws IOException {
+            while (iterator.hasNext()) {
+                encode(null, iterator.next(), sse, buffer);
+                if (sse || buffer.size() >= FLUSH_SIZE) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        void write() throws IOException {
+            while (out.isReady()) {
+                boolean more = fill();
+                if (buffer.size() > 0) {
+                    written = true;
+                    buffer.writeTo(out);
+                    buffer.reset();
+                }
+                if (!more) {
+                    close(false);
+                    return;
+                }
+                if (out.isReady()) {
+                    out.flush();
+                }
+            }
+        }
+
+        @Override
+        void block() throws IOException {
+            ServletOutputStream output = model.getResponse().getOutputStream();
+            try {
+                boolean more = true;
+                while (more) {
+                    try {
+                        more = fill();
+                    } catch (RuntimeException e) {
+                        fail(e);
+                        return;
+                    }
+                    if (buffer.size() > 0) {
+                        written = true;
+                        buffer.writeTo(output);
+                        buffer.reset();
+                        output.flush();
+                    }
+                }
+            } catch (IOException e) {
+                log.debug("客户端断开了流式响应的连接：" + routeMatch.getMethod() + "，" + e.getMessage());
+            } finally {
+                close(true);
+            }
+        }
+
+        @Override
+        void release(boolean aborted) {
+            if (source == null) {
+                return;
+            }
+            try {
+                source.close();
+            } catch (Exception e) {
+                log.error("流式响应的数据源关闭失败：" + routeMatch.getMethod(), e);
+            }
+        }
+    }
+
+    /**
+     * 推送式的数据源(ResponseEmitter)
+     */
+    private class EmitterWriter extends StreamWriter {
+
+        private final ResponseEmitter emitter;
+
+        private final long heartbeat;
+
+        private ScheduledFuture<?> heartbeatTask;
+
+        private long lastWrite = System.nanoTime();
+
+        EmitterWriter(Model model, RouteMatch routeMatch, Object[] args, boolean sse, ResponseEmitter emitter) {
+            super(model, routeMatch, args, sse);
+            this.emitter = emitter;
+            this.heartbeat = sse ? webCfg.getSseHeartbeat() : 0;
+        }
+
+        @Override
+        long timeout() {
+            Long timeout = emitter.getTimeout();
+            return timeout == null || timeout < 0 ? 0 : timeout;
+        }
+
+        @Override
+        void start() throws IOException {
+            super.start();
+            emitter.bind(this::onWritePossible);
+            if (heartbeat > 0) {
+                heartbeatTask = getScheduler().scheduleWithFixedDelay(this::heartbeat, heartbeat, heartbeat, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        @Override
+        void write() throws IOException {
+            boolean dirty = false;
+            while (out.isReady()) {
+                ResponseEmitter.Event event = emitter.poll();
+                if (event == null) {
+                    if (emitter.isDone()) {
+                        finish();
+                        return;
+                    }
+                    if (!dirty) {
+                        return;
+                    }
+                    out.flush();
+                    dirty = false;
+                    continue;
+                }
+                encode(event.name, event.data, sse, buffer);
+                written = true;
+                dirty = true;
+                lastWrite = System.nanoTime();
+                buffer.writeTo(out);
+                buffer.reset();
+            }
+        }
+
+        private void finish() {
+            Throwable error = emitter.getError();
+            if (error != null) {
+                fail(error);
+            } else {
+                close(false);
+            }
+        }
+
+        /**
+         * 空闲时发送注释行，连接已经断开时写出失败，从而及时执行断开回调
+         */
+        private synchronized void heartbeat() {
+            if (closed || System.nanoTime() - lastWrite < TimeUnit.MILLISECONDS.toNanos(heartbeat) || !out.isReady()) {
+                return;
+            }
+            try {
+                out.write(HEARTBEAT);
+                lastWrite = System.nanoTime();
+                if (out.isReady()) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                onError(e);
+            }
+        }
+
+        @Override
+        void block() throws IOException {
+            Semaphore signal = new Semaphore(0);
+            emitter.bind(signal::release);
+            long timeout = timeout();
+            long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+            ServletOutputStream output = model.getResponse().getOutputStream();
+            boolean aborted = true;
+            try {
+                while (true) {
+                    ResponseEmitter.Event event = emitter.poll();
+                    if (event != null) {
+                        encode(event.name, event.data, sse, buffer);
+                        written = true;
+                        buffer.writeTo(output);
+                        buffer.reset();
+                        continue;
+                    }
+                    if (emitter.isDone()) {
+                        output.flush();
+                        aborted = false;
+                        break;
+                    }
+                    output.flush();
+                    long wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        break;
+                    }
+                    if (!signal.tryAcquire(heartbeat > 0 ? Math.min(heartbeat, wait) : wait, TimeUnit.MILLISECONDS) && heartbeat > 0) {
+                        output.write(HEARTBEAT);
+                    }
+                }
+            } catch (IOException e) {
+                log.debug("客户端断开了流式响应的连接：" + routeMatch.getMethod() + "，" + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (aborted) {
+                close(true);
+            } else {
+                finish();
+            }
+        }
+
+        @Override
+        void release(boolean aborted) {
+            if (heartbeatTask != null) {
+                heartbeatTask.cancel(false);
+            }
+            if (aborted) {
+                emitter.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.lucky.jacklamb.servlet.cache;
+
+/**
+ * 缓存中的一个响应，保存序列化后的响应体与gzip压缩后的响应体，创建后不可修改
+ *
+ * @author fk-7075
+ */
+final class CachedResponse {
+
+    private final String contentType;
+
+    private final byte[] body;
+
+    /**
+     * gzip压缩后的响应体，不压缩时为null
+     */
+    private final byte[] gzip;
+
+    private final String etag;
+
+    private final String gzipEtag;
+
+    private final long expiresAt;
+
+    CachedResponse(String contentType, byte[] body, byte[] gzip, String etag, long expiresAt) {
+        this.contentType = contentType;
+        this.body = body;
+        this.gzip = gzip;
+        this.etag = "\"" + etag + "\"";
+        this.gzipEtag = "\"" + etag + "-gz\"";
+        this.expiresAt = expiresAt;
+    }
+
+    String getContentType() {
+        return contentType;
+    }
+
+    byte[] getBody() {
+        return body;
+    }
+
+    byte[] getGzip() {
+        return gzip;
+    }
+
+    String getEtag() {
+        return etag;
+    }
+
+    String getGzipEtag() {
+        return gzipEtag;
+    }
+
+    long getExpiresAt() {
+        return expiresAt;
+    }
+
+    boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+}
@@ -0,0 +1,127 @@
+package com.lucky.jacklamb.servlet.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 响应缓存的管理器，按@ResponseCache中的名称管理所有的缓存，用于在数据发生变化时清除缓存<br>
+ * 例：ResponseCacheManage.evict("userList");
+ *
+ * @author fk-7075
+ */
+public class ResponseCacheManage {
+
+    private static final Map<String, Store> stores = new ConcurrentHashMap<>();
+
+    private ResponseCacheManage() {
+    }
+
+    /**
+     * 清除某个缓存中的所有内容
+     * @param name 缓存名称
+     */
+    public static void evict(String name) {
+        Store store = stores.get(name);
+        if (store != null) {
+            store.entries.clear();
+        }
+    }
+
+    /**
+     * 清除某个缓存中某个请求路径的所有内容(不区分参数)
+     * @param name 缓存名称
+     * @param path 请求路径
+     */
+    public static void evict(String name, String path) {
+        Store store = stores.get(name);
+        if (store != null) {
+            String prefix = path + "?";
+            store.entries.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    /**
+     * 清除所有的响应缓存
+     */
+    public static void evictAll() {
+        for (Store store : stores.values()) {
+            store.entries.clear();
+        }
+    }
+
+    /**
+     * 得到某个缓存中的条目数
+     * @param name 缓存名称
+     * @return
+     */
+    public static int size(String name) {
+        Store store = stores.get(name);
+        return store == null ? 0 : store.entries.size();
+    }
+
+    /**
+     * 得到某个名称的缓存，不存在时创建
+     * @throws IllegalArgumentException 名称相同的缓存已经使用了不同的maxEntries
+     */
+    static Store store(String name, int maxEntries) {
+        Store store = stores.computeIfAbsent(name, n -> new Store(maxEntries));
+        if (store.maxEntries != Math.max(1, maxEntries)) {
+            throw new IllegalArgumentException("名称相同的@ResponseCache必须使用相同的maxEntries：" + name
+                    + "[" + store.maxEntries + " , " + maxEntries + "]");
+        }
+        return store;
+    }
+
+    /**
+     * 一个名称对应的缓存
+     */
+    static final class Store {
+
+        private final Map<String, CachedResponse> entries = new ConcurrentHashMap<>();
+
+        private final int maxEntries;
+
+        private Store(int maxEntries) {
+            this.maxEntries = Math.max(1, maxEntries);
+        }
+
+        CachedResponse get(String key, long now) {
+            CachedResponse response = entries.get(key);
+            if (response != null && response.isExpired(now)) {
+                entries.remove(key, response);
+                return null;
+            }
+            return response;
+        }
+
+        void put(String key, CachedResponse response, long now) {
+            if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+                evict(now);
+            }
+            entries.put(key, response);
+        }
+
+        /**
+         * 缓存已满时先清除过期的条目，仍然没有空间时清除最早过期的条目
+         */
+        private void evict(long now) {
+            entries.values().removeIf(response -> response.isExpired(now));
+            while (entries.size() >= maxEntries) {
+                String eldest = null;
+                long expiresAt = Long.MAX_VALUE;
+                for (Iterator<Map.Entry<String, CachedResponse>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<String, CachedResponse> entry = it.next();
+                    if (entry.getValue().getExpiresAt() < expiresAt) {
+                        expiresAt = entry.getValue().getExpiresAt();
+                        eldest = entry.getKey();
+                    }
+                }
+                if (eldest == null) {
+                    return;
+                }
+                entries.remove(eldest);
+            }
+        }
+    }
+}
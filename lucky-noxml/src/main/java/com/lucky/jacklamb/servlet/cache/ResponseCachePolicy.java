@@ -0,0 +1,268 @@
+package com.lucky.jacklamb.servlet.cache;
+
+import com.lucky.jacklamb.annotation.mvc.ResponseCache;
+import com.lucky.jacklamb.servlet.core.Model;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 由@ResponseCache注解解析而成的缓存策略，启动时绑定到映射上<br>
+ * 1.{@link #serve}在参数绑定之前尝试直接响应缓存的内容<br>
+ * 2.没有命中时Controller的输出由{@link #capture}记录，执行结束后由{@link #complete}放入缓存并写出
+ *
+ * @author fk-7075
+ */
+public final class ResponseCachePolicy {
+
+    /**
+     * 小于该长度的响应体不做gzip压缩
+     */
+    private static final int GZIP_MIN_LENGTH = 256;
+
+    private final String name;
+
+    private final long ttl;
+
+    private final String[] params;
+
+    private final String[] headers;
+
+    private final int maxBytes;
+
+    private final boolean gzip;
+
+    private final String cacheControl;
+
+    private final String vary;
+
+    private final ResponseCacheManage.Store store;
+
+    private ResponseCachePolicy(String name, ResponseCache cache) {
+        if (cache.ttl() <= 0) {
+            throw new IllegalArgumentException("@ResponseCache的ttl必须大于0：" + name);
+        }
+        this.name = name;
+        this.ttl = cache.ttl() * 1000;
+        this.params = cache.params();
+        this.headers = cache.headers();
+        this.maxBytes = Math.max(0, cache.maxBytes());
+        this.gzip = cache.gzip();
+        this.cacheControl = cache.cacheControl().isEmpty() ? null : cache.cacheControl();
+        StringBuilder vary = new StringBuilder(gzip ? "Accept-Encoding" : "");
+        if (Model.getBinarySerializationScheme() != null) {
+            vary.append(vary.length() == 0 ? "" : ", ").append("Accept");
+        }
+        for (String header : headers) {
+            vary.append(vary.length() == 0 ? "" : ", ").append(header);
+        }
+        this.vary = vary.length() == 0 ? null : vary.toString();
+        this.store = ResponseCacheManage.store(name, cache.maxEntries());
+    }
+
+    /**
+     * 解析Controller方法的缓存策略
+     * @param controllerClass Controller的Class(不是代理类)
+     * @param method Controller方法
+     * @return 方法上没有@ResponseCache注解时返回null
+     */
+    public static ResponseCachePolicy of(Class<?> controllerClass, Method method) {
+        ResponseCache cache = method.getAnnotation(ResponseCache.class);
+        if (cache == null) {
+            return null;
+        }
+        String name = cache.value().isEmpty() ? controllerClass.getSimpleName() + "." + method.getName() : cache.value();
+        return new ResponseCachePolicy(name, cache);
+    }
+
+    /**
+     * 计算请求的缓存key
+     * @param req Request对象
+     * @param path 请求路径
+     * @return
+     */
+    public String key(HttpServletRequest req, String path) {
+        StringBuilder key = new StringBuilder(path).append('?');
+        if (params.length == 0) {
+            String query = req.getQueryString();
+            if (query != null) {
+                key.append(query);
+            }
+        } else {
+            for (String param : params) {
+                String[] values = req.getParameterValues(param);
+                if (values != null) {
+                    for (String value : values) {
+                        key.append(param).append('=').append(value).append('&');
+                    }
+                }
+            }
+        }
+        //JSON与二进制格式的响应分别缓存
+        if (Model.acceptBinary(req)) {
+            key.append("\nbinary");
+        }
+        for (String header : headers) {
+            String value = req.getHeader(header);
+            key.append('\n').append(header).append(':').append(value == null ? "" : value);
+        }
+        return key.toString();
+    }
+
+    /**
+     * 缓存命中时直接响应缓存的内容
+     * @param req Request对象
+     * @param resp Response对象
+     * @param key 缓存key
+     * @return 是否已经响应
+     * @throws IOException
+     */
+    public boolean serve(HttpServletRequest req, HttpServletResponse resp, String key) throws IOException {
+        long now = System.currentTimeMillis();
+        CachedResponse cached = store.get(key, now);
+        if (cached == null) {
+            return false;
+        }
+        write(req, resp, cached, now, "HIT");
+        return true;
+    }
+
+    /**
+     * 创建记录Controller输出的Response，之后必须调用{@link #complete}或{@link #release}
+     * @param resp 真实的Response对象
+     * @return
+     */
+    public HttpServletResponse capture(HttpServletResponse resp) {
+        return new ResponseCapture(resp, maxBytes);
+    }
+
+    /**
+     * Controller执行结束，状态码为200且没有设置Cookie时放入缓存，然后把内容写入真实的响应
+     * @param req Request对象
+     * @param capture {@link #capture}返回的Response对象
+     * @param key 缓存key
+     * @throws IOException
+     */
+    public void complete(HttpServletRequest req, HttpServletResponse capture, String key) throws IOException {
+        ResponseCapture responseCapture = (ResponseCapture) capture;
+        HttpServletResponse resp = (HttpServletResponse) responseCapture.getResponse();
+        if (responseCapture.isOverflow() || resp.isCommitted() || resp.getStatus() != HttpServletResponse.SC_OK
+                || resp.containsHeader("Set-Cookie") || resp.containsHeader("Content-Encoding")) {
+            responseCapture.release();
+            return;
+        }
+        byte[] body = responseCapture.toByteArray();
+        long now = System.currentTimeMillis();
+        CachedResponse cached = new CachedResponse(resp.getContentType(), body, gzip(body), etag(body), now + ttl);
+        store.put(key, cached, now);
+        responseCapture.discard();
+        write(req, resp, cached, now, "MISS");
+    }
+
+    /**
+     * 不缓存本次响应(例如转为异步处理或发生异常)，把记录的内容写入真实的响应
+     * @param capture {@link #capture}返回的Response对象
+     * @throws IOException
+     */
+    public void release(HttpServletResponse capture) throws IOException {
+        ((ResponseCapture) capture).release();
+    }
+
+    private void write(HttpServletRequest req, HttpServletResponse resp, CachedResponse cached, long now, String state) throws IOException {
+        boolean useGzip = cached.getGzip() != null && acceptGzip(req);
+        String etag = useGzip ? cached.getGzipEtag() : cached.getEtag();
+        if (cached.getContentType() != null) {
+            resp.setContentType(cached.getContentType());
+        }
+        resp.setHeader("ETag", etag);
+        resp.setHeader("Cache-Control", cacheControl != null ? cacheControl
+                : "max-age=" + Math.max(0, (cached.getExpiresAt() - now) / 1000));
+        if (vary != null) {
+            Model.addVary(resp, vary);
+        }
+        resp.setHeader("X-Cache", state);
+        if (notModified(req, etag)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        byte[] body = cached.getBody();
+        if (useGzip) {
+            resp.setHeader("Content-Encoding", "gzip");
+            body = cached.getGzip();
+        }
+        resp.setContentLength(body.length);
+        if (!"HEAD".equals(req.getMethod())) {
+            resp.getOutputStream().write(body);
+        }
+    }
+
+    private byte[] gzip(byte[] body) throws IOException {
+        if (!gzip || body.length < GZIP_MIN_LENGTH) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 2);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(body);
+        }
+        return out.size() < body.length ? out.toByteArray() : null;
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(body);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean acceptGzip(HttpServletRequest req) {
+        String acceptEncoding = req.getHeader("Accept-Encoding");
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] params = coding.split(";");
+            if ("gzip".equals(params[0].trim().toLowerCase())) {
+                return params.length == 1 || !params[1].trim().matches("q\\s*=\\s*0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static boolean notModified(HttpServletRequest req, String etag) {
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if ("*".equals(tag) || etag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseCache[" + name + ", ttl=" + ttl / 1000 + "s]";
+    }
+}
@@ -0,0 +1,205 @@
+package com.lucky.jacklamb.servlet.cache;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * 记录Controller方法写出的响应体，用于放入响应缓存<br>
+ * 响应体超过maxBytes时把已记录的内容写入真实的响应并转为直接输出，此时不再缓存
+ *
+ * @author fk-7075
+ */
+final class ResponseCapture extends HttpServletResponseWrapper {
+
+    private final int maxBytes;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    private ServletOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    private ServletOutputStream target;
+
+    private boolean overflow;
+
+    private boolean released;
+
+    private boolean discarded;
+
+    ResponseCapture(HttpServletResponse response, int maxBytes) {
+        super(response);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called for this response");
+        }
+        if (outputStream == null) {
+            outputStream = new CaptureOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (outputStream != null && writer == null) {
+            throw new IllegalStateException("getOutputStream() has already been called for this response");
+        }
+        if (writer == null) {
+            outputStream = new CaptureOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        if (overflow) {
+            super.setContentLength(len);
+        }
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (overflow) {
+            super.setContentLengthLong(len);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        flushWriter();
+        if (overflow) {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (!overflow) {
+            buffer.reset();
+        }
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        if (!overflow) {
+            buffer.reset();
+        }
+        super.reset();
+    }
+
+    boolean isOverflow() {
+        return overflow;
+    }
+
+    /**
+     * 得到记录下来的响应体
+     */
+    byte[] toByteArray() {
+        flushWriter();
+        return buffer.toByteArray();
+    }
+
+    /**
+     * 不使用缓存时把记录的内容写入真实的响应，重复调用时无效
+     */
+    void release() throws IOException {
+        if (released) {
+            return;
+        }
+        released = true;
+        flushWriter();
+        //之后的输出直接写入真实的响应
+        passThrough();
+    }
+
+    /**
+     * 响应已经写入缓存，之后的输出全部丢弃
+     */
+    void discard() {
+        released = true;
+        discarded = true;
+        buffer.reset();
+    }
+
+    private void flushWriter() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * 把记录的内容写入真实的响应，之后的输出不再记录，本次响应不会被缓存
+     */
+    private void passThrough() throws IOException {
+        if (!overflow) {
+            overflow = true;
+            target = getResponse().getOutputStream();
+            buffer.writeTo(target);
+            buffer.reset();
+        }
+    }
+
+    private void write(byte[] b, int off, int len) throws IOException {
+        if (discarded) {
+            return;
+        }
+        if (!overflow && buffer.size() + len > maxBytes) {
+            passThrough();
+        }
+        if (overflow) {
+            target.write(b, off, len);
+        } else {
+            buffer.write(b, off, len);
+        }
+    }
+
+    private class CaptureOutputStream extends ServletOutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            ResponseCapture.this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ResponseCapture.this.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (overflow) {
+                target.flush();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return !overflow || target.isReady();
+        }
+
+        /**
+         * 非阻塞输出无法记录，转为直接写入真实的响应
+         */
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            try {
+                passThrough();
+            } catch (IOException e) {
+                throw new IllegalStateException("无法将已记录的响应体写入真实的响应", e);
+            }
+            target.setWriteListener(writeListener);
+        }
+    }
+}
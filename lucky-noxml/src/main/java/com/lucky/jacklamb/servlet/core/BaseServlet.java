@@ -10,10 +10,14 @@ import com.lucky.jacklamb.quartz.ann.Job;
 import com.lucky.jacklamb.quartz.ann.QuartzJobs;
 import com.lucky.jacklamb.servlet.ResponseControl;
 import com.lucky.jacklamb.servlet.ServerStartRun;
+import com.lucky.jacklamb.servlet.async.AsyncResponseHandler;
+import com.lucky.jacklamb.servlet.async.StreamingResponseHandler;
 import com.lucky.jacklamb.servlet.mapping.AnnotationOperation;
 import com.lucky.jacklamb.servlet.mapping.UrlParsMap;
 import com.lucky.jacklamb.sqlcore.datasource.abs.LuckyDataSource;
+import com.lucky.jacklamb.utils.base.IpFilter;
 import com.lucky.jacklamb.utils.reflect.ClassUtils;
+import com.lucky.jacklamb.utils.reflect.MethodInvoker;
 import com.lucky.jacklamb.utils.reflect.MethodUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -27,6 +31,7 @@ import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -37,6 +42,10 @@ public abstract class BaseServlet extends HttpServlet {
     protected WebConfig webCfg;
     protected UrlParsMap urlParsMap;
     protected ResponseControl responseControl;
+    protected AsyncResponseHandler asyncResponse;
+    protected StreamingResponseHandler streamingResponse;
+    protected IpFilter globalIpFilter;
+    protected Map<String, IpFilter> specifiIpFilters;
 
     public void initRun() {
         ApplicationBeans.iocContainers.getControllerIOC().getServerStartRuns()
@@ -76,10 +85,24 @@ public abstract class BaseServlet extends HttpServlet {
         webCfg = AppConfig.getAppConfig().getWebConfig();
         urlParsMap = new UrlParsMap();
         responseControl = new ResponseControl();
+        asyncResponse = new AsyncResponseHandler(responseControl, webCfg);
+        streamingResponse = new StreamingResponseHandler(webCfg);
+        compileIpFilters();
         jobRun();
         initRun();
     }
 
+    /**
+     * 编译全局资源与指定资源的IP限制
+     */
+    private void compileIpFilters() {
+        globalIpFilter = IpFilter.compile(webCfg.getGlobalResourcesIpRestrict());
+        specifiIpFilters = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : webCfg.getSpecifiResourcesIpRestrict().entrySet()) {
+            specifiIpFilters.put(entry.getKey(), IpFilter.compile(entry.getValue()));
+        }
+    }
+
     @Override
     public void destroy() {
         ApplicationBeans.iocContainers.getControllerIOC().getServerCloseRuns()
@@ -90,6 +113,18 @@ public abstract class BaseServlet extends HttpServlet {
         LuckyDataSource.close();
     }
 
+    /**
+     * HttpServlet不支持PATCH请求，这里单独处理
+     */
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if ("PATCH".equals(req.getMethod())) {
+            this.luckyResponse(req, resp, RequestMethod.PATCH);
+        } else {
+            super.service(req, resp);
+        }
+    }
+
     @Override
     protected void doDelete(HttpServletRequest req, HttpServletResponse resp) {
         this.luckyResponse(req, resp, RequestMethod.DELETE);
@@ -131,6 +166,7 @@ public abstract class BaseServlet extends HttpServlet {
 
 class MRun{
     private Method method;
+    private MethodInvoker invoker;
     private Object targetObject;
     private int priority;
 
@@ -148,11 +184,12 @@ class MRun{
 
     public MRun(Method method, Object targetObject, int priority) {
         this.method = method;
+        this.invoker = MethodInvoker.of(method);
         this.targetObject = targetObject;
         this.priority = priority;
     }
 
     public void run(){
-        MethodUtils.invoke(targetObject,method);
+        MethodUtils.invoke(targetObject,invoker);
     }
 }
@@ -1,23 +1,33 @@
 package com.lucky.jacklamb.servlet.core;
 
-import com.lucky.jacklamb.annotation.mvc.Download;
 import com.lucky.jacklamb.enums.Code;
 import com.lucky.jacklamb.enums.RequestMethod;
 import com.lucky.jacklamb.ioc.ControllerAndMethod;
+import com.lucky.jacklamb.servlet.LuckyWebContext;
+import com.lucky.jacklamb.servlet.accesslog.AccessLogManage;
+import com.lucky.jacklamb.servlet.async.AsyncResponseHandler;
+import com.lucky.jacklamb.servlet.async.StreamingResponseHandler;
+import com.lucky.jacklamb.servlet.cache.ResponseCachePolicy;
 import com.lucky.jacklamb.servlet.exceptionhandler.DispatchServletExceptionInterceptor;
+import com.lucky.jacklamb.servlet.limit.AdaptiveConcurrencyLimit;
+import com.lucky.jacklamb.servlet.limit.BulkheadPolicy;
+import com.lucky.jacklamb.servlet.mapping.RouteMatch;
+import com.lucky.jacklamb.servlet.metrics.MetricsManage;
+import com.lucky.jacklamb.servlet.metrics.RequestRecorder;
+import com.lucky.jacklamb.servlet.metrics.RouteMetrics;
+import com.lucky.jacklamb.servlet.staticsource.StaticResource;
 import com.lucky.jacklamb.servlet.staticsource.StaticResourceManage;
-import com.lucky.jacklamb.utils.base.StaticFile;
-import com.lucky.jacklamb.utils.file.FileUtils;
-import com.lucky.jacklamb.utils.file.Resources;
+import com.lucky.jacklamb.servlet.upload.ResumableUploadManage;
+import com.lucky.jacklamb.utils.base.IpAddress;
+import com.lucky.jacklamb.utils.base.IpFilter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.servlet.annotation.MultipartConfig;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.InputStream;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.HashMap;
 
 @MultipartConfig
 public class LuckyDispatcherServlet extends BaseServlet {
@@ -31,6 +41,12 @@ public class LuckyDispatcherServlet extends BaseServlet {
         Method method = null;
         Object controllerObj = null;
         Object[] args = null;
+        RequestRecorder recorder = null;
+        AdaptiveConcurrencyLimit concurrencyLimit = null;
+        long admitted = 0;
+        BulkheadPolicy bulkhead = null;
+        ResponseCachePolicy responseCache = null;
+        HttpServletResponse capture = null;
         try {
             String encoding = webCfg.getEncoding();
             requestMethod = urlParsMap.chagenMethod(req, resp, requestMethod, webCfg.isPostChangeMethod());
@@ -44,34 +60,51 @@ public class LuckyDispatcherServlet extends BaseServlet {
             String context = req.getContextPath();
             String path = uri.replace(context, "");
             String currIp = model.getIpAddr();
+            //访问日志在请求结束时由Tomcat记录，这里只提供解析好的客户端IP与路由
+            AccessLogManage accessLog = AccessLogManage.getAccessLogManage();
+            if (accessLog != null) {
+                req.setAttribute(AccessLogManage.CLIENT_IP, currIp);
+            }
             if (ICO.equals(uri)) {
-                resp.setContentType("image/x-icon");
-                InputStream favStream = Resources.getInputStream(StaticFile.USER_ICO_FILE);
-                if (favStream != null) {
-                    FileUtils.preview(model, favStream, ICO);
-                    return;
-                }
-                FileUtils.preview(model, Resources.getInputStream(StaticFile.ICO_FILE), ICO);
+                StaticResourceManage.favicon(model);
                 return;
             }
+            //IP限制，请求的IP只解析一次
+            IpAddress clientIp = IpAddress.parse(currIp);
             //全局资源的IP限制
-            if (!webCfg.getGlobalResourcesIpRestrict().isEmpty() && !webCfg.getGlobalResourcesIpRestrict().contains(currIp)) {
+            if (!globalIpFilter.isLegal(clientIp)) {
                 model.error(Code.REFUSED, "该ip地址没有被注册，服务器拒绝响应！", "不合法的请求ip：" + currIp);
                 log.info("403 : 不合法的请求ip：" + currIp + "该ip地址没有被注册，服务器拒绝响应！");
                 return;
             }
             //指定资源的IP限制
-            if (!webCfg.getSpecifiResourcesIpRestrict().isEmpty() && (webCfg.getSpecifiResourcesIpRestrict().containsKey(path) && !webCfg.getSpecifiResourcesIpRestrict().get(path).contains(currIp))) {
+            IpFilter specifiIpFilter = specifiIpFilters.get(path);
+            if (specifiIpFilter != null && !specifiIpFilter.isLegal(clientIp)) {
                 model.error(Code.REFUSED, "该ip地址没有被注册，服务器拒绝响应！", "不合法的请求ip：" + currIp);
                 log.info("403 : 不合法的请求ip：" + currIp + "该ip地址没有被注册，服务器拒绝响应！");
                 return;
             }
-            if (webCfg.isOpenStaticResourceManage() && StaticResourceManage.isLegalRequest(webCfg, currIp, resp, path)) {
+            //断点续传
+            ResumableUploadManage resumableUpload = ResumableUploadManage.getResumableUploadManage();
+            if (resumableUpload != null && resumableUpload.isUploadRequest(path)) {
+                resumableUpload.handle(model, requestMethod, path);
+                return;
+            }
+            //路由的性能统计
+            MetricsManage metrics = MetricsManage.getMetricsManage();
+            if (metrics != null && metrics.isMetricsRequest(path)) {
+                metrics.handle(model);
+                return;
+            }
+            if (webCfg.isOpenStaticResourceManage() && StaticResourceManage.isLegalRequest(clientIp, resp, path)) {
                 try {
-                    if (StaticResourceManage.resources(model, uri)) {
+                    StaticResource resource = StaticResourceManage.lookup(model, uri);
+                    if (resource != null) {
                         //静态资源处理
-                        log.debug("STATIC-REQUEST [静态资源请求]  [" + requestMethod + "]  #SR#=> " + uri);
-                        StaticResourceManage.response(model, uri);
+                        if (log.isDebugEnabled()) {
+                            log.debug("STATIC-REQUEST [静态资源请求]  [" + requestMethod + "]  #SR#=> " + uri);
+                        }
+                        StaticResourceManage.response(model, resource);
                         return;
                     }else{
                         model.error(Code.NOTFOUND,"服务器中找不到资源文件 "+uri+"！","找不到资源 "+uri);
@@ -92,49 +125,147 @@ public class LuckyDispatcherServlet extends BaseServlet {
                 String forwardurl = webCfg.getHanderPrefixAndSuffix().get(0) + webCfg.getStaticHander().get(path) + webCfg.getHanderPrefixAndSuffix().get(1);
                 req.getRequestDispatcher(forwardurl).forward(req, resp);
             } else {
-                ControllerAndMethod controllerAndMethod = urlParsMap.pars(model, path, requestMethod);
-                if (controllerAndMethod == null)
+                //跨域预检请求
+                if (requestMethod == RequestMethod.OPTIONS && urlParsMap.preflight(req, resp, path, clientIp)) {
                     return;
-                if (!controllerAndMethod.ipExistsInRange(currIp) || !controllerAndMethod.ipISCorrect(currIp)) {
+                }
+                //全局的自适应并发限制
+                AdaptiveConcurrencyLimit limit = AdaptiveConcurrencyLimit.getConcurrencyLimit();
+                if (limit != null) {
+                    if (!limit.tryAcquire()) {
+                        unavailable(model, 1, "服务器繁忙，当前的并发上限为" + limit.getLimit() + "，请稍后重试！");
+                        return;
+                    }
+                    concurrencyLimit = limit;
+                    admitted = System.nanoTime();
+                }
+                recorder = metrics == null ? null : metrics.start();
+                RouteMatch routeMatch = urlParsMap.pars(model, path, requestMethod);
+                if (routeMatch == null)
+                    return;
+                if (recorder != null)
+                    recorder.routed(routeMatch, requestMethod);
+                if (accessLog != null)
+                    req.setAttribute(AccessLogManage.ROUTE, routeMatch.getUrl());
+                ControllerAndMethod controllerAndMethod = routeMatch.getHandler();
+                if (!controllerAndMethod.isLegalIp(clientIp)) {
                     model.error(Code.REFUSED, "该ip地址没有被注册，服务器拒绝响应！", "不合法的请求ip：" + currIp);
                     log.info("403 : 不合法的请求ip：" + currIp + "该ip地址没有被注册，服务器拒绝响应！");
                     return;
                 } else {
-                    log.debug("CURR-REQUEST ==> [" + requestMethod + "] " + path);
-                    model.setRestMap(controllerAndMethod.getRestKV());
+                    if (log.isDebugEnabled()) {
+                        log.debug("CURR-REQUEST ==> [" + requestMethod + "] " + path);
+                    }
                     urlParsMap.setCross(req, resp, controllerAndMethod);
-                    method = controllerAndMethod.getMethod();
-                    boolean isDownload = method.isAnnotationPresent(Download.class);
-                    controllerObj = controllerAndMethod.getController();
-                    urlParsMap.autowReqAdnResp(controllerObj, model);
+                    //响应缓存，命中时不再执行参数绑定与Controller方法
+                    String cacheKey = null;
+                    ResponseCachePolicy routeCache = controllerAndMethod.getResponseCache();
+                    if (routeCache != null && (requestMethod == RequestMethod.GET || requestMethod == RequestMethod.HEAD)) {
+                        cacheKey = routeCache.key(req, path);
+                        if (routeCache.serve(req, resp, cacheKey)) {
+                            return;
+                        }
+                        responseCache = routeCache;
+                    }
+                    //舱壁隔离
+                    BulkheadPolicy routeBulkhead = controllerAndMethod.getBulkhead();
+                    if (routeBulkhead != null) {
+                        if (!routeBulkhead.tryAcquire()) {
+                            unavailable(model, routeBulkhead.getRetryAfter(), "服务器繁忙，" + routeBulkhead + "已满，请稍后重试！");
+                            return;
+                        }
+                        bulkhead = routeBulkhead;
+                    }
+                    if (responseCache != null) {
+                        capture = responseCache.capture(resp);
+                        model.setResponse(capture);
+                        LuckyWebContext.getCurrentContext().setResponse(capture);
+                    }
+                    model.setRestMap(new HashMap<>(routeMatch.getRestKV()));
+                    method = routeMatch.getMethod();
+                    boolean isDownload = routeMatch.getBindingPlan().isDownload();
+                    controllerObj = routeMatch.getController();
                     Object obj1;
-                    args = anop.getControllerMethodParam(model, controllerObj.getClass(), method);
-                    obj1 = method.invoke(controllerObj, args);
+                    args = anop.getControllerMethodParam(model, controllerObj.getClass(), routeMatch.getBindingPlan());
+                    if (recorder != null)
+                        recorder.mark(RouteMetrics.Phase.BINDING);
+                    obj1 = routeMatch.getBindingPlan().getInvoker().invoke(controllerObj, args);
+                    if (recorder != null)
+                        recorder.mark(RouteMetrics.Phase.INVOCATION);
+                    if (AsyncResponseHandler.isAsyncResult(obj1)) {//异步响应
+                        if (capture != null)
+                            responseCache.release(capture);
+                        asyncResponse.handle(model, routeMatch, args, obj1);
+                        return;
+                    }
+                    if (StreamingResponseHandler.isStreamingResult(obj1)) {//流式响应
+                        if (capture != null) {
+                            //流式响应不缓存，恢复真实的Response以使用非阻塞输出
+                            responseCache.release(capture);
+                            capture = null;
+                            model.setResponse(resp);
+                            LuckyWebContext.getCurrentContext().setResponse(resp);
+                        }
+                        streamingResponse.handle(model, routeMatch, args, obj1);
+                        return;
+                    }
                     if (isDownload == true)//下载操作
-                        anop.download(model, method);
-                    responseControl.jump(model, controllerAndMethod.getRest(), method, obj1,controllerAndMethod.getPreAndSuf());
+                        anop.download(model, method, obj1);
+                    responseControl.jump(model, routeMatch.getRest(), method, obj1, routeMatch.getPreAndSuf());
+                    if (capture != null)
+                        responseCache.complete(req, capture, cacheKey);
+                    if (recorder != null)
+                        recorder.mark(RouteMetrics.Phase.SERIALIZATION);
                 }
             }
         } catch (Throwable e) {
+            if (recorder != null)
+                recorder.error();
             /*
                 全局异常处理
-                1.创建DispatchServlet异常拦截器
-                2.初始化DispatchServlet异常拦截器,(属性初始化+异常处理器的注册)
-                3.获取当前异常，并执行统一异常处理
+                1.获取所有请求共用的DispatchServlet异常拦截器(异常处理器的查找结果已缓存)
+                2.获取当前异常，并执行统一异常处理
              */
-            DispatchServletExceptionInterceptor exceptionInterceptor = new DispatchServletExceptionInterceptor();
-            exceptionInterceptor.initialize(model, controllerObj, method, args);
-            while (true){
-                if(e instanceof InvocationTargetException ||
-                   e.getClass()==RuntimeException.class){
-                    e=e.getCause();
-                }else {
-                    break;
-                }
-            }
-            exceptionInterceptor.unifiedExceptionHandler(e);
+            DispatchServletExceptionInterceptor.getExceptionInterceptor()
+                    .handle(model, controllerObj, method, args, DispatchServletExceptionInterceptor.unwrap(e));
         } finally {
+            if (capture != null)
+                releaseCapture(responseCache, capture);
+            if (bulkhead != null)
+                bulkhead.release();
+            if (concurrencyLimit != null)
+                concurrencyLimit.release(System.nanoTime() - admitted);
+            if (recorder != null)
+                recorder.finish(req, resp);
+            //异步请求的临时文件在异步请求结束时删除
+            if (model != null && !req.isAsyncStarted()) {
+                model.deleteMultipartTempFiles();
+            }
             urlParsMap.closeLuckyWebContext();
         }
     }
+
+    /**
+     * 没有放入缓存的响应(例如发生异常)写入真实的响应
+     */
+    private void releaseCapture(ResponseCachePolicy responseCache, HttpServletResponse capture) {
+        try {
+            responseCache.release(capture);
+        } catch (Exception e) {
+            log.debug("响应写出失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 拒绝请求，响应503和Retry-After
+     * @param model Model对象
+     * @param retryAfter 建议的重试间隔(单位：s)
+     * @param message 错误信息
+     */
+    private void unavailable(Model model, int retryAfter, String message) {
+        model.getResponse().setStatus(Code.UNAVAILABLE.code);
+        model.getResponse().setHeader("Retry-After", String.valueOf(retryAfter));
+        log.debug("503 : " + message);
+        model.error(Code.UNAVAILABLE, message, message);
+    }
 }
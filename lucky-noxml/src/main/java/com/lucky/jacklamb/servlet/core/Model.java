@@ -28,8 +28,10 @@ import java.net.URLDecoder;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 /**
  * mvc的核心中转类[数据中心]
@@ -41,6 +43,7 @@ public class Model {
     private static final Logger log = LogManager.getLogger(Model.class);
     private static JSONSerializationScheme jsonSerializationScheme=new GsonSerializationScheme();
     private static XMLSerializationScheme xmlSerializationScheme=new XtreamSerializationScheme();
+    private static BinarySerializationScheme binarySerializationScheme=new CborSerializationScheme();
     private final Integer port=AppConfig.getAppConfig().getServerConfig().getPort();
     /**
      * 解码方式
@@ -93,6 +96,77 @@ public class Model {
     public static XMLSerializationScheme getXmlSerializationScheme() {
         return xmlSerializationScheme;
     }
+    public static void setBinarySerializationScheme(BinarySerializationScheme binarySerializationScheme) {
+        Model.binarySerializationScheme = binarySerializationScheme;
+    }
+    public static BinarySerializationScheme getBinarySerializationScheme() {
+        return binarySerializationScheme;
+    }
+
+    /**
+     * 判断客户端是否接受二进制格式的响应(请求头Accept中明确列出了二进制序列化方案的Content-Type)
+     *
+     * @param request Request对象
+     * @return 没有设置二进制序列化方案时返回false
+     */
+    public static boolean acceptBinary(HttpServletRequest request) {
+        BinarySerializationScheme scheme = binarySerializationScheme;
+        String accept = request.getHeader("Accept");
+        if (scheme == null || accept == null) {
+            return false;
+        }
+        for (String mediaRange : accept.split(",")) {
+            String[] params = mediaRange.split(";");
+            if (scheme.getContentType().equalsIgnoreCase(params[0].trim())) {
+                return params.length == 1 || !params[1].trim().matches("q\\s*=\\s*0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 向响应头Vary中追加请求头名称，与已经设置的Vary合并为一个响应头，已经存在的名称不会重复添加
+     *
+     * @param response Response对象
+     * @param headers 影响响应内容的请求头，多个用逗号分隔
+     */
+    public static void addVary(HttpServletResponse response, String headers) {
+        Set<String> names = new LinkedHashSet<>();
+        StringBuilder vary = new StringBuilder();
+        for (String value : response.getHeaders("Vary")) {
+            appendVary(vary, names, value);
+        }
+        int length = vary.length();
+        appendVary(vary, names, headers);
+        if (vary.length() != length) {
+            response.setHeader("Vary", vary.toString());
+        }
+    }
+
+    private static void appendVary(StringBuilder vary, Set<String> names, String headers) {
+        for (String name : headers.split(",")) {
+            name = name.trim();
+            if (!name.isEmpty() && names.add(name.toLowerCase())) {
+                vary.append(vary.length() == 0 ? "" : ", ").append(name);
+            }
+        }
+    }
+
+    /**
+     * 判断请求体是否为二进制格式(请求头Content-Type与二进制序列化方案的Content-Type相同)
+     *
+     * @param request Request对象
+     * @return 没有设置二进制序列化方案时返回false
+     */
+    public static boolean isBinaryContent(HttpServletRequest request) {
+        BinarySerializationScheme scheme = binarySerializationScheme;
+        String contentType = request.getContentType();
+        if (scheme == null || contentType == null) {
+            return false;
+        }
+        int index = contentType.indexOf(';');
+        return scheme.getContentType().equalsIgnoreCase((index < 0 ? contentType : contentType.substring(0, index)).trim());
+    }
 
     public ServletOutputStream getOutputStream() throws IOException {
         if(outputStream==null){
@@ -124,6 +198,13 @@ public class Model {
         requestMethod=currentContext.getRequestMethod();
     }
 
+    /**
+     * 不绑定任何请求的Model，仅供{@link com.lucky.jacklamb.servlet.RequestScopedProxy}创建代理时使用
+     * @param unbound
+     */
+    protected Model(boolean unbound) {
+    }
+
     public void init(HttpServletRequest request, HttpServletResponse response){
         req = request;
         resp = response;
@@ -179,6 +260,17 @@ public class Model {
         this.multipartFileMap.put(key, multipartFiles);
     }
 
+    /**
+     * 删除流式解析multipart请求时为MultipartFile参数创建的临时文件
+     */
+    public void deleteMultipartTempFiles() {
+        for (MultipartFile[] multipartFiles : multipartFileMap.values()) {
+            for (MultipartFile multipartFile : multipartFiles) {
+                multipartFile.delete();
+            }
+        }
+    }
+
     /**
      * 添加一个文件参数
      *
@@ -373,7 +465,17 @@ public class Model {
      */
     public void writerJson(Object pojo) throws IOException {
         resp.setContentType("application/json");
-        writer(jsonSerializationScheme.serialization(pojo));
+        jsonSerializationScheme.serialization(pojo, getOutputStream());
+    }
+
+    /**
+     * 使用二进制序列化方案(默认为CBOR)将对象模型写出
+     *
+     * @param pojo (数组，对象，Collection,Map)
+     */
+    public void writerBinary(Object pojo) throws IOException {
+        resp.setContentType(binarySerializationScheme.getContentType());
+        binarySerializationScheme.serialization(pojo, getOutputStream());
     }
 
     /**
@@ -383,7 +485,7 @@ public class Model {
      */
     public void writerXml(Object pojo) throws IOException {
         resp.setContentType("application/xml");
-        writer(xmlSerializationScheme.serialization(pojo));
+        xmlSerializationScheme.serialization(pojo, getOutputStream());
     }
 
     /**
@@ -392,8 +494,8 @@ public class Model {
      * @param info
      */
     public void writer(Object info) {
-        try {
-            getOutputStream().write(info.toString().getBytes("UTF-8"));
+        try (Writer writer = new Utf8StreamWriter(getOutputStream())) {
+            writer.write(info.toString());
         } catch (IOException e) {
             error(e,Code.ERROR);
         }
@@ -405,9 +507,9 @@ public class Model {
      * @throws IOException
      */
     public void writerReader(Reader in) throws IOException {
-        StringWriter sw=new StringWriter();
-        IOUtils.copy(in,sw);
-        writer(sw.toString());
+        try (Writer writer = new Utf8StreamWriter(getOutputStream())) {
+            IOUtils.copy(in, writer);
+        }
     }
 
     /**
@@ -493,6 +595,16 @@ public class Model {
         return resp;
     }
 
+    /**
+     * 替换response对象(例如使用HttpServletResponseWrapper记录响应内容)
+     *
+     * @param response 新的response对象
+     */
+    public void setResponse(HttpServletResponse response) {
+        this.resp = response;
+        this.outputStream = null;
+    }
+
     /**
      * 得到session对象
      *
@@ -694,8 +806,17 @@ public class Model {
         error(code,stackMsg,e.toString());
     }
 
+    /**
+     * 向浏览器返回错误信息，响应尚未提交时同时设置对应的HTTP状态码
+     * @param code 错误类型
+     * @param Message 错误信息
+     * @param Description 错误描述
+     */
     public void error(Code code,String Message,String Description) {
         try {
+            if(!resp.isCommitted()){
+                resp.setStatus(code.code);
+            }
             //"Mozilla/5.0 (Windows NT 10.0; WOW64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/83.0.4103.116 Safari/537.36"
             String userAgent = req.getHeader("User-Agent");
             if(userAgent.startsWith("Mozilla/")){
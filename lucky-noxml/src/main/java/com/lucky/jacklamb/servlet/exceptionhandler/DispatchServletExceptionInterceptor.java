@@ -10,19 +10,33 @@ import com.lucky.jacklamb.utils.base.Assert;
 import com.lucky.jacklamb.utils.base.LuckyUtils;
 import org.apache.log4j.Logger;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 /**
  *  DispatchServlet异常拦截器<br/>
- *  DispatchServlet中产生的所有异常都会被此拦截器拦截，做统一的异常处理
+ *  DispatchServlet中产生的所有异常都会被此拦截器拦截，做统一的异常处理<br/>
+ *  异常处理器的查找结果按(Controller类型, Controller方法)与异常类型缓存，
+ *  同一种异常再次出现时不需要重新扫描注册中心和异常的继承体系，
+ *  使用{@link #handle(Model, Object, Method, Object[], Throwable)}时拦截器不保存请求相关的状态，可以被所有请求共用
  * @author fk-7075
  */
 public class DispatchServletExceptionInterceptor {
 
     private static Logger log = Logger.getLogger(DispatchServletExceptionInterceptor.class);
 
+    /**
+     * 没有对应的异常处理器
+     */
+    private static final LuckyExceptionHandler NONE = new LuckyExceptionHandler() {
+    };
+
     /**
      * 响应当前请求的Controller对象
      */
@@ -56,6 +70,21 @@ public class DispatchServletExceptionInterceptor {
     /**IOC容器中的所有LuckyExceptionHandler*/
     private static List<Object> beans;
 
+    /**
+     * 全局异常处理器(@ControllerExceptionHandler没有指定作用范围)
+     */
+    private static List<LuckyExceptionHandler> globalHandlers = new ArrayList<>();
+
+    /**
+     * Controller类型 -> Controller方法 -> 作用于该方法的异常处理器
+     */
+    private static final Map<Class<?>, Map<Method, LuckyExceptionHandler>> scopedCache = new ConcurrentHashMap<>();
+
+    /**
+     * 异常类型 -> 可以处理该异常的第一个全局异常处理器
+     */
+    private static final Map<Class<?>, LuckyExceptionHandler> globalCache = new ConcurrentHashMap<>();
+
     static {
         try {
             beans = ApplicationBeans.createApplicationBeans().getBeans(LuckyExceptionHandler.class);
@@ -66,6 +95,16 @@ public class DispatchServletExceptionInterceptor {
         exceptionHandlerRegistered();
     }
 
+    private static final DispatchServletExceptionInterceptor interceptor = new DispatchServletExceptionInterceptor();
+
+    /**
+     * 得到所有请求共用的异常拦截器，配合{@link #handle(Model, Object, Method, Object[], Throwable)}使用
+     * @return
+     */
+    public static DispatchServletExceptionInterceptor getExceptionInterceptor() {
+        return interceptor;
+    }
+
     /**
      * 初始化
      * 初始化<br/>
@@ -78,7 +117,7 @@ public class DispatchServletExceptionInterceptor {
      */
     public void initialize(Model model, Object controllerObj, Method currMethod, Object[] params) {
         this.controllerObj = controllerObj;
-        this.currClass = controllerObj.getClass();
+        this.currClass = controllerObj == null ? null : controllerObj.getClass();
         this.currMethod = currMethod;
         this.params = params;
         this.model = model;
@@ -86,24 +125,28 @@ public class DispatchServletExceptionInterceptor {
 
     /**
      * 全局异常处理<br/>
-     * 1.使用getExceptionMethod方法找到当前异常所对应的处理逻辑(Method)<br/>
-     * 2.如果找不到，返回false，说明本异常处理器无法处理当前异常<br/>
-     * 3.如果可以找到，便执行该方法，执行结束后返回true，表示该异常已经处理<br/>
+     * 1.找到第一个可以处理当前异常的全局异常处理器(按异常类型缓存)<br/>
+     * 2.如果找不到，使用默认的错误页面响应<br/>
      *
      * @param e 当前异常
      */
     protected void globalExceptionHandler(Throwable e) {
-        LuckyExceptionHandler exceobj;
-        ControllerExceptionHandler eh;
-        for (Object obj : beans) {
-            exceobj = (LuckyExceptionHandler) obj;
-            eh = exceobj.getClass().getAnnotation(ControllerExceptionHandler.class);
-            if (eh.value().length == 0) {
-                exceobj.init(model, controllerObj, currClass, currMethod, params);
-                if (exceobj.dispose(e)) {
-                    return;
+        globalExceptionHandler(model, controllerObj, currMethod, params, e);
+    }
+
+    private static void globalExceptionHandler(Model model, Object controllerObj, Method currMethod, Object[] params, Throwable e) {
+        LuckyExceptionHandler handler = globalCache.computeIfAbsent(e.getClass(), eClass -> {
+            for (LuckyExceptionHandler global : globalHandlers) {
+                if (global.canDispose(e.getClass())) {
+                    return global;
                 }
             }
+            return NONE;
+        });
+        if (handler != NONE) {
+            if (handler.dispose(e, model, controllerObj, controllerObj == null ? null : controllerObj.getClass(), currMethod, params)) {
+                return;
+            }
         }
         model.error(e, Code.ERROR);
     }
@@ -123,7 +166,12 @@ public class DispatchServletExceptionInterceptor {
             scope = eh.value();
             edh = new ExceptionMapping(scope, exceobj);
             registry.add(edh);
+            if (scope.length == 0) {
+                globalHandlers.add(exceobj);
+            }
         }
+        scopedCache.clear();
+        globalCache.clear();
     }
 
 
@@ -136,42 +184,64 @@ public class DispatchServletExceptionInterceptor {
      * @param e 当前异常
      */
     public void unifiedExceptionHandler(Throwable e) {
+        handle(model, controllerObj, currMethod, params, e);
+    }
+
+    /**
+     * 统一异常处理，不依赖{@link #initialize}设置的属性，可以被多个请求同时使用
+     *
+     * @param model         Model对象
+     * @param controllerObj 响应当前请求的Controller对象，还没有匹配到Controller时为null
+     * @param currMethod    响应当前请求的Controller方法
+     * @param params        响应当前请求的Controller方法参数
+     * @param e             当前异常(已经剥去外层的包装异常)
+     */
+    public void handle(Model model, Object controllerObj, Method currMethod, Object[] params, Throwable e) {
         if (registry.isEmpty()) {
-            globalExceptionHandler(e);
+            model.error(e, Code.ERROR);
             return;
         }
-        String ctrlName = getControllerID();
-        String cmethodName = currMethod.getName();
-        for (ExceptionMapping methodED : registry) {
-            //方法优先
-            if (methodED.root(ctrlName, cmethodName)) {
-                LuckyExceptionHandler dispose = methodED.getDispose();
-                dispose.init(model, controllerObj, currClass, currMethod, params);
-                if(dispose.dispose(e)){
-                    return;
-                }else{
-                    globalExceptionHandler(e);
+        if (controllerObj != null && currMethod != null) {
+            Class<?> currClass = controllerObj.getClass();
+            LuckyExceptionHandler dispose = scopedCache.computeIfAbsent(currClass, c -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(currMethod, m -> scopedHandler(currClass, m));
+            if (dispose != NONE) {
+                if (dispose.dispose(e, model, controllerObj, currClass, currMethod, params)) {
                     return;
                 }
-
             }
-            //类其次
-            if (methodED.root(ctrlName)) {
-                LuckyExceptionHandler dispose = methodED.getDispose();
-                dispose.init(model, controllerObj, currClass, currMethod, params);
-                if(dispose.dispose(e)){
-                    return;
-                }else{
-                    globalExceptionHandler(e);
-                    return;
-                }
+        }
+        globalExceptionHandler(model, controllerObj, currMethod, params, e);
+    }
+
+    /**
+     * 找到作用于Controller方法的异常处理器，注册中心中靠前的映射优先，同一个映射中方法优先于类
+     */
+    private static LuckyExceptionHandler scopedHandler(Class<?> currClass, Method currMethod) {
+        String ctrlName = getControllerID(currClass);
+        String cmethodName = currMethod.getName();
+        for (ExceptionMapping methodED : registry) {
+            if (methodED.root(ctrlName, cmethodName) || methodED.root(ctrlName)) {
+                return methodED.getDispose();
             }
+        }
+        return NONE;
+    }
 
+    /**
+     * 剥去反射调用、异步执行以及RuntimeException包装产生的外层异常，得到真正的异常
+     * @param e 捕获到的异常
+     * @return 真正的异常
+     */
+    public static Throwable unwrap(Throwable e) {
+        while ((e instanceof InvocationTargetException || e instanceof CompletionException
+                || e instanceof ExecutionException || e.getClass() == RuntimeException.class) && e.getCause() != null) {
+            e = e.getCause();
         }
-        globalExceptionHandler(e);
+        return e;
     }
 
-    private String getControllerID() {
+    private static String getControllerID(Class<?> currClass) {
         Class<?> controllerClass=currClass;
         if(currClass.getSimpleName().contains("$$EnhancerByCGLIB$$")){
             controllerClass=currClass.getSuperclass();
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Lucky全局Controller异常处理的基类
@@ -31,12 +32,42 @@ import java.util.Map;
 public abstract class LuckyExceptionHandler {
 
     /**
-     * 响应处理器
+     * 响应处理器(无状态，所有异常处理器共用)
      */
-    private ResponseControl responseControl;
+    private static final ResponseControl responseControl = new ResponseControl();
 
     /**
-     * Model对象
+     * 没有对应处理方法的异常
+     */
+    private static final Method NO_METHOD;
+
+    static {
+        try {
+            NO_METHOD = Object.class.getMethod("toString");
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * 异常与异常处理方法的映射，第一次使用时根据@ExceptionHandler配置生成
+     */
+    private volatile Map<Class<? extends Throwable>, Method> exceptionMap;
+
+    /**
+     * 异常类型 -> 处理该异常的方法，每种异常的继承体系只需要遍历一次
+     */
+    private final Map<Class<?>, Method> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * 正在处理的请求，由dispose在调用异常处理方法期间设置，供getModel()等方法读取
+     */
+    private static final ThreadLocal<RequestContext> currentRequest = new ThreadLocal<>();
+
+    /**
+     * Model对象<br/>
+     * 以下属性在每次处理异常前由init设置，异常处理器是单例，多个请求同时出现异常时会互相覆盖，
+     * 并发场景下请使用{@link #getModel()}等方法
      */
     protected Model model;
 
@@ -77,7 +108,60 @@ public abstract class LuckyExceptionHandler {
         this.currClass = currClass;
         this.currMethod = currMethod;
         this.params = params;
-        responseControl = new ResponseControl();
+    }
+
+    /**
+     * 当前线程正在处理的请求的Model对象，不在异常处理方法中调用时返回init设置的值
+     * @return
+     */
+    protected Model getModel() {
+        RequestContext context = currentRequest.get();
+        return context == null ? model : context.model;
+    }
+
+    /**
+     * 当前线程正在处理的请求的Controller对象
+     * @return
+     */
+    protected Object getControllerObj() {
+        RequestContext context = currentRequest.get();
+        return context == null ? controllerObj : context.controllerObj;
+    }
+
+    /**
+     * 当前线程正在处理的请求的Controller对象的Class对象
+     * @return
+     */
+    protected Class<?> getCurrClass() {
+        RequestContext context = currentRequest.get();
+        return context == null ? currClass : context.currClass;
+    }
+
+    /**
+     * 当前线程正在处理的请求的Controller方法
+     * @return
+     */
+    protected Method getCurrMethod() {
+        RequestContext context = currentRequest.get();
+        return context == null ? currMethod : context.currMethod;
+    }
+
+    /**
+     * 当前线程正在处理的请求的Controller方法参数
+     * @return
+     */
+    protected Object[] getParams() {
+        RequestContext context = currentRequest.get();
+        return context == null ? params : context.params;
+    }
+
+    /**
+     * 判断本异常处理器是否可以处理某种异常
+     * @param eClass 异常类型
+     * @return
+     */
+    public boolean canDispose(Class<? extends Throwable> eClass) {
+        return getExceptionMethod(eClass) != null;
     }
 
     /**
@@ -90,10 +174,42 @@ public abstract class LuckyExceptionHandler {
      * @return
      */
     public boolean dispose(Throwable e) {
-        Method method = getExceptionMethod(e);
+        return dispose(e, model, controllerObj, currClass, currMethod, params);
+    }
+
+    /**
+     * Controller全局异常处理，请求相关的对象以参数的形式传入，同一个异常处理器被多个请求同时使用时互不影响
+     *
+     * @param e             当前异常
+     * @param model         Model对象
+     * @param controllerObj 当前Controller对象
+     * @param currClass     响应当前请求的Controller对象的Class对象
+     * @param currMethod    响应当前请求的Controller方法
+     * @param ctrlParams    响应当前请求的Controller方法参数
+     * @return
+     */
+    boolean dispose(Throwable e, Model model, Object controllerObj, Class<?> currClass,
+                    Method currMethod, Object[] ctrlParams) {
+        Method method = getExceptionMethod(e.getClass());
         if (method == null) {
             return false;
         }
+        init(model, controllerObj, currClass, currMethod, ctrlParams);
+        RequestContext previous = currentRequest.get();
+        currentRequest.set(new RequestContext(model, controllerObj, currClass, currMethod, ctrlParams));
+        try {
+            return invoke(method, e, model, controllerObj, currClass, currMethod, ctrlParams);
+        } finally {
+            if (previous == null) {
+                currentRequest.remove();
+            } else {
+                currentRequest.set(previous);
+            }
+        }
+    }
+
+    private boolean invoke(Method method, Throwable e, Model model, Object controllerObj, Class<?> currClass,
+                           Method currMethod, Object[] ctrlParams) {
         ControllerExceptionHandler ceh = this.getClass().getAnnotation(ControllerExceptionHandler.class);
         Rest rest = ceh.rest();
         Rest methodRest = null;
@@ -123,7 +239,7 @@ public abstract class LuckyExceptionHandler {
             } else if (ServletContext.class.isAssignableFrom(type)) {
                 params[i] = model.getServletContext();
             } else if (Object[].class==type) {
-                params[i] = this.params;
+                params[i] = ctrlParams;
             } else if (Object.class.isAssignableFrom(type)) {
                 params[i] = controllerObj;
             }
@@ -131,11 +247,15 @@ public abstract class LuckyExceptionHandler {
         }
         final Object result = MethodUtils.invoke(this, method, params);
         List<String> globalprefixAndSuffix = AppConfig.getAppConfig().getWebConfig().getHanderPrefixAndSuffix();
-        if (!"".equals(ceh.prefix())) {
-            globalprefixAndSuffix.set(0, ceh.prefix());
-        }
-        if (!"".equals(ceh.suffix())) {
-            globalprefixAndSuffix.set(1, ceh.suffix());
+        //使用副本，避免修改全局的前后缀配置
+        if (!"".equals(ceh.prefix()) || !"".equals(ceh.suffix())) {
+            globalprefixAndSuffix = new ArrayList<>(globalprefixAndSuffix);
+            if (!"".equals(ceh.prefix())) {
+                globalprefixAndSuffix.set(0, ceh.prefix());
+            }
+            if (!"".equals(ceh.suffix())) {
+                globalprefixAndSuffix.set(1, ceh.suffix());
+            }
         }
         try {
             responseControl.jump(model, rest, method, result, globalprefixAndSuffix);
@@ -151,20 +271,33 @@ public abstract class LuckyExceptionHandler {
      * 2.遍历这个异常体系（子类到父类的顺序）<br/>
      * 3.判断该异常是否有相对应的处理映射，如果有则返回该映射(Method),并结束当前方法<br/>
      * 4.如果不存在该异常的映射，则返回NULL<br/>
-     * @param e 当前异常
+     * 查找结果按异常类型缓存
+     * @param eClass 当前异常的Class
      * @return
      */
-    private Method getExceptionMethod(Throwable e) {
-        //得到当前异常处理器的异常处理映射
-        Map<Class<? extends Throwable>, Method> classMethodMap = methodToMap();
-        //得到当前异常的继承体系
-        List<Class<? extends Throwable>> exceptionFamily = getExceptionFamily(e.getClass());
-        for (Class<? extends Throwable> aClass : exceptionFamily) {
-            if (classMethodMap.containsKey(aClass)) {
-                return classMethodMap.get(aClass);
+    private Method getExceptionMethod(Class<? extends Throwable> eClass) {
+        Method method = resolved.computeIfAbsent(eClass, c -> {
+            //得到当前异常处理器的异常处理映射
+            Map<Class<? extends Throwable>, Method> classMethodMap = getExceptionMap();
+            //得到当前异常的继承体系
+            List<Class<? extends Throwable>> exceptionFamily = getExceptionFamily(eClass);
+            for (Class<? extends Throwable> aClass : exceptionFamily) {
+                if (classMethodMap.containsKey(aClass)) {
+                    return classMethodMap.get(aClass);
+                }
             }
+            return NO_METHOD;
+        });
+        return method == NO_METHOD ? null : method;
+    }
+
+    private Map<Class<? extends Throwable>, Method> getExceptionMap() {
+        Map<Class<? extends Throwable>, Method> map = exceptionMap;
+        if (map == null) {
+            map = methodToMap();
+            exceptionMap = map;
         }
-        return null;
+        return map;
     }
 
     /**
@@ -209,4 +342,28 @@ public abstract class LuckyExceptionHandler {
         getExceptionFamily((Class<? extends Throwable>) ec.getSuperclass()).stream().forEach(family::add);
         return family;
     }
-}
\ No newline at end of file
+
+    /**
+     * 一次异常处理对应的请求
+     */
+    private static final class RequestContext {
+
+        private final Model model;
+
+        private final Object controllerObj;
+
+        private final Class<?> currClass;
+
+        private final Method currMethod;
+
+        private final Object[] params;
+
+        private RequestContext(Model model, Object controllerObj, Class<?> currClass, Method currMethod, Object[] params) {
+            this.model = model;
+            this.controllerObj = controllerObj;
+            this.currClass = currClass;
+            this.currMethod = currMethod;
+            this.params = params;
+        }
+    }
+}
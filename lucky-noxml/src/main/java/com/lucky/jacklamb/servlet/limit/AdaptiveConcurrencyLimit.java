@@ -0,0 +1,187 @@
+package com.lucky.jacklamb.servlet.limit;
+
+import com.lucky.jacklamb.ioc.config.AppConfig;
+import com.lucky.jacklamb.ioc.config.WebConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 全局的自适应并发限制，在WebConfig中开启后由LuckyDispatcherServlet在路由之前判断是否接收请求<br>
+ * 并发上限根据请求耗时的梯度自动调整(与Netflix concurrency-limits的Gradient2算法类似)：<br>
+ * 1.每个统计窗口(250ms)计算平均耗时shortRtt，longRtt为shortRtt的指数移动平均<br>
+ * 2.gradient = longRtt / shortRtt(限制在0.5~1之间)，耗时上升时gradient变小，并发上限随之下降<br>
+ * 3.新的上限 = 上限 * gradient + sqrt(上限)，再做平滑处理，并限制在[min, max]之间<br>
+ * 4.窗口内的最大并发数不到上限的一半时不调整(瓶颈不在服务端)<br>
+ * 判断与计数都使用CAS，不加锁；同一时间只有一个线程执行窗口的计算
+ *
+ * @author fk-7075
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final Logger log = LogManager.getLogger(AdaptiveConcurrencyLimit.class);
+
+    private static final long WINDOW = 250_000_000L;
+
+    private static final int MIN_SAMPLES = 10;
+
+    private static final double SMOOTHING = 0.2;
+
+    private static volatile AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * 当前统计窗口的耗时与请求数，窗口结束时整体替换，保证两者来自同一批请求
+     */
+    private volatile Samples samples = new Samples();
+
+    private final LongAccumulator peakInFlight = new LongAccumulator(Math::max, 0);
+
+    private final AtomicBoolean updating = new AtomicBoolean();
+
+    private volatile int limit;
+
+    private volatile long windowEnd;
+
+    /**
+     * 只在持有updating时读写
+     */
+    private double estimatedLimit;
+
+    private double longRtt;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.estimatedLimit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+        this.windowEnd = System.nanoTime() + WINDOW;
+    }
+
+    /**
+     * 得到全局的并发限制
+     * @return 没有开启并发限制时返回null
+     */
+    public static AdaptiveConcurrencyLimit getConcurrencyLimit() {
+        WebConfig webCfg = AppConfig.getAppConfig().getWebConfig();
+        if (!webCfg.isOpenConcurrencyLimit()) {
+            return null;
+        }
+        if (concurrencyLimit == null) {
+            synchronized (AdaptiveConcurrencyLimit.class) {
+                if (concurrencyLimit == null) {
+                    concurrencyLimit = new AdaptiveConcurrencyLimit(webCfg.getInitialConcurrencyLimit(),
+                            webCfg.getMinConcurrencyLimit(), webCfg.getMaxConcurrencyLimit());
+                }
+            }
+        }
+        return concurrencyLimit;
+    }
+
+    /**
+     * 尝试接收一个请求，成功后必须调用{@link #release(long)}
+     * @return 当前并发数没有达到上限时返回true
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                peakInFlight.accumulate(current + 1);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 请求处理结束
+     * @param rtt 请求的处理时间(单位：ns)
+     */
+    public void release(long rtt) {
+        inFlight.decrementAndGet();
+        samples.add(rtt);
+        long now = System.nanoTime();
+        if (now - windowEnd >= 0 && updating.compareAndSet(false, true)) {
+            try {
+                update(now);
+            } finally {
+                updating.set(false);
+            }
+        }
+    }
+
+    private void update(long now) {
+        windowEnd = now + WINDOW;
+        Samples window = samples;
+        //样本不足时继续累积到下一个窗口
+        if (window.count.sum() < MIN_SAMPLES) {
+            return;
+        }
+        samples = new Samples();
+        long count = window.count.sum();
+        long sum = window.rttSum.sum();
+        int peak = (int) peakInFlight.getThenReset();
+        double shortRtt = (double) sum / count;
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt = longRtt * 0.95 + shortRtt * 0.05;
+        }
+        //耗时从高峰中恢复时让longRtt更快地回落
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.9;
+        }
+        if (peak < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, longRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        newLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        if ((int) newLimit != limit) {
+            log.debug("并发上限调整为 " + (int) newLimit + " (shortRtt=" + (long) shortRtt / 1000 + "us, longRtt=" + (long) longRtt / 1000 + "us)");
+        }
+        estimatedLimit = newLimit;
+        limit = (int) newLimit;
+    }
+
+    /**
+     * 当前的并发上限
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 正在处理的请求数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 一个统计窗口的样本，耗时与请求数总是加到同一个对象中
+     */
+    private static final class Samples {
+
+        private final LongAdder rttSum = new LongAdder();
+
+        private final LongAdder count = new LongAdder();
+
+        void add(long rtt) {
+            rttSum.add(rtt);
+            count.increment();
+        }
+    }
+}
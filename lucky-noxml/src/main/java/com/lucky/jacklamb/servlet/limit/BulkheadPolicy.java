@@ -0,0 +1,129 @@
+package com.lucky.jacklamb.servlet.limit;
+
+import com.lucky.jacklamb.annotation.mvc.Bulkhead;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 由@Bulkhead注解解析而成的舱壁，启动时绑定到映射上<br>
+ * 并发数没有达到上限时直接进入；达到上限后最多允许maxQueue个请求排队等待queueTimeout毫秒，
+ * 排队已满或等待超时的请求被拒绝
+ *
+ * @author fk-7075
+ */
+public final class BulkheadPolicy {
+
+    /**
+     * 类上的@Bulkhead由该类的所有映射共用
+     */
+    private static final Map<Class<?>, BulkheadPolicy> classBulkheads = new ConcurrentHashMap<>();
+
+    private final String name;
+
+    private final int maxConcurrent;
+
+    private final int maxQueue;
+
+    private final long queueTimeout;
+
+    private final int retryAfter;
+
+    private final Semaphore permits;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private BulkheadPolicy(String name, Bulkhead bulkhead) {
+        if (bulkhead.maxConcurrent() <= 0) {
+            throw new IllegalArgumentException("@Bulkhead的maxConcurrent必须大于0：" + name);
+        }
+        this.name = name;
+        this.maxConcurrent = bulkhead.maxConcurrent();
+        this.maxQueue = Math.max(0, bulkhead.maxQueue());
+        this.queueTimeout = Math.max(0, bulkhead.queueTimeout());
+        this.retryAfter = Math.max(0, bulkhead.retryAfter());
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * 解析Controller方法的舱壁
+     * @param controllerClass Controller的Class(不是代理类)
+     * @param method Controller方法
+     * @return 类与方法上都没有@Bulkhead注解时返回null
+     */
+    public static BulkheadPolicy of(Class<?> controllerClass, Method method) {
+        Bulkhead bulkhead = method.getAnnotation(Bulkhead.class);
+        if (bulkhead != null) {
+            return new BulkheadPolicy(controllerClass.getName() + "." + method.getName(), bulkhead);
+        }
+        Bulkhead classBulkhead = controllerClass.getAnnotation(Bulkhead.class);
+        if (classBulkhead == null) {
+            return null;
+        }
+        return classBulkheads.computeIfAbsent(controllerClass, c -> new BulkheadPolicy(c.getName(), classBulkhead));
+    }
+
+    /**
+     * 尝试进入舱壁，成功后必须调用{@link #release()}
+     * @return 是否成功进入
+     */
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (maxQueue == 0) {
+            return false;
+        }
+        if (queued.incrementAndGet() > maxQueue) {
+            queued.decrementAndGet();
+            return false;
+        }
+        try {
+            return permits.tryAcquire(queueTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * 正在执行的请求数
+     */
+    public int getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * 正在排队的请求数
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public String toString() {
+        return "Bulkhead[" + name + ", maxConcurrent=" + maxConcurrent + ", maxQueue=" + maxQueue + ", queueTimeout=" + queueTimeout + "ms]";
+    }
+}
@@ -2,7 +2,6 @@ package com.lucky.jacklamb.servlet.mapping;
 
 import com.lucky.jacklamb.annotation.ioc.Controller;
 import com.lucky.jacklamb.annotation.mvc.*;
-import com.lucky.jacklamb.cglib.ASMUtil;
 import com.lucky.jacklamb.enums.Code;
 import com.lucky.jacklamb.enums.Rest;
 import com.lucky.jacklamb.exception.*;
@@ -12,18 +11,17 @@ import com.lucky.jacklamb.ioc.ApplicationBeans;
 import com.lucky.jacklamb.ioc.config.AppConfig;
 import com.lucky.jacklamb.ioc.config.WebConfig;
 import com.lucky.jacklamb.md5.MD5Utils;
+import com.lucky.jacklamb.servlet.ResponseControl;
 import com.lucky.jacklamb.servlet.core.Model;
+import com.lucky.jacklamb.servlet.upload.ResumableUploadManage;
 import com.lucky.jacklamb.tcconversion.typechange.JavaConversion;
 import com.lucky.jacklamb.utils.base.LuckyUtils;
 import com.lucky.jacklamb.utils.file.FileUtils;
 import com.lucky.jacklamb.utils.file.MultipartFile;
 import com.lucky.jacklamb.utils.regula.Regular;
-import org.apache.commons.fileupload.FileItem;
-import org.apache.commons.fileupload.FileUploadBase;
+import com.lucky.jacklamb.utils.serializable.BinarySerializationScheme;
+import com.lucky.jacklamb.utils.serializable.SerializationScheme;
 import org.apache.commons.fileupload.FileUploadException;
-import org.apache.commons.fileupload.disk.DiskFileItemFactory;
-import org.apache.commons.fileupload.servlet.ServletFileUpload;
-import org.apache.commons.fileupload.servlet.ServletRequestContext;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -31,14 +29,18 @@ import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 import java.io.*;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @SuppressWarnings("all")
 public class AnnotationOperation {
@@ -48,116 +50,75 @@ public class AnnotationOperation {
     private static final WebConfig webCfg= AppConfig.getAppConfig().getWebConfig();
 
     /**
-     * 基于MultipartFile的多文件上传
+     * MultipartFile的多文件上传,基于Apache [commons-fileupload-1.3.1.jar  commons-io-2.4.jar]的流式API，
+     * 文件内容在解析时直接写入临时文件
+     *
+     * @param model Model对象
+     */
+    public void setMultipartFileMap(Model model) throws FileUploadException, IOException, FileTypeIllegalException, FileSizeCrossingException, RequestFileSizeCrossingException {
+        new MultipartStreamParser(model, Collections.emptyMap(), "", 0, 0, Collections.emptyMap()).parse();
+    }
+
+    /**
+     * 解析multipart请求，@Upload的文件直接写入目标文件夹，其余的文件作为MultipartFile参数
      *
      * @param model  Model对象
-     * @param method 将要执行的Controller方法
-     * @return 由Controller方法参数名和其对应的值所组成的Map(针对MultipartFile)
+     * @param plan   将要执行的Controller方法的参数绑定计划
      * @throws IOException
-     * @throws ServletException
      */
-    private void moreMultipartFil(Model model, Method method)
-            throws IOException, FileUploadException, FileSizeCrossingException, RequestFileSizeCrossingException {
-        Parameter[] parameters = method.getParameters();
-        String[] paramNames = ASMUtil.getMethodParamNames(method);
-        List<String> paramlist = new ArrayList<>();
-        for (int i = 0; i < parameters.length; i++) {
-            if (MultipartFile.class == parameters[i].getType() || MultipartFile[].class == parameters[i].getType()) {
-                paramlist.add(Mapping.getParamName(parameters[i], paramNames[i]));
-            }
+    private void multipart(Model model, MethodBindingPlan plan) throws IOException, FileTypeIllegalException, FileSizeCrossingException, FileUploadException, RequestFileSizeCrossingException {
+        MethodBindingPlan.UploadBinding upload = plan.getUpload();
+        if (upload != null) {
+            new MultipartStreamParser(model, upload.getFieldAndFolder(), upload.getType(), upload.getMaxSize(), upload.getTotalSize(), plan.getDigestFields()).parse();
+        } else {
+            new MultipartStreamParser(model, Collections.emptyMap(), "", 0, 0, plan.getDigestFields()).parse();
         }
-        setMultipartFileMap(model);
+        resumableUpload(model, plan);
     }
 
     /**
-     * MultipartFile的多文件上传,基于Apache [commons-fileupload-1.3.1.jar  commons-io-2.4.jar]
+     * 将断点续传完成后的文件绑定到同名的MultipartFile或File参数上，参数值为上传任务的id
      *
      * @param model Model对象
+     * @param plan  将要执行的Controller方法的参数绑定计划
+     * @throws IOException
      */
-    public void setMultipartFileMap(Model model) throws FileUploadException, IOException, FileSizeCrossingException, RequestFileSizeCrossingException {
-        DiskFileItemFactory factory = new DiskFileItemFactory();
-        ServletFileUpload upload = new ServletFileUpload(factory);
-        upload.setHeaderEncoding("UTF-8");
-        if (!FileUploadBase.isMultipartContent(new ServletRequestContext(model.getRequest()))){
+    private void resumableUpload(Model model, MethodBindingPlan plan) throws IOException {
+        ResumableUploadManage manage = ResumableUploadManage.getResumableUploadManage();
+        if (manage == null) {
             return;
         }
-        List<FileItem> list = upload.parseRequest(model.getRequest());
-        //同名分组
-        Map<String, List<FileItem>> sameNameFileItemMap = list.stream().collect(Collectors.groupingBy(FileItem::getFieldName));
-        Set<String> fieldNames = sameNameFileItemMap.keySet();
-        List<FileItem> fileItemList;
-        MultipartFile[] multipartFiles;
-        for (String fn : fieldNames) {
-            fileItemList = sameNameFileItemMap.get(fn);
-            boolean isFile = false;
-            multipartFiles = new MultipartFile[fileItemList.size()];
-            int fileIndex = 0;
-            for (FileItem item : fileItemList) {
-                if (!item.isFormField()) {
-                    String filename = item.getName();
-                    isFile = true;
-                    InputStream in = item.getInputStream();
-                    if(in.available()/1024>webCfg.getMultipartMaxFileSize()) {
-                        throw new FileSizeCrossingException("单个文件超过最大上传限制："+webCfg.getMultipartMaxFileSize()+"kb");
-                    }
-                    MultipartFile mfp = new MultipartFile(in,filename);
-                    multipartFiles[fileIndex] = mfp;
-                    fileIndex++;
-                } else {
-                    if (!model.parameterMapContainsKey(item.getFieldName())) {
-                        String[] values = {new String(item.get(), "UTF-8")};
-                        model.addParameter(fn, values);
-                    }
-                }
+        for (MethodBindingPlan.ParamBinding param : plan.getParams()) {
+            Class<?> type = param.getType();
+            String name = param.getName();
+            if ((type != MultipartFile.class && type != MultipartFile[].class && type != File.class && type != File[].class)
+                    || model.multipartFileMapContainsKey(name) || model.uploadFileMapContainsKey(name)
+                    || !model.parameterMapContainsKey(name)) {
+                continue;
             }
-            if (isFile){
-                double totalSize=0;
-                for (MultipartFile mu : multipartFiles) {
-                    totalSize+=mu.getFileSize();
-                }
-                if(totalSize/1024>webCfg.getMultipartMaxRequestSize()){
-                    throw new RequestFileSizeCrossingException("总文件超过最大上传限制："+webCfg.getMultipartMaxRequestSize()+"kb");
-                }else{
-                    model.addMultipartFile(fn, multipartFiles);
+            String[] ids = model.getParameterMap().get(name);
+            File[] files = new File[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                files[i] = manage.take(ids[i]);
+                if (files[i] == null) {
+                    throw new IllegalArgumentException("断点续传的文件" + ids[i] + "不存在或还没有上传完成！");
                 }
             }
-        }
-    }
-
-    /**
-     * 批量文件上传@Upload注解方式
-     *
-     * @param model  Model对象
-     * @param method 将要执行的Controller方法
-     * @return 上传后的文件名与表单name属性所组成的Map
-     * @throws IOException
-     * @throws ServletException
-     */
-    private void moreUpload(Model model, Method method) throws IOException, FileTypeIllegalException, FileSizeCrossingException, FileUploadException, RequestFileSizeCrossingException {
-        if (method.isAnnotationPresent(Upload.class)) {
-            Upload upload = method.getAnnotation(Upload.class);
-            String[] files = upload.names();
-            String[] savePaths = upload.filePath();
-            String types = upload.type();
-            long maxSize = upload.maxSize();
-            long totalSize=upload.totalSize();
-            Map<String, String> fieldAndFolder = new HashMap<>();
-            if (savePaths.length == 1) {
-                for (String file : files) {
-                    fieldAndFolder.put(file, savePaths[0]);
-                }
+            if (type == File.class || type == File[].class) {
+                model.addUploadFile(name, files);
             } else {
-                for (int i = 0; i < savePaths.length; i++) {
-                    fieldAndFolder.put(files[i], savePaths[i]);
+                MultipartFile[] multipartFiles = new MultipartFile[files.length];
+                for (int i = 0; i < files.length; i++) {
+                    multipartFiles[i] = new MultipartFile(files[i], ResumableUploadManage.originalFileName(files[i], ids[i]), files[i].length(), null);
                 }
+                model.addMultipartFile(name, multipartFiles);
             }
-            upload(model, fieldAndFolder, types, maxSize,totalSize);
         }
     }
 
     /**
-     * --@Upload注解方式的多文件上传-基于Apache [commons-fileupload-1.3.1.jar  commons-io-2.4.jar]
-     * 适配内嵌tomcat的文件上传与下载操作
+     * --@Upload注解方式的多文件上传-基于Apache [commons-fileupload-1.3.1.jar  commons-io-2.4.jar]的流式API
+     * 适配内嵌tomcat的文件上传与下载操作，文件内容在解析时直接写入目标文件夹，并在传输过程中校验文件类型和大小
      *
      * @param model          Model对象
      * @param fieldAndFolder name与folder组成的Map
@@ -165,125 +126,35 @@ public class AnnotationOperation {
      * @param fileSize        允许上传文件的最大大小
      */
     public void upload(Model model, Map<String, String> fieldAndFolder, String type, long fileSize,long totalSize) throws FileTypeIllegalException, IOException, FileSizeCrossingException, FileUploadException, RequestFileSizeCrossingException {
-        String savePath = model.getRealPath("/");
-        DiskFileItemFactory factory = new DiskFileItemFactory();
-        ServletFileUpload upload = new ServletFileUpload(factory);
-        upload.setHeaderEncoding("UTF-8");
-        if (!ServletFileUpload.isMultipartContent(model.getRequest())) {
-            return;
-        }
-        List<FileItem> list = upload.parseRequest(model.getRequest());
-        //同名分组
-        Map<String, List<FileItem>> sameNameFileItemMap = list.stream().collect(Collectors.groupingBy(FileItem::getFieldName));
-        Set<String> fieldNames = sameNameFileItemMap.keySet();
-        List<FileItem> fileItemList;
-
-        File[] uploadNames;
-        for (String fn : fieldNames) {
-            fileItemList = sameNameFileItemMap.get(fn);
-            boolean isFile = false;
-            uploadNames = new File[fileItemList.size()];
-            List<UploadCopy> uploadCopyList=new ArrayList<>();
-            int fileIndex = 0;
-            for (FileItem item : fileItemList) {
-                if (!item.isFormField()) {
-                    if (fieldAndFolder.containsKey(fn)) {
-                        isFile = true;
-                        String filename = item.getName();
-                        String suffix = filename.substring(filename.lastIndexOf("."));
-                        String NoSuffix = filename.substring(0, filename.lastIndexOf("."));
-                        if (!"".equals(type) && !type.toLowerCase().contains(suffix.toLowerCase())) {
-                            throw new FileTypeIllegalException("上传的文件格式" + suffix + "不合法！合法的文件格式为：" + type);
-                        }
-                        String pathSave = fieldAndFolder.get(fn);
-                        String filePath;
-                        if (pathSave.startsWith("abs:")) {//绝对路径写法
-                            filePath=pathSave.substring(4);
-                        } else {//相对路径写法
-                            filePath=savePath + pathSave;
-                        }
-                        filename = NoSuffix + "_" + new Date().getTime() + "_" + LuckyUtils.getRandomNumber() + suffix;
-                        if (filename == null || "".equals(filename.trim())) {
-                            continue;
-                        }
-                        filePath=filePath.endsWith(File.separator)?filePath.substring(0,filePath.length()-1):filePath;
-                        filePath=filePath+File.separator + filename;
-                        InputStream in = item.getInputStream();
-                        fileSize=fileSize==0?webCfg.getMultipartMaxFileSize():fileSize;
-                        int size = in.available();
-                        int filesize = size / 1024;
-                        if (filesize > fileSize) {
-                            throw new FileSizeCrossingException("单个上传文件的大小超出最大上传限制：" + fileSize + "kb");
-                        }
-                        uploadCopyList.add(new UploadCopy(in,new File(filePath)));
-                        item.delete();
-                        uploadNames[fileIndex] = new File(filePath);
-                        fileIndex++;
-                    }
-                } else {
-                    if (!model.parameterMapContainsKey(item.getFieldName())) {
-                        String[] values = {new String(item.get(), "UTF-8")};
-                        model.addParameter(item.getFieldName(), values);
-                    }
-                }
-            }
-            if (isFile){
-                double msxSize=UploadCopy.getTotalSize(uploadCopyList);
-                totalSize=totalSize==0?webCfg.getMultipartMaxRequestSize():totalSize;
-                if(msxSize/1024>totalSize){
-                    throw new RequestFileSizeCrossingException("总文件超过最大上传限制："+webCfg.getMultipartMaxRequestSize()+"kb");
-                }else{
-                    for (UploadCopy uploadCopy : uploadCopyList) {
-                        uploadCopy.copy();
-                    }
-                    model.addUploadFile(fn, uploadNames);
-                }
-
-            }
-        }
+        new MultipartStreamParser(model, fieldAndFolder, type, fileSize, totalSize, Collections.emptyMap()).parse();
     }
 
     /**
      * 返回Controller方法参数名与参数值所组成的Map(针对Pojo类型的参数)
      *
      * @param model  Model对象
-     * @param method 将要执行的Controller方法
+     * @param plan   将要执行的Controller方法的参数绑定计划
      * @return Controller方法参数名与参数值所组成的Map(针对Pojo类型的参数)
      * @throws InstantiationException
      * @throws IllegalAccessException
-     * @throws IOException
-     * @throws ServletException
      */
-    private Map<String, Object> pojoParam(Model model, Method method)
+    private Map<String, Object> pojoParam(Model model, MethodBindingPlan plan)
             throws InstantiationException, IllegalAccessException {
         Map<String, Object> map = new HashMap<>();
-        Parameter[] parameters = method.getParameters();
-        String[] paramNames = ASMUtil.getMethodParamNames(method);
-        int i = 0;
-        for (Parameter param : parameters) {
-            if (MultipartFile.class != param.getType() && MultipartFile[].class != param.getType()
-                    && param.getType().getClassLoader() != null
-                    && !ServletRequest.class.isAssignableFrom(param.getType())
-                    && !ServletResponse.class.isAssignableFrom(param.getType())
-                    && !HttpSession.class.isAssignableFrom(param.getType())
-                    && !ServletContext.class.isAssignableFrom(param.getType())
-                    && !Model.class.isAssignableFrom(param.getType()) && canInjection(param.getType(), model)) {
-                Class<?> pojoclzz = param.getType();
-                Object pojo = pojoclzz.newInstance();
-                Field[] fields = pojoclzz.getDeclaredFields();
+        for (MethodBindingPlan.ParamBinding param : plan.getParams()) {
+            if (param.isPojo() && param.canInjection(model)) {
+                Object pojo = param.getType().newInstance();
                 createObject(model, pojo);
-                for (Field fi : fields) {
-                    fi.setAccessible(true);
-                    Object fi_obj = fi.get(pojo);
+                for (Field fi : param.getPojoFields()) {
                     // pojo中含有@Upload返回的文件名
                     if (model.uploadFileMapContainsKey(fi.getName())) {
                         File[] uploadFiles = model.getUploadFileArray(fi.getName());
                         if (fi.getType() == String[].class) {
                             String[] uploadFileNames = new String[uploadFiles.length];
-                            for (int x = 0; x < uploadFiles.length; i++) {
+                            for (int x = 0; x < uploadFiles.length; x++) {
                                 uploadFileNames[x] = uploadFiles[x].getName();
                             }
-                            fi.set(pojo, uploadFiles);
+                            fi.set(pojo, uploadFileNames);
                         } else if (fi.getType() == String.class) {
                             fi.set(pojo, uploadFiles[0].getName());
                         } else if (fi.getType() == File.class) {
@@ -294,9 +165,8 @@ public class AnnotationOperation {
                     }
 
                 }
-                map.put(Mapping.getParamName(param, paramNames[i]), pojo);
+                map.put(param.getName(), pojo);
             }
-            i++;
         }
         return map;
 
@@ -307,12 +177,23 @@ public class AnnotationOperation {
      *
      * @param model  Model对象
      * @param method 将要执行的Controller方法
+     * @param result Controller方法的返回值，为File、Path、InputStream或ReadableByteChannel时只设置下载头，
+     *               内容由{@link ResponseControl}写出
      * @throws IOException
      */
-    public void download(Model model, Method method) throws IOException, URISyntaxException {
+    public void download(Model model, Method method, Object result) throws IOException, URISyntaxException {
+        if (ResponseControl.isBinaryResult(result)) {
+            String fileName = null;
+            if (result instanceof File) {
+                fileName = ((File) result).getName();
+            } else if (result instanceof Path && ((Path) result).getFileName() != null) {
+                fileName = ((Path) result).getFileName().toString();
+            }
+            model.getResponse().addHeader("Content-Disposition", fileName == null ? "attachment"
+                    : "attachment;filename=" + URLEncoder.encode(fileName, "UTF-8"));
+            return;
+        }
         Download dl = method.getAnnotation(Download.class);
-        InputStream fis = null;
-        String downName = null;
         String path = "";
         if (!"".equals(dl.path())) {
             path = dl.path();
@@ -352,17 +233,12 @@ public class AnnotationOperation {
                 path = model.getRealPath(filePath) + file; // 默认认为文件在当前项目的docBase目录
             }
         }
-        if (fis == null) {
-            File f = new File(path);
-            if (!f.exists()){
-                model.error(Code.NOTFOUND,"在服务器上没有发现您想要下载的资源"+f.getName(),"没有对应的资源。");
-                return;
-            }
-
-            fis = new FileInputStream(f);
-            downName = f.getName();
+        File f = new File(path);
+        if (!f.isFile()){
+            model.error(Code.NOTFOUND,"在服务器上没有发现您想要下载的资源"+f.getName(),"没有对应的资源。");
+            return;
         }
-        FileUtils.download(model.getResponse(), fis, downName);
+        FileUtils.download(model, f);
     }
 
     /**
@@ -378,167 +254,249 @@ public class AnnotationOperation {
      */
     public Object[] getControllerMethodParam(Model model, Class<?> controllerClass, Method method)
             throws Exception {
-        //获取当前Controller方法参数列表所有的参数名
-        String[] paramNames = ASMUtil.getMethodParamNames(method);
-        Parameter[] parameters = method.getParameters();
-        Object[] args = new Object[parameters.length];
+        return getControllerMethodParam(model, controllerClass, MethodBindingPlan.of(method));
+    }
+
+    /**
+     * 按照参数绑定计划得到将要执行的Controller方法的参数列表的值
+     *
+     * @param model  Model对象
+     * @param plan   将要执行的Controller方法的参数绑定计划
+     * @return 将要执行的Controller方法的参数列表
+     * @throws Exception
+     */
+    public Object[] getControllerMethodParam(Model model, Class<?> controllerClass, MethodBindingPlan plan)
+            throws Exception {
+        Method method = plan.getMethod();
+        MethodBindingPlan.ParamBinding[] params = plan.getParams();
+        Object[] args = new Object[params.length];
         StringBuilder sb = new StringBuilder("[ URL-PARAMS ]\n");
 
-        //得到@Upload文件操作执行后的String类型参数(文件名)
-        moreUpload(model, method);
-        if (model.getUploadFileMap().isEmpty()) {
-            moreMultipartFil(model, method);   //得到类型为MultipartFile的参数
-        }
+        //得到@Upload文件操作执行后的String类型参数(文件名)以及类型为MultipartFile的参数
+        multipart(model, plan);
 
         //得到参数列表中的所有pojo类型参数
-        Map<String, Object> pojoMap = pojoParam(model, method);
+        Map<String, Object> pojoMap = pojoParam(model, plan);
         sb.append(pojoMap.isEmpty() ? "" : "Pojo-Params          : " + pojoMap.toString() + "\n").append("URL-Params           : \n");
         String paramName;
+        MethodBindingPlan.ParamBinding param;
 
         //ControllerMethod参数赋值
-        for (int i = 0; i < parameters.length; i++) {
-            paramName = Mapping.getParamName(parameters[i], paramNames[i]);
+        for (int i = 0; i < params.length; i++) {
+            param = params[i];
+            paramName = param.getName();
             if (model.uploadFileMapContainsKey(paramName)) {//文件上传操作参数设置--@Upload
                 File[] uploadFiles = model.getUploadFileArray(paramName);
-                if (String.class == parameters[i].getType()) {
+                if (String.class == param.getType()) {
                     args[i] = uploadFiles[0].getName();
-                } else if (String[].class == parameters[i].getType()) {
+                } else if (String[].class == param.getType()) {
                     String[] uploadFileNames = new String[uploadFiles.length];
                     for (int x = 0; x < uploadFiles.length; x++) {
                         uploadFileNames[x] = uploadFiles[x].getName();
                     }
                     args[i] = uploadFileNames;
-                } else if (File.class == parameters[i].getType()) {
+                } else if (File.class == param.getType()) {
                     args[i] = uploadFiles[0];
-                } else if (File[].class == parameters[i].getType()) {
+                } else if (File[].class == param.getType()) {
                     args[i] = uploadFiles;
                 }
                 continue;
-            } else if (model.multipartFileMapContainsKey(paramName)) {//文件上传操作参数设置--MultipartFile
+            }
+            if (model.multipartFileMapContainsKey(paramName)) {//文件上传操作参数设置--MultipartFile
                 MultipartFile[] multipartFiles = model.getMultipartFileArray(paramName);
-                if (MultipartFile.class == parameters[i].getType()) {
+                if (MultipartFile.class == param.getType()) {
                     args[i] = multipartFiles[0];
-                } else if (MultipartFile[].class == parameters[i].getType()) {
+                } else if (MultipartFile[].class == param.getType()) {
                     args[i] = multipartFiles;
                 }
                 continue;
-            } else if (parameters[i].isAnnotationPresent(CallResult.class) || parameters[i].isAnnotationPresent(CallBody.class)) {
-                args[i] = httpClientParam(controllerClass, method, pojoMap, parameters[i], model, parameters, paramNames, Mapping.getParamName(parameters[i], paramNames[i]));
+            }
+            if (param.getSource() == MethodBindingPlan.ParamSource.CALL) {
+                args[i] = httpClientParam(controllerClass, plan, pojoMap, param, model);
                 continue;
-            } else if (pojoMap.containsKey(paramName)) {
+            }
+            if (pojoMap.containsKey(paramName)) {
                 args[i] = pojoMap.get(paramName);
                 continue;
-            } else if (ServletRequest.class.isAssignableFrom(parameters[i].getType())) {
-                args[i] = model.getRequest();
-                continue;
-            } else if (HttpSession.class.isAssignableFrom(parameters[i].getType())) {
-                args[i] = model.getSession();
-                continue;
-            } else if (ServletResponse.class.isAssignableFrom(parameters[i].getType())) {
-                args[i] = model.getResponse();
-                continue;
-            } else if (ServletContext.class.isAssignableFrom(parameters[i].getType())) {
-                args[i] = model.getServletContext();
-                continue;
-            } else if (Model.class.isAssignableFrom(parameters[i].getType())) {
-                args[i] = model;
-                continue;
-            } else if (parameters[i].isAnnotationPresent(RequestBody.class)) {
-                RequestBody requestBody=parameters[i].getAnnotation(RequestBody.class);
-                String paramValue;
-                if(model.getParameterSize()==1){
-                    paramValue=model.getDefaultParameterValue();
-                }else{
-                    paramValue = model.getRequestParameter(paramNames[i]);
-                }
-                if(requestBody.value()==Rest.JSON){
-                    args[i] =Model.getJsonSerializationScheme().deserialization(parameters[i].getType(),paramValue);
-                }else if (requestBody.value()==Rest.XML){
-                    args[i]=Model.getXmlSerializationScheme().deserialization(parameters[i].getType(),paramValue);
-                }else{
-                    continue;
-                }
-                continue;
-            } else if (parameters[i].isAnnotationPresent(RestParam.class)) {
-                RestParam rp = parameters[i].getAnnotation(RestParam.class);
-                String restKey = rp.value();
-                if (!model.restMapContainsKey(restKey)) {
-                    throw new NotFindRequestException("缺少Rest请求参数：#{" + restKey + "} ,错误位置：" + method);
-                }
-                args[i] = JavaConversion.strToBasic(model.getRestMap().get(restKey), parameters[i].getType());
-                sb.append("[Rest-Java] " + restKey + "=" + args[i] + "\n");
-                continue;
-            } else if (!parameters[i].isAnnotationPresent(CallResult.class) && !parameters[i].isAnnotationPresent(CallBody.class)) {
-                String defparam = getRequeatParamDefValue(parameters[i]);
-                if (parameters[i].getType().isArray() && parameters[i].getType().getClassLoader() == null) {
-                    if (model.parameterMapContainsKey(paramName)) {
-                        args[i] = JavaConversion.strToBasic(model.getRequestParameter(paramName),parameters[i].getType());
-                        sb.append("[URL-Array] " + paramName + "=" + args[i] + "\n");
-                        continue;
-                    } else {
-                        if (defparam == null) {
-                            throw new NotFindRequestException("缺少请求参数：" + paramName + ",错误位置：" + method);
-                        }
-                        if ("null".equals(defparam)) {
-                            args[i] = null;
-                            sb.append("[Default-Array] " + paramName + "=" + args[i] + "\n");
-                            continue;
-                        } else {
-                            args[i] = ApplicationBeans.createApplicationBeans().getBean(defparam);
-                            sb.append("[Default-Array] " + paramName + "=" + args[i] + "\n");
-                            continue;
-                        }
-                    }
-                } else {
-                    if (model.parameterMapContainsKey(paramName)) {
-                        args[i] = JavaConversion.strToBasic(model.getRequestParameter(paramName),parameters[i].getType());
-                        sb.append("[URL-Java] " + paramName + "=" + args[i] + "\n");
-                        continue;
-                    } else if (model.restMapContainsKey(paramName)) {
-                        args[i] = model.getRestParam(paramName, parameters[i].getType());
-                        sb.append("[Rest-Java] " + paramName + "=" + args[i] + "\n");
-                        continue;
-                    } else {
-                        if (defparam == null) {
-                            args[i] = null;
-                        }
-                        if ("null".equals(defparam)) {
-                            args[i] = null;
-                            sb.append("[Default-Java] " + paramName + "=" + args[i] + "\n");
-                            continue;
-                        } else if (parameters[i].getType().getClassLoader() == null) {
-                            args[i] = JavaConversion.strToBasic(defparam, parameters[i].getType());
-                            sb.append("[Default-Java] " + paramName + "=" + args[i] + "\n");
-                            continue;
-                        } else {
-                            args[i] = ApplicationBeans.createApplicationBeans().getBean(defparam);
-                            sb.append("[Default-Java] " + paramName + "=" + args[i]);
-                            continue;
-                        }
+            }
+            switch (param.getSource()) {
+                case REQUEST:
+                    args[i] = model.getRequest();
+                    break;
+                case SESSION:
+                    args[i] = model.getSession();
+                    break;
+                case RESPONSE:
+                    args[i] = model.getResponse();
+                    break;
+                case SERVLET_CONTEXT:
+                    args[i] = model.getServletContext();
+                    break;
+                case MODEL:
+                    args[i] = model;
+                    break;
+                case REQUEST_BODY:
+                    args[i] = requestBody(model, param);
+                    break;
+                case REST_PARAM: {
+                    String restKey = param.getRestKey();
+                    if (!model.restMapContainsKey(restKey)) {
+                        throw new NotFindRequestException("缺少Rest请求参数：#{" + restKey + "} ,错误位置：" + method);
                     }
+                    args[i] = JavaConversion.strToBasic(model.getRestMap().get(restKey), param.getType());
+                    sb.append("[Rest-Java] " + restKey + "=" + args[i] + "\n");
+                    break;
                 }
+                default:
+                    args[i] = requestParam(model, method, param, sb);
             }
         }
         log.debug(sb.toString());
 
         //MD5算法加密Controller方法参数,以及格式校验
-        Check check;
         MD5 md5;
-        for (int i = 0; i < parameters.length; i++) {
-            if (parameters[i].isAnnotationPresent(Check.class)) {
-                check = parameters[i].getAnnotation(Check.class);
-                if (!Regular.check(args[i].toString(), check.value())) {
-                    throw new IllegalParameterException(model, paramNames[i], args[i].toString(), check.value());
+        for (int i = 0; i < params.length; i++) {
+            if (params[i].getCheck() != null) {
+                if (!Regular.check(args[i].toString(), params[i].getCheck())) {
+                    throw new IllegalParameterException(model, params[i].getDeclaredName(), args[i].toString(), params[i].getCheck());
                 }
             }
-            if (parameters[i].isAnnotationPresent(MD5.class)) {
-                md5 = parameters[i].getAnnotation(MD5.class);
+            if (params[i].getMd5() != null && !params[i].isDigest()) {
+                md5 = params[i].getMd5();
                 args[i]=MD5Utils.md5(args[i].toString(),md5.salt(),md5.cycle(),md5.capital());
             }
         }
         return args;
     }
 
+    /**
+     * 得到@RequestBody参数的值<br>
+     * 1.请求体不是表单时，直接从请求的Reader中反序列化，不会先读为字符串<br>
+     * 2.否则与原来一样使用请求参数中的值<br>
+     * 3.Iterator&lt;T&gt;与Stream&lt;T&gt;类型的参数逐个解析JSON数组(或NDJSON)中的元素，元素在遍历时才会被解析<br>
+     * 4.Content-Type为二进制序列化方案的格式(默认为application/cbor)时使用二进制序列化方案解析请求体
+     *
+     * @param model Model对象
+     * @param param 参数的绑定信息
+     * @return
+     * @throws Exception
+     */
+    private Object requestBody(Model model, MethodBindingPlan.ParamBinding param) throws Exception {
+        SerializationScheme scheme;
+        if (param.getBodyRest() == Rest.JSON) {
+            scheme = Model.getJsonSerializationScheme();
+        } else if (param.getBodyRest() == Rest.XML) {
+            scheme = Model.getXmlSerializationScheme();
+        } else {
+            return null;
+        }
+        HttpServletRequest request = model.getRequest();
+        Reader reader;
+        if (Model.isBinaryContent(request)) {
+            BinarySerializationScheme binary = Model.getBinarySerializationScheme();
+            InputStream in = request.getInputStream();
+            if (param.getElementType() == null) {
+                return binary.deserialization(param.getGenericType(), in);
+            }
+            return bodyIterator(param, binary.deserializationIterator(param.getElementType(), in), in);
+        } else if (isBodyRequest(request)) {
+            reader = request.getReader();
+        } else {
+            String paramValue;
+            if (model.getParameterSize() == 1) {
+                paramValue = model.getDefaultParameterValue();
+            } else {
+                paramValue = model.getRequestParameter(param.getDeclaredName());
+            }
+            if (param.getElementType() == null) {
+                return scheme.deserialization(param.getGenericType(), paramValue);
+            }
+            reader = new StringReader(paramValue == null ? "" : paramValue);
+        }
+        if (param.getElementType() == null) {
+            return scheme.deserialization(param.getGenericType(), reader);
+        }
+        return bodyIterator(param, scheme.deserializationIterator(param.getElementType(), reader), reader);
+    }
+
+    /**
+     * 把逐个解析的迭代器转换为参数需要的类型(Iterator或Stream)，Stream关闭时关闭请求体
+     */
+    private Object bodyIterator(MethodBindingPlan.ParamBinding param, Iterator<?> iterator, Closeable body) {
+        if (Stream.class == param.getType()) {
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                    .onClose(() -> {
+                        try {
+                            body.close();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        }
+        return iterator;
+    }
+
+    /**
+     * 判断请求的内容是否在请求体中(不是表单，也不是文件上传)
+     */
+    private boolean isBodyRequest(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        contentType = contentType.toLowerCase();
+        return !contentType.startsWith("application/x-www-form-urlencoded") && !contentType.startsWith("multipart/");
+    }
+
+    /**
+     * 得到普通参数的值(请求参数、Rest参数或者默认值)
+     *
+     * @param model  Model对象
+     * @param method 将要执行的Controller方法
+     * @param param  参数的绑定信息
+     * @param sb     日志信息
+     * @return 参数值
+     */
+    private Object requestParam(Model model, Method method, MethodBindingPlan.ParamBinding param, StringBuilder sb) {
+        Object arg;
+        String paramName = param.getName();
+        String defparam = param.getDefValue();
+        if (param.getType().isArray() && param.isJavaType()) {
+            if (model.parameterMapContainsKey(paramName)) {
+                arg = JavaConversion.strToBasic(model.getRequestParameter(paramName), param.getType());
+                sb.append("[URL-Array] " + paramName + "=" + arg + "\n");
+                return arg;
+            }
+            if (defparam == null) {
+                throw new NotFindRequestException("缺少请求参数：" + paramName + ",错误位置：" + method);
+            }
+            arg = "null".equals(defparam) ? null : ApplicationBeans.createApplicationBeans().getBean(defparam);
+            sb.append("[Default-Array] " + paramName + "=" + arg + "\n");
+            return arg;
+        }
+        if (model.parameterMapContainsKey(paramName)) {
+            arg = JavaConversion.strToBasic(model.getRequestParameter(paramName), param.getType());
+            sb.append("[URL-Java] " + paramName + "=" + arg + "\n");
+            return arg;
+        }
+        if (model.restMapContainsKey(paramName)) {
+            arg = model.getRestParam(paramName, param.getType());
+            sb.append("[Rest-Java] " + paramName + "=" + arg + "\n");
+            return arg;
+        }
+        if ("null".equals(defparam)) {
+            arg = null;
+            sb.append("[Default-Java] " + paramName + "=" + arg + "\n");
+        } else if (param.isJavaType()) {
+            arg = JavaConversion.strToBasic(defparam, param.getType());
+            sb.append("[Default-Java] " + paramName + "=" + arg + "\n");
+        } else {
+            arg = ApplicationBeans.createApplicationBeans().getBean(defparam);
+            sb.append("[Default-Java] " + paramName + "=" + arg);
+        }
+        return arg;
+    }
+
     /**
      * 为Controller方法中的pojo属性注入request域或RestMap中对应的值
      *
@@ -573,64 +531,28 @@ public class AnnotationOperation {
     }
 
 
-    /**
-     * 得到RequestParam注解中def的值
-     *
-     * @param param
-     * @return
-     */
-    private String getRequeatParamDefValue(Parameter param) {
-        if (param.isAnnotationPresent(RequestParam.class)) {
-            RequestParam rp = param.getAnnotation(RequestParam.class);
-            String defValue = rp.def();
-            if ("LCL*#*$FK%_58314@XFL_*#*LCL".equals(defValue)) {
-                return null;
-            }
-            return defValue;
-        } else {
-            return null;
-        }
-    }
-
-    /**
-     * 判断本次请求的url参数是否可以赋值给该pojoClass对应对象的属性
-     *
-     * @param pojoClass
-     * @param model
-     * @return
-     */
-    private boolean canInjection(Class<?> pojoClass, Model model) {
-        Field[] pojoFields = pojoClass.getDeclaredFields();
-        for (Field field : pojoFields) {
-            if (model.parameterMapContainsKey(field.getName()) || model.restMapContainsKey(field.getName())) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * 得到调用远程接口的返回结果
      *
      * @param controllerClass 当前Controller的Class对象
-     * @param method          当前Controller方法
+     * @param plan            当前Controller方法的参数绑定计划
      * @param pojoMap         pojoMap
-     * @param currParameter   当前参数的Parameter
+     * @param currParam       接受响应结果的参数
      * @param model           Model对象
-     * @param parameters      Parameter数组
-     * @param paramNames      方法参数名数组
-     * @param noParam         接受参数
      * @return
      * @throws IOException
      */
-    private Object httpClientParam(Class<?> controllerClass, Method method, Map<String, Object> pojoMap,
-                                   Parameter currParameter, Model model, Parameter[] parameters,
-                                   String[] paramNames, String noParam) throws Exception {
+    private Object httpClientParam(Class<?> controllerClass, MethodBindingPlan plan, Map<String, Object> pojoMap,
+                                   MethodBindingPlan.ParamBinding currParam, Model model) throws Exception {
         String callResult;
-        String api = getCallApi(controllerClass, method);
-        Map<String, Object> requestMap = getHttpClientRequestParam(method, model, pojoMap, parameters, paramNames, noParam);
+        String api = plan.getCallApi();
+        if (api == null) {
+            api = getCallApi(controllerClass, plan.getMethod());
+            plan.setCallApi(api);
+        }
+        Map<String, Object> requestMap = getHttpClientRequestParam(plan, model, pojoMap, currParam.getName());
         callResult = HttpClientCall.call(api, model.getRequestMethod(), requestMap);
-        return callRestAndBody(currParameter, callResult);
+        return callRestAndBody(currParam, callResult);
     }
 
     /**
@@ -683,47 +605,45 @@ public class AnnotationOperation {
     /**
      * 处理远程服务返回的数据，如果是CallBody则封装为JavaObject，为CallResult则返回字符串类型结果
      *
-     * @param currParameter 当前方法对应的Parameter
+     * @param currParam     当前参数的绑定信息
      * @param strResult     远程服务响应的String类型结果
      * @return
      */
-    private Object callRestAndBody(Parameter currParameter, String strResult) throws Exception {
-        if (currParameter.isAnnotationPresent(CallBody.class)) {
-            return Model.getJsonSerializationScheme().deserialization(currParameter.getType(), strResult);
+    private Object callRestAndBody(MethodBindingPlan.ParamBinding currParam, String strResult) throws Exception {
+        if (currParam.isCallBody()) {
+            return Model.getJsonSerializationScheme().deserialization(currParam.getType(), strResult);
         }
-        return JavaConversion.strToBasic(strResult, currParameter.getType());
+        return JavaConversion.strToBasic(strResult, currParam.getType());
     }
 
     /**
      * 得到访问远程服务需要的参数
      *
-     * @param method     当前Controller方法
+     * @param plan       当前Controller方法的参数绑定计划
      * @param model      Model对象
-     * @param parameters 参数列表对应的Parameter数组
-     * @param paramNames 参数列表的参数名
      * @param noParam    接受响应结果的参数名
      * @return
      */
-    private Map<String, Object> getHttpClientRequestParam(Method method, Model model, Map<String, Object> pojoMap,
-                                                          Parameter[] parameters, String[] paramNames, String noParam) throws IllegalAccessException {
+    private Map<String, Object> getHttpClientRequestParam(MethodBindingPlan plan, Model model, Map<String, Object> pojoMap,
+                                                          String noParam) throws IllegalAccessException {
         Map<String, Object> map = new HashMap<>();
 
         //获得参数列表中基本类型的接口参数
         String currParam;
         Class<?> paramClass;
-        for (int i = 0; i < parameters.length; i++) {
-            paramClass = parameters[i].getType();
-            if (paramClass.getClassLoader() == null && !Collection.class.isAssignableFrom(paramClass) && !Map.class.isAssignableFrom(paramClass)) {
-                currParam = Mapping.getParamName(parameters[i], paramNames[i]);
+        for (MethodBindingPlan.ParamBinding param : plan.getParams()) {
+            paramClass = param.getType();
+            if (param.isJavaType() && !Collection.class.isAssignableFrom(paramClass) && !Map.class.isAssignableFrom(paramClass)) {
+                currParam = param.getName();
                 if (!noParam.equals(currParam)) {
                     if (model.restMapContainsKey(currParam)) {
                         map.put(currParam, model.getRestParam(currParam));
                     } else if (model.parameterMapContainsKey(currParam)) {
                         map.put(currParam, model.getRequestParameter(currParam));
-                    } else if (getRequeatParamDefValue(parameters[i]) != null) {
-                        map.put(currParam, getRequeatParamDefValue(parameters[i]));
+                    } else if (param.getDefValue() != null) {
+                        map.put(currParam, param.getDefValue());
                     } else {
-                        throw new NotFindRequestException("缺少请求参数：" + currParam + ",错误位置：" + method);
+                        throw new NotFindRequestException("缺少请求参数：" + currParam + ",错误位置：" + plan.getMethod());
                     }
                 }
             }
@@ -747,32 +667,3 @@ public class AnnotationOperation {
         return map;
     }
 }
-
-class UploadCopy{
-    private InputStream in;
-    private File out;
-
-    public UploadCopy(InputStream in, File out) {
-        this.in = in;
-        this.out = out;
-    }
-
-    public void copy() throws IOException {
-        if(!out.getParentFile().exists()) {
-            out.getParentFile().mkdirs();
-        }
-        FileUtils.copy(in,new BufferedOutputStream(new FileOutputStream(out)));
-    }
-
-    public int getFileSize() throws IOException {
-        return in.available();
-    }
-
-    public static double getTotalSize(List<UploadCopy> list) throws IOException {
-        long t=0;
-        for (UploadCopy uploadCopy : list) {
-           t+=uploadCopy.getFileSize();
-        }
-        return t;
-    }
-}
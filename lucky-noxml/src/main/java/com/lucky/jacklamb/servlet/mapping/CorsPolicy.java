@@ -0,0 +1,131 @@
+package com.lucky.jacklamb.servlet.mapping;
+
+import com.lucky.jacklamb.annotation.mvc.CrossOrigin;
+import com.lucky.jacklamb.servlet.core.Model;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 一个映射的跨域策略，启动时由@CrossOrigin注解解析而成(方法上的注解优先于类上的注解)，
+ * 允许的域保存在Hash表中，响应头的值提前生成，处理请求时不再读取注解<br>
+ * 1.普通请求：Origin被允许时响应Access-Control-Allow-Origin等响应头<br>
+ * 2.预检请求(OPTIONS + Access-Control-Request-Method)：由DispatchServlet直接响应，不会进入Controller
+ *
+ * @author fk-7075
+ */
+public final class CorsPolicy {
+
+    private static final String ORIGIN = "Origin";
+
+    /**
+     * 允许访问的域，为空时允许所有的域
+     */
+    private final Set<String> origins;
+
+    private final String allowMethods;
+
+    private final String allowHeaders;
+
+    private final String exposedHeaders;
+
+    private final String maxAge;
+
+    private final String allowCredentials;
+
+    private CorsPolicy(CrossOrigin crso) {
+        Set<String> set = new HashSet<>();
+        Collections.addAll(set, crso.value());
+        Collections.addAll(set, crso.origins());
+        set.remove("*");
+        boolean any = set.isEmpty() || containsAny(crso);
+        this.origins = any ? Collections.emptySet() : Collections.unmodifiableSet(set);
+        this.allowMethods = crso.method();
+        this.allowHeaders = crso.allowedHeaders();
+        this.exposedHeaders = crso.exposedHeaders().trim().isEmpty() ? null : crso.exposedHeaders();
+        this.maxAge = String.valueOf(crso.maxAge());
+        this.allowCredentials = String.valueOf(crso.allowCredentials());
+    }
+
+    /**
+     * 解析Controller方法的跨域策略
+     * @param controllerClass Controller的Class(不是代理类)
+     * @param method Controller方法
+     * @return 类与方法上都没有@CrossOrigin注解时返回null
+     */
+    public static CorsPolicy of(Class<?> controllerClass, Method method) {
+        CrossOrigin crso = method.getAnnotation(CrossOrigin.class);
+        if (crso == null) {
+            crso = controllerClass.getAnnotation(CrossOrigin.class);
+        }
+        return crso == null ? null : new CorsPolicy(crso);
+    }
+
+    private static boolean containsAny(CrossOrigin crso) {
+        for (String origin : crso.value()) {
+            if ("*".equals(origin)) {
+                return true;
+            }
+        }
+        for (String origin : crso.origins()) {
+            if ("*".equals(origin)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 判断一个域是否可以访问
+     * @param origin 请求头Origin的值
+     * @return
+     */
+    public boolean isAllowed(String origin) {
+        return origin != null && (origins.isEmpty() || origins.contains(origin));
+    }
+
+    /**
+     * 为普通的跨域请求设置响应头，没有Origin或Origin不被允许时不设置
+     * @param request Request对象
+     * @param response Response对象
+     */
+    public void apply(HttpServletRequest request, HttpServletResponse response) {
+        String origin = request.getHeader(ORIGIN);
+        if (!isAllowed(origin)) {
+            return;
+        }
+        allowOrigin(origin, response);
+        if (exposedHeaders != null) {
+            response.setHeader("Access-Control-Expose-Headers", exposedHeaders);
+        }
+        response.setHeader("XDomainRequestAllowed", "1");
+    }
+
+    /**
+     * 响应预检请求，Origin被允许时响应204，否则响应403
+     * @param request Request对象
+     * @param response Response对象
+     */
+    public void preflight(HttpServletRequest request, HttpServletResponse response) {
+        String origin = request.getHeader(ORIGIN);
+        if (!isAllowed(origin)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        allowOrigin(origin, response);
+        response.setHeader("Access-Control-Allow-Methods", allowMethods);
+        response.setHeader("Access-Control-Allow-Headers", allowHeaders);
+        response.setHeader("Access-Control-Max-Age", maxAge);
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    private void allowOrigin(String origin, HttpServletResponse response) {
+        response.setHeader("Access-Control-Allow-Origin", origin);
+        response.setHeader("Access-Control-Allow-Credentials", allowCredentials);
+        Model.addVary(response, ORIGIN);
+    }
+}
@@ -0,0 +1,426 @@
+package com.lucky.jacklamb.servlet.mapping;
+
+import com.lucky.jacklamb.annotation.mvc.*;
+import com.lucky.jacklamb.cglib.ASMUtil;
+import com.lucky.jacklamb.enums.Rest;
+import com.lucky.jacklamb.servlet.core.Model;
+import com.lucky.jacklamb.utils.file.MultipartFile;
+import com.lucky.jacklamb.utils.reflect.MethodInvoker;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpSession;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Controller方法的参数绑定计划，在映射注册时解析一次(参数名、参数来源、目标类型、默认值、校验与加密配置)，
+ * 请求到来时{@link AnnotationOperation}只需按计划取值，不再读取class文件和参数注解
+ *
+ * @author fk-7075
+ */
+public class MethodBindingPlan {
+
+    private static final String NO_DEFAULT = "LCL*#*$FK%_58314@XFL_*#*LCL";
+
+    private static final Map<Method, MethodBindingPlan> planCache = new ConcurrentHashMap<>();
+
+    private final Method method;
+
+    /**
+     * 方法执行器
+     */
+    private final MethodInvoker invoker;
+
+    private final ParamBinding[] params;
+
+    /**
+     * 方法上@Upload注解的配置，没有时为null
+     */
+    private final UploadBinding upload;
+
+    /**
+     * 需要在上传过程中计算MD5摘要的MultipartFile参数(参数名与@MD5注解)
+     */
+    private final Map<String, MD5> digestFields;
+
+    /**
+     * 是否为@Download方法
+     */
+    private final boolean download;
+
+    /**
+     * 远程服务的Url地址，第一次使用时解析
+     */
+    private volatile String callApi;
+
+    private MethodBindingPlan(Method method) {
+        this.method = method;
+        this.invoker = MethodInvoker.of(method);
+        Parameter[] parameters = method.getParameters();
+        String[] paramNames = ASMUtil.getMethodParamNames(method);
+        params = new ParamBinding[parameters.length];
+        digestFields = new HashMap<>();
+        for (int i = 0; i < parameters.length; i++) {
+            params[i] = new ParamBinding(parameters[i], paramNames[i]);
+            if (params[i].isDigest()) {
+                digestFields.put(params[i].getName(), params[i].getMd5());
+            }
+        }
+        upload = method.isAnnotationPresent(Upload.class) ? new UploadBinding(method.getAnnotation(Upload.class)) : null;
+        download = method.isAnnotationPresent(Download.class);
+    }
+
+    /**
+     * 得到Controller方法的参数绑定计划(同一个方法只解析一次)
+     * @param method Controller方法
+     * @return 参数绑定计划
+     */
+    public static MethodBindingPlan of(Method method) {
+        return planCache.computeIfAbsent(method, MethodBindingPlan::new);
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public MethodInvoker getInvoker() {
+        return invoker;
+    }
+
+    public ParamBinding[] getParams() {
+        return params;
+    }
+
+    public UploadBinding getUpload() {
+        return upload;
+    }
+
+    public Map<String, MD5> getDigestFields() {
+        return digestFields;
+    }
+
+    public boolean isDownload() {
+        return download;
+    }
+
+    String getCallApi() {
+        return callApi;
+    }
+
+    void setCallApi(String callApi) {
+        this.callApi = callApi;
+    }
+
+    /**
+     * 参数的取值来源
+     */
+    public enum ParamSource {
+
+        /**
+         * 使用@CallResult或@CallBody接收远程服务的返回结果
+         */
+        CALL,
+
+        REQUEST,
+
+        SESSION,
+
+        RESPONSE,
+
+        SERVLET_CONTEXT,
+
+        MODEL,
+
+        /**
+         * 使用@RequestBody接收请求体
+         */
+        REQUEST_BODY,
+
+        /**
+         * 使用@RestParam接收Rest参数
+         */
+        REST_PARAM,
+
+        /**
+         * 请求参数、Rest参数或者默认值
+         */
+        REQUEST_PARAM
+    }
+
+    /**
+     * 单个参数的绑定信息
+     */
+    public static class ParamBinding {
+
+        private final Parameter parameter;
+
+        private final Class<?> type;
+
+        /**
+         * 编译后的参数名
+         */
+        private final String declaredName;
+
+        /**
+         * 标记参数名(@RequestParam、@RestParam等注解中指定的名称)
+         */
+        private final String name;
+
+        private final ParamSource source;
+
+        /**
+         * 是否使用@CallBody将远程服务的返回结果封装为JavaObject
+         */
+        private final boolean callBody;
+
+        /**
+         * @RequestBody的格式
+         */
+        private final Rest bodyRest;
+
+        /**
+         * 参数的泛型类型，@RequestBody反序列化时使用
+         */
+        private final Type genericType;
+
+        /**
+         * Iterator&lt;T&gt;与Stream&lt;T&gt;类型的@RequestBody参数的元素类型，其他参数为null
+         */
+        private final Type elementType;
+
+        /**
+         * @RestParam中的key
+         */
+        private final String restKey;
+
+        /**
+         * @RequestParam中def的值，没有配置时为null
+         */
+        private final String defValue;
+
+        /**
+         * 是否为JDK类型(基本类型及其数组、String等)
+         */
+        private final boolean javaType;
+
+        /**
+         * 是否可能作为pojo参数，是否真正注入还要看请求中是否有对应的参数
+         */
+        private final boolean pojo;
+
+        private final Field[] pojoFields;
+
+        private final Set<String> pojoFieldNames;
+
+        private final String[] check;
+
+        private final MD5 md5;
+
+        ParamBinding(Parameter parameter, String declaredName) {
+            this.parameter = parameter;
+            this.type = parameter.getType();
+            this.declaredName = declaredName;
+            this.name = Mapping.getParamName(parameter, declaredName);
+            this.javaType = type.getClassLoader() == null;
+            if (parameter.isAnnotationPresent(CallResult.class) || parameter.isAnnotationPresent(CallBody.class)) {
+                source = ParamSource.CALL;
+            } else if (ServletRequest.class.isAssignableFrom(type)) {
+                source = ParamSource.REQUEST;
+            } else if (HttpSession.class.isAssignableFrom(type)) {
+                source = ParamSource.SESSION;
+            } else if (ServletResponse.class.isAssignableFrom(type)) {
+                source = ParamSource.RESPONSE;
+            } else if (ServletContext.class.isAssignableFrom(type)) {
+                source = ParamSource.SERVLET_CONTEXT;
+            } else if (Model.class.isAssignableFrom(type)) {
+                source = ParamSource.MODEL;
+            } else if (parameter.isAnnotationPresent(RequestBody.class)) {
+                source = ParamSource.REQUEST_BODY;
+            } else if (parameter.isAnnotationPresent(RestParam.class)) {
+                source = ParamSource.REST_PARAM;
+            } else {
+                source = ParamSource.REQUEST_PARAM;
+            }
+            callBody = parameter.isAnnotationPresent(CallBody.class);
+            bodyRest = parameter.isAnnotationPresent(RequestBody.class) ? parameter.getAnnotation(RequestBody.class).value() : null;
+            genericType = parameter.getParameterizedType();
+            if (source == ParamSource.REQUEST_BODY && (Iterator.class == type || Stream.class == type)) {
+                elementType = genericType instanceof ParameterizedType
+                        ? ((ParameterizedType) genericType).getActualTypeArguments()[0] : Object.class;
+            } else {
+                elementType = null;
+            }
+            restKey = parameter.isAnnotationPresent(RestParam.class) ? parameter.getAnnotation(RestParam.class).value() : null;
+            if (parameter.isAnnotationPresent(RequestParam.class) && !NO_DEFAULT.equals(parameter.getAnnotation(RequestParam.class).def())) {
+                defValue = parameter.getAnnotation(RequestParam.class).def();
+            } else {
+                defValue = null;
+            }
+            pojo = MultipartFile.class != type && MultipartFile[].class != type && !javaType
+                    && !ServletRequest.class.isAssignableFrom(type)
+                    && !ServletResponse.class.isAssignableFrom(type)
+                    && !HttpSession.class.isAssignableFrom(type)
+                    && !ServletContext.class.isAssignableFrom(type)
+                    && !Model.class.isAssignableFrom(type);
+            if (pojo) {
+                pojoFields = type.getDeclaredFields();
+                pojoFieldNames = new HashSet<>();
+                for (Field field : pojoFields) {
+                    field.setAccessible(true);
+                    pojoFieldNames.add(field.getName());
+                }
+            } else {
+                pojoFields = new Field[0];
+                pojoFieldNames = new HashSet<>();
+            }
+            check = parameter.isAnnotationPresent(Check.class) ? parameter.getAnnotation(Check.class).value() : null;
+            md5 = parameter.isAnnotationPresent(MD5.class) ? parameter.getAnnotation(MD5.class) : null;
+        }
+
+        public Parameter getParameter() {
+            return parameter;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public String getDeclaredName() {
+            return declaredName;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ParamSource getSource() {
+            return source;
+        }
+
+        public boolean isCallBody() {
+            return callBody;
+        }
+
+        public Rest getBodyRest() {
+            return bodyRest;
+        }
+
+        public Type getGenericType() {
+            return genericType;
+        }
+
+        public Type getElementType() {
+            return elementType;
+        }
+
+        public String getRestKey() {
+            return restKey;
+        }
+
+        public String getDefValue() {
+            return defValue;
+        }
+
+        public boolean isJavaType() {
+            return javaType;
+        }
+
+        public boolean isPojo() {
+            return pojo;
+        }
+
+        public Field[] getPojoFields() {
+            return pojoFields;
+        }
+
+        public String[] getCheck() {
+            return check;
+        }
+
+        public MD5 getMd5() {
+            return md5;
+        }
+
+        /**
+         * 使用了@MD5注解的MultipartFile参数，在上传过程中计算文件内容的MD5摘要，而不是对参数值加密
+         * @return
+         */
+        public boolean isDigest() {
+            return md5 != null && (MultipartFile.class == type || MultipartFile[].class == type);
+        }
+
+        /**
+         * 判断本次请求的url参数是否可以赋值给该pojo参数的属性
+         * @param model Model对象
+         * @return
+         */
+        public boolean canInjection(Model model) {
+            for (String fieldName : pojoFieldNames) {
+                if (model.parameterMapContainsKey(fieldName) || model.restMapContainsKey(fieldName)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 方法上@Upload注解的配置
+     */
+    public static class UploadBinding {
+
+        private final Map<String, String> fieldAndFolder;
+
+        private final String type;
+
+        private final long maxSize;
+
+        private final long totalSize;
+
+        UploadBinding(Upload upload) {
+            String[] files = upload.names();
+            String[] savePaths = upload.filePath();
+            fieldAndFolder = new HashMap<>();
+            if (savePaths.length == 1) {
+                for (String file : files) {
+                    fieldAndFolder.put(file, savePaths[0]);
+                }
+            } else {
+                for (int i = 0; i < savePaths.length; i++) {
+                    fieldAndFolder.put(files[i], savePaths[i]);
+                }
+            }
+            type = upload.type();
+            maxSize = upload.maxSize();
+            totalSize = upload.totalSize();
+        }
+
+        public Map<String, String> getFieldAndFolder() {
+            return fieldAndFolder;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public long getTotalSize() {
+            return totalSize;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.lucky.jacklamb.servlet.mapping;
+
+import com.lucky.jacklamb.annotation.mvc.MD5;
+import com.lucky.jacklamb.exception.FileSizeCrossingException;
+import com.lucky.jacklamb.exception.FileTypeIllegalException;
+import com.lucky.jacklamb.exception.RequestFileSizeCrossingException;
+import com.lucky.jacklamb.ioc.config.AppConfig;
+import com.lucky.jacklamb.ioc.config.WebConfig;
+import com.lucky.jacklamb.servlet.core.Model;
+import com.lucky.jacklamb.utils.base.LuckyUtils;
+import com.lucky.jacklamb.utils.file.MultipartFile;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.apache.commons.fileupload.util.Streams;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于commons-fileupload流式API的multipart请求解析器<br>
+ * 每个文件在读取请求体的同时直接写入@Upload的目标文件夹(或MultipartFile使用的临时文件)，
+ * 文件类型在写入前校验，单个文件和所有文件的大小在传输过程中校验，超出限制时立即停止并删除已经写入的文件，
+ * 需要时同时计算文件的MD5摘要，文件内容不会被整体读入内存
+ *
+ * @author fk-7075
+ */
+class MultipartStreamParser {
+
+    private static final WebConfig webCfg = AppConfig.getAppConfig().getWebConfig();
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Model model;
+
+    private final Map<String, String> fieldAndFolder;
+
+    private final String type;
+
+    /**
+     * 单个文件的大小限制(单位：byte)
+     */
+    private final long maxFileSize;
+
+    /**
+     * 所有文件的大小限制(单位：byte)
+     */
+    private final long maxRequestSize;
+
+    /**
+     * 需要计算MD5摘要的MultipartFile参数
+     */
+    private final Map<String, MD5> digestFields;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    /**
+     * 本次请求中已经写入的文件，解析失败时全部删除
+     */
+    private final List<File> writtenFiles = new ArrayList<>();
+
+    private long totalSize;
+
+    private String savePath;
+
+    /**
+     * @param model          Model对象
+     * @param fieldAndFolder @Upload中name与folder组成的Map，其余的文件作为MultipartFile处理
+     * @param type           @Upload允许上传的文件类型
+     * @param fileSize       单个文件的大小限制(单位：kb)，为0时使用WebConfig中的配置
+     * @param totalSize      所有文件的大小限制(单位：kb)，为0时使用WebConfig中的配置
+     * @param digestFields   需要计算MD5摘要的MultipartFile参数
+     */
+    MultipartStreamParser(Model model, Map<String, String> fieldAndFolder, String type, long fileSize, long totalSize, Map<String, MD5> digestFields) {
+        this.model = model;
+        this.fieldAndFolder = fieldAndFolder;
+        this.type = type;
+        this.maxFileSize = (fileSize == 0 ? webCfg.getMultipartMaxFileSize() : fileSize) * 1024;
+        this.maxRequestSize = (totalSize == 0 ? webCfg.getMultipartMaxRequestSize() : totalSize) * 1024;
+        this.digestFields = digestFields;
+    }
+
+    /**
+     * 解析请求，@Upload的文件放入UploadFileMap，其余的文件放入MultipartFileMap，表单参数放入ParameterMap
+     */
+    void parse() throws FileUploadException, IOException, FileTypeIllegalException, FileSizeCrossingException, RequestFileSizeCrossingException {
+        if (!ServletFileUpload.isMultipartContent(model.getRequest())) {
+            return;
+        }
+        ServletFileUpload upload = new ServletFileUpload();
+        upload.setHeaderEncoding("UTF-8");
+        Map<String, List<String>> fields = new LinkedHashMap<>();
+        Map<String, List<File>> uploadFiles = new LinkedHashMap<>();
+        Map<String, List<MultipartFile>> multipartFiles = new LinkedHashMap<>();
+        boolean success = false;
+        try {
+            FileItemIterator iterator = upload.getItemIterator(model.getRequest());
+            while (iterator.hasNext()) {
+                FileItemStream item = iterator.next();
+                String fieldName = item.getFieldName();
+                if (item.isFormField()) {
+                    try (InputStream in = item.openStream()) {
+                        fields.computeIfAbsent(fieldName, k -> new ArrayList<>()).add(Streams.asString(in, "UTF-8"));
+                    }
+                    continue;
+                }
+                String fileName = item.getName();
+                if (fileName == null || fileName.isEmpty()) {
+                    //表单中没有选择文件
+                    continue;
+                }
+                //部分浏览器会上传文件的完整路径
+                fileName = fileName.substring(Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')) + 1);
+                if (fieldAndFolder.containsKey(fieldName)) {
+                    uploadFiles.computeIfAbsent(fieldName, k -> new ArrayList<>()).add(saveUpload(item, fieldName, fileName));
+                } else {
+                    multipartFiles.computeIfAbsent(fieldName, k -> new ArrayList<>()).add(saveTemp(item, fieldName, fileName));
+                }
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                for (File file : writtenFiles) {
+                    file.delete();
+                }
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : fields.entrySet()) {
+            if (!model.parameterMapContainsKey(entry.getKey())) {
+                model.addParameter(entry.getKey(), entry.getValue().toArray(new String[0]));
+            }
+        }
+        for (Map.Entry<String, List<File>> entry : uploadFiles.entrySet()) {
+            model.addUploadFile(entry.getKey(), entry.getValue().toArray(new File[0]));
+        }
+        for (Map.Entry<String, List<MultipartFile>> entry : multipartFiles.entrySet()) {
+            model.addMultipartFile(entry.getKey(), entry.getValue().toArray(new MultipartFile[0]));
+        }
+    }
+
+    /**
+     * 将@Upload的文件直接写入目标文件夹
+     */
+    private File saveUpload(FileItemStream item, String fieldName, String fileName) throws IOException, FileTypeIllegalException, FileSizeCrossingException, RequestFileSizeCrossingException {
+        String suffix = suffix(fileName);
+        if (!isLegalType(suffix)) {
+            throw new FileTypeIllegalException("上传的文件格式" + suffix + "不合法！合法的文件格式为：" + type);
+        }
+        String pathSave = fieldAndFolder.get(fieldName);
+        String folder;
+        if (pathSave.startsWith("abs:")) {//绝对路径写法
+            folder = pathSave.substring(4);
+        } else {//相对路径写法
+            if (savePath == null) {
+                savePath = model.getRealPath("/");
+            }
+            folder = savePath + pathSave;
+        }
+        String noSuffix = fileName.substring(0, fileName.length() - suffix.length());
+        File target = new File(folder, noSuffix + "_" + new Date().getTime() + "_" + LuckyUtils.getRandomNumber() + suffix);
+        if (!target.getParentFile().exists()) {
+            target.getParentFile().mkdirs();
+        }
+        write(item, target, null);
+        return target;
+    }
+
+    /**
+     * 将MultipartFile的文件写入临时文件，请求结束后删除
+     */
+    private MultipartFile saveTemp(FileItemStream item, String fieldName, String fileName) throws IOException, FileSizeCrossingException, RequestFileSizeCrossingException {
+        MD5 md5 = digestFields.get(fieldName);
+        MessageDigest digest = null;
+        if (md5 != null) {
+            try {
+                digest = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        File temp = File.createTempFile("lucky-upload-", suffix(fileName));
+        long size = write(item, temp, digest);
+        return new MultipartFile(temp, fileName, size, digest == null ? null : hex(digest.digest(), md5.capital()));
+    }
+
+    /**
+     * 将文件内容写入目标文件，写入的同时校验文件大小并计算摘要
+     * @return 文件大小
+     */
+    private long write(FileItemStream item, File target, MessageDigest digest) throws IOException, FileSizeCrossingException, RequestFileSizeCrossingException {
+        writtenFiles.add(target);
+        long size = 0;
+        try (InputStream in = item.openStream(); OutputStream out = new FileOutputStream(target)) {
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                size += len;
+                totalSize += len;
+                if (size > maxFileSize) {
+                    throw new FileSizeCrossingException("单个上传文件的大小超出最大上传限制：" + maxFileSize / 1024 + "kb，文件：" + item.getName());
+                }
+                if (totalSize > maxRequestSize) {
+                    throw new RequestFileSizeCrossingException("总文件超过最大上传限制：" + maxRequestSize / 1024 + "kb");
+                }
+                if (digest != null) {
+                    digest.update(buffer, 0, len);
+                }
+                out.write(buffer, 0, len);
+            }
+        }
+        return size;
+    }
+
+    private boolean isLegalType(String suffix) {
+        if ("".equals(type)) {
+            return true;
+        }
+        for (String legal : type.split(",")) {
+            if (legal.trim().equalsIgnoreCase(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String suffix(String fileName) {
+        int index = fileName.lastIndexOf(".");
+        return index < 0 ? "" : fileName.substring(index);
+    }
+
+    private static String hex(byte[] bytes, boolean capital) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        String hex = new String(chars);
+        return capital ? hex.toUpperCase() : hex;
+    }
+}
@@ -0,0 +1,75 @@
+package com.lucky.jacklamb.servlet.mapping;
+
+import com.lucky.jacklamb.enums.Rest;
+import com.lucky.jacklamb.ioc.ControllerAndMethod;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次请求的路由匹配结果(不可变)，每个请求都会得到一个独立的对象，
+ * 不会修改容器中共享的ControllerAndMethod
+ *
+ * @author fk-7075
+ */
+public final class RouteMatch {
+
+    /**
+     * 映射对应的ControllerAndMethod
+     */
+    private final ControllerAndMethod handler;
+
+    /**
+     * 匹配成功的URL映射模板
+     */
+    private final String url;
+
+    /**
+     * 本次请求中解析出的Rest参数
+     */
+    private final Map<String, String> restKV;
+
+    public RouteMatch(ControllerAndMethod handler, String url, Map<String, String> restKV) {
+        this.handler = handler;
+        this.url = url;
+        this.restKV = Collections.unmodifiableMap(restKV);
+    }
+
+    public ControllerAndMethod getHandler() {
+        return handler;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public Map<String, String> getRestKV() {
+        return restKV;
+    }
+
+    public Object getController() {
+        return handler.getController();
+    }
+
+    public Method getMethod() {
+        return handler.getMethod();
+    }
+
+    public MethodBindingPlan getBindingPlan() {
+        return handler.getBindingPlan();
+    }
+
+    public Rest getRest() {
+        return handler.getRest();
+    }
+
+    /**
+     * 转发重定向操作的前后缀(在启动时已经解析完毕)
+     * @return
+     */
+    public List<String> getPreAndSuf() {
+        return handler.getPreAndSuf();
+    }
+}
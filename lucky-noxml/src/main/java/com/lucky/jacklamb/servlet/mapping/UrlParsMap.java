@@ -3,7 +3,6 @@ package com.lucky.jacklamb.servlet.mapping;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -12,15 +11,15 @@ import java.util.stream.Stream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import com.lucky.jacklamb.annotation.ioc.Controller;
-import com.lucky.jacklamb.annotation.mvc.CrossOrigin;
+import com.lucky.jacklamb.enums.Code;
 import com.lucky.jacklamb.enums.RequestMethod;
 import com.lucky.jacklamb.ioc.ApplicationBeans;
 import com.lucky.jacklamb.ioc.ControllerAndMethod;
 import com.lucky.jacklamb.ioc.URLAndRequestMethod;
-import com.lucky.jacklamb.ioc.config.AppConfig;
 import com.lucky.jacklamb.servlet.LuckyWebContext;
 import com.lucky.jacklamb.servlet.core.Model;
+import com.lucky.jacklamb.utils.base.IpAddress;
+import com.lucky.jacklamb.utils.base.JackLamb;
 
 /**
  * url解析，将url映射为ControllerAndMethod对象,并且负责一些关于请求转化与判定的事务,以及跨域问题的解决
@@ -32,35 +31,51 @@ public class UrlParsMap {
 	
 
 	/**
-	 * 跨域访问配置
+	 * 跨域访问配置，使用启动时解析好的跨域策略
 	 * @param request Request对象
 	 * @param response Response对象
 	 * @param come ControllerAndMethod对象
 	 */
 	public void setCross(HttpServletRequest request, HttpServletResponse response, ControllerAndMethod come) {
-		if (come.getController().getClass().isAnnotationPresent(CrossOrigin.class)) {
-			CrossOrigin crso = come.getController().getClass().getAnnotation(CrossOrigin.class);
-			if(come.getMethod().isAnnotationPresent(CrossOrigin.class)){
-				crso=come.getMethod().getAnnotation(CrossOrigin.class);
-			}
-			String url = request.getHeader("Origin");
-			String[] url_v = crso.value();
-			String[] url_o = crso.origins();
-			if ((url_v.length != 0 && url_o.length != 0)
-					&& (!Arrays.asList(url_v).contains(url) && !Arrays.asList(url_o).contains(url)))
-				url = "fk-xfl-wl";
-			String isCookie = "false";
-			if (crso.allowCredentials())
-				isCookie = "true";
-			response.setHeader("Access-Control-Allow-Origin", url);
-			response.setHeader("Access-Control-Allow-Methods", crso.method());
-			response.setHeader("Access-Control-Max-Age", crso.maxAge() + "");
-			response.setHeader("Access-Control-Allow-Headers", crso.allowedHeaders());
-			response.setHeader("Access-Control-Allow-Credentials", isCookie);
-			response.setHeader("XDomainRequestAllowed", "1");
+		CorsPolicy policy = come.getCorsPolicy();
+		if (policy != null) {
+			policy.apply(request, response);
 		}
 	}
 
+	/**
+	 * 处理跨域预检请求(带有Access-Control-Request-Method的OPTIONS请求)<br>
+	 * 按预检请求声明的请求类型查找映射，映射配置了跨域策略时直接响应，不会进入参数绑定与Controller
+	 * @param request Request对象
+	 * @param response Response对象
+	 * @param url 当前请求的URL
+	 * @param clientIp 客户端IP
+	 * @return 是否已经响应了预检请求，返回false时按普通请求继续处理
+	 */
+	public boolean preflight(HttpServletRequest request, HttpServletResponse response, String url, IpAddress clientIp) {
+		String requestMethod = request.getHeader("Access-Control-Request-Method");
+		if (requestMethod == null) {
+			return false;
+		}
+		RequestMethod method;
+		try {
+			method = RequestMethod.valueOf(requestMethod.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		RouteTrie.Result result = ApplicationBeans.createApplicationBeans().getHanderMethods().find(url, method);
+		if (result.getStatus() != RouteTrie.Status.OK) {
+			return false;
+		}
+		ControllerAndMethod come = result.getRouteMatch().getHandler();
+		CorsPolicy policy = come.getCorsPolicy();
+		if (policy == null || !come.isLegalIp(clientIp)) {
+			return false;
+		}
+		policy.preflight(request, response);
+		return true;
+	}
+
 	/**
 	 * 根据POST请求参数"_method"的值改变请求的类型
 	 * @param request 对象
@@ -93,31 +108,39 @@ public class UrlParsMap {
 	}
 	
 	/**
-	 * 根据一个请求的URL找到一个与之对应的ControllerAndMethod,如果找不到对应则返回null
+	 * 根据一个请求的URL找到一个与之对应的映射,如果找不到对应则返回null
 	 * @param url 当前请求的URL
-	 * @return ControllerAndMethod对象
+	 * @return 本次请求的路由匹配结果
 	 * @throws IOException 
 	 */
-	public ControllerAndMethod pars(Model model,String url,RequestMethod requestMethod) throws IOException {
-		ControllerAndMethod come;
-		URLAndRequestMethod iocURM=getURLAndRequestMethod(model,url,requestMethod);
-		if(iocURM==null)
+	public RouteMatch pars(Model model,String url,RequestMethod requestMethod) throws IOException {
+		RouteTrie.Result result=route(model,url,requestMethod);
+		return result==null?null:result.getRouteMatch();
+	}
+
+	/**
+	 * 在路由索引中查找当前请求对应的映射，找不到时向客户端响应404，请求类型不支持时响应403
+	 * @param model Model对象
+	 * @param url 当前请求的URL
+	 * @param requestMethod 当前请求的类型
+	 * @return 匹配结果，匹配失败时返回null
+	 * @throws IOException
+	 */
+	private RouteTrie.Result route(Model model,String url,RequestMethod requestMethod) throws IOException {
+		RouteTrie.Result result=ApplicationBeans.createApplicationBeans().getHanderMethods().find(url,requestMethod);
+		if(result.getStatus()==RouteTrie.Status.NOT_FOUND) {
+			if("/".equals(url)){
+				JackLamb.welcome(model);
+				return null;
+			}
+			model.error(Code.NOTFOUND, "找不与请求相匹配的映射资,请检查您的URL是否正确！","不正确的url："+url);
+			return null;
+		}
+		if(result.getStatus()==RouteTrie.Status.METHOD_NOT_ALLOWED) {
+			model.error(Code.REFUSED,"您的请求类型["+requestMethod+"] , 当前方法并不支持！","不合法的请求类型["+requestMethod+"]");
 			return null;
-		come = ApplicationBeans.createApplicationBeans().getHanderMethods().get(iocURM);
-		come.setUrl(iocURM.getUrl());
-		come.setRestKV(getRestKV(iocURM.getUrl(), url));
-		Class<?> controllerClass=come.getController().getClass();
-		if(controllerClass.getSimpleName().contains("$$EnhancerByCGLIB$$"))
-			controllerClass=controllerClass.getSuperclass();
-		Controller cont=controllerClass.getAnnotation(Controller.class);
-		List<String> globalprefixAndSuffix=AppConfig.getAppConfig().getWebConfig().getHanderPrefixAndSuffix();
- 		come.setPrefix(globalprefixAndSuffix.get(0));
-		come.setSuffix(globalprefixAndSuffix.get(1));
-		if(!"".equals(cont.prefix()))
-			come.setPrefix(cont.prefix());
-		if(!"".equals(cont.suffix()))
-			come.setSuffix(cont.suffix());
-		return come;
+		}
+		return result;
 	}
 
 	/**
@@ -152,11 +175,8 @@ public class UrlParsMap {
 	}
 	
 	public URLAndRequestMethod getURLAndRequestMethod(Model model,String currUrl,RequestMethod currRequestMethod) throws IOException {
-		URLAndRequestMethod urm= new URLAndRequestMethod();
-		urm.setUrl(currUrl);
-		urm.addMethod(currRequestMethod);
-		List<URLAndRequestMethod> urlList = ApplicationBeans.createApplicationBeans().getHanderMethods().getUrlList();
-		return urm.findUrl(model, urlList);
+		RouteTrie.Result result=route(model,currUrl,currRequestMethod);
+		return result==null?null:result.getURLAndRequestMethod();
 	}
 	
 	private String[] participle(String url) {
@@ -176,10 +196,10 @@ public class UrlParsMap {
 		LuckyWebContext luckyWebContext = LuckyWebContext.createContext();
 		luckyWebContext.setRequest(model.getRequest());
 		luckyWebContext.setResponse(model.getResponse());
-		luckyWebContext.setSession(model.getSession());
 		luckyWebContext.setApplication(model.getServletContext());
 		luckyWebContext.setRequestMethod(model.getRequestMethod());
 		luckyWebContext.setServletConfig(model.getServletConfig());
+		luckyWebContext.setModel(model);
 		LuckyWebContext.setContext(luckyWebContext);
 	}
 
@@ -190,13 +210,4 @@ public class UrlParsMap {
 		LuckyWebContext.clearContext();
 	}
 
-	/**
-	 * 为Controller注入Model HttpSession ServletRequest ServletResponse ServletContext属性
-	 * @param obj controller对象
-	 * @param model controller方法
-	 */
-	public void autowReqAdnResp(Object obj, Model model) {
-		ApplicationBeans.iocContainers.autowReqAdnResp(obj, model);
-	}
-
 }
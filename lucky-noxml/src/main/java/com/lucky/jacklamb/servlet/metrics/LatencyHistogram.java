@@ -0,0 +1,133 @@
+package com.lucky.jacklamb.servlet.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的耗时分布统计(单位：微秒)，桶按对数划分(与HdrHistogram类似)：
+ * 小于16us时每1us一个桶，之后每个2的幂区间再平均分为8个桶，相对误差不超过12.5%，
+ * 最大可以记录约12天的耗时，共304个桶
+ *
+ * @author fk-7075
+ */
+public final class LatencyHistogram {
+
+    private static final int LINEAR = 16;
+
+    private static final int SUB_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private static final int MAX_EXPONENT = 39;
+
+    static final int BUCKETS = LINEAR + (MAX_EXPONENT - 3) * SUB_BUCKETS;
+
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 记录一次耗时
+     * @param nanos 耗时(单位：ns)
+     */
+    public void record(long nanos) {
+        long micros = Math.min(Math.max(nanos / 1000, 0), MAX_VALUE);
+        counts.incrementAndGet(index(micros));
+        count.increment();
+        sum.add(micros);
+        max.accumulate(micros);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * 耗时总和(单位：us)
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * 最大耗时(单位：us)
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * 得到百分位耗时
+     * @param quantile 0~1之间的百分位，例如0.99
+     * @return 百分位所在桶的上限(单位：us)，没有数据时返回0
+     */
+    public long quantile(double quantile) {
+        long[] snapshot = snapshot();
+        long total = 0;
+        for (long c : snapshot) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * 统计小于等于le的次数(按桶的上限计算，Prometheus的累计桶使用)
+     * @param snapshot 桶的快照
+     * @param le 上限(单位：us)
+     * @return
+     */
+    static long countLessOrEqual(long[] snapshot, long le) {
+        long result = 0;
+        for (int i = 0; i < snapshot.length && upperBound(i) <= le; i++) {
+            result += snapshot[i];
+        }
+        return result;
+    }
+
+    long[] snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    static int index(long micros) {
+        if (micros < LINEAR) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * 桶的上限(不包含)
+     */
+    static long upperBound(int index) {
+        if (index < LINEAR) {
+            return index + 1;
+        }
+        int exponent = (index - LINEAR) / SUB_BUCKETS + 4;
+        int sub = (index - LINEAR) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS);
+    }
+}
@@ -0,0 +1,254 @@
+package com.lucky.jacklamb.servlet.metrics;
+
+import com.lucky.jacklamb.enums.RequestMethod;
+import com.lucky.jacklamb.ioc.ControllerAndMethod;
+import com.lucky.jacklamb.ioc.config.AppConfig;
+import com.lucky.jacklamb.ioc.config.WebConfig;
+import com.lucky.jacklamb.servlet.core.Model;
+import com.lucky.jacklamb.servlet.mapping.RouteMatch;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 路由性能统计管理器，在WebConfig中开启后由LuckyDispatcherServlet在路由、参数绑定、方法执行、响应四个阶段记录耗时，
+ * 统计数据通过metricsPath获取：<br>
+ * 1.默认为Prometheus文本格式(lucky_http_requests_total、lucky_http_request_errors_total、
+ * lucky_http_requests_in_flight、lucky_http_request_duration_seconds)<br>
+ * 2.带有参数format=json或请求头Accept为application/json时返回JSON(包含p50、p90、p99与最大耗时)<br>
+ * 没有开启时{@link #getMetricsManage()}返回null，DispatchServlet不会记录任何数据；
+ * 异步响应与流式响应的请求在异步处理结束时记录最终的状态码与总耗时，在此之前计入正在处理的请求数
+ *
+ * @author fk-7075
+ */
+public class MetricsManage {
+
+    /**
+     * Prometheus累计桶的上限(单位：s)
+     */
+    private static final double[] BUCKETS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private static final String[] STATUS_CLASSES = {"unknown", "1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private static final int METHODS = RequestMethod.values().length;
+
+    private static volatile MetricsManage metricsManage;
+
+    private final Map<ControllerAndMethod, AtomicReferenceArray<RouteMetrics>> routes = new ConcurrentHashMap<>();
+
+    private final String path;
+
+    private MetricsManage(WebConfig webCfg) {
+        this.path = webCfg.getMetricsPath();
+    }
+
+    /**
+     * 得到性能统计管理器
+     * @return 没有开启性能统计时返回null
+     */
+    public static MetricsManage getMetricsManage() {
+        WebConfig webCfg = AppConfig.getAppConfig().getWebConfig();
+        if (!webCfg.isOpenMetrics()) {
+            return null;
+        }
+        if (metricsManage == null) {
+            synchronized (MetricsManage.class) {
+                if (metricsManage == null) {
+                    metricsManage = new MetricsManage(webCfg);
+                }
+            }
+        }
+        return metricsManage;
+    }
+
+    /**
+     * 开始记录一次请求
+     * @return
+     */
+    public RequestRecorder start() {
+        return new RequestRecorder(this);
+    }
+
+    /**
+     * 判断是否为获取统计数据的请求
+     * @param uri 请求的路径
+     * @return
+     */
+    public boolean isMetricsRequest(String uri) {
+        return path.equals(uri);
+    }
+
+    RouteMetrics route(RouteMatch routeMatch, RequestMethod method) {
+        AtomicReferenceArray<RouteMetrics> byMethod = routes.get(routeMatch.getHandler());
+        if (byMethod == null) {
+            byMethod = routes.computeIfAbsent(routeMatch.getHandler(), k -> new AtomicReferenceArray<>(METHODS));
+        }
+        RouteMetrics metrics = byMethod.get(method.ordinal());
+        if (metrics == null) {
+            byMethod.compareAndSet(method.ordinal(), null, new RouteMetrics(routeMatch.getUrl(), method));
+            metrics = byMethod.get(method.ordinal());
+        }
+        return metrics;
+    }
+
+    /**
+     * 得到所有路由的统计数据，按路由与请求类型排序
+     * @return
+     */
+    public List<RouteMetrics> getRouteMetrics() {
+        List<RouteMetrics> list = new ArrayList<>();
+        for (AtomicReferenceArray<RouteMetrics> byMethod : routes.values()) {
+            for (int i = 0; i < byMethod.length(); i++) {
+                RouteMetrics metrics = byMethod.get(i);
+                if (metrics != null) {
+                    list.add(metrics);
+                }
+            }
+        }
+        list.sort(Comparator.comparing(RouteMetrics::getRoute).thenComparing(RouteMetrics::getMethod));
+        return list;
+    }
+
+    /**
+     * 响应统计数据
+     * @param model Model对象
+     * @throws IOException
+     */
+    public void handle(Model model) throws IOException {
+        HttpServletRequest req = model.getRequest();
+        HttpServletResponse resp = model.getResponse();
+        String accept = req.getHeader("Accept");
+        if ("json".equalsIgnoreCase(req.getParameter("format")) || (accept != null && accept.contains("application/json"))) {
+            model.writerJson(toJson());
+            return;
+        }
+        byte[] body = toPrometheus().getBytes(StandardCharsets.UTF_8);
+        resp.setContentType("text/plain; version=0.0.4; charset=utf-8");
+        resp.setContentLength(body.length);
+        try (OutputStream out = resp.getOutputStream()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * 生成Prometheus文本格式的统计数据
+     * @return
+     */
+    public String toPrometheus() {
+        List<RouteMetrics> list = getRouteMetrics();
+        StringBuilder sb = new StringBuilder(list.size() * 2048 + 512);
+        sb.append("# HELP lucky_http_requests_total Total number of routed requests.\n");
+        sb.append("# TYPE lucky_http_requests_total counter\n");
+        for (RouteMetrics metrics : list) {
+            for (int i = 0; i < STATUS_CLASSES.length; i++) {
+                long count = metrics.getStatusCount(i);
+                if (count > 0) {
+                    sb.append("lucky_http_requests_total");
+                    labels(sb, metrics).append(",status=\"").append(STATUS_CLASSES[i]).append("\"} ").append(count).append('\n');
+                }
+            }
+        }
+        sb.append("# HELP lucky_http_request_errors_total Total number of requests whose handling threw an exception.\n");
+        sb.append("# TYPE lucky_http_request_errors_total counter\n");
+        for (RouteMetrics metrics : list) {
+            sb.append("lucky_http_request_errors_total");
+            labels(sb, metrics).append("} ").append(metrics.getErrors()).append('\n');
+        }
+        sb.append("# HELP lucky_http_requests_in_flight Number of requests currently being handled.\n");
+        sb.append("# TYPE lucky_http_requests_in_flight gauge\n");
+        for (RouteMetrics metrics : list) {
+            sb.append("lucky_http_requests_in_flight");
+            labels(sb, metrics).append("} ").append(metrics.getInFlight()).append('\n');
+        }
+        sb.append("# HELP lucky_http_request_duration_seconds Request latency by handling phase.\n");
+        sb.append("# TYPE lucky_http_request_duration_seconds histogram\n");
+        for (RouteMetrics metrics : list) {
+            for (RouteMetrics.Phase phase : RouteMetrics.Phase.values()) {
+                LatencyHistogram histogram = metrics.getLatency(phase);
+                long[] snapshot = histogram.snapshot();
+                long count = 0;
+                for (long c : snapshot) {
+                    count += c;
+                }
+                for (double le : BUCKETS) {
+                    sb.append("lucky_http_request_duration_seconds_bucket");
+                    labels(sb, metrics).append(",phase=\"").append(phase.label).append("\",le=\"").append(le).append("\"} ")
+                            .append(LatencyHistogram.countLessOrEqual(snapshot, Math.round(le * 1000000))).append('\n');
+                }
+                sb.append("lucky_http_request_duration_seconds_bucket");
+                labels(sb, metrics).append(",phase=\"").append(phase.label).append("\",le=\"+Inf\"} ").append(count).append('\n');
+                sb.append("lucky_http_request_duration_seconds_sum");
+                labels(sb, metrics).append(",phase=\"").append(phase.label).append("\"} ").append(histogram.getSum() / 1000000.0).append('\n');
+                sb.append("lucky_http_request_duration_seconds_count");
+                labels(sb, metrics).append(",phase=\"").append(phase.label).append("\"} ").append(count).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 生成JSON格式的统计数据(耗时的单位为ms)
+     * @return
+     */
+    public List<Map<String, Object>> toJson() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (RouteMetrics metrics : getRouteMetrics()) {
+            Map<String, Object> route = new LinkedHashMap<>();
+            route.put("route", metrics.getRoute());
+            route.put("method", metrics.getMethod().name());
+            route.put("requests", metrics.getRequests());
+            route.put("errors", metrics.getErrors());
+            route.put("inFlight", metrics.getInFlight());
+            Map<String, Long> statuses = new LinkedHashMap<>();
+            for (int i = 0; i < STATUS_CLASSES.length; i++) {
+                long count = metrics.getStatusCount(i);
+                if (count > 0) {
+                    statuses.put(STATUS_CLASSES[i], count);
+                }
+            }
+            route.put("status", statuses);
+            Map<String, Object> phases = new LinkedHashMap<>();
+            for (RouteMetrics.Phase phase : RouteMetrics.Phase.values()) {
+                LatencyHistogram histogram = metrics.getLatency(phase);
+                long count = histogram.getCount();
+                Map<String, Object> latency = new LinkedHashMap<>();
+                latency.put("count", count);
+                latency.put("mean", count == 0 ? 0 : histogram.getSum() / 1000.0 / count);
+                latency.put("p50", histogram.quantile(0.5) / 1000.0);
+                latency.put("p90", histogram.quantile(0.9) / 1000.0);
+                latency.put("p99", histogram.quantile(0.99) / 1000.0);
+                latency.put("max", histogram.getMax() / 1000.0);
+                phases.put(phase.label, latency);
+            }
+            route.put("latency", phases);
+            result.add(route);
+        }
+        return result;
+    }
+
+    private static StringBuilder labels(StringBuilder sb, RouteMetrics metrics) {
+        sb.append("{route=\"");
+        String route = metrics.getRoute();
+        for (int i = 0; i < route.length(); i++) {
+            char c = route.charAt(i);
+            if (c == '\\' || c == '"') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append("\",method=\"").append(metrics.getMethod().name()).append('"');
+    }
+}
@@ -0,0 +1,118 @@
+package com.lucky.jacklamb.servlet.metrics;
+
+import com.lucky.jacklamb.enums.RequestMethod;
+import com.lucky.jacklamb.servlet.mapping.RouteMatch;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 记录一次请求在各个阶段的耗时，只在开启性能统计时创建，由处理请求的线程使用，
+ * 异步请求在异步处理结束时(AsyncListener.onComplete)由容器线程结束统计
+ *
+ * @author fk-7075
+ */
+public final class RequestRecorder {
+
+    private final MetricsManage manage;
+
+    private final long start;
+
+    private long last;
+
+    private volatile RouteMetrics route;
+
+    private volatile boolean error;
+
+    RequestRecorder(MetricsManage manage) {
+        this.manage = manage;
+        this.start = System.nanoTime();
+        this.last = start;
+    }
+
+    /**
+     * 路由匹配成功，此后的请求计入该路由
+     * @param routeMatch 路由匹配结果
+     * @param method 当前请求的类型
+     */
+    public void routed(RouteMatch routeMatch, RequestMethod method) {
+        route = manage.route(routeMatch, method);
+        route.begin();
+        mark(RouteMetrics.Phase.ROUTING);
+    }
+
+    /**
+     * 一个阶段结束，记录从上一个阶段结束到现在的耗时
+     * @param phase 结束的阶段
+     */
+    public void mark(RouteMetrics.Phase phase) {
+        if (route == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        route.record(phase, now - last);
+        last = now;
+    }
+
+    /**
+     * 请求的处理过程中抛出了异常
+     */
+    public void error() {
+        error = true;
+    }
+
+    /**
+     * Controller方法处理结束，异步请求在异步处理结束时才记录最终的状态码、总耗时并减少并发数
+     * @param request 当前请求
+     * @param response 真实的Response对象
+     */
+    public void finish(HttpServletRequest request, HttpServletResponse response) {
+        if (route == null) {
+            return;
+        }
+        if (request.isAsyncStarted()) {
+            try {
+                request.getAsyncContext().addListener(new AsyncListener() {
+
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        finish(response.getStatus());
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        //超时处理结束后仍会调用onComplete
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        error();
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                        event.getAsyncContext().addListener(this);
+                    }
+                });
+                return;
+            } catch (IllegalStateException e) {
+                //异步处理已经结束
+            }
+        }
+        finish(response.getStatus());
+    }
+
+    /**
+     * 请求结束，路由匹配失败的请求不做统计
+     * @param status 响应的状态码
+     */
+    public void finish(int status) {
+        if (route == null) {
+            return;
+        }
+        route.end(System.nanoTime() - start, status, error);
+        route = null;
+    }
+}
@@ -0,0 +1,132 @@
+package com.lucky.jacklamb.servlet.metrics;
+
+import com.lucky.jacklamb.enums.RequestMethod;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个路由(URL映射模板+请求类型)的统计数据，所有计数器都使用LongAdder，记录时不加锁
+ *
+ * @author fk-7075
+ */
+public final class RouteMetrics {
+
+    /**
+     * 请求处理的阶段
+     */
+    public enum Phase {
+
+        /**
+         * 从路由开始到响应结束的总耗时
+         */
+        TOTAL,
+
+        /**
+         * 路由匹配
+         */
+        ROUTING,
+
+        /**
+         * Controller方法的参数绑定
+         */
+        BINDING,
+
+        /**
+         * Controller方法的执行
+         */
+        INVOCATION,
+
+        /**
+         * 返回值的序列化与响应
+         */
+        SERIALIZATION;
+
+        final String label = name().toLowerCase();
+    }
+
+    private final String route;
+
+    private final RequestMethod method;
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder inFlight = new LongAdder();
+
+    /**
+     * 按状态码的类别计数，下标为状态码/100，无法识别的状态码记在0中
+     */
+    private final LongAdder[] statuses = new LongAdder[6];
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Phase.values().length];
+
+    RouteMetrics(String route, RequestMethod method) {
+        this.route = route;
+        this.method = method;
+        for (int i = 0; i < statuses.length; i++) {
+            statuses[i] = new LongAdder();
+        }
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    void begin() {
+        inFlight.increment();
+    }
+
+    void record(Phase phase, long nanos) {
+        latencies[phase.ordinal()].record(nanos);
+    }
+
+    void end(long nanos, int status, boolean error) {
+        inFlight.decrement();
+        requests.increment();
+        if (error) {
+            errors.increment();
+        }
+        int statusClass = status / 100;
+        statuses[statusClass > 0 && statusClass < statuses.length ? statusClass : 0].increment();
+        latencies[Phase.TOTAL.ordinal()].record(nanos);
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public RequestMethod getMethod() {
+        return method;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * 执行过程中抛出异常的请求数
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * 正在处理的请求数
+     */
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    /**
+     * 得到某一类状态码的请求数
+     * @param statusClass 状态码的类别，1~5，0表示无法识别的状态码
+     * @return
+     */
+    public long getStatusCount(int statusClass) {
+        return statuses[statusClass].sum();
+    }
+
+    public LatencyHistogram getLatency(Phase phase) {
+        return latencies[phase.ordinal()];
+    }
+}
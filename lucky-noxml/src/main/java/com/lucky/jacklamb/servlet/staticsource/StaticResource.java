@@ -0,0 +1,229 @@
+package com.lucky.jacklamb.servlet.staticsource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 静态资源缓存中的一个条目，保存资源的元数据(长度、最后修改时间、ETag)，
+ * 小文件同时保存文件内容，大文件只保存位置，响应时通过sendfile或FileChannel直接传输<br>
+ * 条目创建后不会再被修改，文件发生变化时会生成新的条目替换旧的条目
+ *
+ * @author fk-7075
+ */
+public final class StaticResource {
+
+    private final String name;
+
+    private final String contentType;
+
+    /**
+     * 文件系统中的资源，jar包中的资源为null
+     */
+    private final File file;
+
+    /**
+     * jar包中的资源，文件系统中的资源为null
+     */
+    private final URL url;
+
+    private final long length;
+
+    /**
+     * 最后修改时间，精确到秒(与Last-Modified和If-Modified-Since的精度一致)
+     */
+    private final long lastModified;
+
+    /**
+     * 文件系统中记录的原始修改时间，用于判断文件是否发生了变化
+     */
+    private final long rawLastModified;
+
+    private final String etag;
+
+    /**
+     * 缓存在内存中的内容，没有缓存时为null
+     */
+    private final byte[] content;
+
+    /**
+     * 预压缩的.gz文件
+     */
+    private final StaticResource gzip;
+
+    /**
+     * 预压缩的.br文件
+     */
+    private final StaticResource brotli;
+
+    /**
+     * 下一次检查文件是否发生变化的时间
+     */
+    private volatile long nextCheck;
+
+    /**
+     * 最后一次被访问的时间，缓存容量不足时优先淘汰最久没有被访问的条目
+     */
+    private volatile long lastAccess;
+
+    StaticResource(String name, String contentType, File file, URL url, long length, long rawLastModified,
+                   byte[] content, StaticResource gzip, StaticResource brotli, String etagSuffix) {
+        this.name = name;
+        this.contentType = contentType;
+        this.file = file;
+        this.url = url;
+        this.length = length;
+        this.rawLastModified = rawLastModified;
+        this.lastModified = rawLastModified / 1000 * 1000;
+        this.etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(rawLastModified) + etagSuffix + "\"";
+        this.content = content;
+        this.gzip = gzip;
+        this.brotli = brotli;
+    }
+
+    /**
+     * 为文件创建一个不缓存内容的静态资源，用于文件的下载和预览
+     * @param file 文件
+     * @return
+     */
+    public static StaticResource forFile(File file) {
+        String name = file.getName();
+        return new StaticResource(name, StaticResourceManage.getContentType(name), file, null,
+                file.length(), file.lastModified(), null, null, null, "");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public boolean isCached() {
+        return content != null;
+    }
+
+    StaticResource getGzip() {
+        return gzip;
+    }
+
+    StaticResource getBrotli() {
+        return brotli;
+    }
+
+    long getRawLastModified() {
+        return rawLastModified;
+    }
+
+    long getNextCheck() {
+        return nextCheck;
+    }
+
+    void setNextCheck(long nextCheck) {
+        this.nextCheck = nextCheck;
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    void touch(long now) {
+        lastAccess = now;
+    }
+
+    /**
+     * 该条目(包括预压缩文件)在缓存中占用的字节数
+     */
+    long weight() {
+        long weight = content == null ? 0 : content.length;
+        if (gzip != null) {
+            weight += gzip.weight();
+        }
+        if (brotli != null) {
+            weight += brotli.weight();
+        }
+        return weight;
+    }
+
+    /**
+     * 将资源中从start开始的count个字节写入输出流
+     * @param out 输出流
+     * @param start 开始位置
+     * @param count 字节数
+     * @throws IOException
+     */
+    public void writeTo(OutputStream out, long start, long count) throws IOException {
+        if (content != null) {
+            out.write(content, (int) start, (int) count);
+            return;
+        }
+        if (file != null) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long position = start;
+                long end = start + count;
+                while (position < end) {
+                    long transferred = channel.transferTo(position, end - position, target);
+                    if (transferred <= 0) {
+                        throw new IOException("静态资源在传输过程中被修改：" + file);
+                    }
+                    position += transferred;
+                }
+            }
+            return;
+        }
+        try (InputStream in = openStream(url)) {
+            long skip = start;
+            while (skip > 0) {
+                long skipped = in.skip(skip);
+                if (skipped <= 0) {
+                    throw new IOException("静态资源在传输过程中被修改：" + url);
+                }
+                skip -= skipped;
+            }
+            byte[] buffer = new byte[8192];
+            long remaining = count;
+            while (remaining > 0) {
+                int len = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (len < 0) {
+                    throw new IOException("静态资源在传输过程中被修改：" + url);
+                }
+                out.write(buffer, 0, len);
+                remaining -= len;
+            }
+        }
+    }
+
+    /**
+     * 打开jar包中资源的输入流，不使用JarURLConnection的缓存，避免jar文件被长期占用
+     */
+    static InputStream openStream(URL url) throws IOException {
+        URLConnection conn = url.openConnection();
+        conn.setUseCaches(false);
+        return conn.getInputStream();
+    }
+}
@@ -0,0 +1,269 @@
+package com.lucky.jacklamb.servlet.staticsource;
+
+import com.lucky.jacklamb.ioc.ApplicationBeans;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 静态资源缓存<br>
+ * 1.缓存资源的元数据，文件系统中的资源最多每{@link #REVALIDATE_INTERVAL}ms检查一次是否发生了变化，jar包中的资源不会变化<br>
+ * 2.不超过单个文件大小限制的资源内容会被缓存在内存中，所有缓存内容的总大小超过限制时淘汰最久没有被访问的条目<br>
+ * 3.同时查找并缓存同名的预压缩文件(xxx.gz和xxx.br)<br>
+ * 不存在的资源不会被缓存，避免大量无效请求占用内存
+ *
+ * @author fk-7075
+ */
+public class StaticResourceCache {
+
+    private static final Logger log = LogManager.getLogger(StaticResourceCache.class);
+
+    /**
+     * 检查文件是否发生变化的时间间隔(单位：ms)
+     */
+    public static final long REVALIDATE_INTERVAL = 1000;
+
+    private static final String CLASSPATH_PREFIX = "classpath:";
+
+    private final Map<String, StaticResource> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong cachedBytes = new AtomicLong();
+
+    /**
+     * 所有缓存内容的总大小限制(单位：byte)
+     */
+    private final long maxSize;
+
+    /**
+     * 单个文件的大小限制(单位：byte)，超过限制的文件不会缓存内容
+     */
+    private final long maxFileSize;
+
+    /**
+     * @param maxSize 所有缓存内容的总大小限制(单位：byte)，小于等于0时不缓存内容
+     * @param maxFileSize 单个文件的大小限制(单位：byte)
+     */
+    public StaticResourceCache(long maxSize, long maxFileSize) {
+        this.maxSize = maxSize;
+        this.maxFileSize = maxSize <= 0 ? -1 : Math.min(maxSize, maxFileSize);
+    }
+
+    /**
+     * 得到文件系统中的静态资源
+     * @param file 文件
+     * @return 文件不存在时返回null
+     * @throws IOException
+     */
+    public StaticResource getFile(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        long now = System.currentTimeMillis();
+        StaticResource resource = entries.get(key);
+        if (resource != null && !isStale(resource, now)) {
+            resource.touch(now);
+            return resource;
+        }
+        return load(key, file, now);
+    }
+
+    /**
+     * 得到classpath中的静态资源
+     * @param path 资源在classpath中的路径(以"/"开头)
+     * @return 资源不存在时返回null
+     * @throws IOException
+     */
+    public StaticResource getClasspath(String path) throws IOException {
+        String key = CLASSPATH_PREFIX + path;
+        long now = System.currentTimeMillis();
+        StaticResource resource = entries.get(key);
+        if (resource != null && !isStale(resource, now)) {
+            resource.touch(now);
+            return resource;
+        }
+        URL url = ApplicationBeans.class.getResource(path);
+        if (url == null) {
+            remove(key);
+            return null;
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return load(key, new File(url.toURI()), now);
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                //无法转换为File时按jar包中的资源处理
+            }
+        }
+        resource = loadUrl(url, path, "");
+        if (resource == null) {
+            remove(key);
+            return null;
+        }
+        resource.setNextCheck(Long.MAX_VALUE);
+        return put(key, resource, now);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        for (String key : new ArrayList<>(entries.keySet())) {
+            remove(key);
+        }
+    }
+
+    /**
+     * 当前缓存在内存中的内容大小(单位：byte)
+     */
+    public long getCachedBytes() {
+        return cachedBytes.get();
+    }
+
+    private boolean isStale(StaticResource resource, long now) {
+        if (now < resource.getNextCheck()) {
+            return false;
+        }
+        File file = resource.getFile();
+        if (isModified(resource, file) || isModified(resource.getGzip(), new File(file.getPath() + ".gz"))
+                || isModified(resource.getBrotli(), new File(file.getPath() + ".br"))) {
+            return true;
+        }
+        resource.setNextCheck(now + REVALIDATE_INTERVAL);
+        return false;
+    }
+
+    private static boolean isModified(StaticResource resource, File file) {
+        if (resource == null) {
+            return file.exists();
+        }
+        return file.lastModified() != resource.getRawLastModified() || file.length() != resource.getLength();
+    }
+
+    private StaticResource load(String key, File file, long now) throws IOException {
+        StaticResource resource = loadFile(file, "", true);
+        if (resource == null) {
+            remove(key);
+            return null;
+        }
+        resource.setNextCheck(now + REVALIDATE_INTERVAL);
+        return put(key, resource, now);
+    }
+
+    private StaticResource loadFile(File file, String etagSuffix, boolean variants) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        long lastModified = file.lastModified();
+        long length = file.length();
+        byte[] content = null;
+        if (length <= maxFileSize) {
+            content = Files.readAllBytes(file.toPath());
+            length = content.length;
+        }
+        StaticResource gzip = null;
+        StaticResource brotli = null;
+        if (variants) {
+            gzip = loadFile(new File(file.getPath() + ".gz"), "-gz", false);
+            brotli = loadFile(new File(file.getPath() + ".br"), "-br", false);
+        }
+        String name = file.getName();
+        return new StaticResource(name, StaticResourceManage.getContentType(name), file, null,
+                length, lastModified, content, gzip, brotli, etagSuffix);
+    }
+
+    private StaticResource loadUrl(URL url, String path, String etagSuffix) throws IOException {
+        URLConnection conn = url.openConnection();
+        conn.setUseCaches(false);
+        long length;
+        long lastModified;
+        byte[] content = null;
+        try (InputStream in = conn.getInputStream()) {
+            length = conn.getContentLengthLong();
+            lastModified = conn.getLastModified();
+            if (length < 0 || length <= maxFileSize) {
+                content = readAll(in);
+                length = content.length;
+                if (length > maxFileSize) {
+                    content = null;
+                }
+            }
+        }
+        StaticResource gzip = null;
+        StaticResource brotli = null;
+        if (etagSuffix.isEmpty()) {
+            URL gzipUrl = ApplicationBeans.class.getResource(path + ".gz");
+            URL brotliUrl = ApplicationBeans.class.getResource(path + ".br");
+            gzip = gzipUrl == null ? null : loadUrl(gzipUrl, path + ".gz", "-gz");
+            brotli = brotliUrl == null ? null : loadUrl(brotliUrl, path + ".br", "-br");
+        }
+        String name = path.substring(path.lastIndexOf("/") + 1);
+        return new StaticResource(name, StaticResourceManage.getContentType(name), null, url,
+                length, lastModified, content, gzip, brotli, etagSuffix);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+        return out.toByteArray();
+    }
+
+    private StaticResource put(String key, StaticResource resource, long now) {
+        resource.touch(now);
+        StaticResource previous = entries.put(key, resource);
+        long weight = resource.weight() - (previous == null ? 0 : previous.weight());
+        if (cachedBytes.addAndGet(weight) > maxSize && weight > 0) {
+            evict();
+        }
+        return resource;
+    }
+
+    private void remove(String key) {
+        StaticResource previous = entries.remove(key);
+        if (previous != null) {
+            cachedBytes.addAndGet(-previous.weight());
+        }
+    }
+
+    /**
+     * 淘汰最久没有被访问的条目，直到缓存内容的总大小不超过限制
+     */
+    private synchronized void evict() {
+        if (cachedBytes.get() <= maxSize) {
+            return;
+        }
+        List<Map.Entry<String, StaticResource>> candidates = new ArrayList<>();
+        for (Map.Entry<String, StaticResource> entry : entries.entrySet()) {
+            if (entry.getValue().weight() > 0) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(e -> e.getValue().getLastAccess()));
+        int evicted = 0;
+        for (Map.Entry<String, StaticResource> entry : candidates) {
+            if (cachedBytes.get() <= maxSize) {
+                break;
+            }
+            StaticResource resource = entry.getValue();
+            if (entries.remove(entry.getKey(), resource)) {
+                cachedBytes.addAndGet(-resource.weight());
+                evicted++;
+            }
+        }
+        log.debug("静态资源缓存超过容量限制，淘汰了" + evicted + "个条目，当前缓存大小：" + cachedBytes.get() + "byte");
+    }
+}
@@ -2,29 +2,55 @@ package com.lucky.jacklamb.servlet.staticsource;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import com.lucky.jacklamb.enums.Code;
 import com.lucky.jacklamb.ioc.ApplicationBeans;
 import com.lucky.jacklamb.ioc.config.AppConfig;
 import com.lucky.jacklamb.ioc.config.WebConfig;
 import com.lucky.jacklamb.servlet.core.Model;
-import com.lucky.jacklamb.utils.file.FileUtils;
+import com.lucky.jacklamb.utils.base.IpAddress;
+import com.lucky.jacklamb.utils.base.IpFilter;
+import com.lucky.jacklamb.utils.base.StaticFile;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
- * 静态资源管理器
+ * 静态资源管理器，静态资源通过{@link StaticResourceCache}缓存，
+ * 支持ETag/Last-Modified协商缓存、Range请求、预压缩文件和sendfile
  * @author fk-7075
  */
 public class StaticResourceManage {
 
+    private static final Logger log = LogManager.getLogger(StaticResourceManage.class);
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * 一个请求中最多允许的Range个数，超过时忽略Range响应整个文件
+     */
+    private static final int MAX_RANGES = 16;
+
     private static Map<String,String> contentTypeMap;
     private static final String WebRoot=AppConfig.getAppConfig().getWebConfig().getWebRoot();
     private static String WEB_ROOT_PREFIX;
     private static String TARGET_WEB_ROOT;
+    private static final StaticResourceCache cache = new StaticResourceCache(
+            AppConfig.getAppConfig().getWebConfig().getStaticResourceCacheSize() * 1024,
+            AppConfig.getAppConfig().getWebConfig().getStaticResourceCacheFileSize() * 1024);
+    private static final IpFilter staticIpFilter = IpFilter.compile(AppConfig.getAppConfig().getWebConfig().getStaticResourcesIpRestrict());
 
     static{
         try {
@@ -60,16 +86,26 @@ public class StaticResourceManage {
     }
 
     public static boolean isLegalIp(WebConfig webCfg, String currIp) {
-        if (!webCfg.getStaticResourcesIpRestrict().isEmpty() && !webCfg.getStaticResourcesIpRestrict().contains(currIp)) {
-            return false;
-        }
-        return true;
+        return staticIpFilter.isLegal(currIp);
+    }
+
+    /**
+     * 判断IP是否可以访问静态资源(staticResourcesIpRestrict在启动时编译)
+     * @param ip 解析后的IP，无法解析的IP为null
+     * @return
+     */
+    public static boolean isLegalIp(IpAddress ip) {
+        return staticIpFilter.isLegal(ip);
     }
 
     public static boolean isLegalRequest(WebConfig webCfg, String currIp, HttpServletResponse resp, String uri) {
         return isLegalIp(webCfg, currIp) && isStaticResource(resp, uri);
     }
 
+    public static boolean isLegalRequest(IpAddress ip, HttpServletResponse resp, String uri) {
+        return isLegalIp(ip) && isStaticResource(resp, uri);
+    }
+
     public static boolean isStaticResource(HttpServletResponse resp, String uri) {
         if(!uri.contains(".")) {
             return false;
@@ -83,47 +119,314 @@ public class StaticResourceManage {
         return false;
     }
 
+    /**
+     * 得到文件名对应的Content-Type
+     * @param fileName 文件名
+     * @return 未知格式的文件返回application/octet-stream
+     */
+    public static String getContentType(String fileName) {
+        int index = fileName.lastIndexOf(".");
+        String contentType = index < 0 ? null : contentTypeMap.get(fileName.substring(index).toLowerCase());
+        return contentType == null ? "application/octet-stream" : contentType;
+    }
+
     public static boolean resources(Model model, String uri){
         //uri /xxx/xxx
-        if(docBaseFileIsExist(model,uri)) {
-            return true;
+        try {
+            return lookup(model, uri) != null;
+        } catch (IOException e) {
+            log.error("静态资源读取失败：" + uri, e);
+            return false;
+        }
+    }
+
+    /**
+     * 在docBase和静态文件的根目录中查找静态资源(优先使用docBase中的资源)
+     * @param model Model对象
+     * @param uri 资源的uri
+     * @return 资源不存在时返回null
+     * @throws IOException
+     */
+    public static StaticResource lookup(Model model, String uri) throws IOException {
+        if (!isSafePath(uri)) {
+            return null;
+        }
+        if (model.docBaseIsExist()) {
+            String realPath = model.getRealPath(uri);
+            StaticResource resource = realPath == null ? null : cache.getFile(new File(realPath));
+            if (resource != null) {
+                return resource;
+            }
         }
         switch (WEB_ROOT_PREFIX){
-            case "CP" :return ApplicationBeans.class.getResourceAsStream(TARGET_WEB_ROOT+uri)!=null;
-            case "DB" :return model.getRealFile(TARGET_WEB_ROOT+uri)!=null;
-            default   :return new File(TARGET_WEB_ROOT+uri).exists();
+            case "CP" :return cache.getClasspath(TARGET_WEB_ROOT+uri);
+            case "DB" :{
+                String realPath = model.getRealPath(TARGET_WEB_ROOT+uri);
+                return realPath == null ? null : cache.getFile(new File(realPath));
+            }
+            default   :return cache.getFile(new File(TARGET_WEB_ROOT+uri));
         }
     }
 
-    private static boolean docBaseFileIsExist(Model model, String uri){
-        if(model.docBaseIsExist()){
-            return model.getRealFile(uri).exists();
+    /**
+     * uri中不能出现上级目录和反斜杠，防止访问静态文件根目录以外的文件
+     */
+    private static boolean isSafePath(String uri) {
+        if (uri.indexOf('\\') >= 0 || uri.indexOf('\0') >= 0) {
+            return false;
         }
-        return false;
+        for (String segment : uri.split("/")) {
+            if ("..".equals(segment)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public static void response(Model model, String uri) throws IOException {
-        if(docBaseFileIsExist(model,uri)){
-            FileUtils.preview(model, model.getRealFile(uri));
+        StaticResource resource = lookup(model, uri);
+        if (resource == null) {
+            model.error(Code.NOTFOUND,"服务器中找不到资源文件 "+uri+"！","找不到资源 "+uri);
             return;
         }
-        switch (WEB_ROOT_PREFIX){
-            case "CP" :{
-                InputStream staticStream=ApplicationBeans.class.getResourceAsStream(TARGET_WEB_ROOT+uri);
-                FileUtils.preview(model,staticStream,uri.substring(uri.lastIndexOf("/")));
-                break;
+        response(model, resource);
+    }
+
+    /**
+     * 响应网站图标，优先使用classpath下的/conf/favicon.ico
+     * @param model Model对象
+     * @throws IOException
+     */
+    public static void favicon(Model model) throws IOException {
+        StaticResource favicon = cache.getClasspath(StaticFile.USER_ICO_FILE);
+        if (favicon == null) {
+            favicon = cache.getClasspath(StaticFile.ICO_FILE);
+        }
+        response(model, favicon);
+    }
+
+    /**
+     * 响应静态资源<br>
+     * 1.If-None-Match和If-Modified-Since条件命中时返回304<br>
+     * 2.GET和HEAD请求支持单个和多个Range，无法满足的Range返回416<br>
+     * 3.客户端支持时使用预压缩的.br或.gz文件<br>
+     * 4.没有缓存在内存中的文件在连接器支持时使用sendfile传输
+     * @param model Model对象
+     * @param resource 静态资源
+     * @throws IOException
+     */
+    public static void response(Model model, StaticResource resource) throws IOException {
+        HttpServletRequest req = model.getRequest();
+        HttpServletResponse resp = model.getResponse();
+        String method = req.getMethod();
+        boolean head = "HEAD".equals(method);
+        boolean getOrHead = head || "GET".equals(method);
+        String range = getOrHead ? req.getHeader("Range") : null;
+        StaticResource representation = range == null ? selectEncoding(req, resource) : resource;
+        if (resource.getGzip() != null || resource.getBrotli() != null) {
+            resp.setHeader("Vary", "Accept-Encoding");
+        }
+        resp.setContentType(resource.getContentType());
+        resp.setHeader("ETag", representation.getEtag());
+        resp.setDateHeader("Last-Modified", resource.getLastModified());
+        resp.setHeader("Accept-Ranges", "bytes");
+        if (getOrHead && notModified(req, resource, representation)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        if (representation == resource.getBrotli()) {
+            resp.setHeader("Content-Encoding", "br");
+        } else if (representation == resource.getGzip()) {
+            resp.setHeader("Content-Encoding", "gzip");
+        }
+        long length = representation.getLength();
+        List<long[]> ranges = range == null ? null : parseRanges(req, range, resource);
+        if (ranges == null) {
+            resp.setContentLengthLong(length);
+            if (!head) {
+                transfer(req, resp, representation, 0, length);
             }
-            case "DB" :{
-                File staticFile=model.getRealFile(TARGET_WEB_ROOT+uri);
-                FileUtils.preview(model, staticFile);
-                break;
+            return;
+        }
+        if (ranges.isEmpty()) {
+            resp.setHeader("Content-Range", "bytes */" + length);
+            resp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            long[] r = ranges.get(0);
+            resp.setHeader("Content-Range", "bytes " + r[0] + "-" + r[1] + "/" + length);
+            resp.setContentLengthLong(r[1] - r[0] + 1);
+            if (!head) {
+                transfer(req, resp, representation, r[0], r[1] - r[0] + 1);
+            }
+            return;
+        }
+        multipartRanges(resp, representation, ranges, head);
+    }
+
+    /**
+     * 根据Accept-Encoding选择预压缩文件，br优先
+     */
+    private static StaticResource selectEncoding(HttpServletRequest req, StaticResource resource) {
+        if (resource.getGzip() == null && resource.getBrotli() == null) {
+            return resource;
+        }
+        String acceptEncoding = req.getHeader("Accept-Encoding");
+        if (acceptEncoding == null) {
+            return resource;
+        }
+        boolean br = false;
+        boolean gzip = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] params = coding.split(";");
+            String name = params[0].trim().toLowerCase();
+            if (params.length > 1 && params[1].trim().matches("q\\s*=\\s*0(\\.0*)?")) {
+                continue;
             }
-            default: {
-                File staticFile=new File(TARGET_WEB_ROOT+uri);
-                FileUtils.preview(model, staticFile);
-                break;
+            br = br || "br".equals(name);
+            gzip = gzip || "gzip".equals(name);
+        }
+        if (br && resource.getBrotli() != null) {
+            return resource.getBrotli();
+        }
+        if (gzip && resource.getGzip() != null) {
+            return resource.getGzip();
+        }
+        return resource;
+    }
+
+    /**
+     * 判断客户端缓存的资源是否仍然有效，If-None-Match存在时忽略If-Modified-Since
+     */
+    private static boolean notModified(HttpServletRequest req, StaticResource resource, StaticResource representation) {
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if ("*".equals(tag) || representation.getEtag().equals(tag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = getDateHeader(req, "If-Modified-Since");
+        return ifModifiedSince != -1 && resource.getLastModified() <= ifModifiedSince;
+    }
+
+    /**
+     * 解析Range请求头
+     * @return 需要忽略Range时返回null，所有Range都无法满足时返回空集合
+     */
+    private static List<long[]> parseRanges(HttpServletRequest req, String range, StaticResource resource) {
+        String ifRange = req.getHeader("If-Range");
+        if (ifRange != null) {
+            ifRange = ifRange.trim();
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                if (!ifRange.equals(resource.getEtag())) {
+                    return null;
+                }
+            } else if (getDateHeader(req, "If-Range") != resource.getLastModified()) {
+                return null;
             }
         }
+        if (!range.startsWith("bytes=")) {
+            return null;
+        }
+        long length = resource.getLength();
+        List<long[]> ranges = new ArrayList<>();
+        for (String spec : range.substring(6).split(",")) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            long start;
+            long end;
+            try {
+                if (dash == 0) {
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix <= 0 || length == 0) {
+                        continue;
+                    }
+                    start = Math.max(0, length - suffix);
+                    end = length - 1;
+                } else {
+                    start = Long.parseLong(spec.substring(0, dash));
+                    String last = spec.substring(dash + 1);
+                    end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                    if (start < 0 || end < start) {
+                        return null;
+                    }
+                    if (start >= length) {
+                        continue;
+                    }
+                    end = Math.min(end, length - 1);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (ranges.size() == MAX_RANGES) {
+                return null;
+            }
+            ranges.add(new long[]{start, end});
+        }
+        return ranges;
+    }
+
+    private static long getDateHeader(HttpServletRequest req, String name) {
+        try {
+            return req.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 以multipart/byteranges的格式响应多个Range
+     */
+    private static void multipartRanges(HttpServletResponse resp, StaticResource resource, List<long[]> ranges, boolean head) throws IOException {
+        String boundary = "LUCKY_BYTERANGES_" + Long.toHexString(System.nanoTime());
+        List<byte[]> partHeads = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (long[] r : ranges) {
+            byte[] partHead = ("\r\n--" + boundary + "\r\nContent-Type: " + resource.getContentType()
+                    + "\r\nContent-Range: bytes " + r[0] + "-" + r[1] + "/" + resource.getLength() + "\r\n\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1);
+            partHeads.add(partHead);
+            contentLength += partHead.length + r[1] - r[0] + 1;
+        }
+        byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        contentLength += end.length;
+        resp.setContentType("multipart/byteranges; boundary=" + boundary);
+        resp.setContentLengthLong(contentLength);
+        if (head) {
+            return;
+        }
+        ServletOutputStream out = resp.getOutputStream();
+        for (int i = 0; i < ranges.size(); i++) {
+            long[] r = ranges.get(i);
+            out.write(partHeads.get(i));
+            resource.writeTo(out, r[0], r[1] - r[0] + 1);
+        }
+        out.write(end);
+    }
+
+    /**
+     * 传输资源内容，没有缓存在内存中的文件在连接器支持时交给Tomcat使用sendfile传输
+     */
+    private static void transfer(HttpServletRequest req, HttpServletResponse resp, StaticResource resource, long start, long count) throws IOException {
+        if (!resource.isCached() && resource.getFile() != null && Boolean.TRUE.equals(req.getAttribute(SENDFILE_SUPPORT))) {
+            req.setAttribute(SENDFILE_FILENAME, resource.getFile().getAbsolutePath());
+            req.setAttribute(SENDFILE_START, start);
+            req.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        resource.writeTo(resp.getOutputStream(), start, count);
     }
 
 }
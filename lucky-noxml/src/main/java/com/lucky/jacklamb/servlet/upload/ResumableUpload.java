@@ -0,0 +1,203 @@
+package com.lucky.jacklamb.servlet.upload;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 一个断点续传的上传任务<br>
+ * 文件内容保存在xxx.data中，已经接收的区间记录在xxx.journal中(追加写入)，服务重启后可以通过日志恢复上传进度<br>
+ * 日志格式：头部(魔数、文件大小、文件名)，之后每条记录为两个long表示的区间[start,end)，区间为[-1,-1]时表示上传已经完成
+ *
+ * @author fk-7075
+ */
+public final class ResumableUpload {
+
+    private static final String MAGIC = "LUCKY-RESUMABLE";
+
+    private final String id;
+
+    private final String fileName;
+
+    private final long length;
+
+    private final File dataFile;
+
+    private final File journalFile;
+
+    /**
+     * 已经接收的区间(start->end)，相邻和重叠的区间会被合并
+     */
+    private final TreeMap<Long, Long> ranges = new TreeMap<>();
+
+    private long received;
+
+    private boolean complete;
+
+    private ResumableUpload(String id, String fileName, long length, File dataFile, File journalFile) {
+        this.id = id;
+        this.fileName = fileName;
+        this.length = length;
+        this.dataFile = dataFile;
+        this.journalFile = journalFile;
+    }
+
+    /**
+     * 创建上传任务，预先分配文件空间并写入日志头部
+     */
+    static ResumableUpload create(File folder, String id, String fileName, long length) throws IOException {
+        ResumableUpload upload = new ResumableUpload(id, fileName, length, new File(folder, id + ".data"), new File(folder, id + ".journal"));
+        try (RandomAccessFile data = new RandomAccessFile(upload.dataFile, "rw")) {
+            data.setLength(length);
+        }
+        try (DataOutputStream journal = new DataOutputStream(new FileOutputStream(upload.journalFile))) {
+            journal.writeUTF(MAGIC);
+            journal.writeLong(length);
+            journal.writeUTF(fileName);
+        }
+        return upload;
+    }
+
+    /**
+     * 通过日志恢复上传任务
+     * @return 日志不存在或已损坏时返回null
+     */
+    static ResumableUpload load(File folder, String id) throws IOException {
+        File journalFile = new File(folder, id + ".journal");
+        File dataFile = new File(folder, id + ".data");
+        if (!journalFile.isFile() || !dataFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream journal = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            if (!MAGIC.equals(journal.readUTF())) {
+                return null;
+            }
+            long length = journal.readLong();
+            ResumableUpload upload = new ResumableUpload(id, journal.readUTF(), length, dataFile, journalFile);
+            try {
+                while (true) {
+                    long start = journal.readLong();
+                    long end = journal.readLong();
+                    if (start == -1 && end == -1) {
+                        upload.complete = true;
+                    } else {
+                        upload.merge(start, end);
+                    }
+                }
+            } catch (EOFException e) {
+                //日志结束(最后一条记录可能只写了一半，直接忽略)
+            }
+            return upload;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    File getDataFile() {
+        return dataFile;
+    }
+
+    File getJournalFile() {
+        return journalFile;
+    }
+
+    public synchronized long getReceived() {
+        return received;
+    }
+
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * 所有数据是否都已经接收
+     */
+    public synchronized boolean isReceived() {
+        return received == length;
+    }
+
+    /**
+     * 记录接收到的区间，同时追加到日志中
+     * @param start 开始位置
+     * @param end 结束位置(不包含)
+     * @throws IOException
+     */
+    synchronized void received(long start, long end) throws IOException {
+        if (end <= start) {
+            return;
+        }
+        append(start, end);
+        merge(start, end);
+    }
+
+    /**
+     * 标记上传完成，同时追加到日志中
+     */
+    synchronized void markComplete() throws IOException {
+        if (!complete) {
+            append(-1, -1);
+            complete = true;
+        }
+    }
+
+    /**
+     * 已经接收的区间，格式：0-1023,4096-8191(包含结束位置)
+     */
+    public synchronized String getRangesHeader() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(range.getKey()).append('-').append(range.getValue() - 1);
+        }
+        return sb.toString();
+    }
+
+    private void append(long start, long end) throws IOException {
+        try (DataOutputStream journal = new DataOutputStream(new FileOutputStream(journalFile, true))) {
+            journal.writeLong(start);
+            journal.writeLong(end);
+        }
+    }
+
+    private void merge(long start, long end) {
+        Map.Entry<Long, Long> floor = ranges.floorEntry(start);
+        if (floor != null && floor.getValue() >= start) {
+            start = floor.getKey();
+            end = Math.max(end, floor.getValue());
+        }
+        Map.Entry<Long, Long> next = ranges.ceilingEntry(start);
+        while (next != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            ranges.remove(next.getKey());
+            next = ranges.ceilingEntry(start);
+        }
+        ranges.put(start, end);
+        long total = 0;
+        for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+            total += range.getValue() - range.getKey();
+        }
+        received = total;
+    }
+}
@@ -0,0 +1,361 @@
+package com.lucky.jacklamb.servlet.upload;
+
+import com.lucky.jacklamb.enums.Code;
+import com.lucky.jacklamb.enums.RequestMethod;
+import com.lucky.jacklamb.ioc.config.AppConfig;
+import com.lucky.jacklamb.ioc.config.WebConfig;
+import com.lucky.jacklamb.servlet.core.Model;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 断点续传管理器，在WebConfig中开启后由LuckyDispatcherServlet处理以下请求(path为resumableUploadPath)：<br>
+ * 1.POST   path      创建上传任务，请求头Upload-Length为文件大小，Upload-Name为文件名(URL编码)，返回201和Upload-Id<br>
+ * 2.PATCH  path{id}  上传一个分片，请求头Upload-Offset为分片在文件中的位置，分片可以乱序、并行上传<br>
+ * 3.HEAD   path{id}  查询上传进度，Upload-Received为已经接收的字节数，Upload-Ranges为已经接收的区间<br>
+ * 4.POST   path{id}  完成上传，所有分片都已经接收时返回200，否则返回409和Upload-Ranges<br>
+ * 5.DELETE path{id}  取消上传<br>
+ * 完成上传后，将Upload-Id作为参数值传给Controller方法中同名的MultipartFile或File参数即可得到上传的文件
+ *
+ * @author fk-7075
+ */
+public class ResumableUploadManage {
+
+    private static final Logger log = LogManager.getLogger(ResumableUploadManage.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 未完成的上传任务的过期时间(单位：ms)
+     */
+    private static final long EXPIRE = 24 * 60 * 60 * 1000L;
+
+    private static volatile ResumableUploadManage resumableUploadManage;
+
+    private final Map<String, ResumableUpload> uploads = new ConcurrentHashMap<>();
+
+    private final String path;
+
+    private final File folder;
+
+    /**
+     * 文件大小限制(单位：byte)
+     */
+    private final long maxSize;
+
+    private volatile long nextSweep;
+
+    private ResumableUploadManage(WebConfig webCfg) {
+        String uploadPath = webCfg.getResumableUploadPath();
+        this.path = uploadPath.endsWith("/") ? uploadPath : uploadPath + "/";
+        this.folder = new File(webCfg.getResumableUploadFolder());
+        this.maxSize = webCfg.getResumableUploadMaxSize() * 1024;
+        if (!folder.exists()) {
+            folder.mkdirs();
+        }
+    }
+
+    /**
+     * 得到断点续传管理器
+     * @return 没有开启断点续传时返回null
+     */
+    public static ResumableUploadManage getResumableUploadManage() {
+        WebConfig webCfg = AppConfig.getAppConfig().getWebConfig();
+        if (!webCfg.isOpenResumableUpload()) {
+            return null;
+        }
+        if (resumableUploadManage == null) {
+            synchronized (ResumableUploadManage.class) {
+                if (resumableUploadManage == null) {
+                    resumableUploadManage = new ResumableUploadManage(webCfg);
+                }
+            }
+        }
+        return resumableUploadManage;
+    }
+
+    /**
+     * 判断请求是否为断点续传协议的请求
+     * @param uri 请求的uri(不包含ContextPath)
+     * @return
+     */
+    public boolean isUploadRequest(String uri) {
+        return uri.startsWith(path) || uri.equals(path.substring(0, path.length() - 1));
+    }
+
+    /**
+     * 处理断点续传协议的请求
+     * @param model Model对象
+     * @param method 请求方法
+     * @param uri 请求的uri(不包含ContextPath)
+     * @throws IOException
+     */
+    public void handle(Model model, RequestMethod method, String uri) throws IOException {
+        String id = uri.length() > path.length() ? uri.substring(path.length()) : "";
+        if (id.isEmpty()) {
+            if (method == RequestMethod.POST) {
+                create(model);
+            } else {
+                fail(model, Code.BAD_REQUEST, "不支持的断点续传请求：" + method + " " + uri);
+            }
+            return;
+        }
+        ResumableUpload upload = get(id);
+        if (upload == null) {
+            fail(model, Code.NOTFOUND, "断点续传的上传任务" + id + "不存在或已经过期！");
+            return;
+        }
+        switch (method) {
+            case PATCH:
+                patch(model, upload);
+                break;
+            case HEAD:
+                progress(model.getResponse(), upload);
+                break;
+            case POST:
+                complete(model, upload);
+                break;
+            case DELETE:
+                remove(upload);
+                model.getResponse().setStatus(HttpServletResponse.SC_NO_CONTENT);
+                break;
+            default:
+                fail(model, Code.BAD_REQUEST, "不支持的断点续传请求：" + method + " " + uri);
+        }
+    }
+
+    /**
+     * 取出已经完成的上传任务，之后该任务不能再继续使用，上传的文件由调用者负责处理
+     * @param id 上传任务的id
+     * @return 任务不存在或者还没有完成时返回null
+     * @throws IOException
+     */
+    public File take(String id) throws IOException {
+        ResumableUpload upload = get(id);
+        if (upload == null || !upload.isComplete()) {
+            return null;
+        }
+        synchronized (upload) {
+            if (uploads.remove(id, upload)) {
+                String fileName = upload.getFileName();
+                int index = fileName.lastIndexOf(".");
+                String suffix = index < 0 ? "" : fileName.substring(index);
+                File file = new File(folder, fileName.substring(0, fileName.length() - suffix.length()) + "_" + id + suffix);
+                if (!upload.getDataFile().renameTo(file)) {
+                    file = upload.getDataFile();
+                }
+                upload.getJournalFile().delete();
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 得到上传任务的原始文件名
+     * @param file take方法返回的文件
+     * @param id 上传任务的id
+     * @return
+     */
+    public static String originalFileName(File file, String id) {
+        return file.getName().replace("_" + id, "");
+    }
+
+    private void create(Model model) throws IOException {
+        HttpServletRequest req = model.getRequest();
+        long length;
+        try {
+            length = Long.parseLong(req.getHeader("Upload-Length"));
+        } catch (NumberFormatException e) {
+            fail(model, Code.BAD_REQUEST, "创建断点续传任务时必须使用Upload-Length请求头指定文件大小！");
+            return;
+        }
+        if (length < 0) {
+            fail(model, Code.BAD_REQUEST, "不合法的文件大小：" + length);
+            return;
+        }
+        if (length > maxSize) {
+            fail(model, Code.TOO_LARGE, "文件超过断点续传的最大上传限制：" + maxSize / 1024 + "kb");
+            return;
+        }
+        String fileName = req.getHeader("Upload-Name");
+        fileName = fileName == null ? "upload" : URLDecoder.decode(fileName, "UTF-8");
+        fileName = fileName.substring(Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')) + 1);
+        sweep();
+        String id = UUID.randomUUID().toString().replace("-", "");
+        ResumableUpload upload = ResumableUpload.create(folder, id, fileName, length);
+        uploads.put(id, upload);
+        HttpServletResponse resp = model.getResponse();
+        resp.setStatus(HttpServletResponse.SC_CREATED);
+        resp.setHeader("Location", req.getContextPath() + path + id);
+        resp.setHeader("Upload-Id", id);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", id);
+        result.put("length", length);
+        model.writerJson(result);
+    }
+
+    /**
+     * 使用FileChannel的定位写入保存一个分片，不同分片可以并行写入，
+     * 传输中断时已经写入的部分同样会被记录
+     */
+    private void patch(Model model, ResumableUpload upload) throws IOException {
+        HttpServletRequest req = model.getRequest();
+        long offset;
+        try {
+            offset = Long.parseLong(req.getHeader("Upload-Offset"));
+        } catch (NumberFormatException e) {
+            fail(model, Code.BAD_REQUEST, "上传分片时必须使用Upload-Offset请求头指定分片的位置！");
+            return;
+        }
+        long contentLength = req.getContentLengthLong();
+        if (offset < 0 || offset > upload.getLength() || (contentLength > 0 && offset + contentLength > upload.getLength())) {
+            fail(model, Code.BAD_REQUEST, "分片超出了文件的范围：Upload-Offset=" + offset + "，Content-Length=" + contentLength + "，Upload-Length=" + upload.getLength());
+            return;
+        }
+        if (upload.isComplete()) {
+            fail(model, Code.CONFLICT, "断点续传的上传任务" + upload.getId() + "已经完成！");
+            return;
+        }
+        long position = offset;
+        boolean overflow = false;
+        try (InputStream in = req.getInputStream();
+             FileChannel channel = FileChannel.open(upload.getDataFile().toPath(), StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            int len;
+            while ((len = in.read(buffer.array())) != -1) {
+                if (position + len > upload.getLength()) {
+                    overflow = true;
+                    break;
+                }
+                buffer.clear();
+                buffer.limit(len);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            }
+        } finally {
+            upload.received(offset, position);
+        }
+        if (overflow) {
+            fail(model, Code.BAD_REQUEST, "分片超出了文件的范围，Upload-Length=" + upload.getLength());
+            return;
+        }
+        HttpServletResponse resp = model.getResponse();
+        resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+        resp.setHeader("Upload-Offset", String.valueOf(position));
+        resp.setHeader("Upload-Received", String.valueOf(upload.getReceived()));
+    }
+
+    private void progress(HttpServletResponse resp, ResumableUpload upload) {
+        resp.setHeader("Cache-Control", "no-store");
+        resp.setHeader("Upload-Length", String.valueOf(upload.getLength()));
+        resp.setHeader("Upload-Received", String.valueOf(upload.getReceived()));
+        resp.setHeader("Upload-Ranges", upload.getRangesHeader());
+        resp.setHeader("Upload-Complete", String.valueOf(upload.isComplete()));
+    }
+
+    private void complete(Model model, ResumableUpload upload) throws IOException {
+        HttpServletResponse resp = model.getResponse();
+        progress(resp, upload);
+        if (!upload.isReceived()) {
+            fail(model, Code.CONFLICT, "断点续传的上传任务" + upload.getId() + "还有分片没有上传，已经接收的区间：" + upload.getRangesHeader());
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(upload.getDataFile().toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        upload.markComplete();
+        resp.setHeader("Upload-Complete", "true");
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", upload.getId());
+        result.put("name", upload.getFileName());
+        result.put("length", upload.getLength());
+        model.writerJson(result);
+    }
+
+    private ResumableUpload get(String id) throws IOException {
+        if (!isLegalId(id)) {
+            return null;
+        }
+        ResumableUpload upload = uploads.get(id);
+        if (upload == null) {
+            //服务重启后通过日志恢复上传任务
+            upload = ResumableUpload.load(folder, id);
+            if (upload != null) {
+                ResumableUpload previous = uploads.putIfAbsent(id, upload);
+                upload = previous == null ? upload : previous;
+            }
+        }
+        return upload;
+    }
+
+    private void remove(ResumableUpload upload) {
+        synchronized (upload) {
+            uploads.remove(upload.getId(), upload);
+            upload.getDataFile().delete();
+            upload.getJournalFile().delete();
+        }
+    }
+
+    /**
+     * 删除过期的上传任务，最多每小时检查一次
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        if (now < nextSweep) {
+            return;
+        }
+        nextSweep = now + 60 * 60 * 1000L;
+        File[] journals = folder.listFiles((dir, name) -> name.endsWith(".journal"));
+        if (journals == null) {
+            return;
+        }
+        for (File journal : journals) {
+            if (now - journal.lastModified() > EXPIRE) {
+                String id = journal.getName().substring(0, journal.getName().length() - ".journal".length());
+                ResumableUpload upload = uploads.get(id);
+                if (upload != null) {
+                    remove(upload);
+                } else {
+                    journal.delete();
+                    new File(folder, id + ".data").delete();
+                }
+                log.info("删除过期的断点续传任务：" + id);
+            }
+        }
+    }
+
+    private static boolean isLegalId(String id) {
+        if (id.length() != 32) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void fail(Model model, Code code, String message) {
+        log.info(code.code + " : " + message);
+        model.getResponse().setStatus(code.code);
+        model.error(code, message, message);
+    }
+}
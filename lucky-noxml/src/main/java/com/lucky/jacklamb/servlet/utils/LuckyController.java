@@ -72,7 +72,7 @@ public abstract class LuckyController {
 	 * @throws IOException
 	 */
 	protected void download(File in) throws IOException {
-		FileUtils.download(response,in);
+		FileUtils.download(model,in);
 	}
 
 	/**
@@ -0,0 +1,66 @@
+package com.lucky.jacklamb.servlet.utils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 处理敏感字符的请求包装类，参数在第一次被读取时处理并缓存结果，
+ * getParameterMap()返回的Map只会创建一次
+ *
+ * @author fk7075
+ * @version 1.0
+ */
+class SensitiveRequestWrapper extends HttpServletRequestWrapper {
+
+    private static final String[] ABSENT = new String[0];
+
+    private final SensitiveCharactersFilter filter;
+
+    /**
+     * 已经处理过的参数
+     */
+    private final Map<String, String[]> handled = new HashMap<>();
+
+    private Map<String, String[]> parameterMap;
+
+    SensitiveRequestWrapper(HttpServletRequest request, SensitiveCharactersFilter filter) {
+        super(request);
+        this.filter = filter;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = getParameterValues(name);
+        return values == null || values.length == 0 ? null : values[0];
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        String[] values = handled.get(name);
+        if (values == null) {
+            String[] input = super.getParameterValues(name);
+            values = input == null ? ABSENT : filter.sensitiveCharacterHandling(input.clone());
+            handled.put(name, values);
+        }
+        return values == ABSENT ? null : values;
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        if (parameterMap == null) {
+            Map<String, String[]> map = new LinkedHashMap<>();
+            Enumeration<String> names = super.getParameterNames();
+            while (names.hasMoreElements()) {
+                String name = names.nextElement();
+                map.put(name, getParameterValues(name));
+            }
+            parameterMap = Collections.unmodifiableMap(map);
+        }
+        return parameterMap;
+    }
+}
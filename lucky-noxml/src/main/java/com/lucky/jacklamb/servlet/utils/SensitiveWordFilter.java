@@ -0,0 +1,233 @@
+package com.lucky.jacklamb.servlet.utils;
+
+import com.lucky.jacklamb.utils.file.Resources;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 内置的敏感词过滤器，将请求参数中的敏感词的每个字符替换为'*'<br>
+ * 敏感词编译为{@link SensitiveWordMatcher}(Aho-Corasick自动机)，处理一个参数只需要扫描一次；
+ * 词库可以来自集合或者词库文件(每行一个敏感词，以#开头的行为注释)，
+ * 词库文件被修改后自动重新加载，重新加载时正在处理的请求继续使用旧的词库，不会被阻塞<br>
+ * 例：server.addFilter(new SensitiveWordFilter("classpath:/sensitive-words.txt"), "/*");
+ *
+ * @author fk7075
+ * @version 1.0
+ */
+public class SensitiveWordFilter extends SensitiveCharactersFilter {
+
+    private static final Logger log = LogManager.getLogger(SensitiveWordFilter.class);
+
+    private static final String CLASSPATH_PREFIX = "classpath:";
+
+    /**
+     * 检查词库文件是否被修改的默认时间间隔(单位：ms)
+     */
+    private static final long DEFAULT_RELOAD_INTERVAL = 5000;
+
+    private volatile SensitiveWordMatcher matcher = SensitiveWordMatcher.empty();
+
+    private final AtomicBoolean reloading = new AtomicBoolean();
+
+    /**
+     * 词库文件，以classpath:开头时表示classpath中的文件
+     */
+    private String dictionary;
+
+    private char mask = '*';
+
+    private boolean ignoreCase = true;
+
+    private long reloadInterval = DEFAULT_RELOAD_INTERVAL;
+
+    private volatile long lastModified;
+
+    private volatile long nextCheck;
+
+    public SensitiveWordFilter() {
+    }
+
+    /**
+     * 使用敏感词集合创建过滤器
+     * @param words 敏感词
+     */
+    public SensitiveWordFilter(Collection<String> words) {
+        reload(words);
+    }
+
+    /**
+     * 使用词库文件创建过滤器
+     * @param dictionary 词库文件的路径，以classpath:开头时表示classpath中的文件
+     */
+    public SensitiveWordFilter(String dictionary) {
+        this.dictionary = dictionary;
+        reload();
+    }
+
+    /**
+     * 没有在构造器中指定词库时，使用Filter的初始化参数dictionary
+     */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        String param = filterConfig.getInitParameter("dictionary");
+        if (dictionary == null && param != null) {
+            dictionary = param;
+            reload();
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain) throws IOException, ServletException {
+        checkDictionary();
+        super.doFilter(req, resp, chain);
+    }
+
+    @Override
+    protected String[] sensitiveCharacterHandling(String[] input) {
+        SensitiveWordMatcher current = matcher;
+        for (int i = 0; i < input.length; i++) {
+            input[i] = current.replace(input[i], mask);
+        }
+        return input;
+    }
+
+    /**
+     * 使用新的敏感词替换当前的词库
+     * @param words 敏感词
+     */
+    public void reload(Collection<String> words) {
+        matcher = SensitiveWordMatcher.compile(words, ignoreCase);
+        log.info("加载敏感词库，共" + matcher.size() + "个敏感词");
+    }
+
+    /**
+     * 重新加载词库文件
+     */
+    public void reload() {
+        if (dictionary == null) {
+            return;
+        }
+        try {
+            File file = dictionaryFile();
+            long modified = file == null ? 0 : file.lastModified();
+            List<String> words = readWords();
+            lastModified = modified;
+            reload(words);
+        } catch (IOException e) {
+            log.error("加载敏感词库 " + dictionary + " 失败，继续使用当前的词库", e);
+        }
+    }
+
+    /**
+     * 判断文本中是否包含敏感词
+     * @param text 文本
+     * @return
+     */
+    public boolean containsSensitiveWord(String text) {
+        return matcher.contains(text);
+    }
+
+    /**
+     * 设置敏感词的替换字符(默认*)
+     * @param mask
+     */
+    public void setMask(char mask) {
+        this.mask = mask;
+    }
+
+    /**
+     * 设置是否忽略大小写(默认true)，需要在加载词库之前设置
+     * @param ignoreCase
+     */
+    public void setIgnoreCase(boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * 设置检查词库文件是否被修改的时间间隔(单位：ms，默认5000)，小于等于0时不检查
+     * @param reloadInterval
+     */
+    public void setReloadInterval(long reloadInterval) {
+        this.reloadInterval = reloadInterval;
+    }
+
+    /**
+     * 词库文件被修改后重新加载，同一时间只有一个请求线程执行加载，其余的请求继续使用旧的词库
+     */
+    private void checkDictionary() {
+        if (dictionary == null || reloadInterval <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now < nextCheck || !reloading.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            nextCheck = now + reloadInterval;
+            File file = dictionaryFile();
+            if (file != null && file.lastModified() != lastModified) {
+                reload();
+            }
+        } finally {
+            reloading.set(false);
+        }
+    }
+
+    /**
+     * 词库对应的文件，jar包中的词库返回null(不会被修改)
+     */
+    private File dictionaryFile() {
+        if (dictionary.startsWith(CLASSPATH_PREFIX)) {
+            URL url = SensitiveWordFilter.class.getResource(dictionary.substring(CLASSPATH_PREFIX.length()));
+            if (url == null || !"file".equals(url.getProtocol())) {
+                return null;
+            }
+            try {
+                return new File(url.toURI());
+            } catch (URISyntaxException e) {
+                return null;
+            }
+        }
+        return new File(dictionary);
+    }
+
+    private List<String> readWords() throws IOException {
+        InputStream in = dictionary.startsWith(CLASSPATH_PREFIX)
+                ? Resources.getInputStream(dictionary.substring(CLASSPATH_PREFIX.length()))
+                : new FileInputStream(dictionary);
+        if (in == null) {
+            throw new FileNotFoundException(dictionary);
+        }
+        List<String> words = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    words.add(line);
+                }
+            }
+        }
+        return words;
+    }
+}
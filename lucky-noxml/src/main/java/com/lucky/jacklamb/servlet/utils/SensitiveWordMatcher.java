@@ -0,0 +1,296 @@
+package com.lucky.jacklamb.servlet.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * 基于Aho-Corasick自动机的敏感词匹配器，一次扫描即可找出文本中的所有敏感词<br>
+ * 自动机编译后保存在几个基本类型数组中(每个状态的转移按字符排序，查找时二分)，匹配过程中不会产生装箱对象；
+ * 编译后不可修改，可以被多个线程同时使用
+ *
+ * @author fk7075
+ * @version 1.0
+ */
+public final class SensitiveWordMatcher {
+
+    private static final SensitiveWordMatcher EMPTY = compile(Collections.emptyList(), true);
+
+    private final boolean ignoreCase;
+
+    private final int words;
+
+    /**
+     * 状态i的转移在labels与targets中的开始位置
+     */
+    private final int[] base;
+
+    /**
+     * 状态i的转移个数
+     */
+    private final int[] count;
+
+    /**
+     * 转移字符(每个状态内有序)
+     */
+    private final char[] labels;
+
+    /**
+     * 转移的目标状态
+     */
+    private final int[] targets;
+
+    /**
+     * 失败指针
+     */
+    private final int[] fail;
+
+    /**
+     * 在状态i结束的最长敏感词的长度，0表示没有敏感词在此结束
+     */
+    private final int[] match;
+
+    private SensitiveWordMatcher(boolean ignoreCase, int words, int[] base, int[] count, char[] labels, int[] targets, int[] fail, int[] match) {
+        this.ignoreCase = ignoreCase;
+        this.words = words;
+        this.base = base;
+        this.count = count;
+        this.labels = labels;
+        this.targets = targets;
+        this.fail = fail;
+        this.match = match;
+    }
+
+    /**
+     * 没有任何敏感词的匹配器
+     */
+    public static SensitiveWordMatcher empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 编译敏感词
+     * @param words      敏感词，空字符串会被忽略
+     * @param ignoreCase 是否忽略大小写
+     * @return
+     */
+    public static SensitiveWordMatcher compile(Collection<String> words, boolean ignoreCase) {
+        Trie trie = new Trie();
+        int size = 0;
+        for (String word : words) {
+            if (word == null || (word = word.trim()).isEmpty()) {
+                continue;
+            }
+            if (trie.insert(word, ignoreCase)) {
+                size++;
+            }
+        }
+        return trie.build(ignoreCase, size);
+    }
+
+    /**
+     * 敏感词的个数
+     */
+    public int size() {
+        return words;
+    }
+
+    /**
+     * 判断文本中是否包含敏感词
+     * @param text 文本
+     * @return
+     */
+    public boolean contains(String text) {
+        if (words == 0 || text == null) {
+            return false;
+        }
+        int state = 0;
+        for (int i = 0, len = text.length(); i < len; i++) {
+            state = next(state, text.charAt(i));
+            if (match[state] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 将文本中的敏感词的每个字符替换为mask，重叠的敏感词会被合并替换
+     * @param text 文本
+     * @param mask 替换字符
+     * @return 没有敏感词时返回原字符串
+     */
+    public String replace(String text, char mask) {
+        if (words == 0 || text == null || text.isEmpty()) {
+            return text;
+        }
+        char[] result = null;
+        int state = 0;
+        for (int i = 0, len = text.length(); i < len; i++) {
+            state = next(state, text.charAt(i));
+            int length = match[state];
+            if (length > 0) {
+                if (result == null) {
+                    result = text.toCharArray();
+                }
+                Arrays.fill(result, i - length + 1, i + 1, mask);
+            }
+        }
+        return result == null ? text : new String(result);
+    }
+
+    private int next(int state, char c) {
+        if (ignoreCase) {
+            c = Character.toLowerCase(c);
+        }
+        while (true) {
+            int target = transition(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = fail[state];
+        }
+    }
+
+    private int transition(int state, char c) {
+        int low = base[state];
+        int high = low + count[state] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char label = labels[mid];
+            if (label < c) {
+                low = mid + 1;
+            } else if (label > c) {
+                high = mid - 1;
+            } else {
+                return targets[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 编译期间使用的字典树，编译完成后转换为数组
+     */
+    private static final class Trie {
+
+        private char[][] keys = new char[16][];
+
+        private int[][] children = new int[16][];
+
+        private int[] sizes = new int[16];
+
+        private int[] depth = new int[16];
+
+        private boolean[] terminal = new boolean[16];
+
+        private int nodes = 1;
+
+        private Trie() {
+            keys[0] = new char[0];
+            children[0] = new int[0];
+        }
+
+        /**
+         * @return 是否为新的敏感词
+         */
+        private boolean insert(String word, boolean ignoreCase) {
+            int node = 0;
+            for (int i = 0; i < word.length(); i++) {
+                char c = ignoreCase ? Character.toLowerCase(word.charAt(i)) : word.charAt(i);
+                int index = Arrays.binarySearch(keys[node], 0, sizes[node], c);
+                if (index >= 0) {
+                    node = children[node][index];
+                } else {
+                    int child = newNode(depth[node] + 1);
+                    addChild(node, -index - 1, c, child);
+                    node = child;
+                }
+            }
+            boolean added = !terminal[node];
+            terminal[node] = true;
+            return added;
+        }
+
+        private int newNode(int nodeDepth) {
+            if (nodes == keys.length) {
+                int capacity = nodes * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+                sizes = Arrays.copyOf(sizes, capacity);
+                depth = Arrays.copyOf(depth, capacity);
+                terminal = Arrays.copyOf(terminal, capacity);
+            }
+            keys[nodes] = new char[0];
+            children[nodes] = new int[0];
+            depth[nodes] = nodeDepth;
+            return nodes++;
+        }
+
+        private void addChild(int node, int index, char c, int child) {
+            int size = sizes[node];
+            if (size == keys[node].length) {
+                int capacity = Math.max(2, size * 2);
+                keys[node] = Arrays.copyOf(keys[node], capacity);
+                children[node] = Arrays.copyOf(children[node], capacity);
+            }
+            System.arraycopy(keys[node], index, keys[node], index + 1, size - index);
+            System.arraycopy(children[node], index, children[node], index + 1, size - index);
+            keys[node][index] = c;
+            children[node][index] = child;
+            sizes[node] = size + 1;
+        }
+
+        /**
+         * 按层次遍历计算失败指针，并将字典树转换为数组
+         */
+        private SensitiveWordMatcher build(boolean ignoreCase, int words) {
+            int[] base = new int[nodes];
+            int[] count = new int[nodes];
+            int edges = 0;
+            for (int i = 0; i < nodes; i++) {
+                base[i] = edges;
+                count[i] = sizes[i];
+                edges += sizes[i];
+            }
+            char[] labels = new char[edges];
+            int[] targets = new int[edges];
+            for (int i = 0; i < nodes; i++) {
+                System.arraycopy(keys[i], 0, labels, base[i], sizes[i]);
+                System.arraycopy(children[i], 0, targets, base[i], sizes[i]);
+            }
+            int[] fail = new int[nodes];
+            int[] match = new int[nodes];
+            int[] queue = new int[nodes];
+            int head = 0;
+            int tail = 0;
+            for (int i = 0; i < sizes[0]; i++) {
+                int child = children[0][i];
+                fail[child] = 0;
+                match[child] = terminal[child] ? 1 : 0;
+                queue[tail++] = child;
+            }
+            SensitiveWordMatcher matcher = new SensitiveWordMatcher(ignoreCase, words, base, count, labels, targets, fail, match);
+            while (head < tail) {
+                int node = queue[head++];
+                for (int i = 0; i < sizes[node]; i++) {
+                    char c = keys[node][i];
+                    int child = children[node][i];
+                    int state = fail[node];
+                    int target;
+                    while ((target = matcher.transition(state, c)) < 0 && state != 0) {
+                        state = fail[state];
+                    }
+                    fail[child] = target < 0 ? 0 : target;
+                    //自身是敏感词时为最长的匹配，否则沿用失败指针上的匹配
+                    match[child] = terminal[child] ? depth[child] : match[fail[child]];
+                    queue[tail++] = child;
+                }
+            }
+            return matcher;
+        }
+    }
+}
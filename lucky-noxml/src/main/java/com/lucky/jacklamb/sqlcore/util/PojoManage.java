@@ -16,7 +16,7 @@ import com.lucky.jacklamb.enums.PrimaryType;
 import com.lucky.jacklamb.exception.NotFindFlieException;
 import com.lucky.jacklamb.sqlcore.datasource.ReaderInI;
 import com.lucky.jacklamb.utils.reflect.ClassUtils;
-import javafx.scene.control.Tab;
+
 
 /**
  * 实体类管理工具
@@ -4,14 +4,22 @@ import com.lucky.jacklamb.ioc.ApplicationBeans;
 import com.lucky.jacklamb.ioc.config.AppConfig;
 import com.lucky.jacklamb.ioc.config.ServerConfig;
 import com.lucky.jacklamb.servlet.ServerStartRun;
+import com.lucky.jacklamb.servlet.accesslog.AccessLogManage;
+import com.lucky.jacklamb.servlet.accesslog.LuckyAccessLogValve;
 import com.lucky.jacklamb.sqlcore.datasource.abs.LuckyDataSource;
 import com.lucky.jacklamb.thymeleaf.utils.ThymeleafConfig;
 import com.lucky.jacklamb.thymeleaf.utils.ThymeleafListener;
 import com.lucky.jacklamb.utils.base.Assert;
 import com.lucky.jacklamb.utils.base.JackLamb;
+import com.lucky.jacklamb.utils.websocket.WsSessionManage;
+import org.apache.catalina.Lifecycle;
 import org.apache.catalina.LifecycleException;
+import org.apache.catalina.connector.Connector;
 import org.apache.catalina.core.StandardContext;
 import org.apache.catalina.startup.Tomcat;
+import org.apache.coyote.ProtocolHandler;
+import org.apache.coyote.http11.AbstractHttp11Protocol;
+import org.apache.coyote.http2.Http2Protocol;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.ThreadContext;
@@ -21,6 +29,7 @@ import java.io.File;
 import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
 import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
 
 import static com.lucky.jacklamb.start.RunParam.SERVER_PORT;
 import static com.lucky.jacklamb.start.RunParam.isRunParam;
@@ -104,14 +113,24 @@ public class LuckyBootApplication {
         context.addLifecycleListener(new Tomcat.DefaultWebXmlListener());
         context.addLifecycleListener(new Tomcat.FixContextListener());
         context.addServletContainerInitializer(new LuckyServletContainerInitializer(), null);
+        //访问日志
+        AccessLogManage accessLog = AccessLogManage.getAccessLogManage();
+        if (accessLog != null) {
+            context.getPipeline().addValve(new LuckyAccessLogValve(accessLog));
+        }
         context.addServletContainerInitializer(new WsSci(), ApplicationBeans.createApplicationBeans().getWebSocketSet());
+        context.addLifecycleListener(event -> {
+            if (Lifecycle.AFTER_STOP_EVENT.equals(event.getType())) {
+                WsSessionManage.shutdown();
+            }
+        });
         if (serverCfg.getRequestTargetAllow() != null) {
             System.setProperty("tomcat.util.http.parser.HttpParser.requestTargetAllow", serverCfg.getRequestTargetAllow());
         }
         tomcat.getHost().addChild(context);
 
         try {
-            tomcat.getConnector();
+            tomcat.setConnector(createConnector(serverCfg));
             tomcat.init();
             tomcat.start();
             long end = System.currentTimeMillis();
@@ -126,6 +145,79 @@ public class LuckyBootApplication {
     }
 
 
+    /**
+     * 根据ServerConfig中的配置创建Connector(协议、线程池、连接数、长连接、HTTP/2以及响应压缩)
+     * @param serverCfg 服务器配置
+     * @return Connector
+     */
+    private static Connector createConnector(ServerConfig serverCfg) {
+        Connector connector = new Connector(getProtocolClassName(serverCfg.getProtocol()));
+        connector.setPort(serverCfg.getPort());
+        if (serverCfg.getURIEncoding() != null) {
+            connector.setURIEncoding(serverCfg.getURIEncoding());
+        }
+        ProtocolHandler handler = connector.getProtocolHandler();
+        if (serverCfg.getExecutor() != null) {
+            handler.setExecutor(serverCfg.getExecutor());
+            //Connector不会关闭外部设置的线程池，框架创建的虚拟线程池在Connector停止后关闭
+            if (serverCfg.isVirtualThreads() && serverCfg.getExecutor() instanceof ExecutorService) {
+                ExecutorService executor = (ExecutorService) serverCfg.getExecutor();
+                connector.addLifecycleListener(event -> {
+                    if (Lifecycle.AFTER_STOP_EVENT.equals(event.getType())) {
+                        executor.shutdown();
+                    }
+                });
+            }
+        }
+        if (handler instanceof AbstractHttp11Protocol) {
+            AbstractHttp11Protocol<?> protocol = (AbstractHttp11Protocol<?>) handler;
+            if (serverCfg.getMaxThreads() != null) {
+                protocol.setMaxThreads(serverCfg.getMaxThreads());
+            }
+            if (serverCfg.getMinSpareThreads() != null) {
+                protocol.setMinSpareThreads(serverCfg.getMinSpareThreads());
+            }
+            if (serverCfg.getAcceptCount() != null) {
+                protocol.setAcceptCount(serverCfg.getAcceptCount());
+            }
+            if (serverCfg.getMaxConnections() != null) {
+                protocol.setMaxConnections(serverCfg.getMaxConnections());
+            }
+            if (serverCfg.getKeepAliveTimeout() != null) {
+                protocol.setKeepAliveTimeout(serverCfg.getKeepAliveTimeout());
+            }
+            if (serverCfg.getMaxKeepAliveRequests() != null) {
+                protocol.setMaxKeepAliveRequests(serverCfg.getMaxKeepAliveRequests());
+            }
+            if (serverCfg.getCompression() != null) {
+                protocol.setCompression(serverCfg.getCompression());
+            }
+            if (serverCfg.getCompressibleMimeType() != null) {
+                protocol.setCompressibleMimeType(serverCfg.getCompressibleMimeType());
+            }
+            if (serverCfg.getCompressionMinSize() != null) {
+                protocol.setCompressionMinSize(serverCfg.getCompressionMinSize());
+            }
+        }
+        if (serverCfg.isHttp2()) {
+            connector.addUpgradeProtocol(new Http2Protocol());
+        }
+        log.info("Tomcat Connector \"[protocol=" + handler.getClass().getSimpleName()
+                + ", executor=" + (serverCfg.getExecutor() == null ? "default" : serverCfg.getExecutor().getClass().getName())
+                + ", http2=" + serverCfg.isHttp2() + "]\"");
+        return connector;
+    }
+
+    private static String getProtocolClassName(String protocol) {
+        if (protocol == null || "NIO".equalsIgnoreCase(protocol)) {
+            return "org.apache.coyote.http11.Http11NioProtocol";
+        }
+        if ("NIO2".equalsIgnoreCase(protocol)) {
+            return "org.apache.coyote.http11.Http11Nio2Protocol";
+        }
+        return protocol;
+    }
+
     private static void doShutDownWork() {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             ApplicationBeans.iocContainers.getControllerIOC().getServerCloseRuns()
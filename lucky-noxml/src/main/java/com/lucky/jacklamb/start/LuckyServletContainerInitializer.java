@@ -31,6 +31,7 @@ public class LuckyServletContainerInitializer implements ServletContainerInitial
 		for(ServletMapping sm:serverCfg.getServletList()) {
 			servlet=ctx.addServlet(sm.getServletName(), sm.getServlet());
 			servlet.setLoadOnStartup(sm.getLoadOnStartup());
+			servlet.setAsyncSupported(true);
 			mapping=new String[sm.getRequestMapping().size()];
 			mapping=sm.getRequestMapping().toArray(mapping);
 			servlet.addMapping(mapping);
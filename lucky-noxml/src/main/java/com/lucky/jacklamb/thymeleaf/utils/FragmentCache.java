@@ -0,0 +1,122 @@
+package com.lucky.jacklamb.thymeleaf.utils;
+
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.TemplateSpec;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.context.IWebContext;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.templatemode.TemplateMode;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 模板片段的渲染结果缓存<br>
+ * 缓存的key由片段表达式(template :: selector)与指定的模型属性的值组成，
+ * 片段的渲染结果只能依赖于这些属性，否则会得到过期的内容<br>
+ * 条目超过过期时间后重新渲染，条目数超过限制时淘汰最久没有被访问的条目
+ *
+ * @author fk7075
+ * @version 1.0.0
+ */
+public class FragmentCache {
+
+    private final int maxSize;
+
+    /**
+     * 过期时间(单位：ms)
+     */
+    private final long ttl;
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * @param maxSize 最大条目数，小于等于0时不缓存
+     * @param ttl     过期时间(单位：ms)
+     */
+    public FragmentCache(int maxSize, long ttl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > FragmentCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * 渲染模板片段，命中缓存时直接返回缓存的结果
+     * @param engine     模板引擎
+     * @param context    当前模板的上下文，渲染片段时使用其中的所有变量
+     * @param fragment   片段表达式，格式：template :: selector(没有selector时渲染整个模板)
+     * @param attributes 组成缓存key的模型属性
+     * @return 渲染结果
+     */
+    public String render(ITemplateEngine engine, IContext context, String fragment, String... attributes) {
+        if (maxSize <= 0) {
+            return process(engine, context, fragment);
+        }
+        StringBuilder key = new StringBuilder(fragment);
+        for (String attribute : attributes) {
+            key.append('\u0000').append(attribute).append('=').append(context.getVariable(attribute));
+        }
+        String cacheKey = key.toString();
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(cacheKey);
+        }
+        if (entry != null && entry.expires > now) {
+            return entry.content;
+        }
+        String content = process(engine, context, fragment);
+        synchronized (entries) {
+            entries.put(cacheKey, new Entry(content, now + ttl));
+        }
+        return content;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private static String process(ITemplateEngine engine, IContext context, String fragment) {
+        int index = fragment.indexOf("::");
+        String template = (index < 0 ? fragment : fragment.substring(0, index)).trim();
+        Set<String> selectors = index < 0 ? null : Collections.singleton(fragment.substring(index + 2).trim());
+        Map<String, Object> variables = new HashMap<>();
+        for (String name : context.getVariableNames()) {
+            variables.put(name, context.getVariable(name));
+        }
+        IContext fragmentContext;
+        if (context instanceof IWebContext) {
+            IWebContext webContext = (IWebContext) context;
+            fragmentContext = new WebContext(webContext.getRequest(), webContext.getResponse(), webContext.getServletContext(), context.getLocale(), variables);
+        } else {
+            fragmentContext = new Context(context.getLocale(), variables);
+        }
+        return engine.process(new TemplateSpec(template, selectors, (TemplateMode) null, null), fragmentContext);
+    }
+
+    private static class Entry {
+
+        private final String content;
+
+        private final long expires;
+
+        private Entry(String content, long expires) {
+            this.content = content;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.lucky.jacklamb.thymeleaf.utils;
+
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.IExpressionContext;
+import org.thymeleaf.dialect.AbstractDialect;
+import org.thymeleaf.dialect.IExpressionObjectDialect;
+import org.thymeleaf.expression.IExpressionObjectFactory;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Lucky提供的Thymeleaf方言，注册表达式对象#fragmentCache，用于缓存模板片段的渲染结果<br>
+ * 例：&lt;footer th:utext="${#fragmentCache.render('common :: footer', 'user,locale')}"&gt;&lt;/footer&gt;
+ *
+ * @author fk7075
+ * @version 1.0.0
+ */
+public class LuckyDialect extends AbstractDialect implements IExpressionObjectDialect {
+
+    public static final String FRAGMENT_CACHE = "fragmentCache";
+
+    private final ITemplateEngine engine;
+
+    private final FragmentCache cache;
+
+    public LuckyDialect(ITemplateEngine engine, FragmentCache cache) {
+        super("Lucky");
+        this.engine = engine;
+        this.cache = cache;
+    }
+
+    @Override
+    public IExpressionObjectFactory getExpressionObjectFactory() {
+        return new IExpressionObjectFactory() {
+
+            @Override
+            public Set<String> getAllExpressionObjectNames() {
+                return Collections.singleton(FRAGMENT_CACHE);
+            }
+
+            @Override
+            public Object buildObject(IExpressionContext context, String expressionObjectName) {
+                return new Fragments(context);
+            }
+
+            @Override
+            public boolean isCacheable(String expressionObjectName) {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * 表达式对象#fragmentCache
+     */
+    public class Fragments {
+
+        private final IExpressionContext context;
+
+        private Fragments(IExpressionContext context) {
+            this.context = context;
+        }
+
+        /**
+         * 渲染模板片段并缓存结果，片段的渲染结果不依赖于任何模型属性
+         * @param fragment 片段表达式，格式：template :: selector
+         * @return 渲染结果，需要使用th:utext输出
+         */
+        public String render(String fragment) {
+            return cache.render(engine, context, fragment);
+        }
+
+        /**
+         * 渲染模板片段并缓存结果(OGNL不支持可变参数，多个属性使用逗号分隔)
+         * @param fragment   片段表达式，格式：template :: selector
+         * @param attributes 组成缓存key的模型属性，多个属性使用逗号分隔
+         * @return 渲染结果，需要使用th:utext输出
+         */
+        public String render(String fragment, String attributes) {
+            String[] names = attributes.split(",");
+            for (int i = 0; i < names.length; i++) {
+                names[i] = names[i].trim();
+            }
+            return cache.render(engine, context, fragment, names);
+        }
+    }
+}
@@ -21,6 +21,30 @@ public class ThymeleafConfig {
     private String suffix=".html";
     private boolean cache=false;
     private String model="HTML";
+    /**
+     * 模板缓存的最大条目数
+     */
+    private int cacheMaxSize=200;
+    /**
+     * 模板缓存的过期时间(单位：ms)，为null时永不过期
+     */
+    private Long cacheTTL;
+    /**
+     * 启动时是否预先解析prefix下的所有模板(仅在开启缓存时有效)
+     */
+    private boolean warmUp=true;
+    /**
+     * 分段输出时每次输出的最大字节数，小于等于0时不分段
+     */
+    private int throttledSize=0;
+    /**
+     * 片段缓存的最大条目数
+     */
+    private int fragmentCacheSize=100;
+    /**
+     * 片段缓存的过期时间(单位：ms)
+     */
+    private long fragmentCacheTTL=60000;
 
     private ThymeleafConfig(){
         init();
@@ -46,6 +70,24 @@ public class ThymeleafConfig {
             if(sectionMap.containsKey("model")){
                 model=sectionMap.get("model");
             }
+            if(sectionMap.containsKey("cacheMaxSize")){
+                cacheMaxSize=Integer.parseInt(sectionMap.get("cacheMaxSize").trim());
+            }
+            if(sectionMap.containsKey("cacheTTL")){
+                cacheTTL=Long.parseLong(sectionMap.get("cacheTTL").trim());
+            }
+            if(sectionMap.containsKey("warmUp")){
+                warmUp=Boolean.parseBoolean(sectionMap.get("warmUp").trim());
+            }
+            if(sectionMap.containsKey("throttledSize")){
+                throttledSize=Integer.parseInt(sectionMap.get("throttledSize").trim());
+            }
+            if(sectionMap.containsKey("fragmentCacheSize")){
+                fragmentCacheSize=Integer.parseInt(sectionMap.get("fragmentCacheSize").trim());
+            }
+            if(sectionMap.containsKey("fragmentCacheTTL")){
+                fragmentCacheTTL=Long.parseLong(sectionMap.get("fragmentCacheTTL").trim());
+            }
         }
     }
 
@@ -82,4 +124,28 @@ public class ThymeleafConfig {
     public String getModel() {
         return model;
     }
+
+    public int getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+
+    public Long getCacheTTL() {
+        return cacheTTL;
+    }
+
+    public boolean isWarmUp() {
+        return warmUp;
+    }
+
+    public int getThrottledSize() {
+        return throttledSize;
+    }
+
+    public int getFragmentCacheSize() {
+        return fragmentCacheSize;
+    }
+
+    public long getFragmentCacheTTL() {
+        return fragmentCacheTTL;
+    }
 }
@@ -3,15 +3,33 @@ package com.lucky.jacklamb.thymeleaf.utils;
 import com.lucky.jacklamb.annotation.mvc.LuckyListener;
 import com.lucky.jacklamb.ioc.ApplicationBeans;
 import com.lucky.jacklamb.thymeleaf.template.ClasspathTemplateResolver;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.cache.StandardCacheManager;
+import org.thymeleaf.context.Context;
 import org.thymeleaf.dialect.IDialect;
 import org.thymeleaf.templateresolver.ITemplateResolver;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
 
 /**
  * @author fk7075
@@ -21,6 +39,7 @@ import java.util.Set;
 @LuckyListener
 public class ThymeleafListener implements ServletContextListener {
 
+   private static final Logger log = LogManager.getLogger(ThymeleafListener.class);
    public final static ThymeleafConfig conf=ThymeleafConfig.getConf();
    public final static List<Object> dialects= ApplicationBeans.createApplicationBeans().getBeans(IDialect.class);
 
@@ -29,7 +48,11 @@ public class ThymeleafListener implements ServletContextListener {
         for (Object obj : dialects) {
             engine.addDialect((IDialect)obj);
         }
+        engine.addDialect(new LuckyDialect(engine, new FragmentCache(conf.getFragmentCacheSize(), conf.getFragmentCacheTTL())));
         TemplateEngineUtil.storeTemplateEngine(sce.getServletContext(), engine);
+        if (conf.isCache() && conf.isWarmUp()) {
+            warmUp(engine);
+        }
     }
 
     public void contextDestroyed(ServletContextEvent sce) {
@@ -37,6 +60,9 @@ public class ThymeleafListener implements ServletContextListener {
 
     private TemplateEngine templateEngine(ServletContext servletContext) {
         TemplateEngine engine = new TemplateEngine();
+        StandardCacheManager cacheManager = new StandardCacheManager();
+        cacheManager.setTemplateCacheMaxSize(conf.getCacheMaxSize());
+        engine.setCacheManager(cacheManager);
         engine.setTemplateResolver(templateResolver(servletContext));
         return engine;
     }
@@ -47,9 +73,82 @@ public class ThymeleafListener implements ServletContextListener {
         resolver.setCharacterEncoding(conf.getEncoding());
         resolver.setSuffix(conf.getSuffix());
         resolver.setCacheable(conf.isCache());
+        resolver.setCacheTTLMs(conf.getCacheTTL());
         resolver.setTemplateMode(conf.getModel());
         return resolver;
     }
 
+    /**
+     * 预先解析prefix下的所有模板并放入缓存，避免部署后的第一次请求因为解析模板而变慢<br>
+     * 使用空的上下文渲染模板，模板在渲染前已经被解析并缓存，渲染过程中的异常直接忽略
+     */
+    private void warmUp(TemplateEngine engine) {
+        long start = System.currentTimeMillis();
+        Set<String> templates;
+        try {
+            templates = findTemplates();
+        } catch (IOException | URISyntaxException e) {
+            log.warn("扫描Thymeleaf模板失败，跳过模板预热", e);
+            return;
+        }
+        Writer discard = new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        for (String template : templates) {
+            try {
+                engine.process(template, new Context(), discard);
+            } catch (Exception e) {
+                log.debug("预热Thymeleaf模板 " + template + " 时渲染失败(模板已解析)：" + e.getMessage());
+            }
+        }
+        log.info("Thymeleaf模板预热完成，共" + templates.size() + "个模板，耗时" + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * 得到classpath中prefix下所有以suffix结尾的模板名(不包含前后缀)
+     */
+    private Set<String> findTemplates() throws IOException, URISyntaxException {
+        String prefix = conf.getPrefix();
+        String suffix = conf.getSuffix();
+        String dir = prefix.startsWith("/") ? prefix.substring(1) : prefix;
+        Set<String> templates = new TreeSet<>();
+        Enumeration<URL> urls = Thread.currentThread().getContextClassLoader().getResources(dir.endsWith("/") ? dir.substring(0, dir.length() - 1) : dir);
+        while (urls.hasMoreElements()) {
+            URL url = urls.nextElement();
+            if ("file".equals(url.getProtocol())) {
+                Path root = Paths.get(url.toURI());
+                try (Stream<Path> paths = Files.walk(root)) {
+                    paths.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(suffix)).forEach(p -> {
+                        String name = root.relativize(p).toString().replace(File.separatorChar, '/');
+                        templates.add(name.substring(0, name.length() - suffix.length()));
+                    });
+                }
+            } else if ("jar".equals(url.getProtocol())) {
+                JarURLConnection conn = (JarURLConnection) url.openConnection();
+                conn.setUseCaches(false);
+                String entryPrefix = dir.endsWith("/") ? dir : dir + "/";
+                try (JarFile jar = conn.getJarFile()) {
+                    Enumeration<JarEntry> entries = jar.entries();
+                    while (entries.hasMoreElements()) {
+                        String name = entries.nextElement().getName();
+                        if (name.startsWith(entryPrefix) && name.endsWith(suffix)) {
+                            templates.add(name.substring(entryPrefix.length(), name.length() - suffix.length()));
+                        }
+                    }
+                }
+            }
+        }
+        return templates;
+    }
 
 }
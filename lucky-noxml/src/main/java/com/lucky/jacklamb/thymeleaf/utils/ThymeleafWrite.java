@@ -1,13 +1,17 @@
 package com.lucky.jacklamb.thymeleaf.utils;
 
 import com.lucky.jacklamb.servlet.core.Model;
+import org.thymeleaf.IThrottledTemplateProcessor;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.WebContext;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 
 /**
  * @author fk7075
@@ -16,15 +20,31 @@ import java.io.PrintWriter;
  */
 public abstract class ThymeleafWrite {
 
+    private static final ThymeleafConfig conf = ThymeleafConfig.getConf();
+
+    private static final Charset charset = Charset.forName(conf.getEncoding());
+
     public static void write(Model model,String returnFile)  {
         try {
             HttpServletRequest request = model.getRequest();
             HttpServletResponse response = model.getResponse();
-            request.setCharacterEncoding("utf8");
-            response.setCharacterEncoding("utf8");
+            request.setCharacterEncoding(charset.name());
+            response.setCharacterEncoding(charset.name());
             TemplateEngine engine = TemplateEngineUtil.getTemplateEngine(model.getServletContext());
             WebContext context = new WebContext(request, response, request.getServletContext());
-            engine.process(returnFile, context, new PrintWriter(model.getOutputStream()));
+            OutputStream out = model.getOutputStream();
+            if (conf.getThrottledSize() > 0) {
+                //分段输出，每段输出后立即发送给客户端，大页面不需要等待整个模板渲染完成
+                IThrottledTemplateProcessor processor = engine.processThrottled(returnFile, context);
+                while (!processor.isFinished()) {
+                    processor.process(conf.getThrottledSize(), out, charset);
+                    out.flush();
+                }
+            } else {
+                Writer writer = new OutputStreamWriter(out, charset);
+                engine.process(returnFile, context, writer);
+                writer.flush();
+            }
         }catch (IOException e){
             throw new ThymeleafWriteException(e);
         }
@@ -40,7 +40,7 @@ public abstract   class ErrorPage {
      * @throws IOException
      */
     public static String exception(Code code, String Message, String Description) throws IOException {
-        boolean isFive = code == Code.ERROR;
+        boolean isFive = code.code >= 500;
         String input = isFive ? FIVE : FOUR;
         input = input.replaceAll("@:errTitle", code.errTitle.replaceAll("\\$", LUCKY_STR));
         input = input.replaceAll("@:errType", code.code + "");
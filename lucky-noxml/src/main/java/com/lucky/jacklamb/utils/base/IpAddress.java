@@ -0,0 +1,214 @@
+package com.lucky.jacklamb.utils.base;
+
+/**
+ * 解析后的IP地址，IPv4与IPv6统一表示为128位无符号整数(高64位与低64位)，
+ * IPv4地址映射为::ffff:a.b.c.d<br>
+ * 只解析IP字面量，不会进行DNS查询
+ *
+ * @author fk-7075
+ */
+public final class IpAddress implements Comparable<IpAddress> {
+
+    /**
+     * IPv4映射地址的前缀 ::ffff:0:0/96
+     */
+    private static final long IPV4_MAPPED = 0x0000FFFF00000000L;
+
+    final long hi;
+
+    final long lo;
+
+    IpAddress(long hi, long lo) {
+        this.hi = hi;
+        this.lo = lo;
+    }
+
+    /**
+     * 解析IPv4或IPv6字面量，localhost解析为127.0.0.1
+     * @param ip IP字符串，IPv6可以带有[]和%zone
+     * @return 不是合法的IP地址时返回null
+     */
+    public static IpAddress parse(String ip) {
+        if (ip == null) {
+            return null;
+        }
+        ip = ip.trim();
+        if ("localhost".equalsIgnoreCase(ip)) {
+            return new IpAddress(0, IPV4_MAPPED | 0x7F000001L);
+        }
+        if (ip.indexOf(':') < 0) {
+            long v4 = parseIpv4(ip, 0, ip.length());
+            return v4 < 0 ? null : new IpAddress(0, IPV4_MAPPED | v4);
+        }
+        return parseIpv6(ip);
+    }
+
+    /**
+     * 是否为IPv4地址
+     */
+    public boolean isIpv4() {
+        return hi == 0 && (lo & 0xFFFFFFFF00000000L) == IPV4_MAPPED;
+    }
+
+    /**
+     * 解析IPv4地址
+     * @return 不合法时返回-1
+     */
+    private static long parseIpv4(String ip, int from, int to) {
+        long value = 0;
+        int parts = 0;
+        int part = -1;
+        for (int i = from; i < to; i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                part = part < 0 ? c - '0' : part * 10 + c - '0';
+                if (part > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && part >= 0 && parts < 3) {
+                value = value << 8 | part;
+                parts++;
+                part = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (part < 0 || parts != 3) {
+            return -1;
+        }
+        return value << 8 | part;
+    }
+
+    private static IpAddress parseIpv6(String ip) {
+        int from = 0;
+        int to = ip.length();
+        if (ip.startsWith("[") && ip.endsWith("]")) {
+            from = 1;
+            to--;
+        }
+        int zone = ip.indexOf('%', from);
+        if (zone >= 0 && zone < to) {
+            to = zone;
+        }
+        //8个16位的分组，::表示省略的连续的0
+        int[] groups = new int[8];
+        int count = 0;
+        int compress = -1;
+        int i = from;
+        if (ip.startsWith("::", i)) {
+            compress = 0;
+            i += 2;
+            if (i == to) {
+                return new IpAddress(0, 0);
+            }
+        }
+        while (i < to) {
+            if (count == 8) {
+                return null;
+            }
+            int end = i;
+            int group = 0;
+            while (end < to && end - i < 5) {
+                int digit = Character.digit(ip.charAt(end), 16);
+                if (digit < 0) {
+                    break;
+                }
+                group = group << 4 | digit;
+                end++;
+            }
+            if (end < to && ip.charAt(end) == '.') {
+                //最后两个分组为IPv4地址
+                if (count > 6) {
+                    return null;
+                }
+                long v4 = parseIpv4(ip, i, to);
+                if (v4 < 0) {
+                    return null;
+                }
+                groups[count++] = (int) (v4 >>> 16);
+                groups[count++] = (int) (v4 & 0xFFFF);
+                break;
+            }
+            if (end == i || end - i > 4) {
+                return null;
+            }
+            groups[count++] = group;
+            if (end == to) {
+                break;
+            }
+            if (ip.charAt(end) != ':') {
+                return null;
+            }
+            if (end + 1 < to && ip.charAt(end + 1) == ':') {
+                if (compress >= 0) {
+                    return null;
+                }
+                compress = count;
+                i = end + 2;
+            } else {
+                i = end + 1;
+                if (i == to) {
+                    return null;
+                }
+            }
+        }
+        if (compress >= 0) {
+            int tail = count - compress;
+            if (count == 8) {
+                return null;
+            }
+            System.arraycopy(groups, compress, groups, 8 - tail, tail);
+            for (int k = compress; k < 8 - tail; k++) {
+                groups[k] = 0;
+            }
+        } else if (count != 8) {
+            return null;
+        }
+        long hi = 0;
+        long lo = 0;
+        for (int k = 0; k < 4; k++) {
+            hi = hi << 16 | groups[k];
+            lo = lo << 16 | groups[k + 4];
+        }
+        return new IpAddress(hi, lo);
+    }
+
+    @Override
+    public int compareTo(IpAddress o) {
+        int c = Long.compareUnsigned(hi, o.hi);
+        return c != 0 ? c : Long.compareUnsigned(lo, o.lo);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IpAddress)) {
+            return false;
+        }
+        IpAddress that = (IpAddress) o;
+        return hi == that.hi && lo == that.lo;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hi) * 31 + Long.hashCode(lo);
+    }
+
+    @Override
+    public String toString() {
+        if (isIpv4()) {
+            return (lo >>> 24 & 0xFF) + "." + (lo >>> 16 & 0xFF) + "." + (lo >>> 8 & 0xFF) + "." + (lo & 0xFF);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int k = 0; k < 8; k++) {
+            if (k > 0) {
+                sb.append(':');
+            }
+            long word = k < 4 ? hi : lo;
+            sb.append(Long.toHexString(word >>> (48 - (k % 4) * 16) & 0xFFFF));
+        }
+        return sb.toString();
+    }
+}
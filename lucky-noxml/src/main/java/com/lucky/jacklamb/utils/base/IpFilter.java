@@ -0,0 +1,223 @@
+package com.lucky.jacklamb.utils.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 预编译的IP访问规则，启动时将规则解析为有序且不重叠的区间数组，每次判断只需要一次二分查找(O(log n))<br>
+ * 支持的规则格式(IPv4与IPv6均可)：<br>
+ * 1.单个IP：192.168.1.10、::1、localhost<br>
+ * 2.CIDR：192.168.1.0/24、fe80::/10，IPv4映射地址按IPv6书写(::ffff:192.168.1.0/120与192.168.1.0/24等价)<br>
+ * 3.IP段：192.168.1.1-192.168.1.100<br>
+ * 规则以"!"开头时表示禁止访问，禁止规则优先于允许规则；存在允许规则时只有匹配允许规则的IP可以访问，
+ * 只有禁止规则时其余的IP都可以访问，没有任何规则时不做限制
+ *
+ * @author fk-7075
+ */
+public final class IpFilter {
+
+    private static final IpFilter EMPTY = new IpFilter(Intervals.EMPTY, Intervals.EMPTY);
+
+    private final Intervals allow;
+
+    private final Intervals deny;
+
+    private IpFilter(Intervals allow, Intervals deny) {
+        this.allow = allow;
+        this.deny = deny;
+    }
+
+    /**
+     * 编译IP规则
+     * @param rules IP规则，空字符串会被忽略
+     * @return
+     * @throws IllegalArgumentException 存在不合法的规则时
+     */
+    public static IpFilter compile(Collection<String> rules) {
+        if (rules == null || rules.isEmpty()) {
+            return EMPTY;
+        }
+        List<IpAddress[]> allow = new ArrayList<>();
+        List<IpAddress[]> deny = new ArrayList<>();
+        for (String rule : rules) {
+            if (rule == null || rule.trim().isEmpty()) {
+                continue;
+            }
+            rule = rule.trim();
+            if (rule.startsWith("!")) {
+                deny.addAll(interval(rule.substring(1).trim()));
+            } else {
+                allow.addAll(interval(rule));
+            }
+        }
+        if (allow.isEmpty() && deny.isEmpty()) {
+            return EMPTY;
+        }
+        return new IpFilter(Intervals.of(allow), Intervals.of(deny));
+    }
+
+    /**
+     * 编译IP规则
+     * @param rules IP规则
+     * @return
+     */
+    public static IpFilter compile(String... rules) {
+        return rules == null ? EMPTY : compile(Arrays.asList(rules));
+    }
+
+    /**
+     * 没有任何规则
+     */
+    public boolean isEmpty() {
+        return allow.size == 0 && deny.size == 0;
+    }
+
+    /**
+     * 判断IP是否可以访问
+     * @param ip 解析后的IP，无法解析的IP为null
+     * @return
+     */
+    public boolean isLegal(IpAddress ip) {
+        if (isEmpty()) {
+            return true;
+        }
+        if (ip == null) {
+            return allow.size == 0;
+        }
+        if (deny.contains(ip)) {
+            return false;
+        }
+        return allow.size == 0 || allow.contains(ip);
+    }
+
+    /**
+     * 判断IP是否可以访问
+     * @param ip IP字符串
+     * @return
+     */
+    public boolean isLegal(String ip) {
+        return isEmpty() || isLegal(IpAddress.parse(ip));
+    }
+
+    /**
+     * 将一条规则解析为区间，localhost同时包含127.0.0.1与::1
+     */
+    private static List<IpAddress[]> interval(String rule) {
+        if ("localhost".equalsIgnoreCase(rule)) {
+            IpAddress v4 = IpAddress.parse("127.0.0.1");
+            IpAddress v6 = new IpAddress(0, 1);
+            return Arrays.asList(new IpAddress[]{v4, v4}, new IpAddress[]{v6, v6});
+        }
+        int slash = rule.indexOf('/');
+        if (slash >= 0) {
+            String literal = rule.substring(0, slash).trim();
+            IpAddress ip = IpAddress.parse(literal);
+            //前缀长度的范围由字面量的地址族决定，::ffff:10.0.0.0/104这样的IPv4映射地址按IPv6的128位计算
+            boolean ipv6 = literal.indexOf(':') >= 0;
+            int prefix;
+            try {
+                prefix = Integer.parseInt(rule.substring(slash + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("不合法的IP规则：" + rule);
+            }
+            if (ip == null || prefix < 0 || prefix > (ipv6 ? 128 : 32)) {
+                throw new IllegalArgumentException("不合法的IP规则：" + rule);
+            }
+            int bits = ipv6 ? prefix : prefix + 96;
+            long hiMask = bits >= 64 ? -1L : bits == 0 ? 0 : -1L << (64 - bits);
+            long loMask = bits <= 64 ? 0 : bits == 128 ? -1L : -1L << (128 - bits);
+            IpAddress start = new IpAddress(ip.hi & hiMask, ip.lo & loMask);
+            IpAddress end = new IpAddress(ip.hi | ~hiMask, ip.lo | ~loMask);
+            return Collections.singletonList(new IpAddress[]{start, end});
+        }
+        int dash = rule.indexOf('-');
+        if (dash >= 0) {
+            IpAddress start = IpAddress.parse(rule.substring(0, dash));
+            IpAddress end = IpAddress.parse(rule.substring(dash + 1));
+            if (start == null || end == null || start.compareTo(end) > 0) {
+                throw new IllegalArgumentException("不合法的IP规则：" + rule);
+            }
+            return Collections.singletonList(new IpAddress[]{start, end});
+        }
+        IpAddress ip = IpAddress.parse(rule);
+        if (ip == null) {
+            throw new IllegalArgumentException("不合法的IP规则：" + rule);
+        }
+        return Collections.singletonList(new IpAddress[]{ip, ip});
+    }
+
+    /**
+     * 有序且不重叠的闭区间数组
+     */
+    private static final class Intervals {
+
+        private static final Intervals EMPTY = new Intervals(new IpAddress[0], new IpAddress[0], 0);
+
+        private final IpAddress[] starts;
+
+        private final IpAddress[] ends;
+
+        private final int size;
+
+        private Intervals(IpAddress[] starts, IpAddress[] ends, int size) {
+            this.starts = starts;
+            this.ends = ends;
+            this.size = size;
+        }
+
+        /**
+         * 排序并合并重叠与相邻的区间
+         */
+        private static Intervals of(List<IpAddress[]> intervals) {
+            if (intervals.isEmpty()) {
+                return EMPTY;
+            }
+            intervals.sort((a, b) -> a[0].compareTo(b[0]));
+            IpAddress[] starts = new IpAddress[intervals.size()];
+            IpAddress[] ends = new IpAddress[intervals.size()];
+            int size = 0;
+            for (IpAddress[] interval : intervals) {
+                if (size > 0 && !isBefore(ends[size - 1], interval[0])) {
+                    if (ends[size - 1].compareTo(interval[1]) < 0) {
+                        ends[size - 1] = interval[1];
+                    }
+                } else {
+                    starts[size] = interval[0];
+                    ends[size] = interval[1];
+                    size++;
+                }
+            }
+            return new Intervals(Arrays.copyOf(starts, size), Arrays.copyOf(ends, size), size);
+        }
+
+        /**
+         * end+1 < start，即两个区间既不重叠也不相邻
+         */
+        private static boolean isBefore(IpAddress end, IpAddress start) {
+            if (end.lo == -1L && end.hi == -1L) {
+                return false;
+            }
+            long lo = end.lo + 1;
+            long hi = lo == 0 ? end.hi + 1 : end.hi;
+            return new IpAddress(hi, lo).compareTo(start) < 0;
+        }
+
+        private boolean contains(IpAddress ip) {
+            int low = 0;
+            int high = size - 1;
+            //找到最后一个start<=ip的区间
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid].compareTo(ip) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high >= 0 && ends[high].compareTo(ip) >= 0;
+        }
+    }
+}
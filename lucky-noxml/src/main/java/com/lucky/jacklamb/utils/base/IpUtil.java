@@ -3,29 +3,13 @@ package com.lucky.jacklamb.utils.base;
 public class IpUtil {
 
 	/**
-	 * 验证IP是否属于某个IP段
+	 * 验证IP是否属于某个IP段(每次调用都会重新解析IP段，需要反复判断时请使用{@link IpFilter})
 	 * @param ip 所验证的IP号码
-	 * @param ipSection IP段（以'-'分隔）
+	 * @param ipSection IP段（以'-'分隔，也可以使用CIDR格式，支持IPv6）
 	 * @return
 	 */
 	public static boolean ipExistsInRange(String ip, String ipSection) {
-		ipSection = ipSection.trim();
-		ip = ip.trim();
-		int idx = ipSection.indexOf('-');
-		String beginIP = ipSection.substring(0, idx);
-		String endIP = ipSection.substring(idx + 1);
-		return getIp2long(beginIP) <= getIp2long(ip) && getIp2long(ip) <= getIp2long(endIP);
-
-	}
-
-	private static long getIp2long(String ip) {
-		ip = ip.trim();
-		String[] ips = ip.split("\\.");
-		long ip2long = 0L;
-		for (int i = 0; i < 4; ++i) {
-			ip2long = ip2long << 8 | Integer.parseInt(ips[i]);
-		}
-		return ip2long;
+		return IpFilter.compile(ipSection.trim()).isLegal(IpAddress.parse(ip));
 	}
 
 	public static long getIp2long2(String ip) {
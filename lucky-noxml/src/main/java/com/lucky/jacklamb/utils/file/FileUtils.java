@@ -2,6 +2,7 @@ package com.lucky.jacklamb.utils.file;
 
 import com.lucky.jacklamb.enums.Code;
 import com.lucky.jacklamb.servlet.core.Model;
+import com.lucky.jacklamb.servlet.staticsource.StaticResource;
 import com.lucky.jacklamb.servlet.staticsource.StaticResourceManage;
 
 import javax.servlet.ServletOutputStream;
@@ -245,10 +246,8 @@ public abstract class FileUtils {
     public static void preview(Model model, File in) throws IOException {
         HttpServletResponse resp = model.getResponse();
         if (StaticResourceManage.isStaticResource(resp, in.getName())) {
-            if (in.exists()) {
-                byte[] buffer = copyToByteArray(in);
-                ServletOutputStream outputStream = resp.getOutputStream();
-                copy(buffer, outputStream);
+            if (in.isFile()) {
+                StaticResourceManage.response(model, StaticResource.forFile(in));
             }
         } else {
             model.error(Code.REFUSED, "未知格式的文件，无法预览！", "格式未知的文件: " + in.getName());
@@ -258,9 +257,7 @@ public abstract class FileUtils {
     public static void preview(Model model, InputStream in, String fileName) throws IOException {
         HttpServletResponse resp = model.getResponse();
         if (StaticResourceManage.isStaticResource(resp, fileName)) {
-            byte[] buffer = copyToByteArray(in);
-            ServletOutputStream outputStream = resp.getOutputStream();
-            copy(buffer, outputStream);
+            copy(in, resp.getOutputStream());
         } else {
             model.error(Code.REFUSED, "未知格式的文件，无法预览！", "格式未知的文件: " + fileName);
         }
@@ -281,8 +278,22 @@ public abstract class FileUtils {
         response.addHeader("Content-Disposition", "attachment;filename=" + URLEncoder.encode(in.getName(), "UTF-8"));
         //1.设置文件ContentType类型，这样设置，会自动判断下载文件类型
         response.setContentType("multipart/form-data");
-        BufferedOutputStream out = new BufferedOutputStream(response.getOutputStream());
-        copy(copyToByteArray(in), out);
+        StaticResource resource = StaticResource.forFile(in);
+        response.setContentLengthLong(resource.getLength());
+        resource.writeTo(response.getOutputStream(), 0, resource.getLength());
+    }
+
+    /**
+     * 文件下载，文件内容通过sendfile或FileChannel直接传输，不会读入内存，
+     * 同时支持Range请求(断点续传)和ETag/Last-Modified协商缓存
+     * @param model Model对象
+     * @param in 要下载的文件
+     * @throws IOException
+     */
+    public static void download(Model model, File in) throws IOException {
+        //设置文件下载头
+        model.getResponse().addHeader("Content-Disposition", "attachment;filename=" + URLEncoder.encode(in.getName(), "UTF-8"));
+        StaticResourceManage.response(model, StaticResource.forFile(in));
     }
 
     public static void download(HttpServletResponse response, InputStream in, String fileName) throws IOException {
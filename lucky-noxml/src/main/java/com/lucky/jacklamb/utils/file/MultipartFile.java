@@ -4,6 +4,8 @@ import com.lucky.jacklamb.servlet.core.Model;
 import com.lucky.jacklamb.utils.base.LuckyUtils;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Date;
 
 public class MultipartFile {
@@ -12,6 +14,9 @@ public class MultipartFile {
 	private String uploadFileName;//文件上传到服务器后的文件名
 	private String fileType;//文件类型
 	private String originalFileName;//原始的文件名
+	private File tempFile;//流式解析时文件内容所在的临时文件
+	private long size=-1;//文件大小
+	private String digest;//文件内容的MD5摘要
 
 	/**
 	 *
@@ -20,9 +25,28 @@ public class MultipartFile {
 	 */
 	public MultipartFile(InputStream originalFileInputStream,String filename) {
 		this.originalFileInputStream=originalFileInputStream;
+		init(filename);
+	}
+
+	/**
+	 * 流式解析multipart请求时使用，文件内容保存在临时文件中，请求结束后临时文件会被删除
+	 * @param tempFile 临时文件
+	 * @param filename 原始的文件名
+	 * @param size 文件大小
+	 * @param digest 文件内容的MD5摘要，没有计算时为null
+	 */
+	public MultipartFile(File tempFile,String filename,long size,String digest) {
+		this.tempFile=tempFile;
+		this.size=size;
+		this.digest=digest;
+		init(filename);
+	}
+
+	private void init(String filename){
 		this.originalFileName=filename;
-		this.fileType=filename.substring(filename.lastIndexOf("."));;
-		this.uploadFileName=originalFileName.replaceAll(fileType,"")+"_"+new Date().getTime()+"_"+ LuckyUtils.getRandomNumber() +getFileType();
+		int index=filename.lastIndexOf(".");
+		this.fileType=index<0?"":filename.substring(index);
+		this.uploadFileName=filename.substring(0,filename.length()-fileType.length())+"_"+new Date().getTime()+"_"+ LuckyUtils.getRandomNumber() +getFileType();
 	}
 
 	/**
@@ -83,8 +107,14 @@ public class MultipartFile {
 		}
 		if(!folder.exists())
 			folder.mkdirs();
-		FileOutputStream outfile=new FileOutputStream(folder.getAbsoluteFile()+File.separator+uploadFileName);//projectPath+"/"+docRelativePath+"/"+uploadFileName);
-		FileUtils.copy(originalFileInputStream,outfile);
+		File target=new File(folder.getAbsoluteFile()+File.separator+uploadFileName);
+		if(tempFile!=null&&originalFileInputStream==null){
+			//临时文件直接移动到目标位置，不再复制文件内容
+			Files.move(tempFile.toPath(),target.toPath(),StandardCopyOption.REPLACE_EXISTING);
+			return;
+		}
+		FileOutputStream outfile=new FileOutputStream(target);//projectPath+"/"+docRelativePath+"/"+uploadFileName);
+		FileUtils.copy(getInputStream(),outfile);
 	}
 
 	/**
@@ -93,7 +123,24 @@ public class MultipartFile {
 	 * @throws IOException 
 	 */
 	public int getFileSize() throws IOException {
-		return originalFileInputStream.available();
+		return size>=0?(int)size:originalFileInputStream.available();
+	}
+
+	/**
+	 * 获得上传文件的大小(单位：byte)
+	 * @return
+	 * @throws IOException
+	 */
+	public long getSize() throws IOException {
+		return size>=0?size:originalFileInputStream.available();
+	}
+
+	/**
+	 * 获得文件内容的MD5摘要，参数上使用了@MD5注解时在上传过程中计算
+	 * @return 没有计算摘要时返回null
+	 */
+	public String getDigest() {
+		return digest;
 	}
 	
 	/**
@@ -101,12 +148,35 @@ public class MultipartFile {
 	 * @return
 	 */
 	public InputStream getInputStream() {
+		if(originalFileInputStream==null&&tempFile!=null){
+			try {
+				originalFileInputStream=new FileInputStream(tempFile);
+			} catch (FileNotFoundException e) {
+				throw new RuntimeException("上传文件的临时文件已经被删除或移动："+tempFile.getAbsolutePath(),e);
+			}
+		}
 		return originalFileInputStream;
 	}
 
 	/** 获得文件对应的byte数组 */
 	public byte[] getByte() throws IOException {
-		return FileUtils.copyToByteArray(originalFileInputStream);
+		return FileUtils.copyToByteArray(getInputStream());
+	}
+
+	/**
+	 * 删除流式解析时使用的临时文件
+	 */
+	public void delete() {
+		if(tempFile==null){
+			return;
+		}
+		if(originalFileInputStream!=null){
+			try {
+				originalFileInputStream.close();
+			} catch (IOException ignored) {
+			}
+		}
+		tempFile.delete();
 	}
 
 }
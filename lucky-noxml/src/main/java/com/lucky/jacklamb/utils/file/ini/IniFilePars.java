@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import javax.servlet.Filter;
 import javax.servlet.http.HttpServlet;
@@ -21,12 +22,17 @@ import com.lucky.jacklamb.ioc.config.ServerConfig;
 import com.lucky.jacklamb.ioc.config.ServiceConfig;
 import com.lucky.jacklamb.ioc.config.WebConfig;
 import com.lucky.jacklamb.redis.JedisFactory;
+import com.lucky.jacklamb.utils.websocket.WsOverflowPolicy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import static com.lucky.jacklamb.start.RunParam.*;
 
 import static com.lucky.jacklamb.sqlcore.datasource.SectionKey.*;
 
 public class IniFilePars {
+
+	private static final Logger log= LogManager.getLogger(IniFilePars.class);
 	
 	private static IniFilePars iniFilePars;
 
@@ -331,6 +337,75 @@ public class IniFilePars {
 		if(sectionMap.containsKey("httpClient-socketTimeout")){
 			web.setSocketTimeout($Expression.translation(sectionMap.get("httpClient-socketTimeout"),int.class));
 		}
+		if(sectionMap.containsKey("httpClient-binary")){
+			web.setHttpClientBinary($Expression.translation(sectionMap.get("httpClient-binary"),boolean.class));
+		}
+		if(sectionMap.containsKey("asyncTimeout")){
+			web.setAsyncTimeout($Expression.translation(sectionMap.get("asyncTimeout"),long.class));
+		}
+		if(sectionMap.containsKey("sseHeartbeat")){
+			web.setSseHeartbeat($Expression.translation(sectionMap.get("sseHeartbeat"),long.class));
+		}
+		if(sectionMap.containsKey("staticResourceCacheSize")){
+			web.setStaticResourceCacheSize($Expression.translation(sectionMap.get("staticResourceCacheSize"),long.class));
+		}
+		if(sectionMap.containsKey("staticResourceCacheFileSize")){
+			web.setStaticResourceCacheFileSize($Expression.translation(sectionMap.get("staticResourceCacheFileSize"),long.class));
+		}
+		if(sectionMap.containsKey("openResumableUpload")){
+			web.openResumableUpload($Expression.translation(sectionMap.get("openResumableUpload"),boolean.class));
+		}
+		if(sectionMap.containsKey("resumableUploadPath")){
+			web.setResumableUploadPath($Expression.translation(sectionMap.get("resumableUploadPath")));
+		}
+		if(sectionMap.containsKey("resumableUploadFolder")){
+			web.setResumableUploadFolder($Expression.translation(sectionMap.get("resumableUploadFolder")));
+		}
+		if(sectionMap.containsKey("resumableUploadMaxSize")){
+			web.setResumableUploadMaxSize($Expression.translation(sectionMap.get("resumableUploadMaxSize"),long.class));
+		}
+		if(sectionMap.containsKey("openMetrics")){
+			web.openMetrics($Expression.translation(sectionMap.get("openMetrics"),boolean.class));
+		}
+		if(sectionMap.containsKey("metricsPath")){
+			web.setMetricsPath($Expression.translation(sectionMap.get("metricsPath")));
+		}
+		if(sectionMap.containsKey("openConcurrencyLimit")){
+			web.openConcurrencyLimit($Expression.translation(sectionMap.get("openConcurrencyLimit"),boolean.class));
+		}
+		if(sectionMap.containsKey("initialConcurrencyLimit")){
+			web.setInitialConcurrencyLimit($Expression.translation(sectionMap.get("initialConcurrencyLimit"),int.class));
+		}
+		if(sectionMap.containsKey("minConcurrencyLimit")){
+			web.setMinConcurrencyLimit($Expression.translation(sectionMap.get("minConcurrencyLimit"),int.class));
+		}
+		if(sectionMap.containsKey("maxConcurrencyLimit")){
+			web.setMaxConcurrencyLimit($Expression.translation(sectionMap.get("maxConcurrencyLimit"),int.class));
+		}
+		if(sectionMap.containsKey("openAccessLog")){
+			web.openAccessLog($Expression.translation(sectionMap.get("openAccessLog"),boolean.class));
+		}
+		if(sectionMap.containsKey("accessLogFile")){
+			web.setAccessLogFile($Expression.translation(sectionMap.get("accessLogFile")));
+		}
+		if(sectionMap.containsKey("accessLogBufferSize")){
+			web.setAccessLogBufferSize($Expression.translation(sectionMap.get("accessLogBufferSize"),int.class));
+		}
+		if(sectionMap.containsKey("accessLogMaxFileSize")){
+			web.setAccessLogMaxFileSize($Expression.translation(sectionMap.get("accessLogMaxFileSize"),long.class));
+		}
+		if(sectionMap.containsKey("accessLogMaxHistory")){
+			web.setAccessLogMaxHistory($Expression.translation(sectionMap.get("accessLogMaxHistory"),int.class));
+		}
+		if(sectionMap.containsKey("wsSendQueueSize")){
+			web.setWsSendQueueSize($Expression.translation(sectionMap.get("wsSendQueueSize"),int.class));
+		}
+		if(sectionMap.containsKey("wsOverflowPolicy")){
+			web.setWsOverflowPolicy(WsOverflowPolicy.valueOf($Expression.translation(sectionMap.get("wsOverflowPolicy")).trim().toUpperCase()));
+		}
+		if(sectionMap.containsKey("wsSendTimeout")){
+			web.setWsSendTimeout($Expression.translation(sectionMap.get("wsSendTimeout"),long.class));
+		}
 		if(sectionMap.containsKey("encoding")) {
 			web.setEncoding($Expression.translation(sectionMap.get("encoding")));
 		}
@@ -418,6 +493,30 @@ public class IniFilePars {
 		}
 	}
 	
+	/**
+	 * 设置处理请求的工作线程池
+	 *   1.default Connector内部的线程池
+	 *   2.virtual 虚拟线程(JDK21+)
+	 *   3.Executor实现类的全类名
+	 * @param server
+	 * @param executor
+	 */
+	private void setExecutor(ServerConfig server,String executor) {
+		if("default".equalsIgnoreCase(executor)) {
+			server.setExecutor(null);
+		}else if("virtual".equalsIgnoreCase(executor)) {
+			if(!server.enableVirtualThreads()) {
+				log.warn("当前JDK版本不支持虚拟线程，将继续使用Connector内部的线程池！");
+			}
+		}else {
+			try {
+				server.setExecutor((Executor)Class.forName(executor).newInstance());
+			} catch (InstantiationException | IllegalAccessException | ClassNotFoundException e) {
+				throw new RuntimeException("无法创建工作线程池："+executor,e);
+			}
+		}
+	}
+
 	private void setTomcat(ServerConfig server,Map<String, String> sectionMap) {
 		if(sectionMap.containsKey("port")) {
 			server.setPort($Expression.translation(sectionMap.get("port"),int.class));
@@ -455,6 +554,42 @@ public class IniFilePars {
 		if(sectionMap.containsKey("requestTargetAllow")){
 			server.setRequestTargetAllow($Expression.translation(sectionMap.get("requestTargetAllow")));
 		}
+		if(sectionMap.containsKey("protocol")){
+			server.setProtocol($Expression.translation(sectionMap.get("protocol")));
+		}
+		if(sectionMap.containsKey("maxThreads")){
+			server.setMaxThreads($Expression.translation(sectionMap.get("maxThreads"),int.class));
+		}
+		if(sectionMap.containsKey("minSpareThreads")){
+			server.setMinSpareThreads($Expression.translation(sectionMap.get("minSpareThreads"),int.class));
+		}
+		if(sectionMap.containsKey("acceptCount")){
+			server.setAcceptCount($Expression.translation(sectionMap.get("acceptCount"),int.class));
+		}
+		if(sectionMap.containsKey("maxConnections")){
+			server.setMaxConnections($Expression.translation(sectionMap.get("maxConnections"),int.class));
+		}
+		if(sectionMap.containsKey("keepAliveTimeout")){
+			server.setKeepAliveTimeout($Expression.translation(sectionMap.get("keepAliveTimeout"),int.class));
+		}
+		if(sectionMap.containsKey("maxKeepAliveRequests")){
+			server.setMaxKeepAliveRequests($Expression.translation(sectionMap.get("maxKeepAliveRequests"),int.class));
+		}
+		if(sectionMap.containsKey("http2")){
+			server.setHttp2($Expression.translation(sectionMap.get("http2"),boolean.class));
+		}
+		if(sectionMap.containsKey("compression")){
+			server.setCompression($Expression.translation(sectionMap.get("compression")));
+		}
+		if(sectionMap.containsKey("compressibleMimeType")){
+			server.setCompressibleMimeType($Expression.translation(sectionMap.get("compressibleMimeType")));
+		}
+		if(sectionMap.containsKey("compressionMinSize")){
+			server.setCompressionMinSize($Expression.translation(sectionMap.get("compressionMinSize"),int.class));
+		}
+		if(sectionMap.containsKey("executor")){
+			setExecutor(server,$Expression.translation(sectionMap.get("executor")).trim());
+		}
 	}
 	
 	private void setScanConfig(ScanConfig scan,Map<String, String> sectionMap) {
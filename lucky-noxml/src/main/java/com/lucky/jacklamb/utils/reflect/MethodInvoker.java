@@ -0,0 +1,66 @@
+package com.lucky.jacklamb.utils.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 方法执行器，在启动时将Method转化为统一签名(Object,Object[])Object的MethodHandle，
+ * 执行时不再经过反射的访问检查与参数校验，方法抛出的异常也会原样抛出，不会被包装为InvocationTargetException
+ *
+ * @author fk-7075
+ */
+public final class MethodInvoker {
+
+    private static final Map<Method, MethodInvoker> invokerCache = new ConcurrentHashMap<>();
+
+    private final Method method;
+
+    private final MethodHandle handle;
+
+    private MethodInvoker(Method method) {
+        this.method = method;
+        method.setAccessible(true);
+        MethodHandle mh;
+        try {
+            mh = MethodHandles.lookup().unreflect(method).asFixedArity();
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("无法为方法生成MethodHandle！ Method: " + method, e);
+        }
+        int paramCount = method.getParameterCount();
+        if (Modifier.isStatic(method.getModifiers())) {
+            mh = MethodHandles.dropArguments(mh.asType(MethodType.genericMethodType(paramCount)), 0, Object.class);
+        } else {
+            mh = mh.asType(MethodType.genericMethodType(paramCount + 1));
+        }
+        this.handle = mh.asSpreader(Object[].class, paramCount);
+    }
+
+    /**
+     * 得到方法的执行器(同一个方法只生成一次)
+     * @param method 要执行的方法
+     * @return 方法执行器
+     */
+    public static MethodInvoker of(Method method) {
+        return invokerCache.computeIfAbsent(method, MethodInvoker::new);
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * 执行方法
+     * @param targetObject 对象实例，静态方法时忽略
+     * @param params 方法执行所需要的参数
+     * @return 方法的返回值，void方法返回null
+     * @throws Throwable 方法执行时抛出的异常
+     */
+    public Object invoke(Object targetObject, Object... params) throws Throwable {
+        return (Object) handle.invokeExact(targetObject, params);
+    }
+}
@@ -33,6 +33,23 @@ public abstract class MethodUtils {
         }
     }
 
+    /**
+     * 使用预先生成的方法执行器执行方法
+     * @param targetObject 对象实例
+     * @param invoker 方法执行器
+     * @param params 方法执行所需要的参数
+     * @return
+     */
+    public static Object invoke(Object targetObject,MethodInvoker invoker,Object...params){
+        try {
+            return invoker.invoke(targetObject,params);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException("方法执行失败！ Method: "+invoker.getMethod()+", Object: "+targetObject+", Param: "+ Arrays.toString(params),e);
+        }
+    }
+
     /**
      * 使用反射机制执行方法
      * @param targetObject 对象实例
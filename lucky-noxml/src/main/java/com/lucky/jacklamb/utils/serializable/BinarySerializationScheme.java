@@ -0,0 +1,49 @@
+package com.lucky.jacklamb.utils.serializable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+
+/**
+ * 二进制的序列化方案，请求头Accept或Content-Type与{@link #getContentType()}匹配时代替JSON使用<br>
+ * 二进制数据只通过字节流读写，不提供字符串与Reader形式的方法
+ *
+ * @author fk7075
+ */
+public interface BinarySerializationScheme extends Serializable {
+
+    /**
+     * 序列化结果的Content-Type，例如application/cbor
+     * @return
+     */
+    String getContentType();
+
+    /**
+     * 将对象序列化后直接写入输出流，不会关闭输出流
+     * @param object 要序列化的对象
+     * @param out 输出流
+     * @throws IOException
+     */
+    void serialization(Object object, OutputStream out) throws IOException;
+
+    /**
+     * 直接从输入流中反序列化
+     * @param objectType 对象的类型
+     * @param in 输入流
+     * @return
+     * @throws Exception
+     */
+    Object deserialization(Type objectType, InputStream in) throws Exception;
+
+    /**
+     * 逐个反序列化输入流中的集合元素
+     * @param elementType 元素的类型
+     * @param in 输入流
+     * @return
+     * @throws Exception
+     */
+    Iterator<?> deserializationIterator(Type elementType, InputStream in) throws Exception;
+}
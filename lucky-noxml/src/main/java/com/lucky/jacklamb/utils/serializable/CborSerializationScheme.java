@@ -0,0 +1,50 @@
+package com.lucky.jacklamb.utils.serializable;
+
+import com.google.gson.JsonIOException;
+import com.lucky.jacklamb.rest.LSON;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+
+/**
+ * 基于Gson的CBOR(RFC 8949)序列化方案，对象与JSON的对应关系(属性名、日期格式等)与{@link GsonSerializationScheme}相同，
+ * 只是编码为体积更小、解析更快的二进制格式
+ *
+ * @author fk7075
+ */
+public class CborSerializationScheme implements BinarySerializationScheme {
+
+    public static final String CONTENT_TYPE = "application/cbor";
+
+    private static LSON lson=new LSON();
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public void serialization(Object object, OutputStream out) throws IOException {
+        try {
+            lson.toCbor(object, out);
+        } catch (JsonIOException e) {
+            if(e.getCause() instanceof IOException){
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Object deserialization(Type objectType, InputStream in) throws IOException {
+        return lson.fromCbor(objectType, in);
+    }
+
+    @Override
+    public Iterator<?> deserializationIterator(Type elementType, InputStream in) {
+        return lson.cborIterator(elementType, in);
+    }
+}
@@ -1,10 +1,15 @@
 package com.lucky.jacklamb.utils.serializable;
 
+import com.google.gson.JsonIOException;
 import com.lucky.jacklamb.rest.LSON;
 import com.lucky.jacklamb.utils.reflect.ClassUtils;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.Type;
+import java.util.Iterator;
 
 /**
  * @author fk7075
@@ -24,8 +29,34 @@ public class GsonSerializationScheme implements JSONSerializationScheme {
         return lson.toJsonByGson(object);
     }
 
+    @Override
+    public void serialization(Object object, OutputStream out) throws IOException {
+        try (Writer writer = new Utf8StreamWriter(out)) {
+            if(object instanceof String){
+                writer.write(object.toString());
+                return;
+            }
+            lson.toJsonByGson(object, writer);
+        } catch (JsonIOException e) {
+            if(e.getCause() instanceof IOException){
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     @Override
     public Object deserialization(Type objectType, String objectStr) throws Exception {
         return lson.fromJson(objectType,objectStr);
     }
+
+    @Override
+    public Object deserialization(Type objectType, Reader reader) throws Exception {
+        return lson.fromJson(objectType,reader);
+    }
+
+    @Override
+    public Iterator<?> deserializationIterator(Type elementType, Reader reader) {
+        return lson.iterator(elementType,reader);
+    }
 }
@@ -23,6 +23,16 @@ public class JDKSerializationScheme implements SerializationScheme {
         return objectStr;
     }
 
+    /**
+     * 直接将对象的序列化字节写入输出流，不会关闭输出流
+     */
+    @Override
+    public void serialization(Object object, OutputStream out) throws IOException {
+        ObjectOutputStream objOut = new ObjectOutputStream(out);
+        objOut.writeObject(object);
+        objOut.flush();
+    }
+
     @Override
     public Object deserialization(Type objectType, String objectStr) throws Exception {
         ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(objectStr.getBytes("ISO-8859-1"));
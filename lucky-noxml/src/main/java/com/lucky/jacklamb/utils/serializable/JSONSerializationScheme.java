@@ -1,9 +1,84 @@
 package com.lucky.jacklamb.utils.serializable;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
 /**
  * @author fk7075
  * @version 1.0
  * @date 2020/11/12 11:32
  */
 public interface JSONSerializationScheme extends SerializationScheme {
+
+    /**
+     * 逐个反序列化Reader中的集合元素，支持JSON数组与NDJSON(每行一个JSON)两种格式<br>
+     * JSON数组按List&lt;elementType&gt;整体反序列化，NDJSON按行逐个反序列化
+     * @param elementType 元素的类型
+     * @param reader Reader
+     * @return
+     * @throws Exception
+     */
+    @Override
+    default Iterator<?> deserializationIterator(Type elementType, Reader reader) throws Exception {
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        int first;
+        do {
+            in.mark(1);
+            first = in.read();
+        } while (first != -1 && Character.isWhitespace(first));
+        if (first == -1) {
+            return Collections.emptyIterator();
+        }
+        in.reset();
+        if (first == '[') {
+            return SerializationScheme.super.deserializationIterator(elementType, in);
+        }
+        return new Iterator<Object>() {
+
+            private String line;
+
+            private int lineNumber;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (line == null) {
+                        String next = in.readLine();
+                        if (next == null) {
+                            return false;
+                        }
+                        lineNumber++;
+                        if (!next.trim().isEmpty()) {
+                            line = next;
+                        }
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String current = line;
+                line = null;
+                try {
+                    return deserialization(elementType, current);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("NDJSON第" + lineNumber + "行无法反序列化为" + elementType.getTypeName(), e);
+                }
+            }
+        };
+    }
 }
@@ -0,0 +1,56 @@
+package com.lucky.jacklamb.utils.serializable;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 运行时构造的List&lt;elementType&gt;类型，用于按集合反序列化元素类型已知的内容
+ *
+ * @author fk7075
+ */
+final class ListType implements ParameterizedType {
+
+    private final Type elementType;
+
+    ListType(Type elementType) {
+        this.elementType = Objects.requireNonNull(elementType, "elementType == null");
+    }
+
+    @Override
+    public Type[] getActualTypeArguments() {
+        return new Type[]{elementType};
+    }
+
+    @Override
+    public Type getRawType() {
+        return List.class;
+    }
+
+    @Override
+    public Type getOwnerType() {
+        return null;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof ParameterizedType)) {
+            return false;
+        }
+        ParameterizedType that = (ParameterizedType) other;
+        return that.getOwnerType() == null && List.class.equals(that.getRawType())
+                && Arrays.equals(getActualTypeArguments(), that.getActualTypeArguments());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(getActualTypeArguments()) ^ List.class.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "java.util.List<" + elementType.getTypeName() + ">";
+    }
+}
@@ -1,8 +1,14 @@
 package com.lucky.jacklamb.utils.serializable;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.io.Serializable;
+import java.io.Writer;
 import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 
 /**
  * 序列化方案
@@ -14,5 +20,49 @@ public interface SerializationScheme extends Serializable {
 
     String serialization(Object object) throws IOException;
 
+    /**
+     * 将对象序列化后以UTF-8编码直接写入输出流，不会关闭输出流
+     * @param object 要序列化的对象
+     * @param out 输出流
+     * @throws IOException
+     */
+    default void serialization(Object object, OutputStream out) throws IOException {
+        try (Writer writer = new Utf8StreamWriter(out)) {
+            writer.write(serialization(object));
+        }
+    }
+
     Object deserialization(Type objectType, String objectStr) throws Exception;
+
+    /**
+     * 直接从Reader中反序列化，不需要先将全部内容读为字符串
+     * @param objectType 对象的类型
+     * @param reader Reader
+     * @return
+     * @throws Exception
+     */
+    default Object deserialization(Type objectType, Reader reader) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[8192];
+        int len;
+        while ((len = reader.read(buffer)) != -1) {
+            sb.append(buffer, 0, len);
+        }
+        return deserialization(objectType, sb.toString());
+    }
+
+    /**
+     * 逐个反序列化Reader中的集合元素，默认将全部内容按List&lt;elementType&gt;反序列化后返回集合的迭代器
+     * @param elementType 元素的类型
+     * @param reader Reader
+     * @return
+     * @throws Exception
+     */
+    default Iterator<?> deserializationIterator(Type elementType, Reader reader) throws Exception {
+        Object result = deserialization(new ListType(elementType), reader);
+        if (result == null) {
+            return Collections.emptyIterator();
+        }
+        return ((Collection<?>) result).iterator();
+    }
 }
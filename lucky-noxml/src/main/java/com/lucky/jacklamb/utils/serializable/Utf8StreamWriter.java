@@ -0,0 +1,156 @@
+package com.lucky.jacklamb.utils.serializable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * 将字符按UTF-8编码后直接写入输出流的Writer，编码缓冲区在同一线程内复用，
+ * 序列化大对象时不再需要先生成完整的String和byte[]<br>
+ * close()只会写出缓冲区中剩余的数据并归还缓冲区，不会关闭底层的输出流
+ *
+ * @author fk7075
+ * @version 1.0
+ */
+public class Utf8StreamWriter extends Writer {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final ThreadLocal<byte[]> bufferPool = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private final OutputStream out;
+
+    private byte[] buf;
+
+    private int count;
+
+    /**
+     * 尚未与低代理项配对的高代理项，没有时为0
+     */
+    private char highSurrogate;
+
+    public Utf8StreamWriter(OutputStream out) {
+        this.out = out;
+        byte[] pooled = bufferPool.get();
+        if (pooled != null) {
+            bufferPool.set(null);
+            buf = pooled;
+        } else {
+            //嵌套使用时当前线程的缓冲区已被占用，此时使用新的缓冲区
+            buf = new byte[BUFFER_SIZE];
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        ensureOpen();
+        writeChar((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        for (int i = off, end = off + len; i < end; i++) {
+            writeChar(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+        for (int i = off, end = off + len; i < end; i++) {
+            writeChar(str.charAt(i));
+        }
+    }
+
+    @Override
+    public Writer append(CharSequence csq) throws IOException {
+        CharSequence cs = csq == null ? "null" : csq;
+        return append(cs, 0, cs.length());
+    }
+
+    @Override
+    public Writer append(CharSequence csq, int start, int end) throws IOException {
+        ensureOpen();
+        CharSequence cs = csq == null ? "null" : csq;
+        for (int i = start; i < end; i++) {
+            writeChar(cs.charAt(i));
+        }
+        return this;
+    }
+
+    private void writeChar(char c) throws IOException {
+        if (count + 4 > buf.length) {
+            flushBuffer();
+        }
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int cp = Character.toCodePoint(high, c);
+                buf[count++] = (byte) (0xF0 | (cp >> 18));
+                buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (cp & 0x3F));
+                return;
+            }
+            //与String.getBytes()一致，不成对的代理项使用'?'替换
+            buf[count++] = '?';
+            if (count + 4 > buf.length) {
+                flushBuffer();
+            }
+        }
+        if (c < 0x80) {
+            buf[count++] = (byte) c;
+        } else if (c < 0x800) {
+            buf[count++] = (byte) (0xC0 | (c >> 6));
+            buf[count++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buf[count++] = '?';
+        } else {
+            buf[count++] = (byte) (0xE0 | (c >> 12));
+            buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[count++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (buf == null) {
+            throw new IOException("Utf8StreamWriter已经关闭！");
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buf == null) {
+            return;
+        }
+        try {
+            if (highSurrogate != 0) {
+                highSurrogate = 0;
+                buf[count++] = '?';
+            }
+            flushBuffer();
+        } finally {
+            count = 0;
+            bufferPool.set(buf);
+            buf = null;
+        }
+    }
+}
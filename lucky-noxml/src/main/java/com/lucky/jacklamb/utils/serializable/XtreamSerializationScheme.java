@@ -3,6 +3,9 @@ package com.lucky.jacklamb.utils.serializable;
 import com.lucky.jacklamb.rest.LXML;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.Type;
 
 /**
@@ -19,8 +22,20 @@ public class XtreamSerializationScheme implements XMLSerializationScheme{
         return lxml.toXml(object);
     }
 
+    @Override
+    public void serialization(Object object, OutputStream out) throws IOException {
+        try (Writer writer = new Utf8StreamWriter(out)) {
+            lxml.toXmlDocument(object, writer);
+        }
+    }
+
     @Override
     public Object deserialization(Type objectType, String objectStr) throws Exception {
         return lxml.fromXml(objectStr);
     }
+
+    @Override
+    public Object deserialization(Type objectType, Reader reader) throws Exception {
+        return lxml.fromXml(reader);
+    }
 }
@@ -0,0 +1,86 @@
+package com.lucky.jacklamb.utils.websocket;
+
+import com.lucky.jacklamb.servlet.core.Model;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 编码完成的WebSocket消息，广播时只编码一次，所有会话共用同一个消息对象<br>
+ * 二进制消息的内容在发送时不会被修改，每个会话使用各自的只读视图
+ *
+ * @author fk7075
+ */
+public final class WsMessage {
+
+    private final String text;
+
+    private final ByteBuffer binary;
+
+    private WsMessage(String text, ByteBuffer binary) {
+        this.text = text;
+        this.binary = binary;
+    }
+
+    /**
+     * 文本消息
+     * @param text 文本
+     * @return
+     */
+    public static WsMessage text(String text) {
+        if (text == null) {
+            throw new NullPointerException("text == null");
+        }
+        return new WsMessage(text, null);
+    }
+
+    /**
+     * 二进制消息，调用后不应再修改数组中的内容
+     * @param bytes 二进制内容
+     * @return
+     */
+    public static WsMessage binary(byte[] bytes) {
+        return binary(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * 二进制消息，使用buffer中position到limit之间的内容，调用后不应再修改其中的内容
+     * @param buffer 二进制内容
+     * @return
+     */
+    public static WsMessage binary(ByteBuffer buffer) {
+        return new WsMessage(null, buffer.asReadOnlyBuffer());
+    }
+
+    /**
+     * 使用JSON序列化方案(与Controller的JSON响应相同)编码的文本消息
+     * @param pojo 要发送的对象
+     * @return
+     * @throws IOException
+     */
+    public static WsMessage json(Object pojo) throws IOException {
+        return text(Model.getJsonSerializationScheme().serialization(pojo));
+    }
+
+    public boolean isBinary() {
+        return binary != null;
+    }
+
+    /**
+     * 消息的长度，文本消息为字符数，二进制消息为字节数
+     * @return
+     */
+    public int length() {
+        return binary == null ? text.length() : binary.remaining();
+    }
+
+    void sendTo(RemoteEndpoint.Async remote, SendHandler handler) {
+        if (binary == null) {
+            remote.sendText(text, handler);
+        } else {
+            remote.sendBinary(binary.duplicate(), handler);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.lucky.jacklamb.utils.websocket;
+
+/**
+ * WebSocket会话的发送队列已满时的处理策略
+ *
+ * @author fk7075
+ */
+public enum WsOverflowPolicy {
+
+    /**
+     * 丢弃队列中最早的消息，适用于只关心最新状态的推送(行情、进度等)
+     */
+    DROP_OLDEST,
+
+    /**
+     * 断开消费过慢的客户端(关闭码1008)，适用于不能丢失消息的场景，客户端需要重新连接并同步状态
+     */
+    DISCONNECT
+}
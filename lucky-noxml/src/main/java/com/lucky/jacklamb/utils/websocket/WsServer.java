@@ -3,11 +3,12 @@ package com.lucky.jacklamb.utils.websocket;
 import com.lucky.jacklamb.ioc.IOCContainers;
 
 import javax.websocket.*;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * 编程式的WebSocket服务
+ * 编程式的WebSocket服务<br>
+ * 每个连接都会创建一个新的Endpoint对象，依赖注入使用缓存的注入计划完成；
+ * 通过{@link #subscribe(Session, String)}与{@link #broadcast(String, WsMessage)}按主题广播消息，
+ * 连接关闭或出错时会自动移除会话(重写onClose/onError时需要调用super)
  *
  * @author fk7075
  * @version 1.0
@@ -16,7 +17,63 @@ import java.util.concurrent.ConcurrentHashMap;
 public abstract class WsServer extends Endpoint {
 
     public WsServer(){
-        IOCContainers.injection(this);
+        IOCContainers.cachedInjection(this);
     }
 
-}
\ No newline at end of file
+    /**
+     * 得到WebSocket会话管理器
+     * @return
+     */
+    protected WsSessionManage getSessionManage() {
+        return WsSessionManage.getWsSessionManage();
+    }
+
+    /**
+     * 注册会话，之后可以通过返回的WsSession异步发送消息
+     * @param session WebSocket会话
+     * @return
+     */
+    protected WsSession register(Session session) {
+        return getSessionManage().register(session);
+    }
+
+    /**
+     * 订阅主题
+     * @param session WebSocket会话
+     * @param topic 主题
+     * @return
+     */
+    protected WsSession subscribe(Session session, String topic) {
+        return getSessionManage().subscribe(session, topic);
+    }
+
+    /**
+     * 取消订阅
+     * @param session WebSocket会话
+     * @param topic 主题
+     */
+    protected void unsubscribe(Session session, String topic) {
+        getSessionManage().unsubscribe(session, topic);
+    }
+
+    /**
+     * 向订阅了主题的所有会话广播消息
+     * @param topic 主题
+     * @param message 编码完成的消息
+     * @return 成功放入发送队列的会话数
+     */
+    protected int broadcast(String topic, WsMessage message) {
+        return getSessionManage().broadcast(topic, message);
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        getSessionManage().unregister(session);
+    }
+
+    @Override
+    public void onError(Session session, Throwable thr) {
+        getSessionManage().unregister(session);
+    }
+
+}
@@ -0,0 +1,220 @@
+package com.lucky.jacklamb.utils.websocket;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.websocket.CloseReason;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 带有异步发送队列的WebSocket会话<br>
+ * 1.同一时间只有一条消息在发送，其余消息按顺序在有界队列中等待，发送消息的线程不会被慢客户端阻塞<br>
+ * 2.队列已满时按{@link WsOverflowPolicy}丢弃最早的消息或断开客户端<br>
+ * 3.发送失败或超时(wsSendTimeout)的会话会被关闭并从{@link WsSessionManage}中移除
+ *
+ * @author fk7075
+ */
+public final class WsSession {
+
+    private static final Logger log = LogManager.getLogger(WsSession.class);
+
+    private final Session session;
+
+    private final WsSessionManage manage;
+
+    private final int maxQueueSize;
+
+    private final WsOverflowPolicy overflowPolicy;
+
+    private final ArrayDeque<WsMessage> queue = new ArrayDeque<>();
+
+    final Set<String> topics = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 是否有消息正在发送，由this保护
+     */
+    private boolean sending;
+
+    private volatile boolean closed;
+
+    private long dropped;
+
+    WsSession(WsSessionManage manage, Session session, int maxQueueSize, WsOverflowPolicy overflowPolicy) {
+        this.manage = manage;
+        this.session = session;
+        this.maxQueueSize = Math.max(1, maxQueueSize);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public String getId() {
+        return session.getId();
+    }
+
+    /**
+     * 当前会话订阅的主题
+     * @return
+     */
+    public Set<String> getTopics() {
+        return Collections.unmodifiableSet(topics);
+    }
+
+    /**
+     * 等待发送的消息数
+     * @return
+     */
+    public synchronized int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * 因队列已满而丢弃的消息数
+     * @return
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    public boolean isOpen() {
+        return !closed && session.isOpen();
+    }
+
+    /**
+     * 发送文本消息
+     * @param text 文本
+     * @return 会话已经关闭或因队列已满被断开时返回false
+     */
+    public boolean send(String text) {
+        return send(WsMessage.text(text));
+    }
+
+    /**
+     * 发送消息，消息进入发送队列后立即返回
+     * @param message 编码完成的消息
+     * @return 会话已经关闭或因队列已满被断开时返回false
+     */
+    public boolean send(WsMessage message) {
+        if (!isOpen()) {
+            manage.remove(this);
+            return false;
+        }
+        synchronized (this) {
+            if (!sending) {
+                sending = true;
+                queue.addLast(message);
+            } else if (queue.size() < maxQueueSize) {
+                queue.addLast(message);
+                return true;
+            } else if (overflowPolicy == WsOverflowPolicy.DROP_OLDEST) {
+                queue.pollFirst();
+                queue.addLast(message);
+                dropped++;
+                return true;
+            } else {
+                dropped++;
+                message = null;
+            }
+        }
+        if (message == null) {
+            close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Slow consumer"));
+            return false;
+        }
+        sendNext();
+        return true;
+    }
+
+    /**
+     * 依次发送队列中的消息，在发送线程中同步完成的消息直接继续发送下一条，避免回调嵌套
+     */
+    private void sendNext() {
+        while (true) {
+            WsMessage message;
+            synchronized (this) {
+                message = queue.pollFirst();
+                if (message == null || closed) {
+                    sending = false;
+                    return;
+                }
+            }
+            Completion completion = new Completion();
+            try {
+                message.sendTo(session.getAsyncRemote(), completion);
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+            synchronized (completion) {
+                completion.returned = true;
+                if (!completion.completed) {
+                    //异步完成时由回调继续发送
+                    return;
+                }
+            }
+            if (!completion.ok) {
+                fail(completion.error);
+                return;
+            }
+        }
+    }
+
+    private void fail(Throwable error) {
+        log.debug("WebSocket消息发送失败，关闭会话 " + session.getId() + "：" + (error == null ? "" : error.getMessage()));
+        close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "Send failed"));
+    }
+
+    /**
+     * 关闭会话并从管理器中移除，关闭操作在后台线程中执行
+     * @param reason 关闭的原因
+     */
+    public void close(CloseReason reason) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.clear();
+        }
+        manage.remove(this);
+        manage.closeAsync(session, reason);
+    }
+
+    /**
+     * 一条消息的发送结果，区分在发送线程中同步完成与异步完成两种情况
+     */
+    private final class Completion implements SendHandler {
+
+        private boolean returned;
+
+        private boolean completed;
+
+        private boolean ok;
+
+        private Throwable error;
+
+        @Override
+        public void onResult(SendResult result) {
+            synchronized (this) {
+                completed = true;
+                ok = result.isOK();
+                error = result.getException();
+                if (!returned) {
+                    return;
+                }
+            }
+            if (ok) {
+                sendNext();
+            } else {
+                fail(error);
+            }
+        }
+    }
+}
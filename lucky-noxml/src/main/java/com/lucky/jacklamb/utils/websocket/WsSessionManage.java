@@ -0,0 +1,290 @@
+package com.lucky.jacklamb.utils.websocket;
+
+import com.lucky.jacklamb.ioc.config.AppConfig;
+import com.lucky.jacklamb.ioc.config.WebConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tomcat.websocket.Constants;
+
+import javax.websocket.CloseReason;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebSocket会话管理器，按主题对会话分组并进行广播<br>
+ * 1.每个会话都有独立的有界发送队列(wsSendQueueSize)，广播只是把消息放入各个会话的队列，不会被慢客户端阻塞<br>
+ * 2.队列已满时按wsOverflowPolicy丢弃最早的消息或断开客户端，发送超过wsSendTimeout的会话会被关闭<br>
+ * 3.广播的消息只编码一次，所有会话共用同一个{@link WsMessage}<br>
+ * 继承{@link WsServer}的Endpoint在连接关闭时会自动移除会话，已经关闭的会话在下一次发送时也会被移除
+ *
+ * @author fk7075
+ */
+public class WsSessionManage {
+
+    private static final Logger log = LogManager.getLogger(WsSessionManage.class);
+
+    private static volatile WsSessionManage wsSessionManage;
+
+    private final Map<String, WsSession> sessions = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<WsSession>> topics = new ConcurrentHashMap<>();
+
+    private final int sendQueueSize;
+
+    private final WsOverflowPolicy overflowPolicy;
+
+    private final long sendTimeout;
+
+    /**
+     * 关闭会话的线程数，写出关闭帧的时间受wsSendTimeout限制，大量慢客户端同时断开时在队列中排队
+     */
+    private static final int CLOSE_THREADS = 2;
+
+    /**
+     * 关闭会话时需要等待正在发送的消息，放在后台线程中执行
+     */
+    private final ThreadPoolExecutor closer;
+
+    private WsSessionManage(WebConfig webCfg) {
+        this.sendQueueSize = webCfg.getWsSendQueueSize();
+        this.overflowPolicy = webCfg.getWsOverflowPolicy();
+        this.sendTimeout = webCfg.getWsSendTimeout();
+        this.closer = new ThreadPoolExecutor(CLOSE_THREADS, CLOSE_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "lucky-ws-close");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.closer.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 得到WebSocket会话管理器
+     * @return
+     */
+    public static WsSessionManage getWsSessionManage() {
+        if (wsSessionManage == null) {
+            synchronized (WsSessionManage.class) {
+                if (wsSessionManage == null) {
+                    wsSessionManage = new WsSessionManage(AppConfig.getAppConfig().getWebConfig());
+                }
+            }
+        }
+        return wsSessionManage;
+    }
+
+    /**
+     * 服务器停止时调用，停止关闭会话的线程，下一次使用时重新创建会话管理器
+     */
+    public static void shutdown() {
+        synchronized (WsSessionManage.class) {
+            if (wsSessionManage != null) {
+                wsSessionManage.closer.shutdown();
+                wsSessionManage = null;
+            }
+        }
+    }
+
+    /**
+     * 注册会话，使用WebConfig中的队列大小与溢出策略，已经注册过时返回原来的会话
+     * @param session WebSocket会话
+     * @return
+     */
+    public WsSession register(Session session) {
+        return register(session, sendQueueSize, overflowPolicy);
+    }
+
+    /**
+     * 注册会话，已经注册过时返回原来的会话
+     * @param session WebSocket会话
+     * @param maxQueueSize 发送队列的容量
+     * @param overflowPolicy 发送队列已满时的处理策略
+     * @return
+     */
+    public WsSession register(Session session, int maxQueueSize, WsOverflowPolicy overflowPolicy) {
+        WsSession wsSession = sessions.get(session.getId());
+        if (wsSession != null) {
+            return wsSession;
+        }
+        if (sendTimeout > 0) {
+            session.getAsyncRemote().setSendTimeout(sendTimeout);
+            //关闭帧使用阻塞发送，同样受发送超时时间的限制
+            session.getUserProperties().put(Constants.BLOCKING_SEND_TIMEOUT_PROPERTY, sendTimeout);
+        }
+        wsSession = new WsSession(this, session, maxQueueSize, overflowPolicy);
+        WsSession exist = sessions.putIfAbsent(session.getId(), wsSession);
+        return exist == null ? wsSession : exist;
+    }
+
+    /**
+     * 移除会话，同时取消所有的订阅
+     * @param session WebSocket会话
+     */
+    public void unregister(Session session) {
+        WsSession wsSession = sessions.get(session.getId());
+        if (wsSession != null) {
+            remove(wsSession);
+        }
+    }
+
+    /**
+     * 得到已经注册的会话
+     * @param sessionId 会话的ID
+     * @return 没有注册时返回null
+     */
+    public WsSession getSession(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    /**
+     * 订阅主题，没有注册的会话会被自动注册
+     * @param session WebSocket会话
+     * @param topic 主题
+     * @return
+     */
+    public WsSession subscribe(Session session, String topic) {
+        WsSession wsSession = register(session);
+        wsSession.topics.add(topic);
+        topics.compute(topic, (key, members) -> {
+            if (members == null) {
+                members = ConcurrentHashMap.newKeySet();
+            }
+            members.add(wsSession);
+            return members;
+        });
+        return wsSession;
+    }
+
+    /**
+     * 取消订阅
+     * @param session WebSocket会话
+     * @param topic 主题
+     */
+    public void unsubscribe(Session session, String topic) {
+        WsSession wsSession = sessions.get(session.getId());
+        if (wsSession != null) {
+            wsSession.topics.remove(topic);
+            leave(wsSession, topic);
+        }
+    }
+
+    /**
+     * 向订阅了主题的所有会话广播消息
+     * @param topic 主题
+     * @param message 编码完成的消息
+     * @return 成功放入发送队列的会话数
+     */
+    public int broadcast(String topic, WsMessage message) {
+        Set<WsSession> members = topics.get(topic);
+        if (members == null) {
+            return 0;
+        }
+        int count = 0;
+        for (WsSession wsSession : members) {
+            if (wsSession.send(message)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 向订阅了主题的所有会话广播文本消息
+     * @param topic 主题
+     * @param text 文本
+     * @return 成功放入发送队列的会话数
+     */
+    public int broadcast(String topic, String text) {
+        return broadcast(topic, WsMessage.text(text));
+    }
+
+    /**
+     * 把对象序列化为JSON后向订阅了主题的所有会话广播，对象只序列化一次
+     * @param topic 主题
+     * @param pojo 要发送的对象
+     * @return 成功放入发送队列的会话数
+     * @throws IOException
+     */
+    public int broadcastJson(String topic, Object pojo) throws IOException {
+        return broadcast(topic, WsMessage.json(pojo));
+    }
+
+    /**
+     * 向所有已经注册的会话广播消息
+     * @param message 编码完成的消息
+     * @return 成功放入发送队列的会话数
+     */
+    public int broadcastAll(WsMessage message) {
+        int count = 0;
+        for (WsSession wsSession : sessions.values()) {
+            if (wsSession.send(message)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 已经注册的会话数
+     * @return
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * 订阅了主题的会话数
+     * @param topic 主题
+     * @return
+     */
+    public int getSubscriberCount(String topic) {
+        Set<WsSession> members = topics.get(topic);
+        return members == null ? 0 : members.size();
+    }
+
+    /**
+     * 当前所有有订阅者的主题
+     * @return
+     */
+    public Set<String> getTopics() {
+        return Collections.unmodifiableSet(topics.keySet());
+    }
+
+    void remove(WsSession wsSession) {
+        sessions.remove(wsSession.getId(), wsSession);
+        for (String topic : wsSession.topics) {
+            leave(wsSession, topic);
+        }
+    }
+
+    void closeAsync(Session session, CloseReason reason) {
+        try {
+            closer.execute(() -> close(session, reason));
+        } catch (RejectedExecutionException e) {
+            //服务器正在停止
+            close(session, reason);
+        }
+    }
+
+    private void close(Session session, CloseReason reason) {
+        try {
+            session.close(reason);
+        } catch (IOException | RuntimeException e) {
+            log.debug("WebSocket会话关闭失败 " + session.getId() + "：" + e.getMessage());
+        }
+    }
+
+    private void leave(WsSession wsSession, String topic) {
+        topics.computeIfPresent(topic, (key, members) -> {
+            members.remove(wsSession);
+            return members.isEmpty() ? null : members;
+        });
+    }
+}